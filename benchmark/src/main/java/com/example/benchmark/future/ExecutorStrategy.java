@@ -0,0 +1,49 @@
+package com.example.benchmark.future;
+
+import com.example.future.config.FutureExecutorConfig;
+import com.example.future.config.FutureExecutorProperties;
+import com.example.future.executor.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 压测中对比的线程池策略,与 future.executor.mode 的取值对应
+ */
+public enum ExecutorStrategy {
+    /**
+     * 原有平台线程池: CPU..2n+1, 100 队列, CallerRunsPolicy
+     */
+    PLATFORM,
+    /**
+     * 每个任务一个虚拟线程
+     */
+    VIRTUAL,
+    /**
+     * 虚拟线程 + 信号量限制并发为 256
+     */
+    VIRTUAL_CAPPED,
+    /**
+     * 自适应线程池,溢出策略为 caller-runs 以便与 PLATFORM 对比(不丢任务)
+     */
+    ADAPTIVE;
+
+    public ExecutorService create() {
+        FutureExecutorProperties properties = new FutureExecutorProperties();
+        switch (this) {
+            case PLATFORM -> properties.setMode(FutureExecutorProperties.Mode.PLATFORM);
+            case VIRTUAL -> properties.setMode(FutureExecutorProperties.Mode.VIRTUAL);
+            case VIRTUAL_CAPPED -> {
+                properties.setMode(FutureExecutorProperties.Mode.VIRTUAL);
+                properties.setMaxConcurrency(256);
+            }
+            case ADAPTIVE -> {
+                properties.setMode(FutureExecutorProperties.Mode.ADAPTIVE);
+                properties.getAdaptive().setOverflowPolicy(OverflowPolicy.CALLER_RUNS);
+                properties.getAdaptive().setAdjustInterval(Duration.ofMillis(500));
+            }
+        }
+        return FutureExecutorConfig.createExecutor(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.benchmark.future;
+
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.example.future.util.CallableVoid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompletableFutureServiceImpl 扇出路径的基准测试
+ * 维度: 任务数(4 到 1万) × 任务类型(CPU / 阻塞 / 混合) × 线程池策略.
+ * 同时输出吞吐量和延迟分布(SampleTime 模式给出 p50/p99/p99.9),
+ * 分配速率通过 -prof gc 获取:
+ * <pre>
+ * java -jar target/benchmarks.jar FanOutBenchmark -prof gc -rf json -rff fan-out.json
+ * </pre>
+ * 结果文件可以在部署前与上一次的结果比较,发现吞吐量、尾延迟或 gc.alloc.rate.norm 的回退.
+ * 单个任务的提交开销见 SubmitBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FanOutBenchmark {
+
+    @Param({"4", "64", "1024", "10000"})
+    public int taskCount;
+
+    @Param({"CPU", "SLEEP", "MIXED"})
+    public TaskType taskType;
+
+    @Param({"PLATFORM", "VIRTUAL", "VIRTUAL_CAPPED", "ADAPTIVE"})
+    public ExecutorStrategy executor;
+
+    private ExecutorService executorService;
+
+    private CompletableFutureServiceImpl service;
+
+    private CallableVoid[] tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executorService = executor.create();
+        service = new CompletableFutureServiceImpl(executorService);
+        tasks = new CallableVoid[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            tasks[i] = taskType.task(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.close();
+    }
+
+    /**
+     * 一次完整扇出:提交 taskCount 个任务并等待全部完成
+     */
+    @Benchmark
+    public void allOfAndJoin() throws Exception {
+        service.allOfAndJoin(tasks);
+    }
+}
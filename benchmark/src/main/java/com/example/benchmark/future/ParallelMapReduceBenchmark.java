@@ -0,0 +1,112 @@
+package com.example.benchmark.future;
+
+import com.example.future.executor.BulkheadRegistry;
+import com.example.future.executor.CpuLane;
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.example.future.support.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * parallelMap / parallelReduce 与顺序循环、parallelStream() 的对比
+ * 每个元素做 work 轮整数混合运算,模拟打分;reduce 把分数求和.
+ * CpuLane 使用默认配置(并行度为 CPU 核数,自动顺序阈值),与公共 ForkJoinPool 上的 parallelStream 并行度相同:
+ * <pre>
+ * java -jar target/benchmarks.jar ParallelMapReduceBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ParallelMapReduceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"1", "100"})
+    public int work;
+
+    private List<Long> items;
+
+    private ExecutorService ioExecutor;
+
+    private CpuLane lane;
+
+    private CompletableFutureServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = LongStream.range(0, size).boxed().toList();
+        ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        lane = new CpuLane("cpu", 0, 0, registry);
+        service = new CompletableFutureServiceImpl(ioExecutor,
+                new SingleFlight("benchmark", Duration.ZERO, 0, registry),
+                new BulkheadRegistry(ioExecutor, registry), lane);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        lane.close();
+        ioExecutor.close();
+    }
+
+    private long score(long value) {
+        long x = value;
+        for (int i = 0; i < work; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        return x;
+    }
+
+    @Benchmark
+    public List<Long> mapSequential() {
+        List<Long> results = new ArrayList<>(items.size());
+        for (Long item : items) {
+            results.add(score(item));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<Long> mapParallelStream() {
+        return items.parallelStream().map(this::score).toList();
+    }
+
+    @Benchmark
+    public List<Long> mapCpuLane() {
+        return service.parallelMap(items, this::score);
+    }
+
+    @Benchmark
+    public long reduceSequential() {
+        long sum = 0;
+        for (Long item : items) {
+            sum += score(item);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long reduceParallelStream() {
+        return items.parallelStream().reduce(0L, (sum, item) -> sum + score(item), Long::sum);
+    }
+
+    @Benchmark
+    public long reduceCpuLane() {
+        return service.parallelReduce(items, 0L, (sum, item) -> sum + score(item), Long::sum);
+    }
+}
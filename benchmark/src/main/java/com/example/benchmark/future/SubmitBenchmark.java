@@ -0,0 +1,65 @@
+package com.example.benchmark.future;
+
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.example.future.util.CallableVoid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 单个任务经 callAsync / supplyAsync 提交并等待完成的开销
+ * 与任务数无关,因此与 FanOutBenchmark 分开,避免重复测量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SubmitBenchmark {
+
+    @Param({"CPU", "SLEEP"})
+    public TaskType taskType;
+
+    @Param({"PLATFORM", "VIRTUAL", "VIRTUAL_CAPPED", "ADAPTIVE"})
+    public ExecutorStrategy executor;
+
+    private ExecutorService executorService;
+
+    private CompletableFutureServiceImpl service;
+
+    private CallableVoid task;
+
+    private Supplier<Void> supplier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executorService = executor.create();
+        service = new CompletableFutureServiceImpl(executorService);
+        task = taskType.task(0);
+        supplier = () -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.close();
+    }
+
+    @Benchmark
+    public Void callAsync() {
+        return service.callAsync(task).join();
+    }
+
+    @Benchmark
+    public Void supplyAsync() {
+        return service.supplyAsync(supplier).join();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.benchmark.future;
+
+import com.example.future.util.CallableVoid;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 子任务类型
+ */
+public enum TaskType {
+    /**
+     * 纯计算,约数微秒
+     */
+    CPU,
+    /**
+     * 阻塞 1ms,模拟一次下游 HTTP 调用
+     */
+    SLEEP,
+    /**
+     * 一半计算一半阻塞
+     */
+    MIXED;
+
+    private static final long CPU_TOKENS = 2_000;
+
+    private static final long SLEEP_NANOS = 1_000_000;
+
+    public CallableVoid task(int index) {
+        TaskType type = this == MIXED ? (index % 2 == 0 ? CPU : SLEEP) : this;
+        if (type == CPU) {
+            return () -> {
+                Blackhole.consumeCPU(CPU_TOKENS);
+                return null;
+            };
+        }
+        return () -> {
+            LockSupport.parkNanos(SLEEP_NANOS);
+            return null;
+        };
+    }
+}
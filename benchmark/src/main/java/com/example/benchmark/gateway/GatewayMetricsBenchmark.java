@@ -0,0 +1,111 @@
+package com.example.benchmark.gateway;
+
+import com.example.gateway.filter.GatewayMetricsGlobalFilter;
+import com.example.gateway.metrics.GatewayMetrics;
+import com.example.gateway.metrics.RequestTimings;
+import com.example.gateway.metrics.TimedRouteLocator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 网关延迟指标在每个请求上的额外开销
+ * 与 future-service 路由一样有 8 个路由过滤器,过滤器和上游都是空操作,测量的只是指标本身;
+ * OFF 为不记录指标的基准,ROUTE 只记录路由级别(filter-sample-percent=0),FILTERS 每个请求都记录各过滤器耗时.
+ * 4 个线程模拟多个事件循环线程同时记录同一个路由的直方图.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class GatewayMetricsBenchmark {
+
+    private static final int FILTERS = 8;
+
+    @Param({"OFF", "ROUTE", "FILTERS"})
+    public String mode;
+
+    private Route route;
+
+    private GatewayMetricsGlobalFilter globalFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<GatewayFilter> filters = new ArrayList<>();
+        for (int i = 0; i < FILTERS; i++) {
+            filters.add(new OrderedGatewayFilter((exchange, chain) -> chain.filter(exchange), i + 1));
+        }
+        Route plain = Route.async()
+                .id("future-service")
+                .uri("http://localhost:7778")
+                .asyncPredicate(exchange -> Mono.just(true))
+                .filters(filters)
+                .build();
+        if ("OFF".equals(mode)) {
+            route = plain;
+            return;
+        }
+        GatewayMetrics metrics = new GatewayMetrics(new SimpleMeterRegistry(), Duration.ofSeconds(60), 2,
+                Duration.ofSeconds(30), List.of(0.5, 0.99), "FILTERS".equals(mode) ? 100 : 0);
+        route = new TimedRouteLocator(() -> Flux.just(plain), () -> metrics).getRoutes().blockFirst();
+        globalFilter = new GatewayMetricsGlobalFilter(metrics);
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+
+        private MockServerWebExchange exchange;
+
+        private GatewayFilterChain chain;
+
+        @Setup(Level.Trial)
+        public void setUp(GatewayMetricsBenchmark benchmark) {
+            exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/future/one"));
+            exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, benchmark.route);
+            chain = chain(List.copyOf(benchmark.route.getFilters()), 0);
+        }
+    }
+
+    /**
+     * 与 DefaultGatewayFilterChain 一样逐个调用过滤器,末端模拟路由转发过滤器记录上游耗时
+     */
+    private static GatewayFilterChain chain(List<GatewayFilter> filters, int index) {
+        if (index == filters.size()) {
+            return exchange -> {
+                RequestTimings timings = RequestTimings.of(exchange);
+                if (timings == null) {
+                    return Mono.empty();
+                }
+                long start = System.nanoTime();
+                return Mono.<Void>empty().doOnTerminate(() -> timings.upstream(System.nanoTime() - start));
+            };
+        }
+        GatewayFilterChain next = chain(filters, index + 1);
+        GatewayFilter filter = filters.get(index);
+        return exchange -> Mono.defer(() -> filter.filter(exchange, next));
+    }
+
+    @Benchmark
+    public Void request(Request request) {
+        Mono<Void> result = globalFilter == null ? request.chain.filter(request.exchange)
+                : globalFilter.filter(request.exchange, request.chain);
+        return result.block();
+    }
+}
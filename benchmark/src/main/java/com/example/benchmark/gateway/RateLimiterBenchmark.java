@@ -0,0 +1,62 @@
+package com.example.benchmark.gateway;
+
+import com.example.gateway.ratelimit.AdaptiveConcurrencyLimiter;
+import com.example.gateway.ratelimit.TokenBucketLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关限流在每个请求上的额外开销
+ * 4 个线程并发模拟多个事件循环线程同时获取令牌;keyCount=1 时所有线程竞争同一个桶(按路由限流),
+ * keyCount 较大时接近按客户端 IP 限流.速率设得足够大,测量的是放行路径而不是拒绝路径.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class RateLimiterBenchmark {
+
+    @Param({"1", "1024", "65536"})
+    public int keyCount;
+
+    private TokenBucketLimiter tokenBucket;
+
+    private AdaptiveConcurrencyLimiter concurrency;
+
+    private InetAddress[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws UnknownHostException {
+        tokenBucket = new TokenBucketLimiter(1e9, 1_000_000, keyCount * 2);
+        concurrency = new AdaptiveConcurrencyLimiter(1000, 1000, 1000, 1.5, 0.2, 0.9);
+        keys = new InetAddress[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = InetAddress.getByAddress(new byte[]{10, (byte) (i >> 16), (byte) (i >> 8), (byte) i});
+        }
+    }
+
+    @Benchmark
+    public long tokenBucket() {
+        InetAddress key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return tokenBucket.tryAcquire(key, System.nanoTime());
+    }
+
+    /**
+     * 获取、释放并记录一个延迟样本
+     */
+    @Benchmark
+    public boolean concurrencyLimit() {
+        boolean acquired = concurrency.tryAcquire();
+        if (acquired) {
+            concurrency.release(1_000_000, false);
+        }
+        return acquired;
+    }
+}
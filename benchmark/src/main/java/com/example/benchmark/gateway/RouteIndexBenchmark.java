@@ -0,0 +1,97 @@
+package com.example.benchmark.gateway;
+
+import com.example.gateway.route.RouteIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * 路由匹配耗时: RoutePredicateHandlerMapping 的线性查找与 RouteIndex 的对比
+ * 每个租户一个路由 Path=/tenant-{i}/api/**,使用真实的 PathRoutePredicateFactory 谓词;
+ * target 为请求命中的路由位置: FIRST 第一个、LAST 最后一个,MISS 没有路由匹配(线性查找的最坏情况).
+ * <pre>
+ * java -jar target/benchmarks.jar RouteIndexBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class RouteIndexBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int routes;
+
+    @Param({"FIRST", "LAST", "MISS"})
+    public String target;
+
+    private List<Route> routeList;
+
+    private RouteIndex index;
+
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PathRoutePredicateFactory factory = new PathRoutePredicateFactory();
+        routeList = new ArrayList<>(routes);
+        Map<String, List<String>> patterns = new HashMap<>();
+        for (int i = 0; i < routes; i++) {
+            String id = "tenant-" + i;
+            List<String> pattern = List.of("/" + id + "/api/**");
+            PathRoutePredicateFactory.Config config = new PathRoutePredicateFactory.Config();
+            config.setPatterns(pattern);
+            routeList.add(Route.async()
+                    .id(id)
+                    .uri("http://localhost:7778")
+                    .asyncPredicate(factory.applyAsync(config))
+                    .build());
+            patterns.put(id, pattern);
+        }
+        index = RouteIndex.build(routeList, patterns);
+        path = switch (target) {
+            case "FIRST" -> "/tenant-0/api/orders/42";
+            case "LAST" -> "/tenant-" + (routes - 1) + "/api/orders/42";
+            default -> "/unknown/api/orders/42";
+        };
+    }
+
+    /**
+     * 每次调用新建 exchange,谓词会往里面写入路径变量等属性
+     */
+    private ServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    @Benchmark
+    public Route linear() {
+        ServerWebExchange exchange = exchange();
+        return Flux.fromIterable(routeList)
+                .concatMap(route -> Mono.just(route).filterWhen(r -> {
+                    exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
+                    return r.getPredicate().apply(exchange);
+                }))
+                .next()
+                .block();
+    }
+
+    @Benchmark
+    public Route indexed() {
+        return index.lookup(exchange()).block();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.future.config;
+
+import com.example.future.feign.AsyncFeignClients;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 异步 Feign 客户端装配
+ * 注入 AsyncFeignClients 后调用 client(接口, 服务名) 创建客户端,再交给 CompletableFutureService.allOfFutures 组合
+ */
+@Configuration
+@EnableConfigurationProperties(AsyncFeignProperties.class)
+public class AsyncFeignConfig {
+
+    @Bean(destroyMethod = "close")
+    public AsyncFeignClients asyncFeignClients(AsyncFeignProperties properties,
+                                               ObjectProvider<ObjectMapper> objectMapper,
+                                               ObjectProvider<LoadBalancerClientFactory> loadBalancers,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return new AsyncFeignClients("feign", properties.toSettings(), properties.getUrls(),
+                objectMapper.getIfAvailable(ObjectMapper::new), loadBalancers.getIfAvailable(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.future.config;
+
+import com.example.future.feign.AsyncFeignClients;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 异步 Feign 客户端配置
+ * 对应配置前缀 future.feign,所有 AsyncFeignClients 创建的客户端共用一个 HTTP 连接池
+ */
+@Data
+@ConfigurationProperties(prefix = "future.feign")
+public class AsyncFeignProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxConnections = 200;
+
+    /**
+     * 每个目标地址(host:port)的最大连接数
+     */
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * 建立连接超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    /**
+     * 等待响应超时时间
+     */
+    private Duration responseTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 空闲连接保留时间,超过后关闭;在此之前复用(keep-alive)
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * IO 线程数,<=0 表示使用 CPU 核数
+     */
+    private int ioThreads = 0;
+
+    /**
+     * 按服务名指定固定地址,例如 inventory: http://localhost:9000;
+     * 未配置的服务名每次请求通过注册中心(ReactiveLoadBalancer)异步选择实例
+     */
+    private Map<String, String> urls = new LinkedHashMap<>();
+
+    public AsyncFeignClients.Settings toSettings() {
+        return new AsyncFeignClients.Settings(maxConnections, maxConnectionsPerRoute, connectTimeout,
+                responseTimeout, idleTimeout, ioThreads);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.future.config;
+
+import com.example.future.executor.BulkheadRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 命名舱壁装配
+ * Nacos 配置变更后 Spring Cloud 发布 EnvironmentChangeEvent,此时按最新配置调整舱壁,无需重启.
+ * 直接从 Environment 重新绑定而不是读取 BulkheadProperties bean:
+ * 重新绑定到已有的 Map 时只会合并,配置中删除的舱壁不会消失.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class BulkheadConfig {
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(@Qualifier("futureExecutor") Executor futureExecutor,
+                                             BulkheadProperties properties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        BulkheadRegistry registry = new BulkheadRegistry(futureExecutor,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        registry.reconcile(properties.toSpecs());
+        return registry;
+    }
+
+    @Bean
+    public ApplicationListener<EnvironmentChangeEvent> bulkheadRefresher(BulkheadRegistry registry,
+                                                                         Environment environment) {
+        return event -> {
+            if (event.getKeys().stream().noneMatch(key -> key.startsWith(BulkheadProperties.PREFIX))) {
+                return;
+            }
+            try {
+                BulkheadProperties properties = Binder.get(environment)
+                        .bind(BulkheadProperties.PREFIX, BulkheadProperties.class)
+                        .orElseGet(BulkheadProperties::new);
+                registry.reconcile(properties.toSpecs());
+            } catch (RuntimeException e) {
+                // 配置有误时保留原有舱壁
+                log.error("failed to apply bulkhead config, keeping the previous one", e);
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.future.config;
+
+import com.example.future.executor.BulkheadSpec;
+import com.example.future.executor.OverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 命名舱壁配置
+ * 对应配置前缀 future.bulkhead,可放在 Nacos 中在线修改
+ */
+@Data
+@ConfigurationProperties(prefix = BulkheadProperties.PREFIX)
+public class BulkheadProperties {
+
+    public static final String PREFIX = "future.bulkhead";
+
+    /**
+     * 舱壁名称 -> 参数,调用时通过 callAsyncIn(name, task) 选择
+     */
+    private Map<String, Instance> instances = new LinkedHashMap<>();
+
+    public Map<String, BulkheadSpec> toSpecs() {
+        Map<String, BulkheadSpec> specs = new LinkedHashMap<>();
+        instances.forEach((name, instance) -> specs.put(name, instance.toSpec()));
+        return specs;
+    }
+
+    @Data
+    public static class Instance {
+        /**
+         * 隔离方式: thread-pool / semaphore
+         */
+        private BulkheadSpec.Type type = BulkheadSpec.Type.THREAD_POOL;
+        /**
+         * thread-pool: 最小核心线程数
+         */
+        private int coreSize = 4;
+        /**
+         * thread-pool: 最大线程数
+         */
+        private int maxSize = 16;
+        /**
+         * semaphore: 同时执行的最大任务数
+         */
+        private int maxConcurrency = 16;
+        /**
+         * 排队任务数上限
+         */
+        private int queueCapacity = 50;
+        /**
+         * thread-pool: 队列已满时的处理策略,默认直接拒绝,避免一个慢下游拖住调用线程
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.SHED;
+        /**
+         * thread-pool: bounded-wait 策略下提交线程的最长等待时间
+         */
+        private Duration boundedWait = Duration.ofMillis(50);
+
+        public BulkheadSpec toSpec() {
+            return new BulkheadSpec(type, coreSize, maxSize, maxConcurrency, queueCapacity, overflowPolicy,
+                    boundedWait);
+        }
+    }
+}
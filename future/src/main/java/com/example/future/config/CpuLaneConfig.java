@@ -0,0 +1,24 @@
+package com.example.future.config;
+
+import com.example.future.executor.CpuLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * CPU 通道装配
+ * 与 futureExecutor 分开: I/O 线程池被阻塞任务占满时不影响计算,计算也不会挤占 I/O 线程
+ */
+@Configuration
+@EnableConfigurationProperties(CpuLaneProperties.class)
+public class CpuLaneConfig {
+
+    @Bean(destroyMethod = "close")
+    public CpuLane cpuLane(CpuLaneProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CpuLane("cpu", properties.getParallelism(), properties.getSequentialThreshold(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
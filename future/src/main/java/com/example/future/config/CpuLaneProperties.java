@@ -0,0 +1,23 @@
+package com.example.future.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * CPU 通道配置(parallelMap / parallelReduce 使用的 ForkJoinPool)
+ * 对应配置前缀 future.cpu
+ */
+@Data
+@ConfigurationProperties(prefix = "future.cpu")
+public class CpuLaneProperties {
+
+    /**
+     * 并行度,<=0 表示使用 CPU 核数
+     */
+    private int parallelism = 0;
+
+    /**
+     * 顺序计算的最大区间长度,<=0 表示按输入大小自动计算(每个工作线程大约 4 个区间)
+     */
+    private int sequentialThreshold = 0;
+}
@@ -0,0 +1,62 @@
+package com.example.future.config;
+
+import com.example.future.executor.AdaptiveThreadPoolExecutor;
+import com.example.future.executor.ConcurrencyLimitedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.*;
+
+/**
+ * 异步任务线程池装配
+ * 根据 future.executor.mode 选择平台线程池、虚拟线程执行器或自适应线程池
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(FutureExecutorProperties.class)
+public class FutureExecutorConfig {
+
+    /**
+     * CompletableFutureService 使用的线程池
+     * 容器关闭时会调用 close() 等待已提交的任务执行完成
+     */
+    @Bean(name = "futureExecutor")
+    public ExecutorService futureExecutor(FutureExecutorProperties properties,
+                                          ObjectProvider<MeterRegistry> meterRegistry) {
+        return createExecutor(properties, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * 按配置创建线程池,供测试和压测直接使用
+     */
+    public static ExecutorService createExecutor(FutureExecutorProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getMode() == FutureExecutorProperties.Mode.ADAPTIVE) {
+            FutureExecutorProperties.Adaptive adaptive = properties.getAdaptive();
+            log.info("future executor mode=ADAPTIVE, {}", adaptive);
+            return new AdaptiveThreadPoolExecutor("future", adaptive.toSettings(), meterRegistry);
+        }
+        if (properties.getMode() == FutureExecutorProperties.Mode.VIRTUAL) {
+            ExecutorService virtual = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("future-vt-", 0).factory());
+            log.info("future executor mode=VIRTUAL, maxConcurrency={}", properties.getMaxConcurrency());
+            if (properties.getMaxConcurrency() > 0) {
+                return new ConcurrencyLimitedExecutor(virtual, properties.getMaxConcurrency());
+            }
+            return virtual;
+        }
+        int corePoolSize = Runtime.getRuntime().availableProcessors();
+        log.info("future executor mode=PLATFORM, corePoolSize={}", corePoolSize);
+        return new ThreadPoolExecutor(corePoolSize,
+                corePoolSize * 2 + 1,
+                1,
+                TimeUnit.MINUTES,
+                new LinkedBlockingDeque<>(100),
+                //拒绝任务,调用者现场执行任务
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
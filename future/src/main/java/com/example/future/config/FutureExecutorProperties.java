@@ -0,0 +1,89 @@
+package com.example.future.config;
+
+import com.example.future.executor.AdaptiveThreadPoolExecutor;
+import com.example.future.executor.OverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 异步任务线程池配置
+ * 对应配置前缀 future.executor
+ */
+@Data
+@ConfigurationProperties(prefix = "future.executor")
+public class FutureExecutorProperties {
+
+    /**
+     * 执行模式,默认使用平台线程池
+     */
+    private Mode mode = Mode.PLATFORM;
+
+    /**
+     * 虚拟线程模式下同时执行的最大任务数,小于等于0表示不限制
+     * 用于保护下游,避免虚拟线程数量无上限时把压力全部转移到下游服务
+     */
+    private int maxConcurrency = 0;
+
+    /**
+     * 自适应线程池参数,仅 adaptive 模式生效
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    public enum Mode {
+        /**
+         * 有界平台线程池,核心线程数为CPU核数,最大线程数为2n+1
+         */
+        PLATFORM,
+        /**
+         * 每个任务一个虚拟线程,适合阻塞式的Feign/HTTP调用
+         */
+        VIRTUAL,
+        /**
+         * 根据排队时间和执行时间自动调整线程数的平台线程池,带饱和度指标
+         */
+        ADAPTIVE
+    }
+
+    @Data
+    public static class Adaptive {
+        /**
+         * 最小核心线程数,默认CPU核数
+         */
+        private int minCoreSize = Runtime.getRuntime().availableProcessors();
+        /**
+         * 最大线程数上限
+         */
+        private int maxSize = Runtime.getRuntime().availableProcessors() * 16;
+        /**
+         * 队列容量
+         */
+        private int queueCapacity = 100;
+        /**
+         * 队列已满时的处理策略: shed / bounded-wait / caller-runs
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BOUNDED_WAIT;
+        /**
+         * bounded-wait 策略下提交线程的最长等待时间
+         */
+        private Duration boundedWait = Duration.ofMillis(50);
+        /**
+         * 调整周期
+         */
+        private Duration adjustInterval = Duration.ofSeconds(5);
+        /**
+         * 目标线程利用率,越小预留的线程越多
+         */
+        private double targetUtilization = 0.75;
+        /**
+         * 可接受的平均排队时间,超过时至少增加一个线程
+         */
+        private Duration maxQueueWait = Duration.ofMillis(20);
+
+        public AdaptiveThreadPoolExecutor.Settings toSettings() {
+            return new AdaptiveThreadPoolExecutor.Settings(minCoreSize, maxSize, queueCapacity, overflowPolicy,
+                    boundedWait, adjustInterval, targetUtilization, maxQueueWait);
+        }
+    }
+}
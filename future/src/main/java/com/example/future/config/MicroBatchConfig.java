@@ -0,0 +1,28 @@
+package com.example.future.config;
+
+import com.example.future.support.MicroBatchers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 微批处理装配
+ */
+@Configuration
+@EnableConfigurationProperties(MicroBatchProperties.class)
+public class MicroBatchConfig {
+
+    @Bean
+    public MicroBatchers microBatchers(@Qualifier("futureExecutor") Executor futureExecutor,
+                                       MicroBatchProperties properties,
+                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MicroBatchers(futureExecutor, properties.getMaxSize(), properties.getMaxDelay(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
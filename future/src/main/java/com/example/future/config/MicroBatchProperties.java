@@ -0,0 +1,25 @@
+package com.example.future.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 微批处理默认窗口
+ * 对应配置前缀 future.batch
+ */
+@Data
+@ConfigurationProperties(prefix = "future.batch")
+public class MicroBatchProperties {
+
+    /**
+     * 每批最多的 key 数量,攒满立即提交
+     */
+    private int maxSize = 64;
+
+    /**
+     * 本批第一个 key 到达后最多等待的时间
+     */
+    private Duration maxDelay = Duration.ofMillis(2);
+}
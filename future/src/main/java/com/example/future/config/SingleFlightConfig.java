@@ -0,0 +1,23 @@
+package com.example.future.config;
+
+import com.example.future.support.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 并发调用合并装配
+ */
+@Configuration
+@EnableConfigurationProperties(SingleFlightProperties.class)
+public class SingleFlightConfig {
+
+    @Bean
+    public SingleFlight singleFlight(SingleFlightProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SingleFlight("future", properties.getCacheTtl(), properties.getCacheMaxSize(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.future.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 相同 key 的并发调用合并配置
+ * 对应配置前缀 future.single-flight
+ */
+@Data
+@ConfigurationProperties(prefix = "future.single-flight")
+public class SingleFlightProperties {
+
+    /**
+     * 结果缓存时间,为0时只合并同一时刻正在执行的调用,不缓存结果
+     */
+    private Duration cacheTtl = Duration.ZERO;
+
+    /**
+     * 结果缓存最大条数,超出后按 W-TinyLFU 淘汰
+     */
+    private long cacheMaxSize = 10_000;
+}
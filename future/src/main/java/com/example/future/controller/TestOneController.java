@@ -8,6 +8,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @RestController
 @RequestMapping("/test/one")
@@ -45,4 +47,31 @@ public class TestOneController {
                     return null;
                 });
     }
+
+    /**
+     * FourFuture 的非阻塞版本
+     * 返回 CompletableFuture 时 Spring MVC 进入异步模式,Tomcat 请求线程在扇出期间被释放,
+     * 所有任务完成后再在容器线程中写出响应;任意任务失败时按 FourFuture 相同的异常处理
+     */
+    @GetMapping("/fourFutureAsync")
+    public CompletableFuture<Void> fourFutureAsync() {
+        log.info("fourFutureAsync-start");
+        return completableFutureService.allOfAsync(
+                () -> {
+                    log.info("fourFutureAsync-1");
+                    return null;
+                },
+                () -> {
+                    log.info("fourFutureAsync-2");
+                    return null;
+                },
+                () -> {
+                    log.info("fourFutureAsync-3");
+                    return null;
+                },
+                () -> {
+                    log.info("fourFutureAsync-4");
+                    return null;
+                });
+    }
 }
@@ -0,0 +1,325 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应线程池
+ * 按固定周期根据利特尔法则(L = λW)调整核心线程数:
+ * 需要的并发数 = 任务到达速率 × 平均执行时间 / 目标利用率;
+ * 平均排队时间超过阈值时至少再增加一个线程.扩容一步到位,缩容每次只收回差值的四分之一,避免抖动.
+ * 最大线程数保持为核心线程数的 2n+1(不超过配置上限),与原线程池的比例一致.
+ * <p>
+ * 通过 Micrometer 暴露以下指标(tag name 区分不同线程池):
+ * future.executor.queue.size / active / pool.size / pool.core (gauge),
+ * future.executor.rejected / caller.runs (counter),
+ * future.executor.wait / run (timer,任务排队时间与执行时间).
+ */
+@Slf4j
+public class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final String name;
+
+    private volatile Settings settings;
+
+    private volatile int minCoreSize;
+
+    private volatile int maxSize;
+
+    private volatile double targetUtilization;
+
+    private volatile long maxQueueWaitNanos;
+
+    private final MeterRegistry registry;
+
+    private final List<Meter> meters = new ArrayList<>();
+
+    private final ScheduledExecutorService controller;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+
+    private final Timer waitTimer;
+
+    private final Timer runTimer;
+
+    private long lastAdjustNanos = System.nanoTime();
+
+    public AdaptiveThreadPoolExecutor(String name, Settings settings, MeterRegistry registry) {
+        super(settings.minCoreSize(),
+                Math.min(settings.maxSize(), settings.minCoreSize() * 2 + 1),
+                1,
+                TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(settings.queueCapacity()),
+                Thread.ofPlatform().name(name + "-", 0).factory());
+        checkPoolSize(settings);
+        this.name = name;
+        this.registry = registry;
+        applySettings(settings);
+
+        Tags tags = Tags.of("name", name);
+        this.waitTimer = Timer.builder("future.executor.wait").tags(tags)
+                .description("任务在队列中的等待时间").publishPercentileHistogram().register(registry);
+        this.runTimer = Timer.builder("future.executor.run").tags(tags)
+                .description("任务执行时间").publishPercentileHistogram().register(registry);
+        meters.add(waitTimer);
+        meters.add(runTimer);
+        meters.add(Gauge.builder("future.executor.queue.size", this, e -> e.getQueue().size()).tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("future.executor.active", this, ThreadPoolExecutor::getActiveCount).tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("future.executor.pool.size", this, ThreadPoolExecutor::getPoolSize).tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("future.executor.pool.core", this, ThreadPoolExecutor::getCorePoolSize).tags(tags)
+                .register(registry));
+        meters.add(FunctionCounter.builder("future.executor.rejected", rejected, LongAdder::sum).tags(tags)
+                .register(registry));
+        meters.add(FunctionCounter.builder("future.executor.caller.runs", callerRuns, LongAdder::sum).tags(tags)
+                .register(registry));
+
+        long interval = settings.adjustInterval().toNanos();
+        this.controller = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(name + "-controller").daemon().factory());
+        controller.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.increment();
+        super.execute(new TimedTask(command, System.nanoTime()));
+    }
+
+    /**
+     * 根据上一个周期的到达速率、执行时间和排队时间调整线程数
+     */
+    public void adjust() {
+        try {
+            long now = System.nanoTime();
+            double seconds = Math.max(1e-3, (now - lastAdjustNanos) / 1e9);
+            lastAdjustNanos = now;
+            long arrivals = submitted.sumThenReset();
+            long done = completed.sumThenReset();
+            long run = runNanos.sumThenReset();
+            long wait = waitNanos.sumThenReset();
+
+            int current = getCorePoolSize();
+            int target;
+            if (done == 0) {
+                // 没有完成的任务:空闲时收缩,任务全部卡住时不做判断
+                target = getActiveCount() == 0 && getQueue().isEmpty() ? minCoreSize : current;
+            } else {
+                double arrivalRate = arrivals / seconds;
+                double avgRunSeconds = run / (double) done / 1e9;
+                target = (int) Math.ceil(arrivalRate * avgRunSeconds / targetUtilization);
+                if (wait / done > maxQueueWaitNanos) {
+                    target = Math.max(target, current + 1);
+                }
+            }
+            target = Math.max(minCoreSize, Math.min(maxSize, target));
+            int next = target >= current ? target : current - Math.max(1, (current - target) / 4);
+            if (next != current) {
+                resize(next);
+                log.debug("executor {} resized core {} -> {}, max={}", name, current, next, getMaximumPoolSize());
+            }
+        } catch (RuntimeException e) {
+            log.warn("executor {} adjust failed", name, e);
+        }
+    }
+
+    /**
+     * 运行期修改参数,已提交的任务不受影响
+     * 队列容量和调整周期无法在线修改,此时返回 false,由调用方重建线程池
+     */
+    public synchronized boolean reconfigure(Settings next) {
+        checkPoolSize(next);
+        if (next.queueCapacity() != settings.queueCapacity()
+                || !next.adjustInterval().equals(settings.adjustInterval())) {
+            return false;
+        }
+        applySettings(next);
+        int core = Math.max(next.minCoreSize(), Math.min(next.maxSize(), getCorePoolSize()));
+        resize(core);
+        return true;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    private void applySettings(Settings settings) {
+        this.settings = settings;
+        this.minCoreSize = settings.minCoreSize();
+        this.maxSize = settings.maxSize();
+        this.targetUtilization = settings.targetUtilization();
+        this.maxQueueWaitNanos = settings.maxQueueWait().toNanos();
+        setRejectedExecutionHandler(new OverflowHandler(settings.overflowPolicy(), settings.boundedWait()));
+    }
+
+    private static void checkPoolSize(Settings settings) {
+        if (settings.minCoreSize() <= 0 || settings.maxSize() < settings.minCoreSize()) {
+            throw new IllegalArgumentException("invalid pool size: min=" + settings.minCoreSize()
+                    + ", max=" + settings.maxSize());
+        }
+    }
+
+    private synchronized void resize(int core) {
+        int max = Math.min(maxSize, core * 2 + 1);
+        if (core > getCorePoolSize()) {
+            setMaximumPoolSize(Math.max(max, getMaximumPoolSize()));
+            setCorePoolSize(core);
+            setMaximumPoolSize(max);
+        } else {
+            setCorePoolSize(core);
+            setMaximumPoolSize(max);
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+
+    @Override
+    protected void terminated() {
+        controller.shutdownNow();
+        super.terminated();
+    }
+
+    @Override
+    public void shutdown() {
+        removeMeters();
+        super.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        removeMeters();
+        return super.shutdownNow();
+    }
+
+    /**
+     * 同名线程池重建时新实例要重新注册指标,旧指标必须在关闭时立即移除,
+     * 否则注册中心返回的仍是绑定旧实例的 gauge
+     */
+    private void removeMeters() {
+        synchronized (meters) {
+            meters.forEach(registry::remove);
+            meters.clear();
+        }
+    }
+
+    /**
+     * 记录排队时间和执行时间
+     */
+    private final class TimedTask implements Runnable {
+
+        private final Runnable delegate;
+
+        private final long enqueuedNanos;
+
+        private TimedTask(Runnable delegate, long enqueuedNanos) {
+            this.delegate = delegate;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long waited = start - enqueuedNanos;
+            try {
+                delegate.run();
+            } finally {
+                long ran = System.nanoTime() - start;
+                waitNanos.add(waited);
+                runNanos.add(ran);
+                completed.increment();
+                waitTimer.record(waited, TimeUnit.NANOSECONDS);
+                runTimer.record(ran, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 队列已满时按 OverflowPolicy 处理
+     */
+    private final class OverflowHandler implements RejectedExecutionHandler {
+
+        private final OverflowPolicy policy;
+
+        private final long boundedWaitNanos;
+
+        private OverflowHandler(OverflowPolicy policy, Duration boundedWait) {
+            this.policy = policy;
+            this.boundedWaitNanos = boundedWait.toNanos();
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                rejected.increment();
+                throw new RejectedExecutionException("executor " + name + " is shut down");
+            }
+            switch (policy) {
+                case CALLER_RUNS -> {
+                    callerRuns.increment();
+                    task.run();
+                }
+                case BOUNDED_WAIT -> {
+                    try {
+                        if (executor.getQueue().offer(task, boundedWaitNanos, TimeUnit.NANOSECONDS)) {
+                            // 等待期间线程池可能已关闭,此时任务放进队列不一定还有线程执行,拿回来拒绝;已被取走的照常执行
+                            if (executor.isShutdown() && executor.remove(task)) {
+                                rejected.increment();
+                                throw new RejectedExecutionException("executor " + name + " is shut down");
+                            }
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    rejected.increment();
+                    throw new RejectedExecutionException("executor " + name + " queue is full");
+                }
+                default -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException("executor " + name + " queue is full");
+                }
+            }
+        }
+    }
+
+    /**
+     * 自适应线程池参数
+     *
+     * @param minCoreSize       最小核心线程数
+     * @param maxSize           最大线程数上限
+     * @param queueCapacity     队列容量
+     * @param overflowPolicy    队列已满时的处理策略
+     * @param boundedWait       BOUNDED_WAIT 策略下的最长等待时间
+     * @param adjustInterval    调整周期
+     * @param targetUtilization 目标线程利用率(0,1]
+     * @param maxQueueWait      可接受的平均排队时间
+     */
+    public record Settings(int minCoreSize, int maxSize, int queueCapacity, OverflowPolicy overflowPolicy,
+                           Duration boundedWait, Duration adjustInterval, double targetUtilization,
+                           Duration maxQueueWait) {
+    }
+}
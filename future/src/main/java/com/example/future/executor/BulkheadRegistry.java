@@ -0,0 +1,138 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 命名舱壁注册表
+ * 每个舱壁拥有独立的线程池或并发上限、独立的队列和拒绝计数,一个下游变慢只会耗尽自己的舱壁.
+ * 查询走不可变快照,无锁;配置变更时由 reconcile 整体替换快照:
+ * 参数可在线修改的直接修改,不能修改的(类型、队列容量)重建,配置中删除的舱壁关闭,已排队的任务继续执行完.
+ * 未配置的舱壁名称回退到默认执行器,避免配置被删除后调用方直接失败.
+ */
+@Slf4j
+public class BulkheadRegistry implements AutoCloseable {
+
+    private static final String METRIC_PREFIX = "bulkhead-";
+
+    private final Executor fallback;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<String> warned = ConcurrentHashMap.newKeySet();
+
+    private volatile Map<String, Entry> bulkheads = Map.of();
+
+    public BulkheadRegistry(Executor fallback, MeterRegistry meterRegistry) {
+        this.fallback = fallback;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return 指定舱壁的执行器,未配置时返回默认执行器
+     */
+    public Executor executor(String name) {
+        Entry entry = bulkheads.get(name);
+        if (entry != null) {
+            return entry.executor();
+        }
+        if (warned.add(name)) {
+            log.warn("bulkhead {} is not configured, falling back to the default executor", name);
+        }
+        return fallback;
+    }
+
+    public Set<String> names() {
+        return bulkheads.keySet();
+    }
+
+    /**
+     * 按最新配置调整舱壁
+     * 先校验全部配置,有误时抛出 IllegalArgumentException,不做任何修改;
+     * 校验通过后逐个应用,单个舱壁应用失败只记录日志,它保留原来的执行器,原执行器已关闭时回退到默认执行器,
+     * 快照中不会留下已关闭的执行器.
+     */
+    public synchronized void reconcile(Map<String, BulkheadSpec> specs) {
+        specs.forEach((name, spec) -> {
+            if (name == null || spec == null) {
+                throw new IllegalArgumentException("invalid bulkhead config: " + name + "=" + spec);
+            }
+        });
+        Map<String, Entry> current = bulkheads;
+        Map<String, Entry> next = new HashMap<>();
+        specs.forEach((name, spec) -> {
+            Entry existing = current.get(name);
+            try {
+                next.put(name, apply(name, spec, existing));
+            } catch (RuntimeException e) {
+                if (existing != null && !existing.executor().isShutdown()) {
+                    next.put(name, existing);
+                    log.error("failed to apply bulkhead {}: {}, keeping the previous one", name, spec, e);
+                } else {
+                    log.error("failed to apply bulkhead {}: {}, falling back to the default executor", name, spec, e);
+                }
+            }
+        });
+        current.forEach((name, entry) -> {
+            if (!next.containsKey(name) && !entry.executor().isShutdown()) {
+                entry.executor().shutdown();
+                log.info("bulkhead {} removed", name);
+            }
+        });
+        bulkheads = Map.copyOf(next);
+        warned.clear();
+    }
+
+    private Entry apply(String name, BulkheadSpec spec, Entry existing) {
+        if (existing != null && existing.spec().equals(spec)) {
+            return existing;
+        }
+        if (existing != null && reconfigure(existing.executor(), spec)) {
+            log.info("bulkhead {} reconfigured: {}", name, spec);
+            return new Entry(spec, existing.executor());
+        }
+        if (existing != null) {
+            // 先关闭旧实例,释放同名指标后再创建
+            existing.executor().shutdown();
+        }
+        Entry created = new Entry(spec, create(name, spec));
+        log.info("bulkhead {} {}: {}", name, existing == null ? "created" : "rebuilt", spec);
+        return created;
+    }
+
+    private boolean reconfigure(ExecutorService executor, BulkheadSpec spec) {
+        return switch (executor) {
+            case AdaptiveThreadPoolExecutor pool when spec.type() == BulkheadSpec.Type.THREAD_POOL ->
+                    pool.reconfigure(spec.toSettings());
+            case SemaphoreBulkheadExecutor limited when spec.type() == BulkheadSpec.Type.SEMAPHORE -> {
+                limited.reconfigure(spec.maxConcurrency(), spec.queueCapacity());
+                yield true;
+            }
+            default -> false;
+        };
+    }
+
+    private ExecutorService create(String name, BulkheadSpec spec) {
+        return switch (spec.type()) {
+            case THREAD_POOL -> new AdaptiveThreadPoolExecutor(METRIC_PREFIX + name, spec.toSettings(), meterRegistry);
+            case SEMAPHORE -> new SemaphoreBulkheadExecutor(METRIC_PREFIX + name, spec.maxConcurrency(),
+                    spec.queueCapacity(), meterRegistry);
+        };
+    }
+
+    @Override
+    public synchronized void close() {
+        bulkheads.values().forEach(entry -> entry.executor().shutdown());
+        bulkheads = Map.of();
+    }
+
+    private record Entry(BulkheadSpec spec, ExecutorService executor) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.future.executor;
+
+import java.time.Duration;
+
+/**
+ * 舱壁参数
+ *
+ * @param type           隔离方式
+ * @param coreSize       THREAD_POOL: 最小核心线程数
+ * @param maxSize        THREAD_POOL: 最大线程数
+ * @param maxConcurrency SEMAPHORE: 同时执行的最大任务数
+ * @param queueCapacity  排队任务数上限
+ * @param overflowPolicy THREAD_POOL: 队列已满时的处理策略, SEMAPHORE 类型始终直接拒绝
+ * @param boundedWait    THREAD_POOL: BOUNDED_WAIT 策略下的最长等待时间
+ */
+public record BulkheadSpec(Type type, int coreSize, int maxSize, int maxConcurrency, int queueCapacity,
+                           OverflowPolicy overflowPolicy, Duration boundedWait) {
+
+    public BulkheadSpec {
+        if (type == null || overflowPolicy == null || boundedWait == null) {
+            throw new IllegalArgumentException("type, overflowPolicy and boundedWait are required");
+        }
+        if (queueCapacity < 0
+                || type == Type.THREAD_POOL && (coreSize <= 0 || maxSize < coreSize || queueCapacity == 0)
+                || type == Type.SEMAPHORE && maxConcurrency <= 0) {
+            throw new IllegalArgumentException("invalid bulkhead size: type=" + type + ", coreSize=" + coreSize
+                    + ", maxSize=" + maxSize + ", maxConcurrency=" + maxConcurrency
+                    + ", queueCapacity=" + queueCapacity);
+        }
+    }
+
+    public enum Type {
+        /**
+         * 独立的自适应平台线程池,适合CPU与阻塞混合的调用
+         */
+        THREAD_POOL,
+        /**
+         * 虚拟线程 + 信号量限流,适合纯阻塞IO调用
+         */
+        SEMAPHORE
+    }
+
+    AdaptiveThreadPoolExecutor.Settings toSettings() {
+        return new AdaptiveThreadPoolExecutor.Settings(coreSize, maxSize, queueCapacity, overflowPolicy,
+                boundedWait, Duration.ofSeconds(5), 0.75, Duration.ofMillis(20));
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * CPU 密集型计算的专用通道
+ * 独立的 ForkJoinPool(工作窃取),并行度默认等于 CPU 核数,与 I/O 线程池互不影响:
+ * 计算任务不会排在阻塞任务后面,也不会因为队列已满触发 CallerRunsPolicy 在请求线程中执行.
+ * 集合按下标区间递归二分: 区间不大于顺序阈值,或者当前工作线程已经有足够多没被窃取的子任务时直接顺序计算,
+ * 负载已经均衡时不再继续拆分.
+ * 任意元素计算失败时其余区间尽快停止,抛出第一个原始异常.
+ */
+@Slf4j
+public class CpuLane implements AutoCloseable {
+
+    /**
+     * 当前工作线程队列中超过这个数量的子任务没有被窃取时停止拆分
+     */
+    private static final int MAX_SURPLUS = 3;
+
+    private final ForkJoinPool pool;
+
+    private final int sequentialThreshold;
+
+    private final MeterRegistry registry;
+
+    private final List<Meter> meters = new ArrayList<>();
+
+    /**
+     * @param name                线程名前缀和指标中的 name 标签
+     * @param parallelism         并行度,<=0 表示使用 CPU 核数
+     * @param sequentialThreshold 顺序计算的最大区间长度,<=0 表示按输入大小自动计算
+     */
+    public CpuLane(String name, int parallelism, int sequentialThreshold, MeterRegistry registry) {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger index = new AtomicInteger();
+        this.pool = new ForkJoinPool(size, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(name + "-" + index.getAndIncrement());
+            return thread;
+        }, null, false);
+        this.sequentialThreshold = sequentialThreshold;
+        this.registry = registry;
+        log.info("cpu lane {} started, parallelism={}, sequentialThreshold={}", name, size, sequentialThreshold);
+
+        Tags tags = Tags.of("name", name);
+        meters.add(Gauge.builder("future.executor.active", pool, ForkJoinPool::getActiveThreadCount).tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("future.executor.pool.size", pool, ForkJoinPool::getPoolSize).tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("future.executor.queue.size", pool,
+                p -> p.getQueuedTaskCount() + p.getQueuedSubmissionCount()).tags(tags).register(registry));
+        meters.add(FunctionCounter.builder("future.executor.steals", pool, ForkJoinPool::getStealCount).tags(tags)
+                .register(registry));
+    }
+
+    /**
+     * 未经 Spring 装配时使用的默认通道,第一次使用时创建
+     */
+    public static CpuLane defaultLane() {
+        return DefaultHolder.LANE;
+    }
+
+    private static final class DefaultHolder {
+
+        private static final CpuLane LANE = new CpuLane("cpu", 0, 0, Metrics.globalRegistry);
+    }
+
+    /**
+     * 并行计算每个元素,按输入顺序返回结果
+     */
+    public <T, R> List<R> map(List<? extends T> items, Function<? super T, ? extends R> mapper) {
+        List<? extends T> source = randomAccess(items);
+        Object[] results = new Object[source.size()];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        MapTask<T, R> task = new MapTask<>(source, mapper, results, 0, source.size(), threshold(source.size()),
+                failure);
+        run(task, source.size(), failure);
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * 并行归约,语义同 Stream.reduce(identity, accumulator, combiner):
+     * 每个区间从 identity 开始累加,相邻区间按输入顺序合并,combiner 只需满足结合律
+     */
+    public <T, A> A reduce(List<? extends T> items, A identity, BiFunction<A, ? super T, A> accumulator,
+                           BinaryOperator<A> combiner) {
+        List<? extends T> source = randomAccess(items);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ReduceTask<T, A> task = new ReduceTask<>(source, identity, accumulator, combiner, 0, source.size(),
+                threshold(source.size()), failure);
+        return run(task, source.size(), failure);
+    }
+
+    private static <T> List<? extends T> randomAccess(List<? extends T> items) {
+        return items instanceof RandomAccess ? items : new ArrayList<>(items);
+    }
+
+    /**
+     * 自动阈值与并行流一致: 每个工作线程大约分到 4 个区间
+     */
+    private int threshold(int size) {
+        if (sequentialThreshold > 0) {
+            return sequentialThreshold;
+        }
+        return Math.max(1, size / (pool.getParallelism() << 2));
+    }
+
+    /**
+     * 不超过一个区间时直接在调用线程中计算,省去一次线程切换
+     */
+    private <V> V run(ForkJoinTask<V> task, int size, AtomicReference<Throwable> failure) {
+        V result;
+        if (size <= threshold(size) || ForkJoinTask.getPool() == pool) {
+            result = task.invoke();
+        } else {
+            result = pool.invoke(task);
+        }
+        Throwable throwable = failure.get();
+        if (throwable instanceof RuntimeException e) {
+            throw e;
+        }
+        if (throwable instanceof Error e) {
+            throw e;
+        }
+        if (throwable != null) {
+            throw new IllegalStateException(throwable);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        synchronized (meters) {
+            meters.forEach(registry::remove);
+            meters.clear();
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MapTask<T, R> extends RecursiveAction {
+
+        private final List<? extends T> items;
+
+        private final Function<? super T, ? extends R> mapper;
+
+        private final Object[] results;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        private final AtomicReference<Throwable> failure;
+
+        MapTask(List<? extends T> items, Function<? super T, ? extends R> mapper, Object[] results, int from, int to,
+                int threshold, AtomicReference<Throwable> failure) {
+            this.items = items;
+            this.mapper = mapper;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            int hi = to;
+            List<MapTask<T, R>> forked = null;
+            // 右半部分留给其他线程窃取,自己继续拆分左半部分
+            while (hi - from > threshold && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+                int mid = (from + hi) >>> 1;
+                MapTask<T, R> right = new MapTask<>(items, mapper, results, mid, hi, threshold, failure);
+                right.fork();
+                if (forked == null) {
+                    forked = new ArrayList<>();
+                }
+                forked.add(right);
+                hi = mid;
+            }
+            try {
+                for (int i = from; i < hi && failure.get() == null; i++) {
+                    results[i] = mapper.apply(items.get(i));
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+            if (forked != null) {
+                for (int i = forked.size() - 1; i >= 0; i--) {
+                    forked.get(i).join();
+                }
+            }
+        }
+    }
+
+    private static final class ReduceTask<T, A> extends RecursiveTask<A> {
+
+        private final List<? extends T> items;
+
+        private final A identity;
+
+        private final BiFunction<A, ? super T, A> accumulator;
+
+        private final BinaryOperator<A> combiner;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        private final AtomicReference<Throwable> failure;
+
+        ReduceTask(List<? extends T> items, A identity, BiFunction<A, ? super T, A> accumulator,
+                   BinaryOperator<A> combiner, int from, int to, int threshold, AtomicReference<Throwable> failure) {
+            this.items = items;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.failure = failure;
+        }
+
+        @Override
+        protected A compute() {
+            int hi = to;
+            List<ReduceTask<T, A>> forked = null;
+            while (hi - from > threshold && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+                int mid = (from + hi) >>> 1;
+                ReduceTask<T, A> right = new ReduceTask<>(items, identity, accumulator, combiner, mid, hi,
+                        threshold, failure);
+                right.fork();
+                if (forked == null) {
+                    forked = new ArrayList<>();
+                }
+                forked.add(right);
+                hi = mid;
+            }
+            A result = identity;
+            try {
+                for (int i = from; i < hi && failure.get() == null; i++) {
+                    result = accumulator.apply(result, items.get(i));
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+            if (forked != null) {
+                // 最后拆出的区间紧挨着本区间,按输入顺序从后往前合并
+                for (int i = forked.size() - 1; i >= 0; i--) {
+                    A right = forked.get(i).join();
+                    if (failure.get() == null) {
+                        try {
+                            result = combiner.apply(result, right);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.future.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 一次扇出的等待屏障
+ * 所有任务完成,或者提交顺序上第一个失败的任务确定时打开屏障,调用线程只需等待一次.
+ * 某个任务失败后立即取消排在它后面的任务(它们的异常不会被抛出),等待排在它前面的任务结束:
+ * 前面的任务都成功时抛出它的异常,前面有任务失败时改为抛出前面的异常,因此第一个和第二个任务都失败时总是抛出第一个.
+ * 屏障打开或超时后中断其余仍在执行的任务,尽快把线程还给线程池.
+ * await 在调用线程中等待;whenAll 返回同样语义的 CompletableFuture,调用线程不等待.
+ */
+public final class FanOut implements BiConsumer<Object, Throwable> {
+
+    private final List<? extends CompletableFuture<?>> futures;
+
+    private final AtomicInteger remaining;
+
+    private final CompletableFuture<Void> barrier = new CompletableFuture<>();
+
+    /**
+     * 有任务失败后置为 true,之后的完成回调都要检查提交顺序
+     */
+    private volatile boolean failed;
+
+    /**
+     * 提交顺序上第一个尚未确认成功的任务下标,只在 settle 中读写
+     */
+    private int cursor;
+
+    /**
+     * 已经取消了这个下标之后的所有任务
+     */
+    private int cancelledAfter = Integer.MAX_VALUE;
+
+    private FanOut(List<? extends CompletableFuture<?>> futures) {
+        // 完成回调可能在 await 返回后才执行,复制一份,调用方之后修改列表(例如 TaskScope 继续 fork)不受影响
+        this.futures = List.copyOf(futures);
+        this.remaining = new AtomicInteger(futures.size());
+        if (futures.isEmpty()) {
+            barrier.complete(null);
+        }
+    }
+
+    /**
+     * 任务完成回调,仅供 await 内部使用
+     * 全部成功时只有一次原子递减;有任务失败后才按提交顺序检查
+     */
+    @Override
+    public void accept(Object result, Throwable throwable) {
+        if (throwable != null) {
+            failed = true;
+            settle();
+        } else if (remaining.decrementAndGet() == 0) {
+            barrier.complete(null);
+        } else if (failed) {
+            settle();
+        }
+    }
+
+    /**
+     * 沿提交顺序推进到第一个未完成或失败的任务: 遇到失败的任务即打开屏障;
+     * 否则取消排在已知第一个失败任务之后的任务
+     */
+    private void settle() {
+        int cancelFrom;
+        synchronized (this) {
+            if (barrier.isDone()) {
+                return;
+            }
+            while (cursor < futures.size() && futures.get(cursor).isDone()) {
+                if (futures.get(cursor).isCompletedExceptionally()) {
+                    barrier.complete(null);
+                    return;
+                }
+                cursor++;
+            }
+            int firstFailed = cursor;
+            while (firstFailed < futures.size() && !futures.get(firstFailed).isCompletedExceptionally()) {
+                firstFailed++;
+            }
+            if (firstFailed >= cancelledAfter || firstFailed >= futures.size()) {
+                return;
+            }
+            cancelledAfter = firstFailed;
+            cancelFrom = firstFailed + 1;
+        }
+        // 在锁外取消,被取消任务的完成回调会再次进入 settle
+        cancelAll(futures.subList(cancelFrom, futures.size()));
+    }
+
+    /**
+     * 等待所有任务完成
+     *
+     * @param futures      已提交的任务
+     * @param timeoutNanos 超时时间(纳秒),小于0表示不超时
+     * @throws TimeoutException 超时,此时所有未完成的任务已被取消
+     */
+    public static void await(List<? extends CompletableFuture<?>> futures, long timeoutNanos) throws Exception {
+        FanOut fanOut = new FanOut(futures);
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete(fanOut);
+        }
+        try {
+            if (timeoutNanos < 0) {
+                fanOut.barrier.get();
+            } else {
+                fanOut.barrier.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException | InterruptedException e) {
+            cancelAll(futures);
+            throw e;
+        }
+        if (fanOut.remaining.get() != 0) {
+            cancelAll(futures);
+            throwFirstFailure(futures);
+        }
+    }
+
+    /**
+     * 不阻塞的 await: 返回的 Future 在所有任务完成时正常完成,
+     * 任意任务失败时以提交顺序上第一个失败任务的原始异常失败,超时时以 TimeoutException 失败,两种情况都会先取消其余任务.
+     * 调用方取消返回的 Future 时同样取消所有任务.
+     *
+     * @param futures      已提交的任务
+     * @param timeoutNanos 超时时间(纳秒),小于0表示不超时
+     */
+    public static CompletableFuture<Void> whenAll(List<? extends CompletableFuture<?>> futures, long timeoutNanos) {
+        FanOut fanOut = new FanOut(futures);
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete(fanOut);
+        }
+        if (timeoutNanos >= 0) {
+            fanOut.barrier.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        fanOut.barrier.whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                cancelAll(futures);
+                result.completeExceptionally(throwable);
+            } else if (fanOut.remaining.get() != 0) {
+                cancelAll(futures);
+                try {
+                    throwFirstFailure(futures);
+                    result.complete(null);
+                } catch (Throwable failure) {
+                    result.completeExceptionally(failure);
+                }
+            } else {
+                result.complete(null);
+            }
+        });
+        result.whenComplete((ignored, throwable) -> {
+            if (result.isCancelled()) {
+                cancelAll(futures);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 同 whenAll,全部成功时把按提交顺序排列的结果交给 finisher 转换
+     * 不用 thenApply: 失败时保持原始异常而不是 CompletionException,取消返回的 Future 时同样取消所有任务
+     *
+     * @param futures      已提交的任务
+     * @param timeoutNanos 超时时间(纳秒),小于0表示不超时
+     * @param finisher     结果转换,例如 Function.identity() 或组装 Tuple
+     */
+    public static <T, R> CompletableFuture<R> whenAll(List<? extends CompletableFuture<? extends T>> futures,
+                                                      long timeoutNanos,
+                                                      Function<? super List<T>, ? extends R> finisher) {
+        CompletableFuture<Void> all = whenAll(futures, timeoutNanos);
+        CompletableFuture<R> result = new CompletableFuture<>();
+        all.whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            List<T> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<? extends T> future : futures) {
+                values.add(future.resultNow());
+            }
+            try {
+                result.complete(finisher.apply(values));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((ignored, throwable) -> {
+            if (result.isCancelled()) {
+                all.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 取消所有未完成的任务并中断执行线程
+     */
+    public static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 按提交顺序抛出第一个失败任务的原始异常,忽略因 cancelAll 而取消的任务
+     */
+    public static void throwFirstFailure(List<? extends CompletableFuture<?>> futures) throws Exception {
+        for (CompletableFuture<?> future : futures) {
+            if (future.state() == Future.State.FAILED) {
+                throw unwrap(future.exceptionNow());
+            }
+        }
+        // 只有被外部取消的任务
+        for (CompletableFuture<?> future : futures) {
+            if (future.isCancelled()) {
+                throw new CancellationException("fan-out task was cancelled");
+            }
+        }
+    }
+
+    /**
+     * 还原为任务抛出的原始异常
+     */
+    public static Exception unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        return new ExecutionException(cause);
+    }
+}
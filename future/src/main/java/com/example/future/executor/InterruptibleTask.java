@@ -0,0 +1,89 @@
+package com.example.future.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可以被中断的异步任务
+ * CompletableFuture.cancel(true) 只会把状态改为取消,不会中断正在执行任务的线程,
+ * 任务会继续占用线程池线程直到自然结束.
+ * 本类同时是 Runnable 和 CompletableFuture:提交给线程池执行,取消时中断执行线程,
+ * 中断握手参考 FutureTask,保证中断不会泄漏到线程池中执行的下一个任务.
+ * 任务抛出的异常原样保存,不再包装为 RuntimeException.
+ */
+public class InterruptibleTask<T> extends CompletableFuture<T> implements Runnable {
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int FINISHED = 3;
+
+    private final Callable<T> callable;
+
+    private final AtomicInteger state = new AtomicInteger(NEW);
+
+    private volatile Thread runner;
+
+    public InterruptibleTask(Callable<T> callable) {
+        this.callable = callable;
+    }
+
+    @Override
+    public void run() {
+        Thread current = Thread.currentThread();
+        runner = current;
+        if (!state.compareAndSet(NEW, RUNNING)) {
+            // 执行前已被取消
+            runner = null;
+            return;
+        }
+        try {
+            if (!isDone()) {
+                complete(callable.call());
+            }
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        } finally {
+            runner = null;
+            if (!state.compareAndSet(RUNNING, FINISHED)) {
+                // cancel 正在中断本线程,等待中断完成后清除中断标记,避免影响线程池中的下一个任务
+                while (state.get() == INTERRUPTING) {
+                    Thread.onSpinWait();
+                }
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * 取消任务,mayInterruptIfRunning 为 true 时中断正在执行任务的线程
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (state.compareAndSet(NEW, FINISHED)) {
+            // 尚未开始执行,直接跳过
+            cancelledBeforeRun();
+            return cancelled;
+        }
+        if (mayInterruptIfRunning && state.compareAndSet(RUNNING, INTERRUPTING)) {
+            try {
+                Thread thread = runner;
+                if (thread != null) {
+                    thread.interrupt();
+                }
+            } finally {
+                state.set(FINISHED);
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * 任务在开始执行前被取消时调用,之后 run 不会再执行 callable
+     * 任务可能仍在线程池队列里,也可能永远不会被执行(例如线程池已饱和或关闭)
+     */
+    protected void cancelledBeforeRun() {
+    }
+}
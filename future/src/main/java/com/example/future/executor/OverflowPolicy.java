@@ -0,0 +1,19 @@
+package com.example.future.executor;
+
+/**
+ * 线程池队列已满时的处理策略
+ */
+public enum OverflowPolicy {
+    /**
+     * 直接拒绝,抛出 RejectedExecutionException,调用方快速失败
+     */
+    SHED,
+    /**
+     * 在提交线程中最多等待一段时间,等待队列腾出空位,超时后拒绝
+     */
+    BOUNDED_WAIT,
+    /**
+     * 由提交任务的线程自己执行(原 CallerRunsPolicy 行为)
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,190 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 信号量隔离的执行器
+ * 每个任务一个虚拟线程,同时执行的任务数不超过 maxConcurrency,
+ * 等待许可的任务数不超过 queueCapacity,超出后直接拒绝(相当于 SHED 策略).
+ * 与 ConcurrencyLimitedExecutor 的区别是等待队列有界,下游变慢时不会无限堆积虚拟线程.
+ * 两个参数都可以在运行期修改,指标名称与 AdaptiveThreadPoolExecutor 一致,tag name 区分.
+ */
+public class SemaphoreBulkheadExecutor extends AbstractExecutorService {
+
+    private final String name;
+
+    private final ExecutorService delegate;
+
+    private final ResizableSemaphore permits;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final MeterRegistry registry;
+
+    private final List<Meter> meters = new ArrayList<>();
+
+    private volatile int maxConcurrency;
+
+    private volatile int queueCapacity;
+
+    public SemaphoreBulkheadExecutor(String name, int maxConcurrency, int queueCapacity, MeterRegistry registry) {
+        check(maxConcurrency, queueCapacity);
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.permits = new ResizableSemaphore(maxConcurrency);
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.registry = registry;
+
+        Tags tags = Tags.of("name", name);
+        meters.add(Gauge.builder("future.executor.active", this, SemaphoreBulkheadExecutor::getActiveCount)
+                .tags(tags).register(registry));
+        meters.add(Gauge.builder("future.executor.queue.size", this, SemaphoreBulkheadExecutor::getQueueLength)
+                .tags(tags).register(registry));
+        meters.add(FunctionCounter.builder("future.executor.rejected", rejected, LongAdder::sum)
+                .tags(tags).register(registry));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (delegate.isShutdown()) {
+            rejected.increment();
+            throw new RejectedExecutionException("bulkhead " + name + " is shut down");
+        }
+        if (pending.incrementAndGet() > maxConcurrency + queueCapacity) {
+            pending.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("bulkhead " + name + " is full");
+        }
+        try {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 运行期修改并发上限和队列长度
+     * 调小并发上限时正在执行的任务不受影响,许可归还后才生效
+     */
+    public synchronized void reconfigure(int maxConcurrency, int queueCapacity) {
+        check(maxConcurrency, queueCapacity);
+        int delta = maxConcurrency - this.maxConcurrency;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+    }
+
+    private static void check(int maxConcurrency, int queueCapacity) {
+        if (maxConcurrency <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("invalid bulkhead size: maxConcurrency=" + maxConcurrency
+                    + ", queueCapacity=" + queueCapacity);
+        }
+    }
+
+    /**
+     * @return 当前正在执行的任务数
+     */
+    public int getActiveCount() {
+        return Math.max(0, pending.get() - permits.getQueueLength());
+    }
+
+    /**
+     * @return 等待许可的任务数(估算值)
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        removeMeters();
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        removeMeters();
+        return delegate.shutdownNow();
+    }
+
+    private void removeMeters() {
+        synchronized (meters) {
+            meters.forEach(registry::remove);
+            meters.clear();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 暴露 reducePermits,用于在线调小并发上限
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+
+        private ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
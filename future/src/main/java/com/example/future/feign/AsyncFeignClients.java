@@ -0,0 +1,185 @@
+package com.example.future.feign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.AsyncClient;
+import feign.AsyncFeign;
+import feign.Request;
+import feign.Target;
+import feign.hc5.AsyncApacheHttp5Client;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 返回 CompletableFuture 的 Feign 客户端工厂
+ * 接口与 @FeignClient 一样使用 Spring MVC 注解,方法返回 CompletableFuture&lt;T&gt;:
+ * <pre>
+ * interface InventoryClient {
+ *     &#64;GetMapping("/items/{id}")
+ *     CompletableFuture&lt;Item&gt; item(&#64;PathVariable("id") long id);
+ * }
+ * InventoryClient inventory = clients.client(InventoryClient.class, "inventory");
+ * completableFutureService.allOfFutures(() -&gt; inventory.item(1), () -&gt; pricing.price(1));
+ * </pre>
+ * 请求由 Apache HttpClient 5 的异步客户端发出,等待响应期间不占用任何线程,
+ * 所有客户端共用一个 keep-alive 连接池,连接池状态通过 future.feign.pool.* 指标暴露.
+ */
+@Slf4j
+public class AsyncFeignClients implements AutoCloseable {
+
+    private final PoolingAsyncClientConnectionManager connectionManager;
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final AsyncApacheHttp5Client feignClient;
+
+    /**
+     * 按服务名选择实例的客户端,没有负载均衡器时为 null
+     */
+    private final AsyncClient<HttpClientContext> loadBalancedClient;
+
+    private final JsonCodec codec;
+
+    private final SpringMvcContract contract = new SpringMvcContract();
+
+    private final Request.Options options;
+
+    private final Map<String, String> urls;
+
+    private final MeterRegistry registry;
+
+    private final List<Meter> meters = new ArrayList<>();
+
+    /**
+     * @param name         指标中的 name 标签
+     * @param settings     连接池配置
+     * @param urls         按服务名指定的固定地址
+     * @param objectMapper 请求体和响应体的 JSON 序列化
+     * @param loadBalancers 按服务名获取负载均衡器,可以为 null,此时只能使用固定地址
+     */
+    public AsyncFeignClients(String name, Settings settings, Map<String, String> urls, ObjectMapper objectMapper,
+                             ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers, MeterRegistry registry) {
+        this.connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .build())
+                .build();
+        int ioThreads = settings.ioThreads() > 0 ? settings.ioThreads() : Runtime.getRuntime().availableProcessors();
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(ioThreads).build())
+                .evictIdleConnections(TimeValue.of(settings.idleTimeout()))
+                .build();
+        httpClient.start();
+        this.feignClient = new AsyncApacheHttp5Client(httpClient);
+        this.loadBalancedClient = loadBalancers != null
+                ? new LoadBalancedAsyncClient<>(feignClient, loadBalancers) : null;
+        this.codec = new JsonCodec(objectMapper);
+        this.options = new Request.Options(settings.connectTimeout().toMillis(), TimeUnit.MILLISECONDS,
+                settings.responseTimeout().toMillis(), TimeUnit.MILLISECONDS, true);
+        this.urls = Map.copyOf(urls);
+        this.registry = registry;
+        log.info("async feign client started, {}", settings);
+
+        Tags tags = Tags.of("name", name);
+        meters.add(poolGauge("future.feign.pool.leased", PoolStats::getLeased, tags, "正在使用的连接数"));
+        meters.add(poolGauge("future.feign.pool.available", PoolStats::getAvailable, tags, "空闲的 keep-alive 连接数"));
+        meters.add(poolGauge("future.feign.pool.pending", PoolStats::getPending, tags, "等待连接的请求数"));
+        meters.add(poolGauge("future.feign.pool.max", PoolStats::getMax, tags, "最大连接数"));
+    }
+
+    private Gauge poolGauge(String meterName, ToDoubleFunction<PoolStats> value, Tags tags, String description) {
+        return Gauge.builder(meterName, connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tags(tags).description(description).register(registry);
+    }
+
+    /**
+     * 按服务名创建客户端: 优先使用 future.feign.urls 中配置的地址,否则每次请求通过注册中心异步选择实例
+     */
+    public <T> T client(Class<T> type, String name) {
+        String url = urls.get(name);
+        if (url != null) {
+            return target(new Target.HardCodedTarget<>(type, name, url), feignClient);
+        }
+        if (loadBalancedClient == null) {
+            throw new IllegalStateException("no url configured for " + name + " and no load balancer available");
+        }
+        // 地址中的 host 为服务名,发请求前由 LoadBalancedAsyncClient 替换为实例地址
+        return target(new Target.HardCodedTarget<>(type, name, "http://" + name), loadBalancedClient);
+    }
+
+    /**
+     * 创建访问固定地址的客户端
+     */
+    public <T> T target(Class<T> type, String url) {
+        return target(new Target.HardCodedTarget<>(type, url), feignClient);
+    }
+
+    private <T> T target(Target<T> target, AsyncClient<HttpClientContext> client) {
+        return AsyncFeign.<HttpClientContext>builder()
+                .client(client)
+                .encoder(codec)
+                .decoder(codec)
+                .contract(contract)
+                .options(options)
+                .target(target);
+    }
+
+    /**
+     * @return 连接池当前状态
+     */
+    public PoolStats poolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * 关闭连接池,等待正在进行的请求结束
+     */
+    @Override
+    public void close() {
+        synchronized (meters) {
+            meters.forEach(registry::remove);
+            meters.clear();
+        }
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * 连接池配置
+     *
+     * @param maxConnections         最大连接数
+     * @param maxConnectionsPerRoute 每个目标地址的最大连接数
+     * @param connectTimeout         建立连接超时时间
+     * @param responseTimeout        等待响应超时时间
+     * @param idleTimeout            空闲连接保留时间
+     * @param ioThreads              IO 线程数,<=0 表示使用 CPU 核数
+     */
+    public record Settings(int maxConnections, int maxConnectionsPerRoute, Duration connectTimeout,
+                           Duration responseTimeout, Duration idleTimeout, int ioThreads) {
+    }
+}
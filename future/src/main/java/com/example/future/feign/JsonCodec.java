@@ -0,0 +1,57 @@
+package com.example.future.feign;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于 Jackson 的请求体编码和响应体解码
+ * 直接使用应用的 ObjectMapper,不经过 Spring 的 HttpMessageConverters,可以脱离 Spring 容器使用
+ */
+final class JsonCodec implements Encoder, Decoder {
+
+    private final ObjectMapper objectMapper;
+
+    JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
+        try {
+            template.header("Content-Type", "application/json");
+            template.body(objectMapper.writeValueAsBytes(object), StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new EncodeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (type == void.class || type == Void.class) {
+            return null;
+        }
+        if (response.status() == 204 || response.body() == null) {
+            return Util.emptyValueOf(type);
+        }
+        if (type == String.class) {
+            return Util.toString(response.body().asReader(StandardCharsets.UTF_8));
+        }
+        try (InputStream in = response.body().asInputStream()) {
+            return objectMapper.readValue(in, objectMapper.constructType(type));
+        } catch (JsonProcessingException e) {
+            throw new DecodeException(response.status(), e.getMessage(), response.request(), e);
+        }
+    }
+}
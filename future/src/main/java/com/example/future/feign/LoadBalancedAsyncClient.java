@@ -0,0 +1,50 @@
+package com.example.future.feign;
+
+import feign.AsyncClient;
+import feign.Request;
+import feign.Response;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 先按服务名选择实例再发请求的 AsyncClient
+ * 请求地址的 host 为服务名,通过 ReactiveLoadBalancer 异步选择实例并替换为实例地址后交给底层客户端,
+ * 调用线程不等待注册中心,也不调用阻塞的 LoadBalancerClient.choose.
+ */
+final class LoadBalancedAsyncClient<C> implements AsyncClient<C> {
+
+    private final AsyncClient<C> delegate;
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers;
+
+    LoadBalancedAsyncClient(AsyncClient<C> delegate, ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers) {
+        this.delegate = delegate;
+        this.loadBalancers = loadBalancers;
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(Request request, Request.Options options, Optional<C> requestContext) {
+        URI original = URI.create(request.url());
+        String serviceId = original.getHost();
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer =
+                serviceId != null ? loadBalancers.getInstance(serviceId) : null;
+        if (loadBalancer == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("no load balancer for " + request.url()));
+        }
+        return Mono.from(loadBalancer.choose()).toFuture().thenCompose(chosen -> {
+            if (chosen == null || !chosen.hasServer()) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("no available instance of " + serviceId));
+            }
+            URI uri = LoadBalancerUriTools.reconstructURI(chosen.getServer(), original);
+            return delegate.execute(Request.create(request.httpMethod(), uri.toString(), request.headers(),
+                    request.body(), request.charset(), request.requestTemplate()), options, requestContext);
+        });
+    }
+}
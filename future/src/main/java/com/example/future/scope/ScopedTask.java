@@ -0,0 +1,69 @@
+package com.example.future.scope;
+
+import com.example.future.executor.InterruptibleTask;
+import io.micrometer.tracing.CurrentTraceContext;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 属于某个 TaskScope 的子任务
+ * 执行前在工作线程中安装提交时的 MDC / Tracing 上下文并把当前作用域设置为所属作用域,
+ * 执行后恢复工作线程原来的上下文,并通知作用域该任务已经结束;
+ * 执行前被取消时在取消时就通知作用域,不等待线程池把它从队列中取出,close 不会等待永远不会执行的任务.
+ */
+final class ScopedTask<T> extends InterruptibleTask<T> {
+
+    private final TaskScope scope;
+
+    private final TaskContext context;
+
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    ScopedTask(Callable<T> callable, TaskScope scope, TaskContext context) {
+        super(callable);
+        this.scope = scope;
+        this.context = context;
+    }
+
+    @Override
+    public void run() {
+        if (isDone()) {
+            terminate();
+            return;
+        }
+        Map<String, String> previousMdc = TaskContext.currentMdc();
+        TaskScope previousScope = TaskScope.swapCurrent(scope);
+        CurrentTraceContext.Scope traceScope = null;
+        try {
+            context.installMdc(previousMdc);
+            traceScope = context.openTraceScope(scope.tracer());
+            super.run();
+        } finally {
+            try {
+                if (traceScope != null) {
+                    traceScope.close();
+                }
+                TaskContext.replaceMdc(TaskContext.currentMdc(), previousMdc);
+                TaskScope.swapCurrent(previousScope);
+            } finally {
+                terminate();
+            }
+        }
+    }
+
+    @Override
+    protected void cancelledBeforeRun() {
+        terminate();
+    }
+
+    /**
+     * 通知作用域该任务已经结束,执行结束和执行前取消两条路径只通知一次
+     */
+    private void terminate() {
+        if (terminated.compareAndSet(false, true)) {
+            scope.taskTerminated();
+        }
+    }
+}
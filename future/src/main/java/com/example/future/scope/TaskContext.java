@@ -0,0 +1,99 @@
+package com.example.future.scope;
+
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 提交任务时线程上下文的快照:MDC(traceId/spanId 等)和 Micrometer Tracing 的当前 TraceContext
+ * 快照不可变,可以被同一作用域内的多个子任务共享.
+ * Logback 的 MDC 只读视图在内容未变化时是同一个对象,
+ * 因此上下文未变化时 capture 直接返回上一次的快照,提交任务时不复制 Map.
+ * 在工作线程中安装时 Logback 的 MDC.setContextMap 会复制一次,这一次复制无法避免;
+ * 工作线程的 MDC 与快照内容相同时跳过安装.
+ */
+public final class TaskContext {
+
+    static final TaskContext EMPTY = new TaskContext(null, null);
+
+    private final Map<String, String> mdc;
+
+    private final TraceContext traceContext;
+
+    private TaskContext(Map<String, String> mdc, TraceContext traceContext) {
+        this.mdc = mdc;
+        this.traceContext = traceContext;
+    }
+
+    /**
+     * 捕获当前线程的上下文
+     *
+     * @param tracer   可以为 null,此时只传递 MDC
+     * @param previous 上一次捕获的快照,上下文未变化时直接复用
+     */
+    static TaskContext capture(Tracer tracer, TaskContext previous) {
+        Map<String, String> mdc = currentMdc();
+        TraceContext traceContext = tracer == null ? null : tracer.currentTraceContext().context();
+        if (previous != null && previous.mdc == mdc && Objects.equals(previous.traceContext, traceContext)) {
+            return previous;
+        }
+        if ((mdc == null || mdc.isEmpty()) && traceContext == null) {
+            return EMPTY;
+        }
+        return new TaskContext(mdc, traceContext);
+    }
+
+    /**
+     * 当前线程的 MDC
+     * Logback 返回只读视图,不复制;其他实现只能复制一份
+     */
+    static Map<String, String> currentMdc() {
+        MDCAdapter adapter = MDC.getMDCAdapter();
+        if (adapter instanceof LogbackMDCAdapter logbackAdapter) {
+            return logbackAdapter.getPropertyMap();
+        }
+        return adapter == null ? null : adapter.getCopyOfContextMap();
+    }
+
+    /**
+     * 在工作线程中安装 MDC
+     *
+     * @param current 工作线程当前的 MDC
+     */
+    void installMdc(Map<String, String> current) {
+        replaceMdc(current, mdc);
+    }
+
+    /**
+     * 在工作线程中打开 Tracing 作用域,任务结束后需要关闭
+     */
+    CurrentTraceContext.Scope openTraceScope(Tracer tracer) {
+        if (tracer == null) {
+            return null;
+        }
+        return tracer.currentTraceContext().maybeScope(traceContext);
+    }
+
+    /**
+     * 把工作线程的 MDC 从 current 替换为 target,两者内容相同时不做任何操作
+     * 替换时 MDC.setContextMap 会复制 target
+     */
+    static void replaceMdc(Map<String, String> current, Map<String, String> target) {
+        if (current == target || current != null && current.equals(target)) {
+            return;
+        }
+        if (target == null || target.isEmpty()) {
+            if (current != null && !current.isEmpty()) {
+                MDC.clear();
+            }
+            return;
+        }
+        MDC.setContextMap(target);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.future.scope;
+
+import com.example.future.executor.FanOut;
+import io.micrometer.tracing.Tracer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 结构化的任务组
+ * 所有子任务都属于打开它的线程(owner),并且不会比作用域活得更久:
+ * close() 会中断所有未完成的子任务以及嵌套的子作用域,并等待子任务真正结束后才返回.
+ * 在子任务中再次 open 的作用域自动成为当前作用域的子作用域,截止时间取两者中较早的一个.
+ * 打开作用域和提交任务时的 MDC 与 Tracing 上下文会传递到每个子任务.
+ * <pre>
+ * try (TaskScope scope = taskScopes.open(Duration.ofSeconds(2))) {
+ *     CompletableFuture&lt;User&gt; user = scope.fork(() -&gt; userClient.get(id));
+ *     CompletableFuture&lt;Order&gt; order = scope.fork(() -&gt; orderClient.get(id));
+ *     scope.join();
+ *     return merge(user.resultNow(), order.resultNow());
+ * }
+ * </pre>
+ * fork / join / close 只能由 owner 线程调用,shutdown 可以由任意线程调用.
+ * join 只读取 owner 自己提交的任务列表,因此只有 fork 和 shutdown 需要对任务列表加锁.
+ */
+public final class TaskScope implements AutoCloseable {
+
+    private static final ThreadLocal<TaskScope> CURRENT = new ThreadLocal<>();
+
+    private final Executor executor;
+
+    private final Tracer tracer;
+
+    private final TaskScope parent;
+
+    private final Thread owner;
+
+    /**
+     * System.nanoTime() 表示的截止时间,Long.MAX_VALUE 表示不限时
+     */
+    private final long deadlineNanos;
+
+    private final List<ScopedTask<?>> tasks = new ArrayList<>();
+
+    private final Set<TaskScope> children = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已提交但尚未结束的子任务数,执行前被取消的任务在取消时减掉
+     */
+    private final AtomicInteger live = new AtomicInteger();
+
+    private TaskContext context;
+
+    private volatile boolean shutdown;
+
+    private volatile boolean closed;
+
+    TaskScope(Executor executor, Tracer tracer, Duration timeout) {
+        this.executor = executor;
+        this.tracer = tracer;
+        this.parent = CURRENT.get();
+        this.owner = Thread.currentThread();
+        long deadline = timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+        if (parent != null) {
+            deadline = Math.min(deadline, parent.deadlineNanos);
+            parent.children.add(this);
+            if (parent.shutdown) {
+                shutdown = true;
+            }
+        }
+        this.deadlineNanos = deadline;
+        this.context = TaskContext.capture(tracer, null);
+        CURRENT.set(this);
+    }
+
+    /**
+     * @return 当前线程所在的作用域,不在任何作用域中时返回 null
+     */
+    public static TaskScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return 当前线程是否为该作用域的 owner
+     */
+    public boolean isOwnedByCurrentThread() {
+        return Thread.currentThread() == owner;
+    }
+
+    /**
+     * 提交子任务
+     * 作用域已经 shutdown 时返回的任务直接处于取消状态
+     *
+     * @param callable 子任务
+     * @return 子任务的结果;join 成功后可以直接调用 resultNow()
+     */
+    public <T> CompletableFuture<T> fork(Callable<T> callable) {
+        ensureOwner();
+        if (closed) {
+            throw new IllegalStateException("task scope is closed");
+        }
+        context = TaskContext.capture(tracer, context);
+        ScopedTask<T> task = new ScopedTask<>(callable, this, context);
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        // 先计数,执行前取消的任务在 cancel 时减掉
+        live.incrementAndGet();
+        if (shutdown) {
+            task.cancel(false);
+            return task;
+        }
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            task.cancel(false);
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * 等待所有已提交的子任务完成
+     * 任意子任务失败时立即中断其余子任务,按提交顺序抛出第一个失败任务的原始异常;
+     * 超过截止时间时中断所有子任务并抛出 TimeoutException.
+     */
+    public void join() throws Exception {
+        ensureOwner();
+        long timeoutNanos = -1;
+        if (deadlineNanos != Long.MAX_VALUE) {
+            timeoutNanos = Math.max(0, deadlineNanos - System.nanoTime());
+        }
+        try {
+            FanOut.await(tasks, timeoutNanos);
+        } catch (Exception e) {
+            shutdown();
+            throw e;
+        }
+    }
+
+    /**
+     * 中断所有未完成的子任务和子作用域,之后提交的任务会被直接取消
+     * 可以由任意线程调用
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (TaskScope child : children) {
+            child.shutdown();
+        }
+        synchronized (tasks) {
+            FanOut.cancelAll(tasks);
+        }
+    }
+
+    /**
+     * 关闭作用域:中断未完成的子任务,等待它们真正结束,然后恢复父作用域
+     * 还在线程池队列中的子任务在取消时即视为结束,不等待线程池执行它们
+     */
+    @Override
+    public void close() {
+        ensureOwner();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            shutdown();
+            awaitTermination();
+        } finally {
+            if (parent != null) {
+                parent.children.remove(this);
+            }
+            CURRENT.set(parent);
+        }
+    }
+
+    /**
+     * 等待所有子任务结束(不响应中断,中断标记在返回前恢复)
+     */
+    private void awaitTermination() {
+        boolean interrupted = false;
+        while (live.get() > 0) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            owner.interrupt();
+        }
+    }
+
+    void taskTerminated() {
+        if (live.decrementAndGet() == 0 && closed) {
+            LockSupport.unpark(owner);
+        }
+    }
+
+    Tracer tracer() {
+        return tracer;
+    }
+
+    static TaskScope swapCurrent(TaskScope scope) {
+        TaskScope previous = CURRENT.get();
+        CURRENT.set(scope);
+        return previous;
+    }
+
+    private void ensureOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new WrongThreadException("task scope is owned by " + owner);
+        }
+    }
+}
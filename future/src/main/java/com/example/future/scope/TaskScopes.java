@@ -0,0 +1,100 @@
+package com.example.future.scope;
+
+import com.example.future.executor.InterruptibleTask;
+import io.micrometer.tracing.CurrentTraceContext;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * TaskScope 工厂
+ * 子任务运行在 futureExecutor 上;容器中存在 Tracer 时同时传递 Tracing 上下文
+ */
+@Component
+public class TaskScopes {
+
+    private static final ThreadFactory OWNER_THREADS = Thread.ofVirtual().name("task-scope-owner-", 0).factory();
+
+    private final Executor executor;
+
+    private final Tracer tracer;
+
+    @Autowired
+    public TaskScopes(@Qualifier("futureExecutor") Executor executor, ObjectProvider<Tracer> tracer) {
+        this(executor, tracer.getIfAvailable());
+    }
+
+    public TaskScopes(Executor executor, Tracer tracer) {
+        this.executor = executor;
+        this.tracer = tracer;
+    }
+
+    /**
+     * 打开不限时的作用域,在子任务中调用时成为当前作用域的子作用域
+     */
+    public TaskScope open() {
+        return new TaskScope(executor, tracer, null);
+    }
+
+    /**
+     * 打开带截止时间的作用域
+     *
+     * @param timeout 从现在开始的最长执行时间
+     */
+    public TaskScope open(Duration timeout) {
+        return new TaskScope(executor, tracer, timeout);
+    }
+
+    /**
+     * 提交不属于任何作用域的独立任务,不传递上下文
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        return submit(executor, callable);
+    }
+
+    /**
+     * 在指定执行器上提交独立任务,例如舱壁执行器
+     * 执行器拒绝时返回以 RejectedExecutionException 失败的 Future,不抛给调用方
+     */
+    public <T> CompletableFuture<T> submit(Executor target, Callable<T> callable) {
+        InterruptibleTask<T> task = new InterruptibleTask<>(callable);
+        try {
+            target.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.completeExceptionally(e);
+        }
+        return task;
+    }
+
+    /**
+     * 在新的虚拟线程中执行 body,调用线程不等待
+     * body 中打开的作用域以该虚拟线程为 owner,join 只阻塞虚拟线程;传递调用线程的 MDC / Tracing 上下文.
+     * 取消返回的 Future 时中断 owner 线程,作用域随之关闭并中断所有子任务.
+     */
+    public <T> CompletableFuture<T> async(Callable<T> body) {
+        TaskContext context = TaskContext.capture(tracer, null);
+        InterruptibleTask<T> task = new InterruptibleTask<>(() -> {
+            // owner 线程只执行这一个任务,结束后不需要恢复上下文
+            context.installMdc(TaskContext.currentMdc());
+            CurrentTraceContext.Scope traceScope = context.openTraceScope(tracer);
+            try {
+                return body.call();
+            } finally {
+                if (traceScope != null) {
+                    traceScope.close();
+                }
+            }
+        });
+        OWNER_THREADS.newThread(task).start();
+        return task;
+    }
+}
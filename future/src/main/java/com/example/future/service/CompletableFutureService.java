@@ -1,8 +1,20 @@
 package com.example.future.service;
 
+import com.example.future.executor.FanOut;
 import com.example.future.util.CallableVoid;
+import com.example.future.util.Tuple2;
+import com.example.future.util.Tuple3;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 异步任务接口
@@ -13,10 +25,235 @@ public interface CompletableFutureService {
      * 同时执行多个异步任务并等待执行完成
      * 异常已做处理
      * 抛出异常时,带有顺序,当第一个和第二个都抛异常时,优先抛出第一个.
+     * 抛出的是任务自身的原始异常,不会包装为 CompletionException.
+     * 任意任务失败后立即中断排在它后面的任务,排在它前面的任务结束后返回,并中断其余仍在执行的任务.
      * 子类实现的方法只能返回空的泛型
      *
      * @param callableArray 异步任务数组
      */
     void allOfAndJoin(CallableVoid... callableArray) throws Exception;
 //    void allOfAndJoin(CompletableFuture<Void> future);
+
+    /**
+     * 同 allOfAndJoin(CallableVoid...),超过 timeout 仍未全部完成时中断所有未完成的任务
+     *
+     * @param timeout       最长等待时间
+     * @param callableArray 异步任务数组
+     * @throws java.util.concurrent.TimeoutException 超时
+     */
+    void allOfAndJoin(Duration timeout, CallableVoid... callableArray) throws Exception;
+
+    /**
+     * 同时执行多个同类型的异步任务并按提交顺序返回结果
+     * 不需要再通过共享的可变对象收集结果
+     * 异常顺序与 allOfAndJoin 相同
+     *
+     * @param callables 异步任务列表
+     * @return 与 callables 顺序一致的结果列表
+     */
+    <T> List<T> allOf(List<? extends Callable<? extends T>> callables) throws Exception;
+
+    /**
+     * 同 allOf(List),超过 timeout 仍未全部完成时中断所有未完成的任务
+     *
+     * @param callables 异步任务列表
+     * @param timeout   最长等待时间
+     * @return 与 callables 顺序一致的结果列表
+     * @throws java.util.concurrent.TimeoutException 超时
+     */
+    <T> List<T> allOf(List<? extends Callable<? extends T>> callables, Duration timeout) throws Exception;
+
+    /**
+     * 同 allOfAndJoin(CallableVoid...),但不阻塞调用线程
+     * 返回的 Future 在所有任务完成时完成,任意任务失败时以提交顺序靠前的原始异常失败;
+     * 取消返回的 Future 会中断所有未完成的任务.
+     * 适合作为 Controller 的返回值,扇出期间请求线程回到 Tomcat 线程池.
+     *
+     * @param callableArray 异步任务数组
+     */
+    CompletableFuture<Void> allOfAsync(CallableVoid... callableArray);
+
+    /**
+     * 同 allOfAsync(CallableVoid...),超过 timeout 仍未全部完成时中断所有未完成的任务,
+     * 返回的 Future 以 TimeoutException 失败
+     *
+     * @param timeout       最长等待时间
+     * @param callableArray 异步任务数组
+     */
+    CompletableFuture<Void> allOfAsync(Duration timeout, CallableVoid... callableArray);
+
+    /**
+     * 同 allOf(List),但不阻塞调用线程
+     *
+     * @param callables 异步任务列表
+     * @return 与 callables 顺序一致的结果列表
+     */
+    <T> CompletableFuture<List<T>> allOfAsync(List<? extends Callable<? extends T>> callables);
+
+    /**
+     * 同 allOf(List, Duration),但不阻塞调用线程
+     *
+     * @param callables 异步任务列表
+     * @param timeout   最长等待时间
+     * @return 与 callables 顺序一致的结果列表
+     */
+    <T> CompletableFuture<List<T>> allOfAsync(List<? extends Callable<? extends T>> callables, Duration timeout);
+
+    /**
+     * 同时执行两个不同类型的异步任务
+     *
+     * @return 两个任务的结果
+     */
+    @SuppressWarnings("unchecked")
+    default <A, B> Tuple2<A, B> allOf(Callable<A> first, Callable<B> second) throws Exception {
+        List<Object> results = allOf(List.<Callable<?>>of(first, second));
+        return new Tuple2<>((A) results.get(0), (B) results.get(1));
+    }
+
+    /**
+     * 同时执行三个不同类型的异步任务
+     *
+     * @return 三个任务的结果
+     */
+    @SuppressWarnings("unchecked")
+    default <A, B, C> Tuple3<A, B, C> allOf(Callable<A> first, Callable<B> second, Callable<C> third)
+            throws Exception {
+        List<Object> results = allOf(List.<Callable<?>>of(first, second, third));
+        return new Tuple3<>((A) results.get(0), (B) results.get(1), (C) results.get(2));
+    }
+
+    /**
+     * 组合本身就是异步的调用,例如 AsyncFeignClients 创建的客户端
+     * 调用在当前线程中发起,等待期间不占用任何线程池线程;失败、超时和取消的语义与 allOfAsync 相同.
+     * 结果回调运行在 HTTP 客户端的 IO 线程上,后续处理不要在回调中阻塞.
+     *
+     * @param calls 发起调用的函数列表
+     * @return 与 calls 顺序一致的结果列表
+     */
+    default <T> CompletableFuture<List<T>> allOfFutures(
+            List<? extends Supplier<? extends CompletableFuture<? extends T>>> calls) {
+        return startAll(calls, null, Function.identity());
+    }
+
+    /**
+     * 同 allOfFutures(List),超过 timeout 仍未全部完成时以 TimeoutException 失败并取消未完成的调用
+     *
+     * @param calls   发起调用的函数列表
+     * @param timeout 最长等待时间
+     * @return 与 calls 顺序一致的结果列表
+     */
+    default <T> CompletableFuture<List<T>> allOfFutures(
+            List<? extends Supplier<? extends CompletableFuture<? extends T>>> calls, Duration timeout) {
+        return startAll(calls, timeout, Function.identity());
+    }
+
+    /**
+     * 同时发起两个不同类型的异步调用
+     *
+     * @return 两个调用的结果
+     */
+    @SuppressWarnings("unchecked")
+    default <A, B> CompletableFuture<Tuple2<A, B>> allOfFutures(Supplier<CompletableFuture<A>> first,
+                                                                Supplier<CompletableFuture<B>> second) {
+        return startAll(List.<Supplier<CompletableFuture<?>>>of(first::get, second::get), null,
+                results -> new Tuple2<>((A) results.get(0), (B) results.get(1)));
+    }
+
+    /**
+     * 同时发起三个不同类型的异步调用
+     *
+     * @return 三个调用的结果
+     */
+    @SuppressWarnings("unchecked")
+    default <A, B, C> CompletableFuture<Tuple3<A, B, C>> allOfFutures(Supplier<CompletableFuture<A>> first,
+                                                                      Supplier<CompletableFuture<B>> second,
+                                                                      Supplier<CompletableFuture<C>> third) {
+        return startAll(List.<Supplier<CompletableFuture<?>>>of(first::get, second::get, third::get), null,
+                results -> new Tuple3<>((A) results.get(0), (B) results.get(1), (C) results.get(2)));
+    }
+
+    /**
+     * 发起全部调用;发起过程中抛出异常时取消已经发起的调用,通过返回的 Future 传递异常
+     */
+    private static <T, R> CompletableFuture<R> startAll(
+            List<? extends Supplier<? extends CompletableFuture<? extends T>>> calls, Duration timeout,
+            Function<? super List<T>, ? extends R> finisher) {
+        List<CompletableFuture<? extends T>> futures = new ArrayList<>(calls.size());
+        try {
+            for (Supplier<? extends CompletableFuture<? extends T>> call : calls) {
+                futures.add(call.get());
+            }
+        } catch (RuntimeException e) {
+            FanOut.cancelAll(futures);
+            return CompletableFuture.failedFuture(e);
+        }
+        return FanOut.whenAll(futures, timeout == null ? -1 : timeout.toNanos(), finisher);
+    }
+
+    /**
+     * 在 CPU 通道(独立的 ForkJoinPool)中并行计算每个元素,按输入顺序返回结果
+     * 用于打分、合并大结果集等 CPU 密集型计算,不占用 I/O 线程池;mapper 中不要执行阻塞 I/O,阻塞调用使用 allOf.
+     * 任意元素计算失败时停止其余计算并抛出该异常.
+     *
+     * @param items  输入集合
+     * @param mapper 计算函数
+     * @return 与 items 顺序一致的结果列表
+     */
+    <T, R> List<R> parallelMap(List<? extends T> items, Function<? super T, ? extends R> mapper);
+
+    /**
+     * 在 CPU 通道中并行归约,语义同 Stream.reduce(identity, accumulator, combiner)
+     * 每个区间从 identity 开始累加,相邻区间按输入顺序用 combiner 合并
+     *
+     * @param items       输入集合
+     * @param identity    combiner 的单位元
+     * @param accumulator 把一个元素累加到部分结果
+     * @param combiner    合并两个部分结果,需满足结合律
+     * @return 归约结果
+     */
+    <T, A> A parallelReduce(List<? extends T> items, A identity, BiFunction<A, ? super T, A> accumulator,
+                            BinaryOperator<A> combiner);
+
+    /**
+     * 同时执行多个异步任务,按完成先后顺序把结果交给 consumer
+     * consumer 在调用线程中串行执行,内部无需加锁
+     * 某个任务抛出异常时停止回调,中断其余任务并抛出该异常
+     *
+     * @param callables 异步任务列表
+     * @param consumer  结果消费者
+     */
+    <T> void forEachCompleted(List<? extends Callable<? extends T>> callables, Consumer<? super T> consumer)
+            throws Exception;
+
+    /**
+     * 异步执行单个任务
+     * 线程池拒绝任务时不抛出异常,返回的 Future 以 RejectedExecutionException 失败;
+     * 本接口所有 callAsync / callAsyncIn 方法都遵循这一约定.
+     *
+     * @param callable 要执行的任务
+     * @return CompletableFuture异步任务对象,调用 cancel(true) 会中断执行线程
+     */
+    <T> CompletableFuture<T> callAsync(Callable<T> callable);
+
+    /**
+     * 异步执行单个任务,相同 key 的并发调用合并为一次
+     * 适用于热点 key 的下游查询:同一时刻只有一次真正的调用,其余调用方共享结果;
+     * 配置了 future.single-flight.cache-ttl 时成功结果还会短暂缓存.
+     *
+     * @param key      调用的唯一标识,例如 "user:" + userId
+     * @param callable 要执行的任务,只在没有缓存且没有进行中的相同调用时执行
+     * @return 每个调用方独立的 CompletableFuture
+     */
+    <T> CompletableFuture<T> callAsync(Object key, Callable<T> callable);
+
+    /**
+     * 在指定的舱壁中异步执行任务
+     * 每个舱壁有独立的线程池或并发上限和队列(future.bulkhead.instances 配置),
+     * 某个下游变慢时只会占满它自己的舱壁,不会拖垮其他调用.舱壁已满时返回的 Future 以 RejectedExecutionException 失败.
+     *
+     * @param bulkhead 舱壁名称,未配置时使用默认线程池
+     * @param callable 要执行的任务
+     * @return CompletableFuture异步任务对象
+     */
+    <T> CompletableFuture<T> callAsyncIn(String bulkhead, Callable<T> callable);
 }
@@ -1,77 +1,262 @@
 package com.example.future.service.impl;
 
+import com.example.future.executor.BulkheadRegistry;
+import com.example.future.executor.CpuLane;
+import com.example.future.executor.FanOut;
+import com.example.future.executor.InterruptibleTask;
 import com.example.future.service.CompletableFutureService;
+import com.example.future.support.SingleFlight;
 import com.example.future.util.CallableVoid;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "future.engine", havingValue = "default", matchIfMissing = true)
 public class CompletableFutureServiceImpl implements CompletableFutureService {
 
-    private static Executor executor;
+    /**
+     * 执行模式由 future.executor.mode 决定,见 FutureExecutorConfig
+     */
+    private final Executor executor;
+
+    private final SingleFlight singleFlight;
+
+    private final BulkheadRegistry bulkheads;
+
+    /**
+     * CPU 密集型计算使用的独立 ForkJoinPool,见 CpuLaneConfig
+     */
+    private final CpuLane cpuLane;
+
+    public CompletableFutureServiceImpl(Executor executor) {
+        this(executor, new SingleFlight("future", Duration.ZERO, 0, Metrics.globalRegistry),
+                new BulkheadRegistry(executor, Metrics.globalRegistry));
+    }
+
+    public CompletableFutureServiceImpl(Executor executor, SingleFlight singleFlight, BulkheadRegistry bulkheads) {
+        this(executor, singleFlight, bulkheads, CpuLane.defaultLane());
+    }
+
+    @Autowired
+    public CompletableFutureServiceImpl(@Qualifier("futureExecutor") Executor executor, SingleFlight singleFlight,
+                                        BulkheadRegistry bulkheads, CpuLane cpuLane) {
+        this.executor = executor;
+        this.singleFlight = singleFlight;
+        this.bulkheads = bulkheads;
+        this.cpuLane = cpuLane;
+    }
 
     private Executor getExecutor() {
-        if (executor != null) {
-            return executor;
-        }
-        synchronized (CompletableFutureServiceImpl.class) {
-            if (executor != null) {
-                return executor;
-            }
-            int corePoolSize = Runtime.getRuntime().availableProcessors();
-            executor = new ThreadPoolExecutor(corePoolSize,
-                    corePoolSize * 2 + 1,
-                    1,
-                    TimeUnit.MINUTES,
-                    new LinkedBlockingDeque<>(100),
-                    //拒绝任务,调用者现场执行任务
-                    new ThreadPoolExecutor.CallerRunsPolicy());
-        }
         return executor;
     }
 
     /**
      * 同时执行多个异步任务并等待任务执行完成
+     * 任意任务失败时立即中断其余任务,按提交顺序抛出原始异常
      *
      * @param callableArray 异步任务数组
      */
     @Override
     public void allOfAndJoin(CallableVoid... callableArray) throws Exception {
-        // 将所有CallableVoid任务转换为CompletableFuture任务数组
-        CompletableFuture[] futures = Arrays.stream(callableArray)
-                .map(this::callAsync)
-                .toArray(CompletableFuture[]::new);
-        // 等待所有异步任务完成后再返回
-        CompletableFuture.allOf(futures).join();
+        FanOut.await(submitAll(Arrays.asList(callableArray)), -1);
+    }
+
+    /**
+     * 同时执行多个异步任务,在截止时间内等待任务执行完成
+     *
+     * @param timeout       最长等待时间
+     * @param callableArray 异步任务数组
+     */
+    @Override
+    public void allOfAndJoin(Duration timeout, CallableVoid... callableArray) throws Exception {
+        FanOut.await(submitAll(Arrays.asList(callableArray)), timeout.toNanos());
+    }
+
+    /**
+     * 同时执行多个异步任务并按提交顺序返回结果
+     *
+     * @param callables 异步任务列表
+     * @return 结果列表
+     */
+    @Override
+    public <T> List<T> allOf(List<? extends Callable<? extends T>> callables) throws Exception {
+        return allOf(submitAll(callables), -1);
+    }
+
+    /**
+     * 同时执行多个异步任务,在截止时间内按提交顺序返回结果
+     *
+     * @param callables 异步任务列表
+     * @param timeout   最长等待时间
+     * @return 结果列表
+     */
+    @Override
+    public <T> List<T> allOf(List<? extends Callable<? extends T>> callables, Duration timeout) throws Exception {
+        return allOf(submitAll(callables), timeout.toNanos());
+    }
+
+    private <T> List<T> allOf(List<CompletableFuture<? extends T>> futures, long timeoutNanos) throws Exception {
+        FanOut.await(futures, timeoutNanos);
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<? extends T> future : futures) {
+            results.add(future.resultNow());
+        }
+        return results;
+    }
+
+    /**
+     * 同时执行多个异步任务,不等待任务完成
+     *
+     * @param callableArray 异步任务数组
+     * @return 所有任务完成时完成的 Future
+     */
+    @Override
+    public CompletableFuture<Void> allOfAsync(CallableVoid... callableArray) {
+        return FanOut.whenAll(submitAll(Arrays.asList(callableArray)), -1);
+    }
+
+    @Override
+    public CompletableFuture<Void> allOfAsync(Duration timeout, CallableVoid... callableArray) {
+        return FanOut.whenAll(submitAll(Arrays.asList(callableArray)), timeout.toNanos());
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> allOfAsync(List<? extends Callable<? extends T>> callables) {
+        return FanOut.whenAll(submitAll(callables), -1, Function.identity());
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> allOfAsync(List<? extends Callable<? extends T>> callables,
+                                                     Duration timeout) {
+        return FanOut.whenAll(submitAll(callables), timeout.toNanos(), Function.identity());
+    }
+
+    @Override
+    public <T, R> List<R> parallelMap(List<? extends T> items, Function<? super T, ? extends R> mapper) {
+        return cpuLane.map(items, mapper);
+    }
+
+    @Override
+    public <T, A> A parallelReduce(List<? extends T> items, A identity, BiFunction<A, ? super T, A> accumulator,
+                                   BinaryOperator<A> combiner) {
+        return cpuLane.reduce(items, identity, accumulator, combiner);
+    }
+
+    /**
+     * 同时执行多个异步任务,按完成顺序回调 consumer
+     * 已完成的任务放入队列,由调用线程取出后回调,consumer 不会被并发调用
+     *
+     * @param callables 异步任务列表
+     * @param consumer  结果消费者
+     */
+    @Override
+    public <T> void forEachCompleted(List<? extends Callable<? extends T>> callables, Consumer<? super T> consumer)
+            throws Exception {
+        BlockingQueue<CompletableFuture<? extends T>> completed = new LinkedBlockingQueue<>();
+        List<CompletableFuture<? extends T>> futures = submitAll(callables);
+        for (CompletableFuture<? extends T> future : futures) {
+            future.whenComplete((result, throwable) -> completed.add(future));
+        }
+        try {
+            for (int i = futures.size(); i > 0; i--) {
+                CompletableFuture<? extends T> future = completed.take();
+                if (future.isCompletedExceptionally()) {
+                    FanOut.cancelAll(futures);
+                    FanOut.throwFirstFailure(futures);
+                }
+                consumer.accept(future.resultNow());
+            }
+        } catch (InterruptedException | RuntimeException | Error e) {
+            // 调用线程被中断或 consumer 抛出异常,不再需要其余任务的结果
+            FanOut.cancelAll(futures);
+            throw e;
+        }
+    }
+
+    /**
+     * 提交全部任务,不构造 CompletableFuture[] 和 Stream 流水线
+     * 提交过程中出现异常(例如线程池已关闭)时取消已经提交的任务
+     */
+    private <T> List<CompletableFuture<? extends T>> submitAll(List<? extends Callable<? extends T>> callables) {
+        List<CompletableFuture<? extends T>> futures = new ArrayList<>(callables.size());
+        try {
+            for (Callable<? extends T> callable : callables) {
+                futures.add(callAsync(callable));
+            }
+        } catch (RuntimeException e) {
+            FanOut.cancelAll(futures);
+            throw e;
+        }
+        return futures;
     }
 
     /**
      * 异步执行任务，自带异常处理机制
+     * 任务抛出的异常原样保存在返回的 CompletableFuture 中;
+     * 对返回值调用 cancel(true) 会中断正在执行该任务的线程
      *
      * @param callable 要执行的任务
      * @return CompletableFuture异步任务对象
      */
+    @Override
     public <T> CompletableFuture<T> callAsync(Callable<T> callable) {
-        //将 Callable 包装成 Supplier 以适配 CompletableFuture.supplyAsync()
-        //Supplier它主要用于提供数据，不接受任何参数，但返回一个结果。
-        //当 CompletableFuture.supplyAsync 调度执行时，会调用 supplier.get()，进而执行 callable.call()
-        Supplier<T> supplier = () -> {
-            try {
-                // 实际执行任务的地方
-                return callable.call();
-            } catch (Exception e) {
-                // 将检查异常转换为运行时异常
-                throw new RuntimeException(e);
-            }
-        };
-
+        //InterruptibleTask 既是提交给线程池的 Runnable,也是返回给调用方的 CompletableFuture
+        InterruptibleTask<T> task = new InterruptibleTask<>(callable);
         // 使用自定义线程池执行异步任务
-        return supplyAsync(supplier);
+        try {
+            getExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            // 与 callAsyncIn 相同,线程池拒绝时通过 Future 传递
+            task.completeExceptionally(e);
+        }
+        return task;
+    }
+
+    /**
+     * 异步执行任务,相同 key 的并发调用合并为一次
+     *
+     * @param key      调用的唯一标识
+     * @param callable 要执行的任务
+     * @return CompletableFuture异步任务对象
+     */
+    @Override
+    public <T> CompletableFuture<T> callAsync(Object key, Callable<T> callable) {
+        return singleFlight.execute(key, () -> callAsync(callable));
+    }
+
+    /**
+     * 在指定的舱壁中异步执行任务
+     *
+     * @param bulkhead 舱壁名称
+     * @param callable 要执行的任务
+     * @return CompletableFuture异步任务对象
+     */
+    @Override
+    public <T> CompletableFuture<T> callAsyncIn(String bulkhead, Callable<T> callable) {
+        InterruptibleTask<T> task = new InterruptibleTask<>(callable);
+        try {
+            bulkheads.executor(bulkhead).execute(task);
+        } catch (RejectedExecutionException e) {
+            // 舱壁已满时不抛给调用方,与其他异步失败一样通过 Future 传递
+            task.completeExceptionally(e);
+        }
+        return task;
     }
 
     /**
@@ -82,21 +267,20 @@ public class CompletableFutureServiceImpl implements CompletableFutureService {
      * @return CompletableFuture异步任务对象
      */
     public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
-        // supplyAsync用于异步执行任务并返回结果，使用自定义线程池而非默认ForkJoinPool
+        // supplyAsync用于异步执行任务并返回结果，使用自定义线程池(平台线程池或虚拟线程)而非默认ForkJoinPool
         return CompletableFuture.supplyAsync(supplier, getExecutor());
     }
 }
 /**
  * 任务执行时机
- * Callable<T> 包装成 Supplier<T> 时确实不会执行任务
- * 真正的任务执行发生在调用 CompletableFuture.supplyAsync 时
+ * Callable<T> 包装成 InterruptibleTask<T> 时不会执行任务
+ * 真正的任务执行发生在调用 executor.execute 时
  * 该方法会立即将任务提交到线程池中异步执行
  * 调用流程分析
  * 当有4个任务时：
  * callAsync 方法会被调用4次
- * supplyAsync 方法也会被调用4次
- * 每次调用 supplyAsync 都会立即返回 CompletableFuture<T> 对象
- * supplyAsync 方法本身不会阻塞
+ * 每次调用 callAsync 都会立即返回 CompletableFuture<T> 对象
+ * callAsync 方法本身不会阻塞(CallerRunsPolicy 拒绝时除外)
  * 任务提交到线程池后立即返回 CompletableFuture 对象
  * 实际的任务执行在线程池的工作线程中进行
  * 由于使用了自定义线程池，4个任务会并发执行（根据线程池配置决定同时执行的数量），而不是串行执行。
@@ -0,0 +1,208 @@
+package com.example.future.service.impl;
+
+import com.example.future.executor.BulkheadRegistry;
+import com.example.future.executor.CpuLane;
+import com.example.future.executor.FanOut;
+import com.example.future.scope.TaskScope;
+import com.example.future.scope.TaskScopes;
+import com.example.future.service.CompletableFutureService;
+import com.example.future.support.SingleFlight;
+import com.example.future.util.CallableVoid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 基于 TaskScope 的结构化实现,配置 future.engine=structured 时启用
+ * 与 CompletableFutureServiceImpl 的区别:
+ * 1. 每次扇出都在一个 TaskScope 中执行,方法返回时所有子任务都已经结束,不会有任务比请求活得更久;
+ * 2. 在子任务中再次调用本服务时形成嵌套作用域,外层失败或超时会级联中断内层任务;
+ * 3. MDC(traceId/spanId)和 Tracing 上下文会传递到每个子任务.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "future.engine", havingValue = "structured")
+public class StructuredCompletableFutureServiceImpl implements CompletableFutureService {
+
+    private final TaskScopes taskScopes;
+
+    private final SingleFlight singleFlight;
+
+    private final BulkheadRegistry bulkheads;
+
+    private final CpuLane cpuLane;
+
+    public StructuredCompletableFutureServiceImpl(TaskScopes taskScopes, SingleFlight singleFlight,
+                                                  BulkheadRegistry bulkheads, CpuLane cpuLane) {
+        this.taskScopes = taskScopes;
+        this.singleFlight = singleFlight;
+        this.bulkheads = bulkheads;
+        this.cpuLane = cpuLane;
+    }
+
+    @Override
+    public void allOfAndJoin(CallableVoid... callableArray) throws Exception {
+        try (TaskScope scope = taskScopes.open()) {
+            for (CallableVoid callable : callableArray) {
+                scope.fork(callable);
+            }
+            scope.join();
+        }
+    }
+
+    @Override
+    public void allOfAndJoin(Duration timeout, CallableVoid... callableArray) throws Exception {
+        try (TaskScope scope = taskScopes.open(timeout)) {
+            for (CallableVoid callable : callableArray) {
+                scope.fork(callable);
+            }
+            scope.join();
+        }
+    }
+
+    @Override
+    public <T> List<T> allOf(List<? extends Callable<? extends T>> callables) throws Exception {
+        try (TaskScope scope = taskScopes.open()) {
+            return forkAndJoin(scope, callables);
+        }
+    }
+
+    @Override
+    public <T> List<T> allOf(List<? extends Callable<? extends T>> callables, Duration timeout) throws Exception {
+        try (TaskScope scope = taskScopes.open(timeout)) {
+            return forkAndJoin(scope, callables);
+        }
+    }
+
+    private <T> List<T> forkAndJoin(TaskScope scope, List<? extends Callable<? extends T>> callables)
+            throws Exception {
+        List<CompletableFuture<? extends T>> futures = new ArrayList<>(callables.size());
+        for (Callable<? extends T> callable : callables) {
+            futures.add(scope.fork(callable));
+        }
+        scope.join();
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<? extends T> future : futures) {
+            results.add(future.resultNow());
+        }
+        return results;
+    }
+
+    /**
+     * 作用域的 owner 是 TaskScopes.async 启动的虚拟线程,调用线程不等待;
+     * 取消返回的 Future 时中断 owner,作用域关闭并中断所有子任务
+     */
+    @Override
+    public CompletableFuture<Void> allOfAsync(CallableVoid... callableArray) {
+        return taskScopes.async(() -> {
+            allOfAndJoin(callableArray);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> allOfAsync(Duration timeout, CallableVoid... callableArray) {
+        return taskScopes.async(() -> {
+            allOfAndJoin(timeout, callableArray);
+            return null;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> allOfAsync(List<? extends Callable<? extends T>> callables) {
+        return taskScopes.async(() -> allOf(callables));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> allOfAsync(List<? extends Callable<? extends T>> callables,
+                                                     Duration timeout) {
+        return taskScopes.async(() -> allOf(callables, timeout));
+    }
+
+    /**
+     * ForkJoin 任务在返回前全部完成,本身就是结构化的;CPU 计算不传递 MDC
+     */
+    @Override
+    public <T, R> List<R> parallelMap(List<? extends T> items, Function<? super T, ? extends R> mapper) {
+        return cpuLane.map(items, mapper);
+    }
+
+    @Override
+    public <T, A> A parallelReduce(List<? extends T> items, A identity, BiFunction<A, ? super T, A> accumulator,
+                                   BinaryOperator<A> combiner) {
+        return cpuLane.reduce(items, identity, accumulator, combiner);
+    }
+
+    /**
+     * 按完成顺序回调 consumer,任意任务失败或 consumer 抛出异常时关闭作用域,中断其余任务
+     */
+    @Override
+    public <T> void forEachCompleted(List<? extends Callable<? extends T>> callables, Consumer<? super T> consumer)
+            throws Exception {
+        try (TaskScope scope = taskScopes.open()) {
+            BlockingQueue<CompletableFuture<? extends T>> completed = new LinkedBlockingQueue<>();
+            List<CompletableFuture<? extends T>> futures = new ArrayList<>(callables.size());
+            for (Callable<? extends T> callable : callables) {
+                CompletableFuture<? extends T> future = scope.fork(callable);
+                future.whenComplete((result, throwable) -> completed.add(future));
+                futures.add(future);
+            }
+            for (int i = futures.size(); i > 0; i--) {
+                CompletableFuture<? extends T> future = completed.take();
+                if (future.isCompletedExceptionally()) {
+                    scope.shutdown();
+                    FanOut.throwFirstFailure(futures);
+                }
+                consumer.accept(future.resultNow());
+            }
+        }
+    }
+
+    /**
+     * 在当前线程拥有的作用域中调用时作为子任务提交,随作用域一起清理;否则作为独立任务提交
+     * 线程池拒绝时返回失败的 Future,不抛给调用方
+     */
+    @Override
+    public <T> CompletableFuture<T> callAsync(Callable<T> callable) {
+        TaskScope scope = TaskScope.current();
+        if (scope != null && scope.isOwnedByCurrentThread()) {
+            try {
+                return scope.fork(callable);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return taskScopes.submit(callable);
+    }
+
+    /**
+     * 合并后的调用由多个调用方共享,作为独立任务提交,不属于第一个调用方的作用域,
+     * 否则第一个调用方的作用域关闭时会中断其他调用方还在等待的调用;
+     * 每个调用方拿到各自的副本,取消副本只影响自己
+     */
+    @Override
+    public <T> CompletableFuture<T> callAsync(Object key, Callable<T> callable) {
+        return singleFlight.execute(key, () -> taskScopes.submit(callable));
+    }
+
+    /**
+     * 舱壁任务运行在舱壁自己的执行器上,不属于当前作用域
+     */
+    @Override
+    public <T> CompletableFuture<T> callAsyncIn(String bulkhead, Callable<T> callable) {
+        return taskScopes.submit(bulkheads.executor(bulkhead), callable);
+    }
+}
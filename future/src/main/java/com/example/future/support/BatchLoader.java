@@ -0,0 +1,20 @@
+package com.example.future.support;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量加载函数,一次调用下游批量接口
+ *
+ * @param <K> 单个请求的 key
+ * @param <V> 单个请求的结果
+ */
+@FunctionalInterface
+public interface BatchLoader<K, V> {
+
+    /**
+     * @param keys 本批次的 key,可能包含重复值
+     * @return key 到结果的映射;缺少某个 key 时该调用方得到 null
+     */
+    Map<K, V> load(List<K> keys) throws Exception;
+}
@@ -0,0 +1,257 @@
+package com.example.future.support;
+
+import com.example.future.executor.InterruptibleTask;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 微批处理
+ * 调用方逐个提交 key 并得到各自的 CompletableFuture;
+ * 攒够 maxBatchSize 个 key 或者距离本批第一个 key 已过 maxDelay 时,
+ * 在 executor 上执行一次 BatchLoader,再用批量结果完成每个调用方的 future.
+ * 批量调用属于批次里的所有调用方,作为独立任务提交,不属于触发提交的调用方所在的 TaskScope;
+ * 也不会在提交线程中执行,线程池饱和时本批调用方以 RejectedExecutionException 失败.
+ * 适用于调用频率高、单次很小、下游提供批量接口的场景,用一次提交代替成百上千次线程切换.
+ * <p>
+ * 指标(tag name 区分不同批处理器):
+ * future.batch.size / future.batch.fill.ratio (distribution summary),
+ * future.batch.flush{trigger=size|time} (counter).
+ */
+public class MicroBatcher<K, V> implements AutoCloseable {
+
+    private final Executor executor;
+
+    private final BatchLoader<K, V> loader;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final DistributionSummary batchSize;
+
+    private final DistributionSummary fillRatio;
+
+    private final Counter sizeFlushes;
+
+    private final Counter timeFlushes;
+
+    private Batch<K, V> current;
+
+    private boolean closed;
+
+    public MicroBatcher(String name, int maxBatchSize, Duration maxDelay, BatchLoader<K, V> loader,
+                        Executor executor, ScheduledExecutorService scheduler,
+                        MeterRegistry registry) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.executor = executor;
+        this.loader = loader;
+        this.scheduler = scheduler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.batchSize = DistributionSummary.builder("future.batch.size").tag("name", name)
+                .description("每批实际的 key 数量").register(registry);
+        this.fillRatio = DistributionSummary.builder("future.batch.fill.ratio").tag("name", name)
+                .description("每批 key 数量 / maxBatchSize").register(registry);
+        this.sizeFlushes = Counter.builder("future.batch.flush").tag("name", name).tag("trigger", "size")
+                .register(registry);
+        this.timeFlushes = Counter.builder("future.batch.flush").tag("name", name).tag("trigger", "time")
+                .register(registry);
+    }
+
+    /**
+     * 提交单个 key
+     *
+     * @return 该 key 的结果,批量调用失败时以同一个异常完成
+     */
+    public CompletableFuture<V> submit(K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        Batch<K, V> full = null;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("micro batcher is closed");
+            }
+            Batch<K, V> batch = current;
+            if (batch == null) {
+                batch = new Batch<>(maxBatchSize);
+                Batch<K, V> scheduled = batch;
+                try {
+                    batch.timer = scheduler.schedule(() -> flushOnTimeout(scheduled), maxDelayNanos,
+                            TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 定时线程已经关闭(MicroBatchers.close),不开始新的批次
+                    future.completeExceptionally(e);
+                    return future;
+                }
+                current = batch;
+            }
+            batch.keys.add(key);
+            batch.futures.add(future);
+            if (batch.keys.size() >= maxBatchSize) {
+                current = null;
+                full = batch;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            full.cancelTimer();
+            sizeFlushes.increment();
+            dispatch(full);
+        }
+        return future;
+    }
+
+    private void flushOnTimeout(Batch<K, V> batch) {
+        lock.lock();
+        try {
+            if (current != batch) {
+                // 已经因为攒满被提交
+                return;
+            }
+            current = null;
+        } finally {
+            lock.unlock();
+        }
+        timeFlushes.increment();
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        int size = batch.keys.size();
+        batchSize.record(size);
+        fillRatio.record((double) size / maxBatchSize);
+        InterruptibleTask<Map<K, V>> result = new InterruptibleTask<>(() -> loader.load(batch.keys));
+        Dispatch dispatch = new Dispatch(result);
+        try {
+            executor.execute(dispatch);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        } finally {
+            dispatch.submitted = true;
+        }
+        result.whenComplete((values, throwable) -> {
+            for (int i = 0; i < size; i++) {
+                CompletableFuture<V> future = batch.futures.get(i);
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(values == null ? null : values.get(batch.keys.get(i)));
+                }
+            }
+        });
+    }
+
+    /**
+     * 立即提交尚未攒满的批次,之后不再接受新的 key
+     */
+    @Override
+    public void close() {
+        Batch<K, V> pending;
+        lock.lock();
+        try {
+            closed = true;
+            pending = current;
+            current = null;
+        } finally {
+            lock.unlock();
+        }
+        if (pending != null) {
+            pending.cancelTimer();
+            dispatch(pending);
+        }
+    }
+
+    /**
+     * 不再接受新的 key,尚未提交的批次不执行,调用方以 cause 失败
+     * 定时线程关闭后尚未到期的批次不会再被提交,由 MicroBatchers.close 调用
+     */
+    void abort(Throwable cause) {
+        Batch<K, V> pending;
+        lock.lock();
+        try {
+            closed = true;
+            pending = current;
+            current = null;
+        } finally {
+            lock.unlock();
+        }
+        if (pending != null) {
+            pending.cancelTimer();
+            for (CompletableFuture<V> future : pending.futures) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * 提交给 executor 的批量调用
+     * 线程池饱和时 CALLER_RUNS 策略在提交线程中直接执行任务;超时提交的线程是所有批处理器共享的定时线程,
+     * 在上面执行批量调用会拖住每个批处理器的时间窗口.因此 execute 返回前由提交线程执行时按拒绝处理,本批调用方以
+     * RejectedExecutionException 失败.
+     */
+    private static final class Dispatch implements Runnable {
+
+        private final InterruptibleTask<?> task;
+
+        private final Thread submitter = Thread.currentThread();
+
+        private volatile boolean submitted;
+
+        private Dispatch(InterruptibleTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!submitted && Thread.currentThread() == submitter) {
+                task.completeExceptionally(new RejectedExecutionException(
+                        "executor is saturated, batch not run on the submitting thread"));
+                return;
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * 一个批次:key 与调用方 future 按下标一一对应
+     */
+    private static final class Batch<K, V> {
+
+        private final List<K> keys;
+
+        private final List<CompletableFuture<V>> futures;
+
+        private ScheduledFuture<?> timer;
+
+        private Batch(int capacity) {
+            this.keys = new ArrayList<>(capacity);
+            this.futures = new ArrayList<>(capacity);
+        }
+
+        private void cancelTimer() {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+}
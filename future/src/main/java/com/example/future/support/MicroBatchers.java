@@ -0,0 +1,74 @@
+package com.example.future.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * MicroBatcher 工厂
+ * 所有批处理器共享一个定时线程,只负责在时间窗口到期时触发提交,批量调用本身运行在 futureExecutor 上
+ * <pre>
+ * MicroBatcher&lt;Long, User&gt; users = microBatchers.create("user", userClient::findByIds);
+ * CompletableFuture&lt;User&gt; user = users.submit(userId);
+ * </pre>
+ */
+public class MicroBatchers implements AutoCloseable {
+
+    private final Executor executor;
+
+    private final int defaultMaxSize;
+
+    private final Duration defaultMaxDelay;
+
+    private final MeterRegistry registry;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final Set<MicroBatcher<?, ?>> batchers = ConcurrentHashMap.newKeySet();
+
+    public MicroBatchers(Executor executor, int defaultMaxSize, Duration defaultMaxDelay,
+                         MeterRegistry registry) {
+        this.executor = executor;
+        this.defaultMaxSize = defaultMaxSize;
+        this.defaultMaxDelay = defaultMaxDelay;
+        this.registry = registry;
+        this.scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("future-batch-timer").daemon().factory());
+        // 攒满提前提交时会取消定时任务,及时从队列中移除
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 使用默认窗口(future.batch.max-size / max-delay)创建批处理器
+     */
+    public <K, V> MicroBatcher<K, V> create(String name, BatchLoader<K, V> loader) {
+        return create(name, defaultMaxSize, defaultMaxDelay, loader);
+    }
+
+    /**
+     * 使用指定窗口创建批处理器
+     */
+    public <K, V> MicroBatcher<K, V> create(String name, int maxBatchSize, Duration maxDelay,
+                                            BatchLoader<K, V> loader) {
+        MicroBatcher<K, V> batcher = new MicroBatcher<>(name, maxBatchSize, maxDelay, loader, executor, scheduler,
+                registry);
+        batchers.add(batcher);
+        return batcher;
+    }
+
+    /**
+     * 容器关闭时停止定时线程,尚未提交的批次不再执行,调用方以 IllegalStateException 失败
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        IllegalStateException closed = new IllegalStateException("micro batchers are closed");
+        for (MicroBatcher<?, ?> batcher : batchers) {
+            batcher.abort(closed);
+        }
+    }
+}
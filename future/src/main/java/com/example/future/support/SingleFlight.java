@@ -0,0 +1,148 @@
+package com.example.future.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 相同 key 的并发调用合并(single-flight)
+ * 同一个 key 同时只有一次真正的调用,期间的其他调用方共享它的结果;
+ * 配置了 cacheTtl 时成功的结果再缓存一小段时间,缓存条数有上限,由 Caffeine 按 W-TinyLFU 淘汰.
+ * 失败的结果不缓存,下一次调用会重新执行.
+ * 每个调用方拿到的是独立的 CompletableFuture,某个调用方取消不会影响其他调用方.
+ * <p>
+ * 指标: future.single.flight.requests{result=hit|coalesced|miss},
+ * 缓存淘汰等指标见 cache.* {cache=future.single.flight}.
+ */
+public class SingleFlight {
+
+    private static final Object NULL = new Object();
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Cache<Object, Object> cache;
+
+    private final Counter hits;
+
+    private final Counter coalesced;
+
+    private final Counter misses;
+
+    /**
+     * @param name         指标中的名称
+     * @param cacheTtl     结果缓存时间,为0表示不缓存
+     * @param cacheMaxSize 结果缓存最大条数
+     */
+    public SingleFlight(String name, Duration cacheTtl, long cacheMaxSize, MeterRegistry registry) {
+        this(name, cacheTtl.isZero() || cacheTtl.isNegative() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .<Object, Object>build(), registry);
+    }
+
+    /**
+     * @param cache 结果缓存,为 null 表示不缓存
+     */
+    SingleFlight(String name, Cache<Object, Object> cache, MeterRegistry registry) {
+        this.cache = cache;
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, name + ".single.flight");
+        }
+        this.hits = requests(registry, name, "hit");
+        this.coalesced = requests(registry, name, "coalesced");
+        this.misses = requests(registry, name, "miss");
+    }
+
+    private static Counter requests(MeterRegistry registry, String name, String result) {
+        return Counter.builder(name + ".single.flight.requests").tag("result", result).register(registry);
+    }
+
+    /**
+     * 执行 key 对应的调用;已有相同 key 的调用正在执行时直接共享其结果
+     *
+     * @param key    调用的唯一标识,需要正确实现 equals/hashCode
+     * @param loader 真正发起调用,只会在没有缓存且没有进行中的调用时执行
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(Object key, Supplier<? extends CompletableFuture<? extends T>> loader) {
+        CompletableFuture<T> cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Object> existing = inFlight.get(key);
+        if (existing != null) {
+            coalesced.increment();
+            return (CompletableFuture<T>) existing.copy();
+        }
+        // 第一次读缓存之后、读 inFlight 之前,进行中的调用可能刚好完成: 它先写缓存再移除,这里再读一次缓存一定能读到
+        cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return (CompletableFuture<T>) existing.copy();
+        }
+        misses.increment();
+        CompletableFuture<? extends T> source;
+        try {
+            source = loader.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            return (CompletableFuture<T>) shared.copy();
+        }
+        source.whenComplete((value, throwable) -> {
+            if (throwable == null && cache != null) {
+                // 先写缓存再移除进行中的调用,调用方在 inFlight 未命中后再读一次缓存,因此总能命中其中之一
+                cache.put(key, value == null ? NULL : value);
+            }
+            inFlight.remove(key, shared);
+            if (throwable != null) {
+                shared.completeExceptionally(throwable);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return (CompletableFuture<T>) shared.copy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> cached(Object key) {
+        if (cache == null) {
+            return null;
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        hits.increment();
+        return CompletableFuture.completedFuture(cached == NULL ? null : (T) cached);
+    }
+
+    /**
+     * 清除 key 对应的缓存结果,下一次调用会重新执行
+     */
+    public void invalidate(Object key) {
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * @return 当前正在执行的不同 key 的数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
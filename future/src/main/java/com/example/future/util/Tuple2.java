@@ -0,0 +1,10 @@
+package com.example.future.util;
+
+/**
+ * 两个不同类型异步任务的返回结果
+ *
+ * @param first  第一个任务的结果
+ * @param second 第二个任务的结果
+ */
+public record Tuple2<A, B>(A first, B second) {
+}
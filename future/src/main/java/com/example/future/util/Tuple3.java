@@ -0,0 +1,11 @@
+package com.example.future.util;
+
+/**
+ * 三个不同类型异步任务的返回结果
+ *
+ * @param first  第一个任务的结果
+ * @param second 第二个任务的结果
+ * @param third  第三个任务的结果
+ */
+public record Tuple3<A, B, C>(A first, B second, C third) {
+}
@@ -0,0 +1,109 @@
+package com.example.future.benchmark;
+
+import com.example.future.config.FutureExecutorConfig;
+import com.example.future.config.FutureExecutorProperties;
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.example.future.util.CallableVoid;
+import io.micrometer.core.instrument.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 阻塞端点(allOfAndJoin)与异步端点(allOfAsync)的对比压测
+ * 不是单元测试,需要手动运行 main 方法:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.future.benchmark.AsyncEndpointBenchmark \
+ *     -Dexec.args="1000,5000,10000 20"
+ * </pre>
+ * 参数1: 并发请求数列表; 参数2: 每个子任务的阻塞时间(毫秒),模拟Feign/HTTP调用.
+ * 与 ExecutorModeBenchmark 一样用200个平台线程模拟Tomcat的请求线程池,每个请求扇出4个阻塞子任务.
+ * 阻塞端点在请求线程中等待扇出完成;异步端点与返回 CompletableFuture 的控制器方法一样,
+ * 提交扇出后立即释放请求线程,扇出完成时才算请求结束.
+ * 输出吞吐量、延迟,以及请求线程池的最大占用数和进程的峰值平台线程数.
+ */
+public class AsyncEndpointBenchmark {
+
+    private static final int TOMCAT_THREADS = 200;
+
+    private static final int TASKS_PER_REQUEST = 4;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int[] requests = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 5_000, 10_000};
+        long blockMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+
+        System.out.printf("%-18s %8s %12s %10s %10s %12s %12s%n", "endpoint", "requests", "ops/s", "p50(ms)",
+                "p99(ms)", "busyTomcat", "peakThreads");
+        for (int n : requests) {
+            for (FutureExecutorProperties.Mode mode : new FutureExecutorProperties.Mode[]{
+                    FutureExecutorProperties.Mode.PLATFORM, FutureExecutorProperties.Mode.VIRTUAL}) {
+                run(mode, false, n, blockMillis);
+                run(mode, true, n, blockMillis);
+            }
+        }
+    }
+
+    private static void run(FutureExecutorProperties.Mode mode, boolean async, int requests, long blockMillis)
+            throws Exception {
+        FutureExecutorProperties properties = new FutureExecutorProperties();
+        properties.setMode(mode);
+        ExecutorService futureExecutor = FutureExecutorConfig.createExecutor(properties, Metrics.globalRegistry);
+        ExecutorService tomcat = Executors.newFixedThreadPool(TOMCAT_THREADS);
+        try (futureExecutor; tomcat) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(futureExecutor);
+            CallableVoid[] tasks = new CallableVoid[TASKS_PER_REQUEST];
+            Arrays.fill(tasks, (CallableVoid) () -> {
+                Thread.sleep(blockMillis);
+                return null;
+            });
+
+            long[] latencies = new long[requests];
+            CountDownLatch done = new CountDownLatch(requests);
+            AtomicInteger busy = new AtomicInteger();
+            AtomicInteger peakBusy = new AtomicInteger();
+            THREADS.resetPeakThreadCount();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                tomcat.execute(() -> {
+                    peakBusy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+                    try {
+                        if (async) {
+                            service.allOfAsync(tasks).whenComplete((ignored, throwable) -> {
+                                latencies[index] = System.nanoTime() - submitted;
+                                done.countDown();
+                            });
+                        } else {
+                            service.allOfAndJoin(tasks);
+                            latencies[index] = System.nanoTime() - submitted;
+                            done.countDown();
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        busy.decrementAndGet();
+                    }
+                });
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-18s %8d %12.0f %10.1f %10.1f %12d %12d%n",
+                    (async ? "async" : "blocking") + "/" + mode.name().toLowerCase(), requests,
+                    requests / (elapsed / 1e9),
+                    latencies[requests / 2] / 1e6,
+                    latencies[(int) Math.min(requests - 1, Math.ceil(requests * 0.99) - 1)] / 1e6,
+                    peakBusy.get(), THREADS.getPeakThreadCount());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.future.benchmark;
+
+import com.example.future.config.FutureExecutorConfig;
+import com.example.future.config.FutureExecutorProperties;
+import com.example.future.feign.AsyncFeignClients;
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import feign.Request;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 阻塞式 Feign(HttpURLConnection)与 AsyncFeignClients 的对比压测
+ * 不是单元测试,需要手动运行 main 方法:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.future.benchmark.AsyncFeignBenchmark \
+ *     -Dexec.args="1000,5000 20"
+ * </pre>
+ * 参数1: 请求数列表; 参数2: 桩服务的响应延迟(毫秒).
+ * 桩服务是本机的 JDK HttpServer,每个请求在虚拟线程中等待延迟后返回一个小的 JSON.
+ * 与 AsyncEndpointBenchmark 一样用200个平台线程模拟Tomcat的请求线程池,每个请求扇出4个下游调用:
+ * blocking/* 在 future 线程池中执行阻塞的 Feign 调用并在请求线程中等待;
+ * async 用 allOfFutures 组合 AsyncFeignClients 的调用,请求线程和线程池线程都不等待.
+ * 输出吞吐量、延迟和进程的峰值平台线程数.
+ */
+public class AsyncFeignBenchmark {
+
+    private static final int TOMCAT_THREADS = 200;
+
+    private static final int CALLS_PER_REQUEST = 4;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public interface BlockingItemClient {
+
+        @GetMapping("/items/{id}")
+        Map<String, Object> item(@PathVariable("id") long id);
+    }
+
+    public interface AsyncItemClient {
+
+        @GetMapping("/items/{id}")
+        CompletableFuture<Map<String, Object>> item(@PathVariable("id") long id);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] requests = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 5_000};
+        long delayMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/items/", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"id\":1,\"name\":\"item\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        BlockingItemClient blocking = Feign.builder()
+                .contract(new SpringMvcContract())
+                .decoder((response, type) -> objectMapper.readValue(response.body().asInputStream(),
+                        objectMapper.constructType(type)))
+                .options(new Request.Options(1, TimeUnit.SECONDS, 5, TimeUnit.SECONDS, true))
+                .target(BlockingItemClient.class, url);
+        try (AsyncFeignClients clients = new AsyncFeignClients("benchmark", new AsyncFeignClients.Settings(200, 200,
+                Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30), 0), Map.of(), objectMapper,
+                null, Metrics.globalRegistry)) {
+            AsyncItemClient async = clients.target(AsyncItemClient.class, url);
+
+            System.out.printf("%-18s %8s %12s %10s %10s %12s%n", "client", "requests", "ops/s", "p50(ms)",
+                    "p99(ms)", "peakThreads");
+            for (int n : requests) {
+                runBlocking("blocking/platform", FutureExecutorProperties.Mode.PLATFORM, blocking, n);
+                runBlocking("blocking/virtual", FutureExecutorProperties.Mode.VIRTUAL, blocking, n);
+                runAsync(async, n);
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void runBlocking(String name, FutureExecutorProperties.Mode mode, BlockingItemClient client,
+                                    int requests) throws Exception {
+        FutureExecutorProperties properties = new FutureExecutorProperties();
+        properties.setMode(mode);
+        ExecutorService futureExecutor = FutureExecutorConfig.createExecutor(properties, Metrics.globalRegistry);
+        try (futureExecutor) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(futureExecutor);
+            List<Callable<Map<String, Object>>> calls = new ArrayList<>();
+            for (int i = 0; i < CALLS_PER_REQUEST; i++) {
+                long id = i;
+                calls.add(() -> client.item(id));
+            }
+            run(name, requests, (latencies, index, submitted, done) -> {
+                service.allOf(calls);
+                latencies[index] = System.nanoTime() - submitted;
+                done.countDown();
+            });
+        }
+    }
+
+    private static void runAsync(AsyncItemClient client, int requests) throws Exception {
+        try (ExecutorService futureExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // allOfFutures 不使用线程池,这里只是满足构造参数
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(futureExecutor);
+            List<Supplier<CompletableFuture<Map<String, Object>>>> calls = new ArrayList<>();
+            for (int i = 0; i < CALLS_PER_REQUEST; i++) {
+                long id = i;
+                calls.add(() -> client.item(id));
+            }
+            run("async", requests, (latencies, index, submitted, done) ->
+                    service.allOfFutures(calls).whenComplete((results, throwable) -> {
+                        latencies[index] = System.nanoTime() - submitted;
+                        done.countDown();
+                    }));
+        }
+    }
+
+    private interface Endpoint {
+
+        void handle(long[] latencies, int index, long submitted, CountDownLatch done) throws Exception;
+    }
+
+    private static void run(String name, int requests, Endpoint endpoint) throws Exception {
+        ExecutorService tomcat = Executors.newFixedThreadPool(TOMCAT_THREADS);
+        try (tomcat) {
+            long[] latencies = new long[requests];
+            CountDownLatch done = new CountDownLatch(requests);
+            THREADS.resetPeakThreadCount();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                tomcat.execute(() -> {
+                    try {
+                        endpoint.handle(latencies, index, submitted, done);
+                    } catch (Exception e) {
+                        done.countDown();
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-18s %8d %12.0f %10.1f %10.1f %12d%n", name, requests,
+                    requests / (elapsed / 1e9),
+                    latencies[requests / 2] / 1e6,
+                    latencies[(int) Math.min(requests - 1, Math.ceil(requests * 0.99) - 1)] / 1e6,
+                    THREADS.getPeakThreadCount());
+        }
+    }
+}
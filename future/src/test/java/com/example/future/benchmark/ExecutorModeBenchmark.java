@@ -0,0 +1,100 @@
+package com.example.future.benchmark;
+
+import com.example.future.config.FutureExecutorConfig;
+import com.example.future.config.FutureExecutorProperties;
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.example.future.util.CallableVoid;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 平台线程池与虚拟线程两种执行模式的对比压测
+ * 不是单元测试,需要手动运行 main 方法:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.future.benchmark.ExecutorModeBenchmark \
+ *     -Dexec.args="1000,5000,10000,50000 20"
+ * </pre>
+ * 参数1: 并发扇出次数列表; 参数2: 每个子任务的阻塞时间(毫秒),模拟Feign/HTTP调用.
+ * 使用200个平台线程模拟Tomcat默认的请求线程池,每次扇出执行4个阻塞子任务,
+ * 延迟从请求提交开始计算(包含在"Tomcat"线程池中的排队时间).
+ */
+public class ExecutorModeBenchmark {
+
+    private static final int TOMCAT_THREADS = 200;
+
+    private static final int TASKS_PER_FAN_OUT = 4;
+
+    public static void main(String[] args) throws Exception {
+        int[] fanOuts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 5_000, 10_000, 50_000};
+        long blockMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+
+        System.out.printf("%-22s %8s %12s %10s %10s %10s%n", "mode", "fanOuts", "ops/s", "p50(ms)", "p99(ms)",
+                "rejected");
+        for (int n : fanOuts) {
+            run("platform", props(FutureExecutorProperties.Mode.PLATFORM, 0), n, blockMillis);
+            run("virtual", props(FutureExecutorProperties.Mode.VIRTUAL, 0), n, blockMillis);
+            run("virtual(cap=1000)", props(FutureExecutorProperties.Mode.VIRTUAL, 1000), n, blockMillis);
+            run("adaptive", props(FutureExecutorProperties.Mode.ADAPTIVE, 0), n, blockMillis);
+        }
+    }
+
+    private static FutureExecutorProperties props(FutureExecutorProperties.Mode mode, int maxConcurrency) {
+        FutureExecutorProperties properties = new FutureExecutorProperties();
+        properties.setMode(mode);
+        properties.setMaxConcurrency(maxConcurrency);
+        properties.getAdaptive().setAdjustInterval(Duration.ofMillis(200));
+        return properties;
+    }
+
+    private static void run(String name, FutureExecutorProperties properties, int fanOuts, long blockMillis)
+            throws Exception {
+        ExecutorService futureExecutor = FutureExecutorConfig.createExecutor(properties, Metrics.globalRegistry);
+        ExecutorService tomcat = Executors.newFixedThreadPool(TOMCAT_THREADS);
+        try (futureExecutor; tomcat) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(futureExecutor);
+            CallableVoid[] tasks = new CallableVoid[TASKS_PER_FAN_OUT];
+            Arrays.fill(tasks, (CallableVoid) () -> {
+                Thread.sleep(blockMillis);
+                return null;
+            });
+
+            long[] latencies = new long[fanOuts];
+            LongAdder rejected = new LongAdder();
+            CountDownLatch done = new CountDownLatch(fanOuts);
+            long start = System.nanoTime();
+            for (int i = 0; i < fanOuts; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                tomcat.execute(() -> {
+                    try {
+                        service.allOfAndJoin(tasks);
+                    } catch (RejectedExecutionException e) {
+                        // adaptive 模式的 shed / bounded-wait 策略在过载时拒绝任务
+                        rejected.increment();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        latencies[index] = System.nanoTime() - submitted;
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-22s %8d %12.0f %10.1f %10.1f %10d%n", name, fanOuts,
+                    fanOuts / (elapsed / 1e9),
+                    latencies[fanOuts / 2] / 1e6,
+                    latencies[(int) Math.min(fanOuts - 1, Math.ceil(fanOuts * 0.99) - 1)] / 1e6,
+                    rejected.sum());
+        }
+    }
+}
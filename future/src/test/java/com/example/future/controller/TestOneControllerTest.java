@@ -9,7 +9,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.*;
 
 /**
@@ -133,4 +136,25 @@ public class TestOneControllerTest {
         CallableVoid[] captured = captor.getValue();
         assertEquals(4, captured.length); // 确保传入了4个 CallableVoid 实例
     }
+
+    /**
+     * 测试 fourFutureAsync 方法
+     * 验证异步端点直接返回 service 的 Future,不在请求线程中等待,并传入 4 个 CallableVoid 实例
+     */
+    @Test
+    public void testFourFutureAsync_WhenCalled_ThenReturnsServiceFutureWithoutJoin() throws Exception {
+        // Given
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        when(completableFutureService.allOfAsync(any(CallableVoid[].class))).thenReturn(pending);
+
+        // When
+        CompletableFuture<Void> result = testOneController.fourFutureAsync();
+
+        // Then
+        assertSame(pending, result);
+        ArgumentCaptor<CallableVoid[]> captor = ArgumentCaptor.forClass(CallableVoid[].class);
+        verify(completableFutureService, times(1)).allOfAsync(captor.capture());
+        assertEquals(4, captor.getValue().length);
+        verify(completableFutureService, never()).allOfAndJoin(any(CallableVoid[].class));
+    }
 }
@@ -0,0 +1,157 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveThreadPoolExecutor 单元测试
+ */
+public class AdaptiveThreadPoolExecutorTest {
+
+    private static AdaptiveThreadPoolExecutor executor(int minCore, int max, int queue, OverflowPolicy policy,
+                                                       SimpleMeterRegistry registry) {
+        AdaptiveThreadPoolExecutor.Settings settings = new AdaptiveThreadPoolExecutor.Settings(minCore, max, queue,
+                policy, Duration.ofMillis(10), Duration.ofHours(1), 0.75, Duration.ofMillis(1));
+        return new AdaptiveThreadPoolExecutor("test", settings, registry);
+    }
+
+    /**
+     * SHED 策略:队列已满时直接拒绝并计数
+     */
+    @Test
+    public void testShed_WhenSaturated_ThenRejectsAndCounts() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CountDownLatch release = new CountDownLatch(1);
+        try (AdaptiveThreadPoolExecutor executor = executor(1, 1, 1, OverflowPolicy.SHED, registry)) {
+            try {
+                executor.execute(() -> await(release));
+                executor.execute(() -> await(release));
+
+                assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+                }));
+                assertEquals(1, executor.getRejectedCount());
+                assertEquals(1.0, registry.get("future.executor.rejected").functionCounter().count());
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    /**
+     * CALLER_RUNS 策略:队列已满时由提交线程执行并计数
+     */
+    @Test
+    public void testCallerRuns_WhenSaturated_ThenRunsOnCallerThread() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        try (AdaptiveThreadPoolExecutor executor = executor(1, 1, 1, OverflowPolicy.CALLER_RUNS,
+                new SimpleMeterRegistry())) {
+            try {
+                executor.execute(() -> await(release));
+                executor.execute(() -> await(release));
+
+                executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+                assertSame(Thread.currentThread(), ranOn.get());
+                assertEquals(1, executor.getCallerRunsCount());
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    /**
+     * BOUNDED_WAIT 策略:等待队列空位期间线程池关闭,放进队列的任务被取回并拒绝
+     */
+    @Test
+    public void testBoundedWait_WhenShutDownWhileWaiting_ThenRejectsQueuedTask() throws Exception {
+        AdaptiveThreadPoolExecutor.Settings settings = new AdaptiveThreadPoolExecutor.Settings(1, 1, 1,
+                OverflowPolicy.BOUNDED_WAIT, Duration.ofSeconds(10), Duration.ofHours(1), 0.75, Duration.ofMillis(1));
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        try (AdaptiveThreadPoolExecutor executor = new AdaptiveThreadPoolExecutor("test", settings,
+                new SimpleMeterRegistry())) {
+            try {
+                executor.execute(() -> await(first));
+                executor.execute(() -> await(second));
+                Thread waiting = Thread.ofVirtual().start(() -> {
+                    try {
+                        executor.execute(() -> ran.set(true));
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                });
+                while (waiting.getState() != Thread.State.TIMED_WAITING) {
+                    Thread.sleep(1);
+                }
+
+                executor.shutdown();
+                // 工作线程取走第二个任务后队列有空位,等待中的任务入队
+                first.countDown();
+                waiting.join(5_000);
+
+                assertInstanceOf(RejectedExecutionException.class, error.get());
+                assertEquals(1, executor.getRejectedCount());
+            } finally {
+                first.countDown();
+                second.countDown();
+            }
+        }
+        assertFalse(ran.get());
+    }
+
+    /**
+     * 任务排队明显时 adjust 会增加核心线程数
+     */
+    @Test
+    public void testAdjust_WhenTasksQueue_ThenGrowsCorePool() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (AdaptiveThreadPoolExecutor executor = executor(1, 16, 100, OverflowPolicy.BOUNDED_WAIT, registry)) {
+            CountDownLatch done = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                executor.execute(() -> {
+                    sleep(20);
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            // 计时在任务返回后才记录,等待线程池统计到全部任务
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (executor.getCompletedTaskCount() < 20 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            executor.adjust();
+
+            assertTrue(executor.getCorePoolSize() > 1, "core=" + executor.getCorePoolSize());
+            assertEquals(20, registry.get("future.executor.run").timer().count());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BulkheadRegistry 单元测试
+ */
+public class BulkheadRegistryTest {
+
+    private final ExecutorService fallback = Executors.newSingleThreadExecutor();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BulkheadRegistry registry = new BulkheadRegistry(fallback, meterRegistry);
+
+    @AfterEach
+    public void tearDown() {
+        registry.close();
+        fallback.shutdownNow();
+    }
+
+    private static BulkheadSpec semaphore(int maxConcurrency, int queueCapacity) {
+        return new BulkheadSpec(BulkheadSpec.Type.SEMAPHORE, 1, 1, maxConcurrency, queueCapacity,
+                OverflowPolicy.SHED, Duration.ZERO);
+    }
+
+    private static BulkheadSpec threadPool(int coreSize, int maxSize, int queueCapacity) {
+        return new BulkheadSpec(BulkheadSpec.Type.THREAD_POOL, coreSize, maxSize, 0, queueCapacity,
+                OverflowPolicy.SHED, Duration.ZERO);
+    }
+
+    /**
+     * 一个舱壁占满后只拒绝该舱壁的任务,其他舱壁不受影响,拒绝计数按舱壁区分
+     */
+    @Test
+    public void testExecutor_WhenOneBulkheadSaturated_ThenOthersStillRun() throws Exception {
+        registry.reconcile(Map.of("inventory", semaphore(1, 0), "pricing", threadPool(1, 2, 10)));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            registry.executor("inventory").execute(() -> await(release));
+
+            assertThrows(RejectedExecutionException.class, () -> registry.executor("inventory").execute(() -> {
+            }));
+            CountDownLatch ran = new CountDownLatch(1);
+            registry.executor("pricing").execute(ran::countDown);
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+            assertEquals(1.0, meterRegistry.get("future.executor.rejected").tag("name", "bulkhead-inventory")
+                    .functionCounter().count());
+            assertEquals(0.0, meterRegistry.get("future.executor.rejected").tag("name", "bulkhead-pricing")
+                    .functionCounter().count());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * 可在线修改的参数原地调整,队列容量变化时重建,删除的舱壁关闭并回退到默认执行器
+     */
+    @Test
+    public void testReconcile_WhenConfigChanges_ThenResizesRebuildsAndRemoves() {
+        registry.reconcile(Map.of("inventory", threadPool(1, 4, 10), "pricing", semaphore(1, 0)));
+        AdaptiveThreadPoolExecutor inventory = (AdaptiveThreadPoolExecutor) registry.executor("inventory");
+        SemaphoreBulkheadExecutor pricing = (SemaphoreBulkheadExecutor) registry.executor("pricing");
+
+        registry.reconcile(Map.of("inventory", threadPool(3, 8, 10), "pricing", semaphore(4, 2)));
+        assertSame(inventory, registry.executor("inventory"));
+        assertEquals(3, inventory.getCorePoolSize());
+        assertSame(pricing, registry.executor("pricing"));
+        assertEquals(4, pricing.getMaxConcurrency());
+
+        registry.reconcile(Map.of("inventory", threadPool(3, 8, 20)));
+        Executor rebuilt = registry.executor("inventory");
+        assertNotSame(inventory, rebuilt);
+        assertTrue(inventory.isShutdown());
+        assertTrue(pricing.isShutdown());
+        assertSame(fallback, registry.executor("pricing"));
+        // 重建后的指标绑定到新实例
+        assertEquals(3.0, meterRegistry.get("future.executor.pool.core").tag("name", "bulkhead-inventory")
+                .gauge().value());
+    }
+
+    /**
+     * 配置中有缺失的舱壁参数时整体拒绝,已有舱壁不被修改或关闭
+     */
+    @Test
+    public void testReconcile_WhenAnySpecMissing_ThenAppliesNothing() {
+        registry.reconcile(Map.of("inventory", threadPool(1, 4, 10), "pricing", semaphore(1, 0)));
+        AdaptiveThreadPoolExecutor inventory = (AdaptiveThreadPoolExecutor) registry.executor("inventory");
+        SemaphoreBulkheadExecutor pricing = (SemaphoreBulkheadExecutor) registry.executor("pricing");
+        Map<String, BulkheadSpec> specs = new LinkedHashMap<>();
+        specs.put("inventory", threadPool(1, 4, 20));
+        specs.put("pricing", null);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.reconcile(specs));
+
+        assertSame(inventory, registry.executor("inventory"));
+        assertFalse(inventory.isShutdown());
+        assertEquals(10, inventory.getSettings().queueCapacity());
+        assertSame(pricing, registry.executor("pricing"));
+        assertFalse(pricing.isShutdown());
+    }
+
+    /**
+     * 非法配置在构造参数时即被拒绝,不会影响已有舱壁
+     */
+    @Test
+    public void testSpec_WhenInvalid_ThenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> threadPool(4, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> semaphore(0, 10));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.future.executor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CpuLane 单元测试
+ */
+public class CpuLaneTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final CpuLane lane = new CpuLane("cpu-test", 4, 16, registry);
+
+    @AfterEach
+    public void tearDown() {
+        lane.close();
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+
+    /**
+     * 结果按输入顺序排列,计算在 CPU 通道的线程中执行
+     */
+    @Test
+    public void testMap_KeepsInputOrderAndRunsOnLaneThreads() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        List<Integer> squares = lane.map(range(10_000), i -> {
+            threads.add(Thread.currentThread().getName());
+            return i * i;
+        });
+
+        assertEquals(10_000, squares.size());
+        for (int i = 0; i < squares.size(); i++) {
+            assertEquals(i * i, squares.get(i));
+        }
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("cpu-test-")), threads.toString());
+        assertNotNull(registry.find("future.executor.steals").tag("name", "cpu-test").functionCounter());
+    }
+
+    /**
+     * 不超过一个区间的输入直接在调用线程中计算;非 RandomAccess 的集合同样支持
+     */
+    @Test
+    public void testMap_WhenBelowThreshold_ThenRunsInCaller() {
+        String caller = Thread.currentThread().getName();
+
+        List<String> names = lane.map(new LinkedList<>(range(16)), i -> Thread.currentThread().getName());
+
+        assertTrue(names.stream().allMatch(caller::equals));
+    }
+
+    /**
+     * 相邻区间按输入顺序合并,不满足交换律的 combiner 也能得到正确结果
+     */
+    @Test
+    public void testReduce_CombinesInInputOrder() {
+        List<Integer> items = range(1_000);
+
+        List<Integer> reduced = lane.reduce(items, List.of(), (list, i) -> {
+            List<Integer> next = new ArrayList<>(list);
+            next.add(i);
+            return next;
+        }, (left, right) -> {
+            List<Integer> merged = new ArrayList<>(left);
+            merged.addAll(right);
+            return merged;
+        });
+
+        assertEquals(items, reduced);
+        assertEquals(499_500L, (long) lane.reduce(items, 0L, (sum, i) -> sum + i, Long::sum));
+    }
+
+    /**
+     * 任意元素失败时抛出原始异常,其余区间不再继续计算
+     */
+    @Test
+    public void testMap_WhenMapperFails_ThenThrowsOriginalAndStops() {
+        AtomicInteger computed = new AtomicInteger();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> lane.map(range(100_000), i -> {
+            if (i == 0) {
+                throw new IllegalArgumentException("bad item " + i);
+            }
+            computed.incrementAndGet();
+            return i;
+        }));
+
+        assertEquals("bad item 0", e.getMessage());
+        assertTrue(computed.get() < 100_000);
+    }
+}
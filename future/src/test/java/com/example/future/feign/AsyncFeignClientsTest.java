@@ -0,0 +1,193 @@
+package com.example.future.feign;
+
+import com.example.future.service.impl.CompletableFutureServiceImpl;
+import com.example.future.util.Tuple2;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.FeignException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AsyncFeignClients 单元测试
+ * 使用 JDK 自带的 HttpServer 作为下游桩服务,不启动 Spring 上下文
+ */
+public class AsyncFeignClientsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+
+    private AsyncFeignClients clients;
+
+    private ItemClient itemClient;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/items/", AsyncFeignClientsTest::item);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        clients = new AsyncFeignClients("test", new AsyncFeignClients.Settings(16, 8, Duration.ofSeconds(1),
+                Duration.ofSeconds(5), Duration.ofSeconds(30), 1), Map.of("inventory", url), new ObjectMapper(),
+                null, registry);
+        itemClient = clients.client(ItemClient.class, "inventory");
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        clients.close();
+        server.stop(0);
+        executor.close();
+    }
+
+    /**
+     * /items/{id}?delay=毫秒,id 为负数时返回 500
+     */
+    private static void item(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        long id = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+        String query = exchange.getRequestURI().getQuery();
+        try {
+            if (query != null && query.startsWith("delay=")) {
+                Thread.sleep(Long.parseLong(query.substring("delay=".length())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = ("{\"id\":" + id + ",\"name\":\"item-" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(id < 0 ? 500 : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * 客户端方法直接返回 CompletableFuture,响应体按返回类型解码
+     */
+    @Test
+    public void testClient_ReturnsDecodedFuture() throws Exception {
+        CompletableFuture<Item> item = itemClient.item(7, 0);
+
+        assertEquals(new Item(7, "item-7"), item.get(5, TimeUnit.SECONDS));
+        assertEquals(16, registry.get("future.feign.pool.max").tag("name", "test").gauge().value());
+    }
+
+    /**
+     * 没有配置固定地址的服务在发请求前通过 ReactiveLoadBalancer 选择实例,请求发往选中的实例
+     */
+    @Test
+    public void testClient_WhenNoUrlConfigured_ThenChoosesInstanceThroughLoadBalancer() throws Exception {
+        ServiceInstance instance = new DefaultServiceInstance("pricing-1", "pricing", "127.0.0.1",
+                server.getAddress().getPort(), false);
+        List<String> chosen = new CopyOnWriteArrayList<>();
+        ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancers = new ReactiveLoadBalancer.Factory<>() {
+
+            @Override
+            public ReactiveLoadBalancer<ServiceInstance> getInstance(String serviceId) {
+                return request -> {
+                    chosen.add(serviceId);
+                    return Mono.just(new DefaultResponse(instance));
+                };
+            }
+
+            @Override
+            public <X> Map<String, X> getInstances(String name, Class<X> type) {
+                return Map.of();
+            }
+
+            @Override
+            public <X> X getInstance(String name, Class<?> clazz, Class<?>... generics) {
+                return null;
+            }
+        };
+        try (AsyncFeignClients discovering = new AsyncFeignClients("discovery", new AsyncFeignClients.Settings(16, 8,
+                Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30), 1), Map.of(), new ObjectMapper(),
+                loadBalancers, registry)) {
+            ItemClient pricing = discovering.client(ItemClient.class, "pricing");
+
+            assertEquals(new Item(5, "item-5"), pricing.item(5, 0).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("pricing"), chosen);
+    }
+
+    /**
+     * allOfFutures 按调用顺序返回结果,不同类型的调用组合为 Tuple
+     */
+    @Test
+    public void testAllOfFutures_ReturnsResultsInCallOrder() throws Exception {
+        CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+
+        List<Item> items = service.<Item>allOfFutures(List.<Supplier<CompletableFuture<Item>>>of(
+                () -> itemClient.item(1, 100),
+                () -> itemClient.item(2, 0))).get(5, TimeUnit.SECONDS);
+        Tuple2<Item, String> tuple = service.allOfFutures(() -> itemClient.item(3, 0),
+                () -> itemClient.raw(4)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(new Item(1, "item-1"), new Item(2, "item-2")), items);
+        assertEquals(new Item(3, "item-3"), tuple.first());
+        assertEquals("{\"id\":4,\"name\":\"item-4\"}", tuple.second());
+    }
+
+    /**
+     * 下游返回 5xx 时以 FeignException 失败,并取消其余未完成的调用
+     */
+    @Test
+    public void testAllOfFutures_WhenCallFails_ThenFailsFastAndCancelsSiblings() throws Exception {
+        CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+        CompletableFuture<Item> slow = itemClient.item(1, 2000);
+
+        CompletableFuture<List<Item>> result = service.allOfFutures(List.<Supplier<CompletableFuture<Item>>>of(
+                () -> slow,
+                () -> itemClient.item(-1, 0)));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertEquals(500, assertInstanceOf(FeignException.class, e.getCause()).status());
+        assertTrue(slow.isCancelled());
+    }
+
+    public record Item(long id, String name) {
+    }
+
+    public interface ItemClient {
+
+        @GetMapping("/items/{id}")
+        CompletableFuture<Item> item(@PathVariable("id") long id, @RequestParam("delay") long delayMillis);
+
+        @GetMapping("/items/{id}")
+        CompletableFuture<String> raw(@PathVariable("id") long id);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.future.scope;
+
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TaskScope 单元测试
+ * 不依赖 Spring 上下文,Tracer 为空时只传递 MDC
+ */
+public class TaskScopeTest {
+
+    private ExecutorService executor;
+
+    private TaskScopes taskScopes;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        taskScopes = new TaskScopes(executor, (Tracer) null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MDC.clear();
+        executor.close();
+    }
+
+    /**
+     * 提交任务时的 MDC 传递到子任务,子任务结束后工作线程的 MDC 被恢复
+     */
+    @Test
+    public void testFork_PropagatesMdc() throws Exception {
+        MDC.put("traceId", "t-1");
+        try (TaskScope scope = taskScopes.open()) {
+            CompletableFuture<String> traceId = scope.fork(() -> MDC.get("traceId"));
+            scope.join();
+            assertEquals("t-1", traceId.resultNow());
+        }
+    }
+
+    /**
+     * MDC 未变化时多个子任务共享同一个上下文快照
+     */
+    @Test
+    public void testCapture_WhenMdcUnchanged_ThenReusesSnapshot() {
+        MDC.put("traceId", "t-1");
+        TaskContext first = TaskContext.capture(null, null);
+        assertSame(first, TaskContext.capture(null, first));
+
+        MDC.put("spanId", "s-1");
+        assertNotSame(first, TaskContext.capture(null, first));
+    }
+
+    /**
+     * close 返回前所有子任务都已结束
+     */
+    @Test
+    public void testClose_InterruptsAndWaitsForUnfinishedTasks() throws Exception {
+        AtomicBoolean finished = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        try (TaskScope scope = taskScopes.open()) {
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } finally {
+                    Thread.sleep(50);
+                    finished.set(true);
+                }
+                return null;
+            });
+            started.await();
+        }
+        assertTrue(finished.get());
+    }
+
+    /**
+     * 线程池一直没有执行的子任务在 close 时直接取消,close 不等待它们;之后被执行也不再调用任务
+     */
+    @Test
+    public void testClose_WhenTasksStillQueued_ThenCancelsWithoutWaiting() {
+        List<Runnable> queued = new ArrayList<>();
+        TaskScopes saturated = new TaskScopes(queued::add, (Tracer) null);
+        AtomicBoolean called = new AtomicBoolean();
+        CompletableFuture<Object> task;
+        try (TaskScope scope = saturated.open()) {
+            task = scope.fork(() -> {
+                called.set(true);
+                return null;
+            });
+        }
+        assertTrue(task.isCancelled());
+
+        queued.forEach(Runnable::run);
+        assertFalse(called.get());
+    }
+
+    /**
+     * 外层作用域超时会级联中断嵌套作用域中的任务
+     */
+    @Test
+    public void testNestedScope_WhenParentTimesOut_ThenChildTasksInterrupted() throws Exception {
+        CountDownLatch childStarted = new CountDownLatch(1);
+        CountDownLatch childInterrupted = new CountDownLatch(1);
+        try (TaskScope parent = taskScopes.open(Duration.ofMillis(200))) {
+            parent.fork(() -> {
+                try (TaskScope child = taskScopes.open()) {
+                    assertNotNull(TaskScope.current());
+                    child.fork(() -> {
+                        childStarted.countDown();
+                        try {
+                            Thread.sleep(60_000);
+                        } catch (InterruptedException e) {
+                            childInterrupted.countDown();
+                        }
+                        return null;
+                    });
+                    child.join();
+                }
+                return null;
+            });
+            childStarted.await();
+            assertThrows(TimeoutException.class, parent::join);
+        }
+        assertEquals(0, childInterrupted.getCount());
+        assertNull(TaskScope.current());
+    }
+
+    /**
+     * async 在新的虚拟线程中作为作用域 owner 执行,传递调用线程的 MDC;
+     * 取消返回的 Future 时中断 owner,作用域关闭并中断子任务
+     */
+    @Test
+    public void testAsync_PropagatesMdcAndCancelInterruptsScope() throws Exception {
+        MDC.put("traceId", "t-1");
+        CompletableFuture<String> traceId = taskScopes.async(() -> {
+            assertTrue(Thread.currentThread().isVirtual());
+            return MDC.get("traceId");
+        });
+        assertEquals("t-1", traceId.get(5, TimeUnit.SECONDS));
+
+        CountDownLatch childStarted = new CountDownLatch(1);
+        CountDownLatch childInterrupted = new CountDownLatch(1);
+        CompletableFuture<Void> result = taskScopes.async(() -> {
+            try (TaskScope scope = taskScopes.open()) {
+                scope.fork(() -> {
+                    childStarted.countDown();
+                    try {
+                        Thread.sleep(60_000);
+                    } catch (InterruptedException e) {
+                        childInterrupted.countDown();
+                    }
+                    return null;
+                });
+                scope.join();
+            }
+            return null;
+        });
+        assertTrue(childStarted.await(5, TimeUnit.SECONDS));
+        result.cancel(true);
+        assertTrue(childInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 只有 owner 线程可以提交任务
+     */
+    @Test
+    public void testFork_FromOtherThread_ThenThrows() throws Exception {
+        try (TaskScope scope = taskScopes.open()) {
+            CompletableFuture<Throwable> error = new CompletableFuture<>();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    scope.fork(() -> null);
+                    error.complete(null);
+                } catch (Throwable e) {
+                    error.complete(e);
+                }
+            }).join();
+            assertInstanceOf(WrongThreadException.class, error.get());
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.future.service.impl;
+
+import com.example.future.config.FutureExecutorConfig;
+import com.example.future.config.FutureExecutorProperties;
+import com.example.future.executor.BulkheadRegistry;
+import com.example.future.executor.BulkheadSpec;
+import com.example.future.executor.ConcurrencyLimitedExecutor;
+import com.example.future.executor.OverflowPolicy;
+import com.example.future.support.SingleFlight;
+import com.example.future.util.Tuple3;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CompletableFutureServiceImpl 单元测试
+ * 直接构造线程池,不启动 Spring 上下文
+ */
+public class CompletableFutureServiceImplTest {
+
+    private static ExecutorService executor(FutureExecutorProperties.Mode mode, int maxConcurrency) {
+        FutureExecutorProperties properties = new FutureExecutorProperties();
+        properties.setMode(mode);
+        properties.setMaxConcurrency(maxConcurrency);
+        return FutureExecutorConfig.createExecutor(properties, Metrics.globalRegistry);
+    }
+
+    /**
+     * 默认模式为有界平台线程池
+     */
+    @Test
+    public void testPlatformMode_CreatesThreadPoolExecutor() {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.PLATFORM, 0)) {
+            assertInstanceOf(ThreadPoolExecutor.class, executor);
+        }
+    }
+
+    /**
+     * 虚拟线程模式下任务运行在虚拟线程上
+     */
+    @Test
+    public void testVirtualMode_RunsTasksOnVirtualThreads() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            assertTrue(service.callAsync(() -> Thread.currentThread().isVirtual()).get());
+        }
+    }
+
+    /**
+     * 配置 maxConcurrency 后同时执行的任务数不超过上限
+     */
+    @Test
+    public void testVirtualMode_WithMaxConcurrency_LimitsParallelism() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 2)) {
+            assertInstanceOf(ConcurrencyLimitedExecutor.class, executor);
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger peak = new AtomicInteger();
+
+            service.allOfAndJoin(
+                    () -> track(running, peak),
+                    () -> track(running, peak),
+                    () -> track(running, peak),
+                    () -> track(running, peak),
+                    () -> track(running, peak));
+
+            assertTrue(peak.get() <= 2, "peak=" + peak.get());
+        }
+    }
+
+    /**
+     * allOf 按提交顺序返回结果,与完成顺序无关
+     */
+    @Test
+    public void testAllOf_ReturnsResultsInSubmissionOrder() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            List<Callable<Integer>> callables = List.of(
+                    () -> sleepAndReturn(40, 1),
+                    () -> sleepAndReturn(0, 2),
+                    () -> sleepAndReturn(20, 3));
+
+            assertEquals(List.of(1, 2, 3), service.allOf(callables));
+        }
+    }
+
+    /**
+     * 不同类型的任务通过 Tuple 返回
+     */
+    @Test
+    public void testAllOf_Heterogeneous_ReturnsTuple() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+
+            Tuple3<String, Integer, Boolean> tuple = service.allOf(() -> "a", () -> 1, () -> true);
+
+            assertEquals(new Tuple3<>("a", 1, true), tuple);
+        }
+    }
+
+    /**
+     * forEachCompleted 按完成顺序回调
+     */
+    @Test
+    public void testForEachCompleted_DeliversInCompletionOrder() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            List<Integer> received = new ArrayList<>();
+
+            service.forEachCompleted(List.<Callable<Integer>>of(
+                    () -> sleepAndReturn(200, 1),
+                    () -> sleepAndReturn(0, 2)), received::add);
+
+            assertEquals(List.of(2, 1), received);
+        }
+    }
+
+    /**
+     * 抛出任务的原始异常,而不是 CompletionException 或 RuntimeException 包装
+     */
+    @Test
+    public void testAllOfAndJoin_WhenTaskFails_ThenThrowsOriginalException() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+
+            IOException thrown = assertThrows(IOException.class, () -> service.allOfAndJoin(
+                    () -> {
+                        throw new IOException("first");
+                    },
+                    () -> {
+                        Thread.sleep(1000);
+                        throw new IllegalStateException("second");
+                    }));
+
+            assertEquals("first", thrown.getMessage());
+        }
+    }
+
+    /**
+     * 第二个任务先失败、第一个任务随后失败时仍抛出第一个任务的异常,排在后面的任务被中断
+     */
+    @Test
+    public void testAllOfAndJoin_WhenLaterTaskFailsFirst_ThenThrowsEarlierFailure() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            CountDownLatch interrupted = new CountDownLatch(1);
+
+            IOException thrown = assertThrows(IOException.class, () -> service.allOfAndJoin(
+                    () -> {
+                        Thread.sleep(100);
+                        throw new IOException("first");
+                    },
+                    () -> {
+                        throw new IllegalStateException("second");
+                    },
+                    () -> blockUntilInterrupted(interrupted)));
+
+            assertEquals("first", thrown.getMessage());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 任意任务失败时中断排在它后面仍在执行的任务
+     */
+    @Test
+    public void testAllOfAndJoin_WhenTaskFails_ThenInterruptsSiblings() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            CountDownLatch interrupted = new CountDownLatch(1);
+
+            assertThrows(IllegalStateException.class, () -> service.allOfAndJoin(
+                    () -> {
+                        throw new IllegalStateException("boom");
+                    },
+                    () -> blockUntilInterrupted(interrupted)));
+
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 超过截止时间时抛出 TimeoutException 并中断未完成的任务
+     */
+    @Test
+    public void testAllOf_WhenDeadlineExceeded_ThenTimesOutAndInterrupts() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            CountDownLatch interrupted = new CountDownLatch(1);
+            List<Callable<Void>> callables = List.of(() -> blockUntilInterrupted(interrupted));
+
+            assertThrows(TimeoutException.class, () -> service.allOf(callables, Duration.ofMillis(50)));
+
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * allOfAsync 不阻塞调用线程,全部完成后按提交顺序返回结果
+     */
+    @Test
+    public void testAllOfAsync_ReturnsWithoutBlockingAndKeepsOrder() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            CountDownLatch release = new CountDownLatch(1);
+            List<Callable<Integer>> callables = List.of(
+                    () -> release.await(5, TimeUnit.SECONDS) ? 1 : -1,
+                    () -> sleepAndReturn(0, 2));
+
+            CompletableFuture<List<Integer>> results = service.allOfAsync(callables);
+
+            assertFalse(results.isDone());
+            release.countDown();
+            assertEquals(List.of(1, 2), results.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 任务失败时返回的 Future 以原始异常失败,并中断其余任务
+     */
+    @Test
+    public void testAllOfAsync_WhenTaskFails_ThenFailsWithOriginalExceptionAndInterrupts() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            CountDownLatch interrupted = new CountDownLatch(1);
+
+            CompletableFuture<Void> result = service.allOfAsync(
+                    () -> {
+                        throw new IOException("boom");
+                    },
+                    () -> blockUntilInterrupted(interrupted));
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 超时时以 TimeoutException 失败;调用方取消返回的 Future 时同样中断任务
+     */
+    @Test
+    public void testAllOfAsync_WhenTimedOutOrCancelled_ThenInterruptsTasks() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0)) {
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor);
+            CountDownLatch timedOut = new CountDownLatch(1);
+            CountDownLatch cancelled = new CountDownLatch(1);
+
+            CompletableFuture<List<Void>> timeout = service.allOfAsync(
+                    List.<Callable<Void>>of(() -> blockUntilInterrupted(timedOut)), Duration.ofMillis(50));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> timeout.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, e.getCause());
+            assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<List<Void>> cancel = service.allOfAsync(
+                    List.<Callable<Void>>of(() -> blockUntilInterrupted(cancelled)));
+            cancel.cancel(true);
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 舱壁已满时 callAsyncIn 不抛异常,返回以 RejectedExecutionException 失败的 Future
+     */
+    @Test
+    public void testCallAsyncIn_WhenBulkheadFull_ThenFutureFailsWithRejection() throws Exception {
+        try (ExecutorService executor = executor(FutureExecutorProperties.Mode.VIRTUAL, 0);
+             BulkheadRegistry bulkheads = new BulkheadRegistry(executor, new SimpleMeterRegistry())) {
+            bulkheads.reconcile(Map.of("inventory", new BulkheadSpec(BulkheadSpec.Type.SEMAPHORE, 1, 1, 1, 0,
+                    OverflowPolicy.SHED, Duration.ZERO)));
+            CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(executor,
+                    new SingleFlight("test", Duration.ZERO, 0, new SimpleMeterRegistry()), bulkheads);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> first = service.callAsyncIn("inventory",
+                    () -> release.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<Integer> second = service.callAsyncIn("inventory", () -> 1);
+
+            ExecutionException e = assertThrows(ExecutionException.class, second::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            release.countDown();
+            assertTrue(first.get());
+            assertEquals(2, service.callAsyncIn("unknown", () -> 2).get());
+        }
+    }
+
+    /**
+     * 线程池拒绝时 callAsync 与 callAsyncIn 一样不抛异常,返回以 RejectedExecutionException 失败的 Future
+     */
+    @Test
+    public void testCallAsync_WhenExecutorRejects_ThenFutureFailsWithRejection() {
+        CompletableFutureServiceImpl service = new CompletableFutureServiceImpl(task -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        CompletableFuture<Integer> future = service.callAsync(() -> 1);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    private static Void blockUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(60_000);
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return null;
+    }
+
+    private static Integer sleepAndReturn(long millis, int value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+
+    private static Void track(AtomicInteger running, AtomicInteger peak) throws InterruptedException {
+        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Thread.sleep(20);
+        running.decrementAndGet();
+        return null;
+    }
+}
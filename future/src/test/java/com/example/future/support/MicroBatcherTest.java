@@ -0,0 +1,153 @@
+package com.example.future.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MicroBatcher 单元测试
+ */
+public class MicroBatcherTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MicroBatchers microBatchers = new MicroBatchers(executor, 4, Duration.ofMillis(20), registry);
+
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        microBatchers.close();
+        executor.close();
+    }
+
+    private Map<Integer, String> load(List<Integer> keys) {
+        batches.add(List.copyOf(keys));
+        Map<Integer, String> result = new HashMap<>();
+        for (Integer key : keys) {
+            result.put(key, "v" + key);
+        }
+        return result;
+    }
+
+    /**
+     * 攒满 maxBatchSize 个 key 后立即提交一次批量调用
+     */
+    @Test
+    public void testSubmit_WhenBatchFull_ThenLoadsOnceForWholeBatch() {
+        MicroBatcher<Integer, String> batcher = microBatchers.create("test", 4, Duration.ofHours(1), this::load);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(batcher.submit(i));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("v" + i, futures.get(i).join());
+        }
+        assertEquals(List.of(List.of(0, 1, 2, 3)), batches);
+        assertEquals(1.0, registry.get("future.batch.fill.ratio").summary().mean());
+    }
+
+    /**
+     * 未攒满时在时间窗口到期后提交
+     */
+    @Test
+    public void testSubmit_WhenWindowExpires_ThenFlushesPartialBatch() {
+        MicroBatcher<Integer, String> batcher = microBatchers.create("test", this::load);
+
+        CompletableFuture<String> first = batcher.submit(1);
+        CompletableFuture<String> second = batcher.submit(2);
+
+        assertEquals("v1", first.join());
+        assertEquals("v2", second.join());
+        assertEquals(List.of(List.of(1, 2)), batches);
+        assertEquals(1.0, registry.get("future.batch.flush").tag("trigger", "time").counter().count());
+        assertEquals(0.5, registry.get("future.batch.fill.ratio").summary().mean());
+    }
+
+    /**
+     * 批量调用失败时本批所有调用方都收到该异常
+     */
+    @Test
+    public void testSubmit_WhenLoaderFails_ThenAllCallersFail() {
+        MicroBatcher<Integer, String> batcher = microBatchers.create("test", 2, Duration.ofHours(1), keys -> {
+            throw new IllegalStateException("down");
+        });
+
+        CompletableFuture<String> first = batcher.submit(1);
+        CompletableFuture<String> second = batcher.submit(2);
+
+        CompletionException thrown = assertThrows(CompletionException.class, first::join);
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    /**
+     * 线程池饱和时(CALLER_RUNS 在提交线程中执行)批量调用不在提交线程中执行,本批调用方以拒绝失败
+     */
+    @Test
+    public void testSubmit_WhenExecutorRunsOnCaller_ThenBatchRejected() {
+        try (MicroBatchers callerRuns = new MicroBatchers(Runnable::run, 4, Duration.ofMillis(20), registry)) {
+            MicroBatcher<Integer, String> batcher = callerRuns.create("test", 1, Duration.ofHours(1), this::load);
+
+            CompletableFuture<String> future = batcher.submit(1);
+
+            CompletionException thrown = assertThrows(CompletionException.class, future::join);
+            assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+            assertTrue(batches.isEmpty());
+        }
+    }
+
+    /**
+     * MicroBatchers 关闭时尚未提交的批次以异常完成,之后新的批次因为定时线程已关闭直接失败
+     */
+    @Test
+    public void testClose_WhenBatchPending_ThenCallersFail() {
+        MicroBatchers closing = new MicroBatchers(executor, 4, Duration.ofHours(1), registry);
+        MicroBatcher<Integer, String> batcher = closing.create("test", this::load);
+        MicroBatcher<Integer, String> idle = closing.create("idle", this::load);
+        CompletableFuture<String> pending = batcher.submit(1);
+
+        closing.close();
+
+        CompletionException thrown = assertThrows(CompletionException.class, pending::join);
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        assertThrows(IllegalStateException.class, () -> idle.submit(2));
+        assertTrue(batches.isEmpty());
+    }
+
+    /**
+     * 定时线程拒绝调度时新批次的调用方直接失败,不留下没有定时器的批次
+     */
+    @Test
+    public void testSubmit_WhenTimerRejects_ThenCallerFails() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+        timer.shutdown();
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>("test", 2, Duration.ofHours(1), this::load,
+                executor, timer, registry);
+
+        CompletableFuture<String> rejected = batcher.submit(1);
+
+        CompletionException thrown = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+        assertTrue(batches.isEmpty());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.future.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SingleFlight 单元测试
+ */
+public class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * 相同 key 的并发调用只执行一次
+     */
+    @Test
+    public void testExecute_WhenSameKeyInFlight_ThenLoaderCalledOnce() {
+        SingleFlight singleFlight = new SingleFlight("test", Duration.ZERO, 100, registry);
+        CompletableFuture<String> source = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            callers.add(singleFlight.execute("user:1", () -> {
+                loads.incrementAndGet();
+                return source;
+            }));
+        }
+        source.complete("alice");
+
+        assertEquals(1, loads.get());
+        for (CompletableFuture<String> caller : callers) {
+            assertEquals("alice", caller.join());
+        }
+        assertEquals(9.0, registry.get("test.single.flight.requests").tag("result", "coalesced").counter().count());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    /**
+     * 配置 TTL 后完成的结果在有效期内直接命中缓存
+     */
+    @Test
+    public void testExecute_WithCacheTtl_ThenServesCachedResult() {
+        SingleFlight singleFlight = new SingleFlight("test", Duration.ofMinutes(1), 100, registry);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, singleFlight.<Integer>execute("k", () ->
+                    CompletableFuture.completedFuture(loads.incrementAndGet())).join());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, registry.get("test.single.flight.requests").tag("result", "hit").counter().count());
+    }
+
+    /**
+     * 失败的结果不缓存,下一次调用重新执行
+     */
+    @Test
+    public void testExecute_WhenLoaderFails_ThenNotCached() {
+        SingleFlight singleFlight = new SingleFlight("test", Duration.ofMinutes(1), 100, registry);
+
+        CompletableFuture<String> failed = singleFlight.execute("k",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("down")));
+        assertThrows(CompletionException.class, failed::join);
+
+        assertEquals("ok", singleFlight.execute("k", () -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    /**
+     * 某个调用方取消不影响其他调用方
+     */
+    @Test
+    public void testExecute_WhenOneCallerCancels_ThenOthersStillComplete() {
+        SingleFlight singleFlight = new SingleFlight("test", Duration.ZERO, 100, registry);
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("k", () -> source);
+        CompletableFuture<String> second = singleFlight.execute("k", () -> source);
+        first.cancel(true);
+        source.complete("v");
+
+        assertEquals("v", second.join());
+    }
+
+    /**
+     * 调用方第一次读缓存未命中后,进行中的调用恰好完成(写缓存并移除 inFlight),调用方仍命中缓存,不再发起第二次调用
+     */
+    @Test
+    public void testExecute_WhenLoadCompletesBetweenCacheAndInFlightReads_ThenNoSecondLoad() {
+        Cache<Object, Object> delegate = Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(1)).build();
+        AtomicReference<Runnable> onMiss = new AtomicReference<>();
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> cache = (Cache<Object, Object>) Proxy.newProxyInstance(
+                Cache.class.getClassLoader(), new Class<?>[]{Cache.class}, (proxy, method, args) -> {
+                    Object result = method.invoke(delegate, args);
+                    Runnable action;
+                    if (method.getName().equals("getIfPresent") && result == null
+                            && (action = onMiss.getAndSet(null)) != null) {
+                        action.run();
+                    }
+                    return result;
+                });
+        SingleFlight singleFlight = new SingleFlight("test", cache, registry);
+        CompletableFuture<String> source = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.execute("k", () -> {
+            loads.incrementAndGet();
+            return source;
+        });
+        onMiss.set(() -> source.complete("v"));
+        CompletableFuture<String> second = singleFlight.execute("k", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("reloaded");
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals("v", first.join());
+        assertEquals("v", second.join());
+    }
+}
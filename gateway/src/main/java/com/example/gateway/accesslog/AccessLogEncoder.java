@@ -0,0 +1,156 @@
+package com.example.gateway.accesslog;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 把访问日志编码为一行 JSON,直接写入复用的 ByteBuffer
+ * 字符串按 UTF-8 逐字符写入、数字逐位写入,不经过 String.format / StringBuilder;
+ * 时间戳按秒缓存格式化结果,每秒只格式化一次.只在写线程中使用,非线程安全.
+ */
+final class AccessLogEncoder {
+
+    /**
+     * 路径超过该长度时截断,保证单条日志不会超出写缓冲区
+     */
+    static final int MAX_PATH_LENGTH = 2048;
+
+    /**
+     * 单条日志的最大字节数(路径按每字符最多 6 字节转义估算)
+     */
+    static final int MAX_ENTRY_BYTES = MAX_PATH_LENGTH * 6 + 4096;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final DateTimeFormatter secondFormatter;
+
+    private final DateTimeFormatter offsetFormatter;
+
+    private final byte[] digits = new byte[20];
+
+    private long cachedSecond = Long.MIN_VALUE;
+
+    private byte[] cachedSecondBytes;
+
+    private byte[] cachedOffsetBytes;
+
+    AccessLogEncoder(ZoneId zone) {
+        this.secondFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(zone);
+        this.offsetFormatter = DateTimeFormatter.ofPattern("xxx").withZone(zone);
+    }
+
+    /**
+     * 调用方需保证 buffer 剩余空间不小于 MAX_ENTRY_BYTES
+     */
+    void encode(AccessLogEntry entry, ByteBuffer buffer) {
+        ascii(buffer, "{\"ts\":\"");
+        timestamp(buffer, entry.timestamp);
+        ascii(buffer, "\",\"method\":\"");
+        string(buffer, entry.method, 16);
+        ascii(buffer, "\",\"path\":\"");
+        string(buffer, entry.path, MAX_PATH_LENGTH);
+        ascii(buffer, "\",\"route\":\"");
+        string(buffer, entry.routeId, 128);
+        ascii(buffer, "\",\"remote\":\"");
+        remote(buffer, entry.remoteAddress);
+        ascii(buffer, "\",\"status\":");
+        number(buffer, entry.status);
+        ascii(buffer, ",\"latency_us\":");
+        number(buffer, entry.latencyNanos / 1000);
+        ascii(buffer, ",\"req_bytes\":");
+        number(buffer, entry.requestBytes);
+        ascii(buffer, ",\"resp_bytes\":");
+        number(buffer, entry.responseBytes);
+        buffer.put((byte) '}').put((byte) '\n');
+    }
+
+    private void timestamp(ByteBuffer buffer, long millis) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != cachedSecond) {
+            Instant instant = Instant.ofEpochSecond(second);
+            cachedSecond = second;
+            cachedSecondBytes = secondFormatter.format(instant).getBytes(StandardCharsets.US_ASCII);
+            cachedOffsetBytes = offsetFormatter.format(instant).getBytes(StandardCharsets.US_ASCII);
+        }
+        int ms = (int) Math.floorMod(millis, 1000);
+        buffer.put(cachedSecondBytes)
+                .put((byte) '.')
+                .put((byte) ('0' + ms / 100))
+                .put((byte) ('0' + ms / 10 % 10))
+                .put((byte) ('0' + ms % 10))
+                .put(cachedOffsetBytes);
+    }
+
+    private void remote(ByteBuffer buffer, InetSocketAddress address) {
+        if (address == null) {
+            return;
+        }
+        InetAddress inet = address.getAddress();
+        string(buffer, inet != null ? inet.getHostAddress() : address.getHostString(), 256);
+        buffer.put((byte) ':');
+        number(buffer, address.getPort());
+    }
+
+    private void number(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                ascii(buffer, "9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    private static void ascii(ByteBuffer buffer, String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * 写入 JSON 字符串内容(不含引号),按 UTF-8 编码并转义
+     */
+    private static void string(ByteBuffer buffer, String value, int maxLength) {
+        if (value == null) {
+            return;
+        }
+        int n = Math.min(value.length(), maxLength);
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put(HEX[c >> 4]).put(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | cp >> 18))
+                        .put((byte) (0x80 | cp >> 12 & 0x3F))
+                        .put((byte) (0x80 | cp >> 6 & 0x3F))
+                        .put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12))
+                        .put((byte) (0x80 | c >> 6 & 0x3F))
+                        .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
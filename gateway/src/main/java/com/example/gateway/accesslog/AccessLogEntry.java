@@ -0,0 +1,41 @@
+package com.example.gateway.accesslog;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 环形缓冲区中预先分配的一条访问日志
+ * 槽位在缓冲区创建时一次性分配,之后只覆盖字段,记录日志时不产生新对象.
+ * 只保存原始值和已有对象的引用(例如 InetSocketAddress),格式化全部交给后台写线程.
+ */
+final class AccessLogEntry {
+
+    /**
+     * 已发布的序号,等于消费者当前要读取的序号时槽位内容可见
+     */
+    volatile long published = -1;
+
+    long timestamp;
+
+    String method;
+
+    String path;
+
+    String routeId;
+
+    InetSocketAddress remoteAddress;
+
+    int status;
+
+    long latencyNanos;
+
+    long requestBytes;
+
+    long responseBytes;
+
+    void clear() {
+        method = null;
+        path = null;
+        routeId = null;
+        remoteAddress = null;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.gateway.accesslog;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多生产者单消费者的无锁环形缓冲区
+ * 请求线程通过 CAS 抢占序号后直接填充预先分配的槽位,再写入 published 发布;
+ * 后台写线程按序号顺序读取,处理完后推进 head 释放槽位.
+ * 缓冲区已满时不等待,直接丢弃并计数,保证日志永远不会拖慢请求.
+ */
+public final class AccessLogRingBuffer {
+
+    private final AccessLogEntry[] slots;
+
+    private final int mask;
+
+    /**
+     * 下一个可抢占的序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 消费者下一个要读取的序号,只由消费者写入
+     */
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity 槽位数,向上取整为 2 的幂
+     */
+    public AccessLogRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AccessLogEntry[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new AccessLogEntry();
+        }
+    }
+
+    /**
+     * 写入一条访问日志
+     *
+     * @return 缓冲区已满被丢弃时返回 false
+     */
+    public boolean offer(long timestamp, String method, String path, String routeId,
+                         InetSocketAddress remoteAddress, int status, long latencyNanos,
+                         long requestBytes, long responseBytes) {
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        AccessLogEntry entry = slots[(int) seq & mask];
+        entry.timestamp = timestamp;
+        entry.method = method;
+        entry.path = path;
+        entry.routeId = routeId;
+        entry.remoteAddress = remoteAddress;
+        entry.status = status;
+        entry.latencyNanos = latencyNanos;
+        entry.requestBytes = requestBytes;
+        entry.responseBytes = responseBytes;
+        entry.published = seq;
+        return true;
+    }
+
+    /**
+     * 消费者读取下一条已发布的日志,没有时返回 null
+     * 处理完成后必须调用 release 释放槽位
+     */
+    AccessLogEntry peek() {
+        long seq = head;
+        AccessLogEntry entry = slots[(int) seq & mask];
+        return entry.published == seq ? entry : null;
+    }
+
+    void release(AccessLogEntry entry) {
+        entry.clear();
+        head = head + 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return 已抢占但尚未被消费的条目数
+     */
+    public long size() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.gateway.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志后台写线程
+ * 从环形缓冲区批量取出日志,编码到复用的直接内存缓冲区,缓冲区将满或空闲时通过 FileChannel 一次写出.
+ * 文件超过 maxFileSize 时滚动:access.log -> access.log.1 -> ... -> access.log.{maxHistory},最旧的删除.
+ * 写文件失败只计数并告警,下次写入时重新打开文件,不影响请求.
+ */
+@Slf4j
+public class AccessLogWriter implements AutoCloseable {
+
+    private final AccessLogRingBuffer ringBuffer;
+
+    private final Path file;
+
+    private final long maxFileSize;
+
+    private final int maxHistory;
+
+    private final long idleNanos;
+
+    private final ByteBuffer buffer;
+
+    private final AccessLogEncoder encoder;
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder writeErrors = new LongAdder();
+
+    private FileChannel channel;
+
+    private long fileSize;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    /**
+     * @param ringBuffer  日志来源
+     * @param file        当前日志文件
+     * @param maxFileSize 单个文件的最大字节数
+     * @param maxHistory  保留的历史文件个数
+     * @param bufferSize  写缓冲区字节数
+     * @param idle        缓冲区为空时的等待时间,也是日志落盘的最大延迟
+     */
+    public AccessLogWriter(AccessLogRingBuffer ringBuffer, Path file, long maxFileSize, int maxHistory,
+                           int bufferSize, Duration idle, MeterRegistry registry) {
+        this.ringBuffer = ringBuffer;
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxHistory = maxHistory;
+        this.idleNanos = idle.toNanos();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, AccessLogEncoder.MAX_ENTRY_BYTES * 2));
+        this.encoder = new AccessLogEncoder(ZoneId.systemDefault());
+
+        FunctionCounter.builder("gateway.access.log.dropped", ringBuffer, AccessLogRingBuffer::droppedCount)
+                .description("缓冲区已满被丢弃的访问日志数").register(registry);
+        FunctionCounter.builder("gateway.access.log.written", written, LongAdder::sum)
+                .description("已写出的访问日志数").register(registry);
+        FunctionCounter.builder("gateway.access.log.write.errors", writeErrors, LongAdder::sum)
+                .description("写文件失败次数").register(registry);
+        Gauge.builder("gateway.access.log.pending", ringBuffer, AccessLogRingBuffer::size)
+                .description("缓冲区中等待写出的访问日志数").register(registry);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = Thread.ofPlatform().name("access-log-writer").daemon().start(this::run);
+    }
+
+    private void run() {
+        while (running) {
+            if (drain() == 0) {
+                flush();
+                LockSupport.parkNanos(this, idleNanos);
+            }
+        }
+        // 停止前写出缓冲区中剩余的日志
+        drain();
+        flush();
+        closeChannel();
+    }
+
+    /**
+     * @return 本次处理的日志条数
+     */
+    private int drain() {
+        int count = 0;
+        AccessLogEntry entry;
+        while ((entry = ringBuffer.peek()) != null) {
+            if (buffer.remaining() < AccessLogEncoder.MAX_ENTRY_BYTES) {
+                flush();
+            }
+            int mark = buffer.position();
+            try {
+                encoder.encode(entry, buffer);
+            } catch (RuntimeException e) {
+                // 丢弃写了一半的行
+                buffer.position(mark);
+                log.warn("failed to encode access log entry", e);
+            } finally {
+                ringBuffer.release(entry);
+            }
+            count++;
+        }
+        written.add(count);
+        return count;
+    }
+
+    private void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            if (channel == null) {
+                open();
+            }
+            while (buffer.hasRemaining()) {
+                fileSize += channel.write(buffer);
+            }
+            if (fileSize >= maxFileSize) {
+                roll();
+            }
+        } catch (IOException e) {
+            writeErrors.increment();
+            log.warn("failed to write access log {}: {}", file, e.toString());
+            closeChannel();
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void roll() throws IOException {
+        closeChannel();
+        Files.deleteIfExists(history(maxHistory));
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            Path source = history(i);
+            if (Files.exists(source)) {
+                Files.move(source, history(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxHistory > 0) {
+            Files.move(file, history(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path history(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("failed to close access log {}", file, e);
+        }
+        channel = null;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * 停止写线程,等待剩余日志写出
+     */
+    @Override
+    public synchronized void close() throws InterruptedException {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+        thread = null;
+    }
+}
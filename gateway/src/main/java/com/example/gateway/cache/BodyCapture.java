@@ -0,0 +1,89 @@
+package com.example.gateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 边转发边复制响应体
+ * 小响应放在堆内;超过 offHeapThreshold 后改用池化的直接内存,不再产生 byte[] 副本.
+ * Content-Length 已知时一次分配到位.超过 maxBytes 时放弃缓存并立即释放已复制的内容.
+ * 同一个响应的回调是串行的,因此不需要同步.
+ */
+public final class BodyCapture {
+
+    private final int maxBytes;
+
+    private final int offHeapThreshold;
+
+    private ByteBuf buf;
+
+    private boolean overflow;
+
+    BodyCapture(long contentLength, int maxBytes, int offHeapThreshold) {
+        this.maxBytes = maxBytes;
+        this.offHeapThreshold = offHeapThreshold;
+        if (contentLength > maxBytes) {
+            overflow = true;
+        } else if (contentLength > offHeapThreshold) {
+            buf = PooledByteBufAllocator.DEFAULT.directBuffer((int) contentLength);
+        } else {
+            buf = Unpooled.buffer(contentLength > 0 ? (int) contentLength : 256);
+        }
+    }
+
+    public void append(DataBuffer data) {
+        if (overflow) {
+            return;
+        }
+        int length = buf.readableBytes() + data.readableByteCount();
+        if (length > maxBytes) {
+            overflow = true;
+            release();
+            return;
+        }
+        if (!buf.isDirect() && length > offHeapThreshold) {
+            ByteBuf direct = PooledByteBufAllocator.DEFAULT.directBuffer(length);
+            direct.writeBytes(buf);
+            buf.release();
+            buf = direct;
+        }
+        // 只读视图,不影响 DataBuffer 自身的读位置,下游照常写出
+        try (DataBuffer.ByteBufferIterator iterator = data.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer chunk = iterator.next();
+                buf.writeBytes(chunk);
+            }
+        }
+    }
+
+    /**
+     * 取出完整的响应体,所有权转移给调用方
+     *
+     * @return 超过大小上限时返回 null
+     */
+    public ByteBuf finish() {
+        if (overflow || buf == null) {
+            return null;
+        }
+        ByteBuf body = buf;
+        buf = null;
+        if (body.capacity() > body.readableBytes()) {
+            body.capacity(body.readableBytes());
+        }
+        return body;
+    }
+
+    /**
+     * 放弃缓存,已调用 finish 时什么也不做
+     */
+    public void release() {
+        if (buf != null) {
+            buf.release();
+            buf = null;
+        }
+    }
+}
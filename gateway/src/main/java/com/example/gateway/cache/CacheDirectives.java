@@ -0,0 +1,68 @@
+package com.example.gateway.cache;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 解析后的 Cache-Control 指令
+ * 只关心共享缓存需要的几项,其余指令忽略;s-maxage 优先于 max-age.
+ *
+ * @param maxAgeSeconds                 未指定时为 -1
+ * @param staleWhileRevalidateSeconds   未指定时为 -1
+ */
+public record CacheDirectives(boolean noStore, boolean noCache, boolean isPrivate, long maxAgeSeconds,
+                              long staleWhileRevalidateSeconds) {
+
+    public static final CacheDirectives NONE = new CacheDirectives(false, false, false, -1, -1);
+
+    /**
+     * @param values Cache-Control 头的所有值,可以为 null
+     */
+    public static CacheDirectives parse(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        long maxAge = -1;
+        long sMaxAge = -1;
+        long staleWhileRevalidate = -1;
+        for (String value : values) {
+            for (String directive : value.split(",")) {
+                int eq = directive.indexOf('=');
+                String name = (eq < 0 ? directive : directive.substring(0, eq)).trim().toLowerCase(Locale.ROOT);
+                String argument = eq < 0 ? null : directive.substring(eq + 1).trim();
+                switch (name) {
+                    case "no-store" -> noStore = true;
+                    case "no-cache" -> noCache = true;
+                    case "private" -> isPrivate = true;
+                    case "max-age" -> maxAge = seconds(argument);
+                    case "s-maxage" -> sMaxAge = seconds(argument);
+                    case "stale-while-revalidate" -> staleWhileRevalidate = seconds(argument);
+                    default -> {
+                    }
+                }
+            }
+        }
+        return new CacheDirectives(noStore, noCache, isPrivate, sMaxAge >= 0 ? sMaxAge : maxAge,
+                staleWhileRevalidate);
+    }
+
+    /**
+     * 非法值按未指定处理
+     */
+    private static long seconds(String argument) {
+        if (argument == null) {
+            return -1;
+        }
+        if (argument.length() >= 2 && argument.startsWith("\"") && argument.endsWith("\"")) {
+            argument = argument.substring(1, argument.length() - 1);
+        }
+        try {
+            return Math.max(-1, Long.parseLong(argument));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.gateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 缓存中的一个响应
+ * 响应体由缓存持有一个引用,命中时复制视图(retainedDuplicate)写出,被淘汰时释放.
+ * 过期后在 staleUntil 之前仍可返回旧内容,同时只允许一个后台请求去刷新.
+ */
+public final class CachedResponse {
+
+    private final HttpStatusCode status;
+
+    private final HttpHeaders headers;
+
+    private final ByteBuf body;
+
+    private final long storedAt;
+
+    private final long freshUntil;
+
+    private final long staleUntil;
+
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    CachedResponse(HttpStatusCode status, HttpHeaders headers, ByteBuf body, long storedAt, long freshNanos,
+                   long staleNanos) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.storedAt = storedAt;
+        this.freshUntil = storedAt + freshNanos;
+        this.staleUntil = freshUntil + Math.max(0, staleNanos);
+    }
+
+    public HttpStatusCode status() {
+        return status;
+    }
+
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    ByteBuf body() {
+        return body;
+    }
+
+    /**
+     * 响应体占用的内存
+     */
+    long memory() {
+        return body.capacity();
+    }
+
+    boolean isDirect() {
+        return body.isDirect();
+    }
+
+    boolean isFresh(long now) {
+        return freshUntil - now > 0;
+    }
+
+    boolean isExpired(long now) {
+        return staleUntil - now <= 0;
+    }
+
+    /**
+     * Age 响应头的值
+     */
+    public long ageSeconds(long now) {
+        return TimeUnit.NANOSECONDS.toSeconds(Math.max(0, now - storedAt));
+    }
+
+    /**
+     * @return 已有其他请求在刷新时返回 false
+     */
+    public boolean tryStartRevalidation() {
+        return revalidating.compareAndSet(false, true);
+    }
+
+    public void revalidationFinished() {
+        revalidating.set(false);
+    }
+}
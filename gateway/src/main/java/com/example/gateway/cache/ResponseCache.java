@@ -0,0 +1,239 @@
+package com.example.gateway.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 网关本地响应缓存
+ * 按访问顺序的 LinkedHashMap 实现 LRU,条数和响应体总内存任一超限时淘汰最久未访问的条目.
+ * 查找、写入和淘汰都在同一把锁内完成,保证命中时 retain 的响应体不会同时被淘汰释放.
+ */
+public class ResponseCache implements AutoCloseable {
+
+    public enum Outcome {
+        HIT, STALE, MISS, BYPASS
+    }
+
+    /**
+     * 查找结果,body 的引用归调用方,写出后释放
+     *
+     * @param fresh false 表示已过期但仍在 stale-while-revalidate 窗口内
+     */
+    public record Hit(CachedResponse response, ByteBuf body, boolean fresh) {
+    }
+
+    /**
+     * 不缓存的逐跳响应头
+     */
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(HttpHeaders.CONNECTION, "Keep-Alive",
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE, HttpHeaders.PROXY_AUTHENTICATE);
+
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final int maxEntries;
+
+    private final long maxMemory;
+
+    private final int maxEntrySize;
+
+    private final int offHeapThreshold;
+
+    private volatile long heapMemory;
+
+    private volatile long directMemory;
+
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+    private final LongAdder sizeEvictions = new LongAdder();
+
+    private final LongAdder expiredEvictions = new LongAdder();
+
+    /**
+     * @param maxEntries       最大条数
+     * @param maxMemory        响应体总内存上限
+     * @param maxEntrySize     单个响应体上限,超过的不缓存
+     * @param offHeapThreshold 超过该大小的响应体放在池化的直接内存中
+     */
+    public ResponseCache(int maxEntries, long maxMemory, int maxEntrySize, int offHeapThreshold,
+                         MeterRegistry registry) {
+        if (maxEntries <= 0 || maxMemory <= 0 || maxEntrySize <= 0) {
+            throw new IllegalArgumentException("cache limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxMemory = maxMemory;
+        this.maxEntrySize = (int) Math.min(maxEntrySize, maxMemory);
+        this.offHeapThreshold = Math.max(0, offHeapThreshold);
+        for (Outcome outcome : Outcome.values()) {
+            LongAdder count = new LongAdder();
+            outcomes.put(outcome, count);
+            FunctionCounter.builder("gateway.cache.requests", count, LongAdder::sum)
+                    .tag("result", outcome.name().toLowerCase(Locale.ROOT))
+                    .description("响应缓存查找次数").register(registry);
+        }
+        FunctionCounter.builder("gateway.cache.evictions", sizeEvictions, LongAdder::sum).tag("cause", "size")
+                .description("容量不足被淘汰的条目数").register(registry);
+        FunctionCounter.builder("gateway.cache.evictions", expiredEvictions, LongAdder::sum).tag("cause", "expired")
+                .description("过期被移除的条目数").register(registry);
+        Gauge.builder("gateway.cache.hit.ratio", this, ResponseCache::hitRatio)
+                .description("命中率,包括返回旧内容的命中").register(registry);
+        Gauge.builder("gateway.cache.entries", this, ResponseCache::size)
+                .description("缓存条目数").register(registry);
+        Gauge.builder("gateway.cache.memory", this, cache -> cache.heapMemory).tag("area", "heap").baseUnit("bytes")
+                .description("响应体占用的堆内存").register(registry);
+        Gauge.builder("gateway.cache.memory", this, cache -> cache.directMemory).tag("area", "direct")
+                .baseUnit("bytes").description("响应体占用的直接内存").register(registry);
+    }
+
+    /**
+     * 开始复制一个响应体
+     *
+     * @param contentLength 未知时为 -1
+     */
+    public BodyCapture capture(long contentLength) {
+        return new BodyCapture(contentLength, maxEntrySize, offHeapThreshold);
+    }
+
+    public void record(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    /**
+     * 查找并记录命中情况
+     *
+     * @return 没有可用条目时返回 null
+     */
+    public Hit lookup(String key, long now) {
+        Hit hit = find(key, now);
+        record(hit == null ? Outcome.MISS : hit.fresh() ? Outcome.HIT : Outcome.STALE);
+        return hit;
+    }
+
+    private synchronized Hit find(String key, long now) {
+        CachedResponse entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(now)) {
+            entries.remove(key);
+            release(entry);
+            expiredEvictions.increment();
+            return null;
+        }
+        return new Hit(entry, entry.body().retainedDuplicate(), entry.isFresh(now));
+    }
+
+    /**
+     * 写入缓存,body 的所有权转移给缓存,无论是否写入成功
+     *
+     * @param freshNanos 新鲜期
+     * @param staleNanos 过期后仍可返回旧内容的时长
+     * @return 超过单条上限没有写入时返回 false
+     */
+    public boolean put(String key, HttpStatusCode status, HttpHeaders headers, ByteBuf body, long freshNanos,
+                       long staleNanos, long now) {
+        if (body.readableBytes() > maxEntrySize) {
+            body.release();
+            return false;
+        }
+        CachedResponse entry = new CachedResponse(status, copyHeaders(headers), body, now, freshNanos, staleNanos);
+        synchronized (this) {
+            CachedResponse old = entries.put(key, entry);
+            if (old != null) {
+                release(old);
+            }
+            account(entry, 1);
+            Iterator<CachedResponse> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || heapMemory + directMemory > maxMemory) && eldest.hasNext()) {
+                CachedResponse victim = eldest.next();
+                if (victim == entry) {
+                    break;
+                }
+                eldest.remove();
+                release(victim);
+                sizeEvictions.increment();
+            }
+        }
+        return true;
+    }
+
+    public synchronized void invalidate(String key) {
+        CachedResponse entry = entries.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long memory() {
+        return heapMemory + directMemory;
+    }
+
+    public double hitRatio() {
+        long hits = outcomes.get(Outcome.HIT).sum() + outcomes.get(Outcome.STALE).sum();
+        long total = hits + outcomes.get(Outcome.MISS).sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 把 lookup 得到的响应体包装成 DataBuffer,所有权一并转移
+     * Netty 服务端直接包装,不复制;其他实现只能复制一份
+     */
+    public static DataBuffer wrap(DataBufferFactory factory, ByteBuf body) {
+        if (factory instanceof NettyDataBufferFactory netty) {
+            return netty.wrap(body);
+        }
+        try {
+            return factory.wrap(ByteBufUtil.getBytes(body));
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * 容器关闭时释放所有响应体
+     */
+    @Override
+    public synchronized void close() {
+        entries.values().forEach(this::release);
+        entries.clear();
+    }
+
+    private void release(CachedResponse entry) {
+        account(entry, -1);
+        entry.body().release();
+    }
+
+    private void account(CachedResponse entry, int sign) {
+        if (entry.isDirect()) {
+            directMemory += sign * entry.memory();
+        } else {
+            heapMemory += sign * entry.memory();
+        }
+    }
+
+    private static HttpHeaders copyHeaders(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> copy.put(name, List.copyOf(values)));
+        HOP_BY_HOP_HEADERS.forEach(copy::remove);
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.gateway.config;
+
+import com.example.gateway.accesslog.AccessLogRingBuffer;
+import com.example.gateway.accesslog.AccessLogWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * 访问日志装配
+ * 请求线程只写环形缓冲区,后台写线程负责格式化和写文件
+ */
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+@ConditionalOnProperty(name = "gateway.access-log.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogConfig {
+
+    @Bean
+    public AccessLogRingBuffer accessLogRingBuffer(AccessLogProperties properties) {
+        return new AccessLogRingBuffer(properties.getBufferEntries());
+    }
+
+    /**
+     * 容器关闭时调用 close() 写出缓冲区中剩余的日志
+     */
+    @Bean(initMethod = "start")
+    public AccessLogWriter accessLogWriter(AccessLogRingBuffer accessLogRingBuffer, AccessLogProperties properties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        return new AccessLogWriter(accessLogRingBuffer,
+                Path.of(properties.getFile()),
+                properties.getMaxFileSize().toBytes(),
+                properties.getMaxHistory(),
+                (int) properties.getWriteBufferSize().toBytes(),
+                properties.getFlushInterval(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 访问日志配置
+ * 对应配置前缀 gateway.access-log
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    /**
+     * 是否记录访问日志
+     */
+    private boolean enabled = true;
+
+    /**
+     * 日志文件
+     */
+    private String file = "logs/access.log";
+
+    /**
+     * 环形缓冲区条数,向上取整为 2 的幂,写满后新日志被丢弃并计数
+     */
+    private int bufferEntries = 16384;
+
+    /**
+     * 写缓冲区大小
+     */
+    private DataSize writeBufferSize = DataSize.ofKilobytes(256);
+
+    /**
+     * 单个文件的最大大小,超过后滚动
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+
+    /**
+     * 保留的历史文件个数
+     */
+    private int maxHistory = 7;
+
+    /**
+     * 缓冲区为空时写线程的等待时间,也是日志落盘的最大延迟
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+}
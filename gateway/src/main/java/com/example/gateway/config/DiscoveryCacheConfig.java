@@ -0,0 +1,44 @@
+package com.example.gateway.config;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.example.gateway.discovery.InstanceSnapshotCache;
+import com.example.gateway.discovery.NacosInstanceSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+/**
+ * 服务实例本地快照装配
+ * 快照放在主容器中,由各负载均衡子容器的 SnapshotServiceInstanceListSupplier 共享,见 PeakEwmaLoadBalancerConfiguration
+ */
+@Configuration
+@EnableConfigurationProperties(DiscoveryCacheProperties.class)
+@ConditionalOnProperty(name = "gateway.discovery-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class DiscoveryCacheConfig {
+
+    /**
+     * 容器关闭时调用 close() 写出尚未落盘的快照并取消 Nacos 订阅
+     */
+    @Bean
+    public InstanceSnapshotCache instanceSnapshotCache(NacosServiceManager nacosServiceManager,
+                                                       NacosDiscoveryProperties nacosDiscoveryProperties,
+                                                       DiscoveryCacheProperties properties,
+                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        InstanceSnapshotCache cache = new InstanceSnapshotCache(
+                new NacosInstanceSource(nacosServiceManager, nacosDiscoveryProperties),
+                StringUtils.hasText(properties.getFile()) ? Path.of(properties.getFile()) : null,
+                properties.getWriteDelay(),
+                properties.getRetryInterval(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        cache.start(properties.getServices());
+        return cache;
+    }
+}
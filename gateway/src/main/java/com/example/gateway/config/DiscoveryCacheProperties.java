@@ -0,0 +1,42 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务实例本地快照配置
+ * 对应配置前缀 gateway.discovery-cache
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.discovery-cache")
+public class DiscoveryCacheProperties {
+
+    /**
+     * 负载均衡是否从本地快照读取实例,关闭时使用默认的 DiscoveryClient 查询
+     */
+    private boolean enabled = true;
+
+    /**
+     * 快照文件,为空时不持久化
+     */
+    private String file = "data/discovery-snapshot.json";
+
+    /**
+     * 启动时订阅的服务,其他服务在第一次请求时订阅
+     */
+    private List<String> services = new ArrayList<>(List.of("future-service"));
+
+    /**
+     * 快照变化后延迟写文件的时间,期间的多次变化合并为一次写入
+     */
+    private Duration writeDelay = Duration.ofSeconds(1);
+
+    /**
+     * 订阅失败(Nacos 不可达)后的重试间隔
+     */
+    private Duration retryInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,60 @@
+package com.example.gateway.config;
+
+import com.example.gateway.metrics.GatewayLatencyEndpoint;
+import com.example.gateway.metrics.GatewayMetrics;
+import com.example.gateway.metrics.TimedRouteLocator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.route.CachingRouteLocator;
+import org.springframework.cloud.gateway.route.CompositeRouteLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 网关延迟指标装配
+ * 各个 RouteLocator(配置文件中的路由和 GatewayConfig 中的路由)在加入 CachingRouteLocator 之前
+ * 被 TimedRouteLocator 包装,路由过滤器在加载时包装一次.
+ */
+@Configuration
+@EnableConfigurationProperties(GatewayMetricsProperties.class)
+@ConditionalOnProperty(name = "gateway.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class GatewayMetricsConfig {
+
+    @Bean
+    public GatewayMetrics gatewayMetrics(GatewayMetricsProperties properties,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new GatewayMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                properties.getHighestTrackable(),
+                properties.getSignificantDigits(),
+                properties.getWindow(),
+                properties.getPercentiles(),
+                properties.getFilterSamplePercent());
+    }
+
+    @Bean
+    public GatewayLatencyEndpoint gatewayLatencyEndpoint(GatewayMetrics gatewayMetrics) {
+        return new GatewayLatencyEndpoint(gatewayMetrics);
+    }
+
+    /**
+     * static: 后处理器需要在其他 bean 之前创建;GatewayMetrics 在第一次加载路由时才取
+     */
+    @Bean
+    public static BeanPostProcessor timedRouteLocatorPostProcessor(ObjectProvider<GatewayMetrics> gatewayMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof RouteLocator locator && !(bean instanceof CachingRouteLocator)
+                        && !(bean instanceof CompositeRouteLocator)) {
+                    return new TimedRouteLocator(locator, gatewayMetrics::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
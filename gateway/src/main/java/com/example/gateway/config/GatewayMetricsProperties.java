@@ -0,0 +1,46 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 网关延迟指标配置
+ * 对应配置前缀 gateway.metrics
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.metrics")
+public class GatewayMetricsProperties {
+
+    /**
+     * 是否记录按路由和过滤器的指标
+     */
+    private boolean enabled = true;
+
+    /**
+     * 记录各过滤器耗时的请求百分比,路由级别的延迟、字节数和在途请求数总是记录
+     */
+    private int filterSamplePercent = 10;
+
+    /**
+     * 百分位的最短统计区间,只在读取时交换直方图,实际区间为两次抓取之间,抓取周期应与之一致
+     */
+    private Duration window = Duration.ofSeconds(30);
+
+    /**
+     * 导出的百分位
+     */
+    private List<Double> percentiles = List.of(0.5, 0.9, 0.99, 0.999);
+
+    /**
+     * 直方图的最大值,超过的按该值记录
+     */
+    private Duration highestTrackable = Duration.ofSeconds(60);
+
+    /**
+     * 直方图的有效数字位数,2 位即 1% 精度;每个直方图预分配约 30KB
+     */
+    private int significantDigits = 2;
+}
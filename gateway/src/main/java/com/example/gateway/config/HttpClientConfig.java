@@ -0,0 +1,66 @@
+package com.example.gateway.config;
+
+import com.example.gateway.filter.ProfiledNettyRoutingFilter;
+import com.example.gateway.httpclient.HttpClientProfiles;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * 按路由区分的上游 HTTP 客户端装配
+ * 默认的 NettyRoutingFilter 在配置文件中关闭(global-filter.netty-routing.enabled=false),由 ProfiledNettyRoutingFilter 代替
+ */
+@Configuration
+@EnableConfigurationProperties(HttpClientProfileProperties.class)
+public class HttpClientConfig {
+
+    /**
+     * 容器关闭时调用 close() 关闭连接池
+     */
+    @Bean
+    public HttpClientProfiles httpClientProfiles(HttpClientProfileProperties properties) {
+        return new HttpClientProfiles(properties.getProfiles(), properties.getRoutes());
+    }
+
+    @Bean
+    public ProfiledNettyRoutingFilter profiledNettyRoutingFilter(HttpClient httpClient,
+                                                                 HttpClientProfiles httpClientProfiles,
+                                                                 ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                                 HttpClientProperties properties) {
+        return new ProfiledNettyRoutingFilter(httpClient, httpClientProfiles, headersFilters, properties);
+    }
+
+    /**
+     * 启动完成后在后台预热连接,不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp(ApplicationReadyEvent event) {
+        HttpClientProfiles profiles = event.getApplicationContext().getBean(HttpClientProfiles.class);
+        ObjectProvider<ReactiveDiscoveryClient> discoveryClient = event.getApplicationContext()
+                .getBeanProvider(ReactiveDiscoveryClient.class);
+        profiles.warmUp(uri -> {
+            ReactiveDiscoveryClient client = discoveryClient.getIfAvailable();
+            if (client == null) {
+                return Flux.empty();
+            }
+            return client.getInstances(uri.getHost()).map(instance -> instanceUri(instance, uri));
+        }).subscribe();
+    }
+
+    private static URI instanceUri(ServiceInstance instance, URI uri) {
+        return UriComponentsBuilder.fromUri(instance.getUri()).path(uri.getRawPath()).build(true).toUri();
+    }
+}
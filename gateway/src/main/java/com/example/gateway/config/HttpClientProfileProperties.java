@@ -0,0 +1,90 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.http.HttpProtocol;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按路由区分的上游 HTTP 客户端配置
+ * 对应配置前缀 gateway.http-client,每个 profile 有独立的连接池,routes 把路由 id 映射到 profile,
+ * 没有映射的路由使用 Spring Cloud Gateway 默认的共享客户端(spring.cloud.gateway.server.webflux.httpclient)
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.http-client")
+public class HttpClientProfileProperties {
+
+    /**
+     * profile 名称到配置
+     */
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    /**
+     * 路由 id 到 profile 名称
+     */
+    private Map<String, String> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Profile {
+
+        /**
+         * 最大连接数,HTTP/2 时为最大 TCP 连接数
+         */
+        private int maxConnections = 500;
+
+        /**
+         * 等待获取连接的最大请求数,超过立即失败而不是排队,-1 表示不限制
+         */
+        private int pendingAcquireMaxCount = 1000;
+
+        /**
+         * 等待获取连接的最长时间
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 空闲超过该时间的连接被关闭,应小于上游的 keep-alive 超时,避免用到对端已关闭的连接
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * 连接的最长存活时间,到期后不再复用,上游扩容后连接能逐渐分布到新实例
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        /**
+         * 后台清理空闲和到期连接的间隔
+         */
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        /**
+         * 上游协议,H2 需要 TLS(ALPN 协商,不支持时退回 HTTP11),H2C 为明文 HTTP/2
+         */
+        private List<HttpProtocol> protocols = List.of(HttpProtocol.HTTP11);
+
+        /**
+         * HTTP/2 时每个连接上的最大并发流数
+         */
+        private int maxConcurrentStreams = 100;
+
+        /**
+         * 建立连接的超时
+         */
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 启动时对每个预热地址建立的连接数,0 表示不预热
+         */
+        private int warmupConnections;
+
+        /**
+         * 预热地址,lb://服务名 会展开为该服务的所有实例
+         */
+        private List<URI> warmupUris = List.of();
+    }
+}
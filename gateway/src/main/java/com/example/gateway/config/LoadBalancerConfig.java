@@ -0,0 +1,35 @@
+package com.example.gateway.config;
+
+import com.example.gateway.loadbalancer.InstanceStatsRegistry;
+import com.example.gateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import com.example.gateway.loadbalancer.PeakEwmaLoadBalancerLifecycle;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * lb://future-service 使用 peak-EWMA + 两次随机选择替代默认的轮询
+ * 统计和生命周期回调放在主容器中,所有负载均衡子容器共享
+ */
+@Configuration
+@EnableConfigurationProperties(PeakEwmaProperties.class)
+@LoadBalancerClient(name = "future-service", configuration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    public InstanceStatsRegistry instanceStatsRegistry(PeakEwmaProperties properties,
+                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new InstanceStatsRegistry(properties.getDecayTime(), properties.getInitialRtt(),
+                properties.getEjectionFailureThreshold(), properties.getBaseEjectionTime(),
+                properties.getMaxEjectionTime(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public PeakEwmaLoadBalancerLifecycle peakEwmaLoadBalancerLifecycle(InstanceStatsRegistry instanceStatsRegistry) {
+        return new PeakEwmaLoadBalancerLifecycle(instanceStatsRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * peak-EWMA 负载均衡配置
+ * 对应配置前缀 gateway.load-balancer
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public class PeakEwmaProperties {
+
+    /**
+     * EWMA 衰减时间常数,越小对延迟变化越敏感
+     */
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    /**
+     * 新实例的初始延迟估计
+     */
+    private Duration initialRtt = Duration.ofMillis(30);
+
+    /**
+     * 连续失败(5xx 或连接失败)多少次后摘除实例,小于等于0表示不摘除
+     */
+    private int ejectionFailureThreshold = 5;
+
+    /**
+     * 第一次摘除的时长,之后每次连续摘除按倍数增长
+     */
+    private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+    /**
+     * 摘除时长上限
+     */
+    private Duration maxEjectionTime = Duration.ofMinutes(5);
+}
@@ -0,0 +1,30 @@
+package com.example.gateway.config;
+
+import com.example.gateway.cache.ResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 响应缓存装配,所有路由上的 Cache 过滤器共享同一个缓存
+ */
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheConfig {
+
+    /**
+     * 容器关闭时调用 close() 释放缓存的响应体
+     */
+    @Bean
+    public ResponseCache responseCache(ResponseCacheProperties properties,
+                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ResponseCache(properties.getMaxEntries(),
+                properties.getMaxSize().toBytes(),
+                (int) Math.min(Integer.MAX_VALUE, properties.getMaxEntrySize().toBytes()),
+                (int) Math.min(Integer.MAX_VALUE, properties.getOffHeapThreshold().toBytes()),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 响应缓存配置
+ * 对应配置前缀 gateway.response-cache,路由上的 Cache 过滤器未指定时使用这里的默认值
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * 最大条数
+     */
+    private int maxEntries = 10_000;
+
+    /**
+     * 响应体总内存上限
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    /**
+     * 单个响应体上限,超过的不缓存
+     */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(4);
+
+    /**
+     * 超过该大小的响应体放在池化的直接内存中
+     */
+    private DataSize offHeapThreshold = DataSize.ofKilobytes(8);
+
+    /**
+     * 上游没有给出 max-age 时的缓存时长
+     */
+    private Duration ttl = Duration.ofSeconds(30);
+
+    /**
+     * 上游没有给出 stale-while-revalidate 时,过期后仍可返回旧内容并在后台刷新的时长
+     */
+    private Duration staleWhileRevalidate = Duration.ofSeconds(10);
+}
@@ -0,0 +1,20 @@
+package com.example.gateway.config;
+
+import com.example.gateway.retry.RetryBudget;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 重试装配,所有路由上的 Retry 过滤器共享同一个重试预算
+ */
+@Configuration
+@EnableConfigurationProperties(RetryProperties.class)
+public class RetryConfig {
+
+    @Bean
+    public RetryBudget retryBudget(RetryProperties properties) {
+        return new RetryBudget(properties.getBudgetPercent(), properties.getMinRetriesPerSecond(),
+                properties.getMaxBalance());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 重试预算配置
+ * 对应配置前缀 gateway.retry,所有路由上的 Retry 过滤器共享同一个预算
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.retry")
+public class RetryProperties {
+
+    /**
+     * 重试占请求数的上限百分比
+     */
+    private double budgetPercent = 10;
+
+    /**
+     * 不受比例限制的每秒重试次数,流量很小时也能重试偶发的失败
+     */
+    private double minRetriesPerSecond = 10;
+
+    /**
+     * 比例预算最多积攒的重试次数,限制流量低谷之后的重试突发
+     */
+    private int maxBalance = 100;
+}
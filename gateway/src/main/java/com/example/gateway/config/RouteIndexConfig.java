@@ -0,0 +1,31 @@
+package com.example.gateway.config;
+
+import com.example.gateway.route.IndexedRoutePredicateHandlerMapping;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 路由匹配索引装配
+ * 声明的 RoutePredicateHandlerMapping 取代 GatewayAutoConfiguration 中的默认实现(@ConditionalOnMissingBean),
+ * 注入的 RouteLocator 和 RouteDefinitionLocator 都是 @Primary 的组合实现,与默认实现相同.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.route-index.enabled", havingValue = "true", matchIfMissing = true)
+public class RouteIndexConfig {
+
+    @Bean
+    public IndexedRoutePredicateHandlerMapping routePredicateHandlerMapping(FilteringWebHandler webHandler,
+                                                                            RouteLocator routeLocator,
+                                                                            RouteDefinitionLocator routeDefinitionLocator,
+                                                                            GlobalCorsProperties globalCorsProperties,
+                                                                            Environment environment) {
+        return new IndexedRoutePredicateHandlerMapping(webHandler, routeLocator, routeDefinitionLocator,
+                globalCorsProperties, environment);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.gateway.discovery;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 服务实例的本地快照
+ * 每个服务的实例列表是一个不可变的 Snapshot,Nacos 推送时整体替换(写时复制),读取只是一次 ConcurrentHashMap.get,
+ * 不加锁也不分配对象.
+ * 快照变化后延迟合并写入本地文件(先写临时文件再原子替换);启动时先从文件恢复,Nacos 不可用时也能立即转发请求,
+ * Nacos 第一次推送后被覆盖.订阅失败(例如启动时 Nacos 不可达)按 retryInterval 重试,期间继续使用已有快照.
+ */
+@Slf4j
+public class InstanceSnapshotCache implements AutoCloseable {
+
+    private final InstanceSource source;
+
+    private final Path file;
+
+    private final Duration writeDelay;
+
+    private final Duration retryInterval;
+
+    private final MeterRegistry registry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("discovery-snapshot").daemon().factory());
+
+    /**
+     * @param source        实例来源
+     * @param file          快照文件,为 null 时不持久化
+     * @param writeDelay    快照变化后延迟写文件的时间,期间的多次变化合并为一次写入
+     * @param retryInterval 订阅失败后的重试间隔
+     */
+    public InstanceSnapshotCache(InstanceSource source, Path file, Duration writeDelay, Duration retryInterval,
+                                 MeterRegistry registry) {
+        this.source = source;
+        this.file = file;
+        this.writeDelay = writeDelay;
+        this.retryInterval = retryInterval;
+        this.registry = registry;
+        restore();
+    }
+
+    /**
+     * 订阅指定的服务和从文件恢复的服务,订阅在后台线程中进行,不阻塞启动
+     */
+    public void start(List<String> services) {
+        services.forEach(this::subscribe);
+        snapshots.keySet().forEach(this::subscribe);
+    }
+
+    /**
+     * 当前快照,没有时返回 null
+     */
+    public Snapshot snapshot(String serviceId) {
+        return snapshots.get(serviceId);
+    }
+
+    public List<ServiceInstance> getInstances(String serviceId) {
+        Snapshot snapshot = snapshots.get(serviceId);
+        return snapshot == null ? List.of() : snapshot.getInstances();
+    }
+
+    /**
+     * 负载均衡使用的实例列表
+     * 第一次访问没有快照的服务时订阅该服务,并在 boundedElastic 线程中查询一次;查询失败返回空列表
+     */
+    public Flux<List<ServiceInstance>> instanceFlux(String serviceId) {
+        Snapshot snapshot = snapshots.get(serviceId);
+        if (snapshot != null) {
+            return snapshot.flux;
+        }
+        subscribe(serviceId);
+        return Mono.fromCallable(() -> source.getInstances(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(instances -> update(serviceId, instances, false).instances)
+                .onErrorResume(e -> {
+                    log.warn("failed to load instances of {}", serviceId, e);
+                    return Mono.just(List.of());
+                })
+                .flux();
+    }
+
+    private void subscribe(String serviceId) {
+        if (subscribed.add(serviceId)) {
+            scheduler.execute(() -> trySubscribe(serviceId));
+        }
+    }
+
+    private void trySubscribe(String serviceId) {
+        try {
+            source.subscribe(serviceId, instances -> update(serviceId, instances, false));
+            log.info("subscribed to instances of {}", serviceId);
+        } catch (Exception e) {
+            log.warn("failed to subscribe to instances of {}, retry in {}ms: {}", serviceId,
+                    retryInterval.toMillis(), e.toString());
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(() -> trySubscribe(serviceId), retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 替换整个服务的快照;实例没有变化时只清除"从文件恢复"的标记,不写文件
+     */
+    Snapshot update(String serviceId, List<ServiceInstance> instances, boolean restored) {
+        List<PersistedInstance> persisted = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            persisted.add(PersistedInstance.of(instance));
+        }
+        Snapshot next = new Snapshot(List.copyOf(instances), List.copyOf(persisted), restored,
+                System.currentTimeMillis());
+        Snapshot previous = snapshots.put(serviceId, next);
+        if (previous == null) {
+            Gauge.builder("gateway.discovery.instances", snapshots, s -> size(s.get(serviceId)))
+                    .description("本地快照中的实例数").tag("service", serviceId).register(registry);
+        }
+        if (!restored && (previous == null || !previous.persisted.equals(next.persisted))) {
+            log.info("instances of {} updated: {}", serviceId, next.persisted);
+            scheduleWrite();
+        }
+        return next;
+    }
+
+    private static int size(Snapshot snapshot) {
+        return snapshot == null ? 0 : snapshot.instances.size();
+    }
+
+    private void scheduleWrite() {
+        if (file != null && writeScheduled.compareAndSet(false, true) && !scheduler.isShutdown()) {
+            scheduler.schedule(this::write, writeDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void write() {
+        writeScheduled.set(false);
+        Map<String, List<PersistedInstance>> services = new TreeMap<>();
+        snapshots.forEach((serviceId, snapshot) -> services.put(serviceId, snapshot.persisted));
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(tmp.toFile(), new SnapshotFile(System.currentTimeMillis(), services));
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("failed to write instance snapshot to {}", file, e);
+        }
+    }
+
+    private void restore() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            SnapshotFile snapshotFile = objectMapper.readValue(file.toFile(), SnapshotFile.class);
+            snapshotFile.services().forEach((serviceId, persisted) -> {
+                List<ServiceInstance> instances = new ArrayList<>(persisted.size());
+                for (PersistedInstance instance : persisted) {
+                    instances.add(instance.toServiceInstance());
+                }
+                update(serviceId, instances, true);
+            });
+            log.info("restored instances of {} from {}, saved at {}", snapshotFile.services().keySet(), file,
+                    snapshotFile.savedAt());
+        } catch (IOException | RuntimeException e) {
+            log.warn("failed to restore instance snapshot from {}, waiting for discovery", file, e);
+        }
+    }
+
+    /**
+     * 写出尚未落盘的快照,取消订阅
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (file != null && writeScheduled.get()) {
+            write();
+        }
+        source.close();
+    }
+
+    /**
+     * 一个服务的实例列表,创建后不再修改
+     */
+    public static final class Snapshot {
+
+        private final List<ServiceInstance> instances;
+
+        private final List<PersistedInstance> persisted;
+
+        private final Flux<List<ServiceInstance>> flux;
+
+        private final boolean restored;
+
+        private final long updatedAt;
+
+        Snapshot(List<ServiceInstance> instances, List<PersistedInstance> persisted, boolean restored,
+                 long updatedAt) {
+            this.instances = instances;
+            this.persisted = persisted;
+            this.flux = Flux.just(instances);
+            this.restored = restored;
+            this.updatedAt = updatedAt;
+        }
+
+        public List<ServiceInstance> getInstances() {
+            return instances;
+        }
+
+        /**
+         * 是否从本地文件恢复,尚未收到 Nacos 的实例列表
+         */
+        public boolean isRestored() {
+            return restored;
+        }
+
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+
+    record PersistedInstance(String instanceId, String serviceId, String host, int port, boolean secure,
+                             Map<String, String> metadata) {
+
+        static PersistedInstance of(ServiceInstance instance) {
+            return new PersistedInstance(instance.getInstanceId(), instance.getServiceId(), instance.getHost(),
+                    instance.getPort(), instance.isSecure(),
+                    instance.getMetadata() == null ? Map.of() : new TreeMap<>(instance.getMetadata()));
+        }
+
+        ServiceInstance toServiceInstance() {
+            return new DefaultServiceInstance(instanceId, serviceId, host, port, secure,
+                    metadata == null ? Map.of() : metadata);
+        }
+    }
+
+    record SnapshotFile(long savedAt, Map<String, List<PersistedInstance>> services) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.gateway.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 服务实例的来源,生产环境是 Nacos,测试中使用进程内的实现
+ */
+public interface InstanceSource extends AutoCloseable {
+
+    /**
+     * 查询当前健康的实例,可能阻塞
+     */
+    List<ServiceInstance> getInstances(String serviceId) throws Exception;
+
+    /**
+     * 订阅实例变化,listener 收到的是该服务完整的健康实例列表;订阅成功后通常会立即收到一次当前列表
+     */
+    void subscribe(String serviceId, Consumer<List<ServiceInstance>> listener) throws Exception;
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.gateway.discovery;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Nacos NamingService 的实例来源
+ * 订阅使用 Nacos 客户端的推送,实例转换规则与 NacosServiceDiscovery 相同(跳过不健康和下线的实例)
+ */
+@Slf4j
+public class NacosInstanceSource implements InstanceSource {
+
+    private final NacosServiceManager serviceManager;
+
+    private final NacosDiscoveryProperties properties;
+
+    private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+    public NacosInstanceSource(NacosServiceManager serviceManager, NacosDiscoveryProperties properties) {
+        this.serviceManager = serviceManager;
+        this.properties = properties;
+    }
+
+    private NamingService namingService() {
+        return serviceManager.getNamingService();
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) throws Exception {
+        return convert(namingService().selectInstances(serviceId, properties.getGroup(), true), serviceId);
+    }
+
+    @Override
+    public void subscribe(String serviceId, Consumer<List<ServiceInstance>> listener) throws Exception {
+        EventListener eventListener = event -> {
+            if (event instanceof NamingEvent namingEvent) {
+                listener.accept(convert(namingEvent.getInstances(), serviceId));
+            }
+        };
+        namingService().subscribe(serviceId, properties.getGroup(), eventListener);
+        listeners.put(serviceId, eventListener);
+    }
+
+    private static List<ServiceInstance> convert(List<Instance> instances, String serviceId) {
+        List<ServiceInstance> result = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            ServiceInstance serviceInstance = NacosServiceDiscovery.hostToServiceInstance(instance, serviceId);
+            if (serviceInstance != null) {
+                result.add(serviceInstance);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        listeners.forEach((serviceId, listener) -> {
+            try {
+                namingService().unsubscribe(serviceId, properties.getGroup(), listener);
+            } catch (Exception e) {
+                log.debug("failed to unsubscribe {} from nacos", serviceId, e);
+            }
+        });
+        listeners.clear();
+    }
+}
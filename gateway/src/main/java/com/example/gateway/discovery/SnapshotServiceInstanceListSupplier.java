@@ -0,0 +1,33 @@
+package com.example.gateway.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 从 InstanceSnapshotCache 读取实例列表的 ServiceInstanceListSupplier
+ * 快照已存在时返回快照中预先创建的 Flux,请求路径上不分配对象,也不访问 Nacos
+ */
+public class SnapshotServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+    private final String serviceId;
+
+    private final InstanceSnapshotCache cache;
+
+    public SnapshotServiceInstanceListSupplier(String serviceId, InstanceSnapshotCache cache) {
+        this.serviceId = serviceId;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return cache.instanceFlux(serviceId);
+    }
+}
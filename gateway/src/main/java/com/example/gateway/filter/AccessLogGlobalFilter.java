@@ -1,46 +1,72 @@
 package com.example.gateway.filter;
 
-import lombok.extern.slf4j.Slf4j;
+import com.example.gateway.accesslog.AccessLogRingBuffer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
-import java.net.InetSocketAddress;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 
 /**
  * GlobalFilter应用到所有的路由上（无需配置，全局生效）
- * 模拟 Nginx 的 Access Log 功能，记录每次请求的相关信息
+ * 模拟 Nginx 的 Access Log 功能，记录每次请求的路径、路由、远程地址、响应码、耗时和收发字节数
+ * 请求线程只把原始值写入无锁环形缓冲区,格式化和写文件由后台 AccessLogWriter 完成,
+ * 不再在请求线程上同步调用 log.info,也不再格式化 InetSocketAddress.
+ * 请求字节数取 Content-Length,未知时为 -1.
+ * 响应字节数和完成回调与 GatewayMetricsGlobalFilter 共用一个 CountedExchange,两个过滤器只装饰一次、只挂一个 doFinally.
  */
-@Slf4j
 @Component
-//@Order(value = Integer.MIN_VALUE)
+@ConditionalOnProperty(name = "gateway.access-log.enabled", havingValue = "true", matchIfMissing = true)
 public class AccessLogGlobalFilter implements GlobalFilter, Ordered {
 
+    /**
+     * 客户端在响应完成前断开连接,与 Nginx 一致记为 499
+     */
+    private static final int CLIENT_CLOSED_REQUEST = 499;
+
+    private final AccessLogRingBuffer ringBuffer;
+
+    /**
+     * 请求结束时的回调,只创建一次
+     */
+    private final CountedExchange.Completion completion = this::record;
+
+    public AccessLogGlobalFilter(AccessLogRingBuffer ringBuffer) {
+        this.ringBuffer = ringBuffer;
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        //filter的前置处理
+        return CountedExchange.filter(exchange, chain, completion);
+    }
+
+    private void record(CountedExchange exchange, SignalType signal) {
         ServerHttpRequest request = exchange.getRequest();
-        String path = request.getPath().pathWithinApplication().value();
-        InetSocketAddress remoteAddress = request.getRemoteAddress();
-        return chain
-                //继续调用filter
-                .filter(exchange)
-                //filter的后置处理
-                .then(Mono.fromRunnable(() -> {
-                    ServerHttpResponse response = exchange.getResponse();
-                    HttpStatusCode statusCode = response.getStatusCode();
-                    log.info("请求路径:{},远程IP地址:{},响应码:{}", path, remoteAddress, statusCode);
-                }));
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = signal == SignalType.CANCEL ? CLIENT_CLOSED_REQUEST
+                : statusCode != null ? statusCode.value() : 0;
+        ringBuffer.offer(exchange.timestamp(),
+                request.getMethod().name(),
+                request.getPath().pathWithinApplication().value(),
+                route != null ? route.getId() : null,
+                request.getRemoteAddress(),
+                status,
+                System.nanoTime() - exchange.startNanos(),
+                request.getHeaders().getContentLength(),
+                exchange.responseBytes());
     }
 
     @Override
     public int getOrder() {
         return Integer.MIN_VALUE;
     }
-}
\ No newline at end of file
+}
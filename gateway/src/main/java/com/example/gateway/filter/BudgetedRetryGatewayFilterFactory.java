@@ -0,0 +1,129 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.retry.RetryBudget;
+import com.example.gateway.retry.RetryCall;
+import com.example.gateway.retry.RetryPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 受预算限制的重试,应用到单个路由上（需要在配置文件中配置）
+ * 与内置的 Retry 过滤器不同: 所有路由共享全局重试预算(gateway.retry),故障时重试不会成倍放大上游负载;
+ * 重试前做带抖动的指数退避,并且每次重试都换一个实例.
+ * 只重试幂等方法且没有请求体的请求,只重试连接类异常和上游的 502/503(例如实例下线后 Nacos 摘除前的短暂窗口).
+ */
+@Component
+public class BudgetedRetryGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<BudgetedRetryGatewayFilterFactory.Config> {
+
+    private final RetryBudget budget;
+
+    private final MeterRegistry meterRegistry;
+
+    public BudgetedRetryGatewayFilterFactory(RetryBudget budget, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(BudgetedRetryGatewayFilterFactory.Config.class);
+        this.budget = budget;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("retries", "firstBackoff", "maxBackoff");
+    }
+
+    @Override
+    public GatewayFilter apply(BudgetedRetryGatewayFilterFactory.Config config) {
+        RetryPolicy policy = new RetryPolicy(config.retries,
+                config.statuses.stream().map(HttpStatus::value).collect(Collectors.toSet()),
+                config.exceptions, config.firstBackoff, config.maxBackoff);
+        Set<HttpMethod> methods = Set.copyOf(config.methods);
+        RouteRetries retries = new RouteRetries();
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpHeaders headers = request.getHeaders();
+            if (!methods.contains(request.getMethod()) || headers.getContentLength() > 0
+                    || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                return chain.filter(exchange);
+            }
+            retries.resolveMetrics(exchange.getAttribute(GATEWAY_ROUTE_ATTR));
+            budget.onRequest();
+            return RetryCall.execute(exchange, chain, policy, budget, retries);
+        };
+    }
+
+    /**
+     * 单个路由的重试指标
+     */
+    private final class RouteRetries implements RetryCall.Listener {
+
+        private volatile Counter attempts;
+
+        private volatile Counter exhausted;
+
+        /**
+         * 路由 id 只能在请求时取得,第一次请求时注册指标
+         */
+        private void resolveMetrics(Route route) {
+            if (exhausted != null) {
+                return;
+            }
+            String routeId = route != null ? route.getId() : "unknown";
+            attempts = Counter.builder("gateway.retry.attempts").tag("route", routeId)
+                    .description("发出的重试请求数").register(meterRegistry);
+            exhausted = Counter.builder("gateway.retry.budget.exhausted").tag("route", routeId)
+                    .description("预算不足未发出的重试数").register(meterRegistry);
+        }
+
+        @Override
+        public void onRetry(int retry) {
+            attempts.increment();
+        }
+
+        @Override
+        public void onBudgetExhausted() {
+            exhausted.increment();
+        }
+    }
+
+    /**
+     * 支持从配置文件中读取参数并自动装配到配置类中
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Config {
+        // 最多重试次数,不含第一次请求
+        private int retries = 2;
+        // 只重试这些方法,必须是幂等的
+        private List<HttpMethod> methods = List.of(HttpMethod.GET, HttpMethod.HEAD);
+        // 可重试的上游状态码
+        private List<HttpStatus> statuses = List.of(HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE);
+        // 可重试的异常,包括连接拒绝、连接重置和收到响应前连接关闭
+        private List<Class<? extends Throwable>> exceptions = List.of(IOException.class);
+        // 第一次重试的退避上限,之后每次翻倍,实际退避在 [0, 上限) 内随机
+        private Duration firstBackoff = Duration.ofMillis(20);
+        private Duration maxBackoff = Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.cache.BodyCapture;
+import com.example.gateway.cache.CacheDirectives;
+import com.example.gateway.cache.CachedResponse;
+import com.example.gateway.cache.DiscardingServerHttpResponse;
+import com.example.gateway.cache.ResponseCache;
+import com.example.gateway.config.ResponseCacheProperties;
+import io.netty.buffer.ByteBuf;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 缓存 GET 响应,应用到单个路由上（需要在配置文件中配置）
+ * 缓存键由路由、路径、查询参数和配置的请求头组成.
+ * 缓存时长优先取上游的 Cache-Control(s-maxage/max-age、stale-while-revalidate),没有时取路由配置.
+ * 过期后在 stale-while-revalidate 窗口内直接返回旧内容,同时只发起一个后台请求刷新.
+ * 请求带 Authorization 或 Cache-Control: no-store 时不走缓存;no-cache 时跳过查找但仍缓存新响应.
+ */
+@Component
+@Slf4j
+public class CacheGatewayFilterFactory extends AbstractGatewayFilterFactory<CacheGatewayFilterFactory.Config> {
+
+    private final ResponseCache cache;
+
+    private final ResponseCacheProperties properties;
+
+    public CacheGatewayFilterFactory(ResponseCache cache, ResponseCacheProperties properties) {
+        super(CacheGatewayFilterFactory.Config.class);
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("ttl", "staleWhileRevalidate");
+    }
+
+    @Override
+    public GatewayFilter apply(CacheGatewayFilterFactory.Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            HttpHeaders requestHeaders = request.getHeaders();
+            CacheDirectives directives = CacheDirectives.parse(requestHeaders.get(HttpHeaders.CACHE_CONTROL));
+            if (directives.noStore() || requestHeaders.containsKey(HttpHeaders.AUTHORIZATION)) {
+                cache.record(ResponseCache.Outcome.BYPASS);
+                return chain.filter(exchange);
+            }
+            String key = key(exchange, config);
+            if (directives.noCache()) {
+                cache.record(ResponseCache.Outcome.MISS);
+            } else {
+                ResponseCache.Hit hit = cache.lookup(key, System.nanoTime());
+                if (hit != null) {
+                    Mono<Void> served = serve(exchange.getResponse(), hit);
+                    CachedResponse stale = hit.response();
+                    if (!hit.fresh() && stale.tryStartRevalidation()) {
+                        served = served.doFinally(signal -> revalidate(exchange, chain, key, config, stale));
+                    }
+                    return served;
+                }
+            }
+            return chain.filter(exchange.mutate()
+                    .response(new CachingResponse(exchange.getResponse(), key, config)).build());
+        };
+    }
+
+    private String key(ServerWebExchange exchange, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        StringBuilder key = new StringBuilder(128)
+                .append(route != null ? route.getId() : "")
+                .append(' ')
+                .append(request.getPath().value());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String header : config.headers) {
+            key.append('\n').append(header).append(':');
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    private Mono<Void> serve(ServerHttpResponse response, ResponseCache.Hit hit) {
+        CachedResponse cached = hit.response();
+        response.setStatusCode(cached.status());
+        HttpHeaders headers = response.getHeaders();
+        headers.addAll(cached.headers());
+        headers.setContentLength(hit.body().readableBytes());
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(System.nanoTime())));
+        DataBuffer body = ResponseCache.wrap(response.bufferFactory(), hit.body());
+        return response.writeWith(Mono.just(body).doOnDiscard(DataBuffer.class, DataBufferUtils::release));
+    }
+
+    /**
+     * 在后台重新走一遍后续过滤器,响应写入不对应客户端连接的 DiscardingServerHttpResponse,
+     * 由 CachingResponse 写入缓存.请求体替换为空,属性复制一份,不影响已经完成的前台请求.
+     */
+    private void revalidate(ServerWebExchange exchange, GatewayFilterChain chain, String key, Config config,
+                            CachedResponse stale) {
+        ServerHttpResponse discarding = new DiscardingServerHttpResponse(exchange.getResponse().bufferFactory());
+        ServerWebExchange background = new RevalidationExchange(exchange.mutate()
+                .request(new ServerHttpRequestDecorator(exchange.getRequest()) {
+                    @Override
+                    public Flux<DataBuffer> getBody() {
+                        return Flux.empty();
+                    }
+                })
+                .response(new CachingResponse(discarding, key, config))
+                .build());
+        chain.filter(background)
+                .doFinally(signal -> stale.revalidationFinished())
+                .subscribe(null, e -> log.warn("缓存后台刷新失败,key={}", key, e));
+    }
+
+    /**
+     * @return 可缓存时返回新鲜期,否则返回 -1
+     */
+    private long freshNanos(HttpStatusCode status, HttpHeaders headers, CacheDirectives directives, Config config) {
+        if (status == null || status.value() != 200 || directives.noStore() || directives.noCache()
+                || directives.isPrivate() || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || headers.getVary().contains("*")) {
+            return -1;
+        }
+        if (directives.maxAgeSeconds() >= 0) {
+            return directives.maxAgeSeconds() == 0 ? -1 : Duration.ofSeconds(directives.maxAgeSeconds()).toNanos();
+        }
+        Duration ttl = config.ttl != null ? config.ttl : properties.getTtl();
+        return ttl.isPositive() ? ttl.toNanos() : -1;
+    }
+
+    private long staleNanos(CacheDirectives directives, Config config) {
+        if (directives.staleWhileRevalidateSeconds() >= 0) {
+            return Duration.ofSeconds(directives.staleWhileRevalidateSeconds()).toNanos();
+        }
+        return (config.staleWhileRevalidate != null ? config.staleWhileRevalidate
+                : properties.getStaleWhileRevalidate()).toNanos();
+    }
+
+    /**
+     * 边写出边复制响应体,写完后存入缓存
+     * 写出时状态码和响应头已经由路由过滤器设置好,据此判断是否可缓存.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final Config config;
+
+        private CachingResponse(ServerHttpResponse delegate, String key, Config config) {
+            super(delegate);
+            this.key = key;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = getHeaders();
+            CacheDirectives directives = CacheDirectives.parse(headers.get(HttpHeaders.CACHE_CONTROL));
+            long freshNanos = freshNanos(status, headers, directives, config);
+            if (freshNanos <= 0) {
+                if (directives.noStore()) {
+                    cache.invalidate(key);
+                }
+                return super.writeWith(body);
+            }
+            long staleNanos = staleNanos(directives, config);
+            BodyCapture capture = cache.capture(headers.getContentLength());
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        ByteBuf captured = capture.finish();
+                        if (captured != null) {
+                            cache.put(key, status, headers, captured, freshNanos, staleNanos, System.nanoTime());
+                        }
+                    })
+                    .doFinally(signal -> capture.release()));
+        }
+    }
+
+    /**
+     * 后台刷新使用独立的属性,路由过滤器写入的状态不会影响前台请求
+     */
+    private static final class RevalidationExchange extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private RevalidationExchange(ServerWebExchange delegate) {
+            super(delegate);
+            this.attributes = new ConcurrentHashMap<>();
+            // 原 exchange 的属性可能含 null 值(普通 Map),ConcurrentHashMap 不接受,复制时跳过
+            delegate.getAttributes().forEach((key, value) -> {
+                if (value != null) {
+                    attributes.put(key, value);
+                }
+            });
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    /**
+     * 支持从配置文件中读取参数并自动装配到配置类中
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Config {
+        // 上游没有给出 max-age 时的缓存时长,未配置时取 gateway.response-cache.ttl
+        private Duration ttl;
+        // 过期后仍可返回旧内容的时长,未配置时取 gateway.response-cache.stale-while-revalidate
+        private Duration staleWhileRevalidate;
+        // 参与缓存键的请求头
+        private List<String> headers = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.ratelimit.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 自适应并发限制,应用到单个路由上（需要在配置文件中配置）
+ * 根据上游延迟调整允许的并发数,超过时立即返回 503,不在网关排队,
+ * 过载不再传到 future-service 的线程池里由 CallerRunsPolicy 压回请求线程.
+ */
+@Component
+public class ConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+
+    public ConcurrencyLimitGatewayFilterFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        super(ConcurrencyLimitGatewayFilterFactory.Config.class);
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("initialLimit", "maxLimit");
+    }
+
+    @Override
+    public GatewayFilter apply(ConcurrencyLimitGatewayFilterFactory.Config config) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config.initialLimit, config.minLimit,
+                config.maxLimit, config.tolerance, config.smoothing, config.backoffRatio);
+        RouteCounter rejected = new RouteCounter(meterRegistry, "gateway.ratelimit.rejected",
+                "limiter", "concurrency");
+        return (exchange, chain) -> {
+            if (!limiter.tryAcquire()) {
+                rejected.increment(exchange);
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return response.setComplete();
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                boolean dropped = signal == SignalType.ON_ERROR || status != null
+                        && (status.value() == 503 || status.value() == 504);
+                limiter.release(signal == SignalType.CANCEL ? -1 : System.nanoTime() - start, dropped);
+            });
+        };
+    }
+
+    /**
+     * 支持从配置文件中读取参数并自动装配到配置类中
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Config {
+        // 初始并发限制
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 500;
+        // 延迟升高到长期 RTT 的多少倍之前不收缩
+        private double tolerance = 1.5;
+        // 每个样本对限制的调整比例
+        private double smoothing = 0.2;
+        // 上游返回 503/504 或连接失败时限制乘以的比例
+        private double backoffRatio = 0.9;
+    }
+}
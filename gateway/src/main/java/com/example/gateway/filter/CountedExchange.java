@@ -0,0 +1,162 @@
+package com.example.gateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * 统计收发字节数的 exchange,访问日志和路由指标两个全局过滤器共用
+ * 最外层的过滤器创建一次,只替换请求和响应(比 exchange.mutate() 少分配),并注册唯一的 doFinally;
+ * 内层过滤器拿到的已经是它,只追加完成回调,不再装饰请求、响应,也不再挂 doFinally.
+ */
+final class CountedExchange extends ServerWebExchangeDecorator implements Consumer<SignalType> {
+
+    /**
+     * 请求结束(正常结束、异常或取消)时的回调,实现应为无状态的单例,请求相关的值从 exchange 读取
+     */
+    @FunctionalInterface
+    interface Completion {
+
+        void complete(CountedExchange exchange, SignalType signal);
+    }
+
+    private final long timestamp = System.currentTimeMillis();
+
+    private final long startNanos = System.nanoTime();
+
+    private final ByteCountingRequest request;
+
+    private final ByteCountingResponse response;
+
+    private Completion first;
+
+    private Completion second;
+
+    private CountedExchange(ServerWebExchange delegate) {
+        super(delegate);
+        this.request = new ByteCountingRequest(delegate.getRequest());
+        this.response = new ByteCountingResponse(delegate.getResponse());
+    }
+
+    /**
+     * 在统计字节数的 exchange 上继续过滤链,结束时调用 completion
+     * exchange 已经统计时复用它和它的 doFinally
+     */
+    static Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Completion completion) {
+        if (exchange instanceof CountedExchange counted && counted.second == null) {
+            counted.second = completion;
+            return chain.filter(counted);
+        }
+        CountedExchange counted = new CountedExchange(exchange);
+        counted.first = completion;
+        return chain.filter(counted)
+                //正常结束、异常和取消都要记录
+                .doFinally(counted);
+    }
+
+    @Override
+    public void accept(SignalType signal) {
+        // 内层的回调先执行,与各自挂 doFinally 时的顺序一致
+        if (second != null) {
+            second.complete(this, signal);
+        }
+        first.complete(this, signal);
+    }
+
+    @Override
+    public ServerHttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public ServerHttpResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * 开始统计时的墙上时间(毫秒)
+     */
+    long timestamp() {
+        return timestamp;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 实际读取的请求体字节数
+     */
+    long requestBytes() {
+        return request.bytes;
+    }
+
+    /**
+     * 写出的响应体字节数
+     */
+    long responseBytes() {
+        return response.bytes;
+    }
+
+    /**
+     * 统计实际读取的请求体字节数
+     * 重试会重新订阅请求体,各次订阅和 doFinally 中的读取可能在不同线程,用字段更新器原子累加,不为每个请求多分配计数对象
+     */
+    private static final class ByteCountingRequest extends ServerHttpRequestDecorator {
+
+        private static final AtomicLongFieldUpdater<ByteCountingRequest> BYTES =
+                AtomicLongFieldUpdater.newUpdater(ByteCountingRequest.class, "bytes");
+
+        private volatile long bytes;
+
+        private ByteCountingRequest(ServerHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody().doOnNext(buffer -> BYTES.addAndGet(this, buffer.readableByteCount()));
+        }
+    }
+
+    /**
+     * 统计写出的响应体字节数,同请求体一样原子累加
+     */
+    private static final class ByteCountingResponse extends ServerHttpResponseDecorator {
+
+        private static final AtomicLongFieldUpdater<ByteCountingResponse> BYTES =
+                AtomicLongFieldUpdater.newUpdater(ByteCountingResponse.class, "bytes");
+
+        private volatile long bytes;
+
+        private ByteCountingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(this::count));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(this::count)));
+        }
+
+        private void count(DataBuffer buffer) {
+            BYTES.addAndGet(this, buffer.readableByteCount());
+        }
+    }
+}
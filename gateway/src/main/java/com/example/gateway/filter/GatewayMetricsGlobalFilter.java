@@ -0,0 +1,57 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.metrics.GatewayMetrics;
+import com.example.gateway.metrics.RequestTimings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * GlobalFilter应用到所有的路由上（无需配置，全局生效）
+ * 记录每个路由的总耗时、上游与网关内部耗时、在途请求数和收发字节数,见 GatewayMetrics.
+ * 紧跟在访问日志之后执行;请求开始时放入 RequestTimings,路由过滤器和路由转发过滤器据此记录各自的耗时.
+ * 字节数和完成回调复用访问日志创建的 CountedExchange,访问日志关闭时才自己创建.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class GatewayMetricsGlobalFilter implements GlobalFilter, Ordered {
+
+    private final GatewayMetrics metrics;
+
+    /**
+     * 请求结束时的回调,只创建一次
+     */
+    private final CountedExchange.Completion completion = GatewayMetricsGlobalFilter::end;
+
+    public GatewayMetricsGlobalFilter(GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RequestTimings timings = metrics.route(route.getId()).begin(metrics.sampleFilters());
+        exchange.getAttributes().put(RequestTimings.ATTR, timings);
+        return CountedExchange.filter(exchange, chain, completion);
+    }
+
+    private static void end(CountedExchange exchange, SignalType signal) {
+        RequestTimings.of(exchange).end(exchange.requestBytes(), exchange.responseBytes());
+    }
+
+    @Override
+    public int getOrder() {
+        return Integer.MIN_VALUE + 1;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.hedge.HedgeBudget;
+import com.example.gateway.hedge.HedgedCall;
+import com.example.gateway.hedge.LatencyWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 对冲请求,应用到幂等的单个路由上（需要在配置文件中配置）
+ * 主请求在该路由观测到的延迟分位数(默认 p95)内没有响应时,向另一个实例发出相同的请求,取先响应的一方,取消另一方.
+ * 对冲次数受预算限制,不超过请求数的 budgetPercent%;只对冲 GET/HEAD 且没有请求体的请求.
+ * 必须配置在负载均衡之前(路由过滤器总是如此),每一方各自选择实例.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+
+    public HedgeGatewayFilterFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        super(HedgeGatewayFilterFactory.Config.class);
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("percentile", "budgetPercent");
+    }
+
+    @Override
+    public GatewayFilter apply(HedgeGatewayFilterFactory.Config config) {
+        RouteHedging hedging = new RouteHedging(config);
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpMethod method = request.getMethod();
+            HttpHeaders headers = request.getHeaders();
+            if (method != HttpMethod.GET && method != HttpMethod.HEAD || headers.getContentLength() > 0
+                    || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                return chain.filter(exchange);
+            }
+            hedging.resolveMetrics(exchange.getAttribute(GATEWAY_ROUTE_ATTR));
+            hedging.budget.onRequest();
+            return HedgedCall.execute(exchange, chain, hedging.delayNanos(), hedging.budget, hedging);
+        };
+    }
+
+    /**
+     * 单个路由的对冲状态: 预算、延迟窗口和指标
+     */
+    private final class RouteHedging implements HedgedCall.Listener {
+
+        private final HedgeBudget budget;
+
+        private final LatencyWindow window;
+
+        private final long minDelayNanos;
+
+        private final long maxDelayNanos;
+
+        private final long initialDelayNanos;
+
+        private volatile Counter hedges;
+
+        private volatile Counter wins;
+
+        private volatile Counter exhausted;
+
+        private RouteHedging(Config config) {
+            this.budget = new HedgeBudget(config.budgetPercent, config.maxBurst);
+            this.window = new LatencyWindow(config.windowSize, config.percentile, config.minSamples);
+            this.minDelayNanos = config.minDelay.toNanos();
+            this.maxDelayNanos = config.maxDelay.toNanos();
+            this.initialDelayNanos = config.initialDelay.toNanos();
+        }
+
+        /**
+         * 路由 id 只能在请求时取得,第一次请求时注册指标
+         */
+        private void resolveMetrics(Route route) {
+            if (wins != null) {
+                return;
+            }
+            String routeId = route != null ? route.getId() : "unknown";
+            hedges = Counter.builder("gateway.hedge.sent").tag("route", routeId)
+                    .description("发出的对冲请求数").register(meterRegistry);
+            exhausted = Counter.builder("gateway.hedge.budget.exhausted").tag("route", routeId)
+                    .description("预算不足未发出的对冲数").register(meterRegistry);
+            wins = Counter.builder("gateway.hedge.wins").tag("route", routeId)
+                    .description("对冲请求先于主请求响应的次数").register(meterRegistry);
+        }
+
+        private long delayNanos() {
+            long observed = window.percentile();
+            return observed < 0 ? initialDelayNanos : Math.clamp(observed, minDelayNanos, maxDelayNanos);
+        }
+
+        @Override
+        public void onResponse(long latencyNanos, boolean hedge) {
+            window.record(latencyNanos);
+            if (hedge) {
+                wins.increment();
+            }
+        }
+
+        @Override
+        public void onHedge() {
+            hedges.increment();
+        }
+
+        @Override
+        public void onBudgetExhausted() {
+            exhausted.increment();
+        }
+    }
+
+    /**
+     * 支持从配置文件中读取参数并自动装配到配置类中
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Config {
+        // 对冲延迟取该路由观测延迟的分位数
+        private double percentile = 95;
+        // 对冲请求占请求数的上限百分比
+        private double budgetPercent = 10;
+        // 最多积攒的对冲次数
+        private int maxBurst = 20;
+        // 对冲延迟的上下限
+        private Duration minDelay = Duration.ofMillis(5);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        // 样本不足时的对冲延迟
+        private Duration initialDelay = Duration.ofMillis(50);
+        // 延迟窗口大小和开始使用分位数的最少样本数
+        private int windowSize = 1024;
+        private int minSamples = 100;
+    }
+}
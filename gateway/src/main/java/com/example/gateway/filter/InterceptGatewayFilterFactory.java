@@ -6,9 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -22,6 +20,7 @@ import java.util.List;
 /**
  * 应用到单个路由或者一个分组的路由上（需要在配置文件中配置）
  * 名称必须是xxxGatewayFilterFactory形式
+ * 校验规则在 apply 时编译成 InterceptRule,请求路径上只做比较;拒绝路径也不再每次编码响应体.
  */
 @Component
 @Slf4j
@@ -43,22 +42,26 @@ public class InterceptGatewayFilterFactory extends AbstractGatewayFilterFactory<
 
     @Override
     public GatewayFilter apply(InterceptGatewayFilterFactory.Config config) {
+        //每个路由只编译一次
+        InterceptRule rule = new InterceptRule(config.methods, config.mediaTypes, config.requiredHeaders,
+                config.message);
+        HttpStatus status = config.status;
         return (exchange, chain) -> {
 
             ServerHttpRequest serverHttpRequest = exchange.getRequest();
-            ServerHttpResponse serverHttpResponse = exchange.getResponse();
-            HttpMethod method = serverHttpRequest.getMethod();
-            String contentType = serverHttpRequest.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
-
-            if (!(method == HttpMethod.POST || method == HttpMethod.GET)
-                    || (contentType == null || !contentType.contains(MediaType.APPLICATION_JSON_VALUE))) {
-                log.warn("请求方法或参数格式错误,uri={};method={};Content-Type={}", serverHttpRequest.getURI(), method.name(), contentType);
-                //使用 DataBuffer 包装字节数据，这是 Spring WebFlux 响应式编程的标准数据载体
-                DataBuffer dataBuffer = serverHttpResponse.bufferFactory().wrap(config.message.getBytes());
-                // 将内容类型字符串转换为数据缓冲区，并写入HTTP响应
-                serverHttpResponse.setStatusCode(HttpStatus.BAD_REQUEST);
-                return serverHttpResponse.writeWith(Mono.just(dataBuffer));
+            HttpHeaders headers = serverHttpRequest.getHeaders();
 
+            if (!rule.allows(serverHttpRequest.getMethod(), headers)) {
+                // 拒绝请求可能大量出现,只在 debug 级别记录,避免拒绝路径比正常路径更重
+                if (log.isDebugEnabled()) {
+                    log.debug("请求方法或参数格式错误,uri={};method={};Content-Type={}", serverHttpRequest.getURI(),
+                            serverHttpRequest.getMethod().name(), headers.getFirst(HttpHeaders.CONTENT_TYPE));
+                }
+                ServerHttpResponse serverHttpResponse = exchange.getResponse();
+                serverHttpResponse.setStatusCode(status);
+                serverHttpResponse.getHeaders().setContentLength(rule.contentLength());
+                //共享的只读响应体,不复制内容
+                return serverHttpResponse.writeWith(Mono.just(rule.body(serverHttpResponse.bufferFactory())));
             }
 
             return chain.filter(exchange);
@@ -72,7 +75,15 @@ public class InterceptGatewayFilterFactory extends AbstractGatewayFilterFactory<
     @AllArgsConstructor
     @NoArgsConstructor
     public static class Config {
-        // 控制是否开启认证
+        // 拒绝时的响应体
         private String message;
+        // 允许的请求方法,为空时不限制
+        private List<String> methods = List.of("GET", "POST");
+        // 允许的 Content-Type,为空时不限制
+        private List<String> mediaTypes = List.of(MediaType.APPLICATION_JSON_VALUE);
+        // 必须携带的请求头
+        private List<String> requiredHeaders = List.of();
+        // 拒绝时的状态码
+        private HttpStatus status = HttpStatus.BAD_REQUEST;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package com.example.gateway.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * InterceptGatewayFilterFactory 预编译的校验规则
+ * 方法、媒体类型和必需请求头在路由加载时解析一次,校验时只做比较,不分配对象;
+ * 拒绝时的响应体只按 UTF-8 编码一次,放在只读的共享缓冲区中,每次写出一个不复制内容的视图.
+ */
+public final class InterceptRule {
+
+    private final Set<HttpMethod> methods;
+
+    private final String[][] mediaTypes;
+
+    private final String[] requiredHeaders;
+
+    private final ByteBuf body;
+
+    private final ByteBuffer nioBody;
+
+    /**
+     * @param methods         允许的请求方法,为空时不限制
+     * @param mediaTypes      允许的 Content-Type,类型和子类型可以是通配符 *,为空时不限制
+     * @param requiredHeaders 必须携带的请求头
+     * @param message         拒绝时的响应体
+     */
+    public InterceptRule(List<String> methods, List<String> mediaTypes, List<String> requiredHeaders,
+                         String message) {
+        this.methods = methods.stream()
+                .map(method -> HttpMethod.valueOf(method.trim().toUpperCase(Locale.ROOT)))
+                .collect(Collectors.toUnmodifiableSet());
+        this.mediaTypes = mediaTypes.stream()
+                .map(MediaType::parseMediaType)
+                .map(type -> new String[]{type.getType(), type.getSubtype()})
+                .toArray(String[][]::new);
+        this.requiredHeaders = requiredHeaders.stream().map(String::trim).toArray(String[]::new);
+        byte[] bytes = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+        this.body = Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes).asReadOnly());
+        this.nioBody = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    public boolean allows(HttpMethod method, HttpHeaders headers) {
+        if (!methods.isEmpty() && !methods.contains(method)) {
+            return false;
+        }
+        for (String header : requiredHeaders) {
+            if (!headers.containsKey(header)) {
+                return false;
+            }
+        }
+        return mediaTypes.length == 0 || matchesMediaType(headers.getFirst(HttpHeaders.CONTENT_TYPE));
+    }
+
+    /**
+     * 只比较 Content-Type 的 type/subtype 部分,忽略大小写和参数,不解析成 MediaType
+     */
+    private boolean matchesMediaType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int start = 0;
+        int end = contentType.indexOf(';');
+        if (end < 0) {
+            end = contentType.length();
+        }
+        while (start < end && Character.isWhitespace(contentType.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(contentType.charAt(end - 1))) {
+            end--;
+        }
+        int slash = contentType.indexOf('/', start);
+        if (slash < 0 || slash >= end) {
+            return false;
+        }
+        for (String[] mediaType : mediaTypes) {
+            if (matches(mediaType[0], contentType, start, slash) && matches(mediaType[1], contentType, slash + 1, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String expected, String actual, int from, int to) {
+        return MediaType.WILDCARD_TYPE.equals(expected)
+                || expected.length() == to - from && actual.regionMatches(true, from, expected, 0, to - from);
+    }
+
+    public int contentLength() {
+        return nioBody.remaining();
+    }
+
+    /**
+     * 拒绝时的响应体,共享内容的只读视图,写出后释放也不会影响共享缓冲区
+     */
+    public DataBuffer body(DataBufferFactory factory) {
+        if (factory instanceof NettyDataBufferFactory netty) {
+            return netty.wrap(body.duplicate());
+        }
+        return factory.wrap(nioBody.duplicate());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.transform.StreamingJsonTransformer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式改写 JSON 请求体/响应体,应用到单个路由上（需要在配置文件中配置）
+ * 与 ModifyRequestBody/ModifyResponseBody 不同,不把整个报文读入内存,边解析边转发,适合很大的报文.
+ * 只处理 Content-Type 为 JSON 且没有 Content-Encoding 的报文;改写后长度未知,去掉 Content-Length 改为分块传输.
+ */
+@Component
+public class JsonTransformGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<JsonTransformGatewayFilterFactory.Config> {
+
+    public JsonTransformGatewayFilterFactory() {
+        super(JsonTransformGatewayFilterFactory.Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("target", "redact");
+    }
+
+    @Override
+    public GatewayFilter apply(JsonTransformGatewayFilterFactory.Config config) {
+        StreamingJsonTransformer transformer = new StreamingJsonTransformer(new HashSet<>(config.redact),
+                config.remove ? null : config.mask, config.add);
+        return (exchange, chain) -> {
+            ServerWebExchange.Builder builder = exchange.mutate();
+            ServerHttpRequest request = exchange.getRequest();
+            if (config.target != Target.RESPONSE && isTransformable(request.getHeaders())) {
+                builder.request(new TransformingRequest(request, transformer,
+                        exchange.getResponse().bufferFactory()));
+            }
+            if (config.target != Target.REQUEST) {
+                builder.response(new TransformingResponse(exchange.getResponse(), transformer));
+            }
+            return chain.filter(builder.build());
+        };
+    }
+
+    private static boolean isTransformable(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        MediaType contentType = headers.getContentType();
+        return contentType != null && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+json") || "x-ndjson".equals(contentType.getSubtype()));
+    }
+
+    private static HttpHeaders chunked(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        copy.remove(HttpHeaders.CONTENT_LENGTH);
+        copy.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+
+    private static final class TransformingRequest extends ServerHttpRequestDecorator {
+
+        private final StreamingJsonTransformer transformer;
+
+        private final DataBufferFactory bufferFactory;
+
+        private final HttpHeaders headers;
+
+        private TransformingRequest(ServerHttpRequest delegate, StreamingJsonTransformer transformer,
+                                    DataBufferFactory bufferFactory) {
+            super(delegate);
+            this.transformer = transformer;
+            this.bufferFactory = bufferFactory;
+            this.headers = chunked(delegate.getHeaders());
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return transformer.transform(super.getBody(), bufferFactory);
+        }
+    }
+
+    /**
+     * 写出时响应头已经由路由过滤器设置好,据此判断是否改写
+     */
+    private static final class TransformingResponse extends ServerHttpResponseDecorator {
+
+        private final StreamingJsonTransformer transformer;
+
+        private TransformingResponse(ServerHttpResponse delegate, StreamingJsonTransformer transformer) {
+            super(delegate);
+            this.transformer = transformer;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isTransformable(getHeaders())) {
+                return super.writeWith(body);
+            }
+            getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return super.writeWith(transformer.transform(body, bufferFactory()));
+        }
+
+        /**
+         * 流式媒体类型(例如 application/x-ndjson)由 NettyWriteResponseFilter 通过这里写出
+         */
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (!isTransformable(getHeaders())) {
+                return super.writeAndFlushWith(body);
+            }
+            getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return super.writeAndFlushWith(transformer.transformGroups(body, bufferFactory()));
+        }
+    }
+
+    public enum Target {
+        REQUEST, RESPONSE, BOTH
+    }
+
+    /**
+     * 支持从配置文件中读取参数并自动装配到配置类中
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Config {
+        // 改写请求体、响应体或两者
+        private Target target = Target.RESPONSE;
+        // 需要脱敏的字段名,任意层级
+        private List<String> redact = List.of();
+        // 脱敏字段的替换值
+        private String mask = "***";
+        // 为 true 时删除脱敏字段而不是替换
+        private boolean remove;
+        // 追加到根对象的字段
+        private Map<String, String> add = new LinkedHashMap<>();
+    }
+}
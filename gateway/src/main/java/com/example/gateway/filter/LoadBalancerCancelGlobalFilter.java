@@ -0,0 +1,45 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.loadbalancer.InstanceStatsRegistry;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * 请求被取消时归还实例的进行中请求数
+ * ReactiveLoadBalancerClientFilter 只在成功和失败时回调 LoadBalancerLifecycle.onComplete,
+ * 客户端断开或对冲中输掉的一方被取消时不会回调,进行中请求数会一直偏高.
+ * 排在负载均衡过滤器之前,包住它的订阅,取消时已经选出的实例从属性中取得.
+ */
+@Component
+public class LoadBalancerCancelGlobalFilter implements GlobalFilter, Ordered {
+
+    private final InstanceStatsRegistry stats;
+
+    public LoadBalancerCancelGlobalFilter(InstanceStatsRegistry stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return chain.filter(exchange).doOnCancel(() -> {
+            Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (lbResponse != null && lbResponse.hasServer()) {
+                stats.onCancel(lbResponse.getServer());
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+}
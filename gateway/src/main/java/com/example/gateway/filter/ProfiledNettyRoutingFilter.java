@@ -0,0 +1,62 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.httpclient.HttpClientProfiles;
+import com.example.gateway.metrics.RequestTimings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+
+/**
+ * 按路由选择上游 HTTP 客户端的路由过滤器,替代默认的 NettyRoutingFilter
+ * 配置了 profile 的路由使用该 profile 的连接池(路由元数据中的 connect-timeout 由 profile 的配置代替),
+ * 其余路由使用默认的共享客户端.
+ * 排在默认路由过滤器之前,即使默认过滤器没有被关闭,请求也已经被标记为已路由,默认过滤器会跳过.
+ * 开启网关指标时,记录每次上游调用从发出请求到收到响应头的时间(响应体由 NettyWriteResponseFilter 之后写出,不计入);
+ * 被取消的调用(例如对冲中落后的请求)不记录.
+ */
+public class ProfiledNettyRoutingFilter extends NettyRoutingFilter {
+
+    private final HttpClientProfiles profiles;
+
+    public ProfiledNettyRoutingFilter(HttpClient httpClient, HttpClientProfiles profiles,
+                                      ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                      HttpClientProperties properties) {
+        super(httpClient, headersFiltersProvider, properties);
+        this.profiles = profiles;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTimings timings = RequestTimings.of(exchange);
+        URI requestUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (timings == null || isAlreadyRouted(exchange) || requestUrl == null
+                || !("http".equals(requestUrl.getScheme()) || "https".equals(requestUrl.getScheme()))) {
+            return super.filter(exchange, chain);
+        }
+        long start = System.nanoTime();
+        return super.filter(exchange, chain).doOnTerminate(() -> timings.upstream(System.nanoTime() - start));
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = profiles.forRoute(route.getId());
+        return client != null ? client : super.getHttpClient(route, exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return super.getOrder() - 1;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.ratelimit.TokenBucketLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 进程内令牌桶限流,应用到单个路由上（需要在配置文件中配置）
+ * 不依赖 Redis,每个网关实例单独计数;按路由、客户端 IP 或请求头区分,超过限制立即返回 429 和 Retry-After.
+ */
+@Component
+public class RateLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<RateLimitGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitGatewayFilterFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        super(RateLimitGatewayFilterFactory.Config.class);
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("replenishRate", "burstCapacity", "key");
+    }
+
+    @Override
+    public GatewayFilter apply(RateLimitGatewayFilterFactory.Config config) {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(config.replenishRate, config.burstCapacity,
+                config.maxKeys);
+        RouteCounter rejected = new RouteCounter(meterRegistry, "gateway.ratelimit.rejected",
+                "limiter", "token-bucket");
+        return (exchange, chain) -> {
+            long wait = limiter.tryAcquire(key(exchange, config), System.nanoTime());
+            if (wait == 0) {
+                return chain.filter(exchange);
+            }
+            rejected.increment(exchange);
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                    Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999))));
+            return response.setComplete();
+        };
+    }
+
+    /**
+     * 限流键,IP 和路由直接用对象本身作键,不拼接字符串
+     */
+    private static Object key(ServerWebExchange exchange, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        return switch (config.key) {
+            case ROUTE -> {
+                Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+                yield route != null ? route.getId() : "";
+            }
+            case IP -> {
+                InetSocketAddress remoteAddress = request.getRemoteAddress();
+                yield remoteAddress != null && remoteAddress.getAddress() != null ? remoteAddress.getAddress() : "";
+            }
+            case HEADER -> {
+                String value = request.getHeaders().getFirst(config.header);
+                yield value != null ? value : "";
+            }
+        };
+    }
+
+    public enum KeyType {
+        ROUTE, IP, HEADER
+    }
+
+    /**
+     * 支持从配置文件中读取参数并自动装配到配置类中
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Config {
+        // 每秒生成的令牌数
+        private double replenishRate = 100;
+        // 桶容量,即允许的突发请求数
+        private int burstCapacity = 200;
+        // 限流维度
+        private KeyType key = KeyType.IP;
+        // key 为 HEADER 时使用的请求头,请求没有该头时共用一个桶
+        private String header = "X-Client-Id";
+        // 键数量上限,达到后清理已满的桶,清理后仍达到上限时新键共用一个桶
+        private int maxKeys = 100_000;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 过滤器实例对应的路由计数器
+ * 路由 id 只能在请求时从 exchange 中取得,第一次使用时注册一次并缓存,之后只调用 increment,
+ * 不在每次计数时查找 MeterRegistry.并发的第一次注册得到同一个 Counter.
+ */
+final class RouteCounter {
+
+    private final MeterRegistry meterRegistry;
+
+    private final String name;
+
+    private final String[] tags;
+
+    private volatile Counter counter;
+
+    /**
+     * @param tags 除 route 之外的标签,键值交替
+     */
+    RouteCounter(MeterRegistry meterRegistry, String name, String... tags) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.tags = tags;
+    }
+
+    void increment(ServerWebExchange exchange) {
+        Counter resolved = counter;
+        if (resolved == null) {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            resolved = Counter.builder(name).tags(tags).tag("route", route != null ? route.getId() : "unknown")
+                    .register(meterRegistry);
+            counter = resolved;
+        }
+        resolved.increment();
+    }
+}
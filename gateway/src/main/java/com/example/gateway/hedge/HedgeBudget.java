@@ -0,0 +1,55 @@
+package com.example.gateway.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲预算,限制对冲请求占正常请求的比例
+ * 每个请求存入 percent/100 个令牌,每次对冲取出 1 个,余额有上限,
+ * 因此长期来看对冲请求数不超过请求数的 percent%,流量低谷积攒的令牌也不会在高峰时一次用完.
+ */
+public final class HedgeBudget {
+
+    /**
+     * 令牌按千分之一计数,避免浮点 CAS
+     */
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+
+    private final long maxBalance;
+
+    private final AtomicLong balance = new AtomicLong();
+
+    /**
+     * @param percent    对冲请求占请求数的上限百分比
+     * @param maxBalance 最多积攒的对冲次数
+     */
+    public HedgeBudget(double percent, int maxBalance) {
+        if (percent < 0 || maxBalance < 0) {
+            throw new IllegalArgumentException("percent and maxBalance must not be negative");
+        }
+        this.deposit = Math.round(percent * SCALE / 100);
+        this.maxBalance = maxBalance * SCALE;
+    }
+
+    public void onRequest() {
+        if (deposit > 0 && balance.get() < maxBalance) {
+            balance.accumulateAndGet(deposit, (current, add) -> Math.min(maxBalance, current + add));
+        }
+    }
+
+    /**
+     * @return 预算不足时返回 false
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.gateway.hedge;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.gateway.loadbalancer.PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * 一次对冲调用
+ * 主请求和对冲请求各自在独立的 exchange 上走完后续过滤器(负载均衡、路由),响应头写在各自的 AttemptResponse 中;
+ * 先开始写响应的一方抢到真实响应,把状态码、响应头和属性复制过去后直接流式写出,另一方立即被取消,
+ * 取消会让路由过滤器关闭上游连接.
+ * 主请求在对冲发出前失败时直接返回错误,对冲不是重试;两者都已发出时等待另一方.
+ * 对冲请求没有写响应体就结束(例如被后续的 ConcurrencyLimit 在本地拒绝为 503)时,主请求仍在进行则视为失败,
+ * 不能抢走主请求的响应.
+ */
+public final class HedgedCall {
+
+    /**
+     * 输掉的一方写响应时返回的错误,不会传给客户端
+     */
+    private static final RuntimeException LOST = new IllegalStateException("hedged attempt lost the race") {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
+    /**
+     * 主请求仍在进行时,对冲请求没有写响应体就结束
+     */
+    private static final RuntimeException HEDGE_WITHOUT_BODY = new IllegalStateException(
+            "hedged attempt completed without a body while the primary is still running") {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
+    /**
+     * 对冲事件回调,用于统计指标和延迟
+     */
+    public interface Listener {
+
+        /**
+         * 一方开始写响应
+         *
+         * @param latencyNanos 从主请求发出到胜出一方开始写响应的时间,即客户端看到的延迟;
+         *                     对冲胜出时不能只用对冲自己的耗时,否则延迟窗口偏低,对冲延迟随之缩短,对冲越发越多
+         * @param hedge        是否为对冲请求
+         */
+        void onResponse(long latencyNanos, boolean hedge);
+
+        void onHedge();
+
+        void onBudgetExhausted();
+    }
+
+    private final ServerWebExchange exchange;
+
+    private final GatewayFilterChain chain;
+
+    private final long delayNanos;
+
+    private final HedgeBudget budget;
+
+    private final Listener listener;
+
+    private final MonoSink<Void> sink;
+
+    private Attempt primary;
+
+    private Attempt hedge;
+
+    private volatile Attempt winner;
+
+    private Disposable timer;
+
+    private boolean finished;
+
+    private HedgedCall(ServerWebExchange exchange, GatewayFilterChain chain, long delayNanos, HedgeBudget budget,
+                       Listener listener, MonoSink<Void> sink) {
+        this.exchange = exchange;
+        this.chain = chain;
+        this.delayNanos = delayNanos;
+        this.budget = budget;
+        this.listener = listener;
+        this.sink = sink;
+    }
+
+    /**
+     * @param delayNanos 主请求多久没有响应后发出对冲请求
+     */
+    public static Mono<Void> execute(ServerWebExchange exchange, GatewayFilterChain chain, long delayNanos,
+                                     HedgeBudget budget, Listener listener) {
+        return Mono.create(sink -> {
+            HedgedCall call = new HedgedCall(exchange, chain, delayNanos, budget, listener, sink);
+            sink.onCancel(call::cancel);
+            call.start();
+        });
+    }
+
+    private synchronized void start() {
+        primary = launch(false);
+        if (!finished) {
+            timer = Schedulers.parallel().schedule(this::onTimer, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void onTimer() {
+        if (finished || winner != null || primary.failed) {
+            return;
+        }
+        if (!budget.tryWithdraw()) {
+            listener.onBudgetExhausted();
+            return;
+        }
+        listener.onHedge();
+        hedge = launch(true);
+    }
+
+    private Attempt launch(boolean isHedge) {
+        Attempt attempt = new Attempt(isHedge);
+        attempt.subscription = chain.filter(attempt.exchange)
+                .then(Mono.defer(() -> completeWithoutBody(attempt)))
+                .contextWrite(sink.contextView())
+                .subscribe(null, e -> onError(attempt, e), () -> onSuccess(attempt));
+        return attempt;
+    }
+
+    /**
+     * 后续过滤器没有写响应体(例如只调用了 setComplete)时,以完成的先后决定胜负;
+     * 对冲请求例外: 本地拒绝也走这条路径,主请求还在进行时按失败处理,等待主请求的结果
+     */
+    private Mono<Void> completeWithoutBody(Attempt attempt) {
+        if (attempt.isHedge && primaryRunning()) {
+            return Mono.error(HEDGE_WITHOUT_BODY);
+        }
+        if (claim(attempt)) {
+            return exchange.getResponse().setComplete();
+        }
+        return winner == attempt ? Mono.empty() : Mono.error(LOST);
+    }
+
+    private synchronized boolean primaryRunning() {
+        return !finished && winner == null && !primary.failed;
+    }
+
+    /**
+     * @return attempt 抢到真实响应时返回 true,已经抢到过的也返回 false
+     */
+    private boolean claim(Attempt attempt) {
+        synchronized (this) {
+            if (finished || winner != null) {
+                return false;
+            }
+            winner = attempt;
+            cancelLoser(attempt);
+        }
+        listener.onResponse(System.nanoTime() - primary.start, attempt.isHedge);
+        ServerHttpResponse real = exchange.getResponse();
+        AttemptResponse response = attempt.response;
+        HttpStatusCode status = response.getStatusCode();
+        if (status != null) {
+            real.setStatusCode(status);
+        }
+        real.getHeaders().putAll(response.getHeaders());
+        response.getCookies().values().forEach(cookies -> cookies.forEach(real::addCookie));
+        exchange.getAttributes().putAll(attempt.exchange.getAttributes());
+        return true;
+    }
+
+    private void cancelLoser(Attempt attempt) {
+        if (timer != null) {
+            timer.dispose();
+        }
+        Attempt loser = attempt == primary ? hedge : primary;
+        if (loser != null && loser.subscription != null) {
+            loser.subscription.dispose();
+        }
+    }
+
+    private void onSuccess(Attempt attempt) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+        }
+        sink.success();
+    }
+
+    private void onError(Attempt attempt, Throwable error) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            attempt.failed = true;
+            if (error == LOST) {
+                return;
+            }
+            Attempt other = attempt == primary ? hedge : primary;
+            // 另一方仍在进行,等待它的结果
+            if (winner != attempt && other != null && !other.failed) {
+                return;
+            }
+            finished = true;
+            if (timer != null) {
+                timer.dispose();
+            }
+            propagateChosen(attempt);
+        }
+        sink.error(error);
+    }
+
+    /**
+     * 失败时属性不会像 claim 那样复制回原 exchange: 这里把失败一方的负载均衡结果复制回去,
+     * 并把两方选中的实例追加到 EXCLUDED_INSTANCES_ATTR,外层的重试据此避开这些实例
+     */
+    private void propagateChosen(Attempt failed) {
+        Map<String, Object> attributes = exchange.getAttributes();
+        List<Object> excluded = new ArrayList<>();
+        if (attributes.get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> previous) {
+            excluded.addAll(previous);
+        }
+        for (Attempt attempt : new Attempt[]{primary, hedge}) {
+            if (attempt != null && attempt.exchange.getAttributes().get(GATEWAY_LOADBALANCER_RESPONSE_ATTR)
+                    instanceof Response<?> chosen && chosen.hasServer() && !excluded.contains(chosen.getServer())) {
+                excluded.add(chosen.getServer());
+            }
+        }
+        if (!excluded.isEmpty()) {
+            attributes.put(EXCLUDED_INSTANCES_ATTR, excluded);
+        }
+        Object lbResponse = failed.exchange.getAttributes().get(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (lbResponse != null) {
+            attributes.put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, lbResponse);
+        }
+    }
+
+    /**
+     * 客户端断开
+     */
+    private synchronized void cancel() {
+        finished = true;
+        if (timer != null) {
+            timer.dispose();
+        }
+        for (Attempt attempt : new Attempt[]{primary, hedge}) {
+            if (attempt != null && attempt.subscription != null) {
+                attempt.subscription.dispose();
+            }
+        }
+    }
+
+    private final class Attempt {
+
+        private final boolean isHedge;
+
+        private final long start = System.nanoTime();
+
+        private final AttemptResponse response;
+
+        private final ServerWebExchange exchange;
+
+        private volatile Disposable subscription;
+
+        private boolean failed;
+
+        private Attempt(boolean isHedge) {
+            this.isHedge = isHedge;
+            ServerWebExchange original = HedgedCall.this.exchange;
+            this.response = new AttemptResponse(this, original.getResponse());
+            ServerWebExchange.Builder builder = original.mutate().response(response);
+            if (isHedge) {
+                // 请求体只能读取一次,对冲只用于没有请求体的请求
+                builder.request(new ServerHttpRequestDecorator(original.getRequest()) {
+                    @Override
+                    public Flux<DataBuffer> getBody() {
+                        return Flux.empty();
+                    }
+                });
+            }
+            this.exchange = new AttemptExchange(builder.build());
+            if (isHedge && primary != null) {
+                Object lbResponse = primary.exchange.getAttributes().get(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+                if (lbResponse instanceof Response<?> chosen && chosen.hasServer()) {
+                    // 保留外层(例如重试)已经排除的实例
+                    List<Object> excluded = new ArrayList<>();
+                    if (exchange.getAttributes().get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> previous) {
+                        excluded.addAll(previous);
+                    }
+                    excluded.add(chosen.getServer());
+                    exchange.getAttributes().put(EXCLUDED_INSTANCES_ATTR, excluded);
+                }
+            }
+        }
+    }
+
+    /**
+     * 每一方独立的响应,抢到真实响应后把写出转给真实响应
+     */
+    private final class AttemptResponse extends AbstractServerHttpResponse {
+
+        private final Attempt attempt;
+
+        private final ServerHttpResponse real;
+
+        private AttemptResponse(Attempt attempt, ServerHttpResponse real) {
+            super(real.bufferFactory());
+            this.attempt = attempt;
+            this.real = real;
+        }
+
+        @Override
+        protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+            return claim(attempt) ? real.writeWith(body) : Mono.error(LOST);
+        }
+
+        @Override
+        protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return claim(attempt) ? real.writeAndFlushWith(body) : Mono.error(LOST);
+        }
+
+        @Override
+        public <T> T getNativeResponse() {
+            return real.getNativeResponse();
+        }
+
+        @Override
+        protected void applyStatusCode() {
+        }
+
+        @Override
+        protected void applyHeaders() {
+        }
+
+        @Override
+        protected void applyCookies() {
+        }
+    }
+
+    /**
+     * 每一方使用独立的属性,路由过滤器写入的状态互不影响,胜出一方的属性在抢到响应时复制回原 exchange
+     */
+    private static final class AttemptExchange extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private AttemptExchange(ServerWebExchange delegate) {
+            super(delegate);
+            this.attributes = new ConcurrentHashMap<>();
+            // 原 exchange 的属性可能含 null 值(普通 Map),ConcurrentHashMap 不接受,复制时跳过
+            delegate.getAttributes().forEach((key, value) -> {
+                if (value != null) {
+                    attributes.put(key, value);
+                }
+            });
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+}
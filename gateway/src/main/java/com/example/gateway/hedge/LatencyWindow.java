@@ -0,0 +1,67 @@
+package com.example.gateway.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近若干次上游响应延迟的滑动窗口,用于计算对冲延迟
+ * 记录只写一个数组槽位;分位数每记录 RECOMPUTE_INTERVAL 次才重新排序计算一次,读取时直接返回缓存值.
+ */
+public final class LatencyWindow {
+
+    private static final int RECOMPUTE_INTERVAL = 128;
+
+    private final AtomicLongArray samples;
+
+    private final int mask;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final double percentile;
+
+    private final int minSamples;
+
+    private volatile long cached = -1;
+
+    /**
+     * @param size       窗口大小,向上取整为 2 的幂
+     * @param percentile 分位数,例如 95
+     * @param minSamples 样本数不足时 percentile() 返回 -1
+     */
+    public LatencyWindow(int size, double percentile, int minSamples) {
+        if (size <= 0 || size > 1 << 20 || percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("invalid window: size=" + size + ", percentile=" + percentile);
+        }
+        int capacity = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.samples = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.percentile = percentile;
+        this.minSamples = Math.min(minSamples, capacity);
+    }
+
+    public void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n & mask), nanos);
+        if (n + 1 >= minSamples && ((n + 1) % RECOMPUTE_INTERVAL == 0 || n + 1 == minSamples)) {
+            recompute(Math.min(n + 1, samples.length()));
+        }
+    }
+
+    private void recompute(long filled) {
+        long[] sorted = new long[(int) filled];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        cached = sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+
+    /**
+     * @return 样本不足时返回 -1
+     */
+    public long percentile() {
+        return cached;
+    }
+}
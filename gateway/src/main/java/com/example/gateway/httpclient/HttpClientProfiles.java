@@ -0,0 +1,138 @@
+package com.example.gateway.httpclient;
+
+import com.example.gateway.config.HttpClientProfileProperties.Profile;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.Http2AllocationStrategy;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 按路由区分的上游 HTTP 客户端
+ * 每个 profile 一个独立的连接池,外部路由的排队和慢握手不会占用内部服务的连接;
+ * 连接池开启 Micrometer 指标,reactor.netty.connection.provider.* 按 name=gateway-{profile} 区分,
+ * 包括活跃/空闲/等待中的连接数和获取连接的耗时(pending.connections.time).
+ */
+@Slf4j
+public class HttpClientProfiles {
+
+    private final Map<String, ProfileClient> profiles = new LinkedHashMap<>();
+
+    private final Map<String, HttpClient> routes = new HashMap<>();
+
+    /**
+     * @param profiles profile 名称到配置
+     * @param routes   路由 id 到 profile 名称
+     */
+    public HttpClientProfiles(Map<String, Profile> profiles, Map<String, String> routes) {
+        profiles.forEach((name, profile) -> this.profiles.put(name, new ProfileClient(name, profile)));
+        routes.forEach((routeId, name) -> {
+            ProfileClient client = this.profiles.get(name);
+            if (client == null) {
+                throw new IllegalArgumentException("route " + routeId + " refers to unknown http client profile "
+                        + name);
+            }
+            this.routes.put(routeId, client.client);
+        });
+    }
+
+    /**
+     * @return 路由没有配置 profile 时返回 null
+     */
+    public HttpClient forRoute(String routeId) {
+        return routes.get(routeId);
+    }
+
+    /**
+     * 按配置对预热地址建立连接,请求 HEAD / 后连接留在池中;预热失败只记录日志
+     *
+     * @param resolver 把 lb:// 地址展开为实例地址
+     */
+    public Mono<Void> warmUp(Function<URI, Flux<URI>> resolver) {
+        return Flux.fromIterable(profiles.values())
+                .filter(profile -> profile.warmupConnections > 0)
+                .flatMap(profile -> Flux.fromIterable(profile.warmupUris)
+                        .flatMap(uri -> "lb".equals(uri.getScheme()) ? resolver.apply(uri) : Flux.just(uri))
+                        .flatMap(uri -> profile.warmUp(uri)))
+                .then();
+    }
+
+    /**
+     * 容器关闭时关闭所有连接池
+     */
+    public void close() {
+        profiles.values().forEach(profile -> profile.provider.dispose());
+    }
+
+    private static final class ProfileClient {
+
+        private final String name;
+
+        private final ConnectionProvider provider;
+
+        private final HttpClient client;
+
+        private final int warmupConnections;
+
+        private final Iterable<URI> warmupUris;
+
+        private ProfileClient(String name, Profile profile) {
+            this.name = name;
+            boolean http2 = profile.getProtocols().contains(HttpProtocol.H2)
+                    || profile.getProtocols().contains(HttpProtocol.H2C);
+            ConnectionProvider.Builder builder = ConnectionProvider.builder("gateway-" + name)
+                    .maxConnections(profile.getMaxConnections())
+                    .pendingAcquireMaxCount(profile.getPendingAcquireMaxCount())
+                    .pendingAcquireTimeout(profile.getPendingAcquireTimeout())
+                    .maxIdleTime(profile.getMaxIdleTime())
+                    .maxLifeTime(profile.getMaxLifeTime())
+                    .evictInBackground(profile.getEvictionInterval())
+                    .metrics(true);
+            if (http2) {
+                // HTTP/2 一个连接承载多个流,按流数而不是连接数分配
+                builder.allocationStrategy(Http2AllocationStrategy.builder()
+                        .maxConnections(profile.getMaxConnections())
+                        .maxConcurrentStreams(profile.getMaxConcurrentStreams())
+                        .build());
+            }
+            this.provider = builder.build();
+            HttpClient client = HttpClient.create(provider)
+                    .protocol(profile.getProtocols().toArray(HttpProtocol[]::new))
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) profile.getConnectTimeout().toMillis());
+            if (profile.getProtocols().contains(HttpProtocol.H2)) {
+                // H2 通过 TLS ALPN 协商
+                client = client.secure();
+            }
+            this.client = client;
+            this.warmupConnections = profile.getWarmupConnections();
+            this.warmupUris = profile.getWarmupUris();
+        }
+
+        /**
+         * 并发发出 warmupConnections 个请求,迫使连接池建立同样多的连接(HTTP/2 时为一个连接上的多个流)
+         */
+        private Mono<Void> warmUp(URI uri) {
+            long start = System.nanoTime();
+            return Flux.range(0, warmupConnections)
+                    .flatMap(i -> client.head().uri(uri).response().then(), warmupConnections)
+                    .then()
+                    .timeout(Duration.ofSeconds(10))
+                    .doOnSuccess(ignored -> log.info("http client profile {} warmed up {} connections to {} in {} ms",
+                            name, warmupConnections, uri, Duration.ofNanos(System.nanoTime() - start).toMillis()))
+                    .onErrorResume(e -> {
+                        log.warn("http client profile {} failed to warm up {}: {}", name, uri, e.toString());
+                        return Mono.empty();
+                    });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.gateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个服务实例的负载统计
+ * 延迟使用 peak-EWMA:新样本比当前值大时直接取新样本(立即感知变慢),
+ * 比当前值小时按距上次更新的时间指数衰减(慢慢恢复),空闲时读取也会随时间衰减,
+ * 避免一次慢请求后该实例永远分不到流量.
+ * 负载 = EWMA 延迟 × (进行中请求数 + 1).
+ * 失败请求的延迟不能直接计入: 快速失败(连接被拒绝、立即返回 5xx)会拉低延迟,让故障实例分到更多流量,
+ * 所以失败时按当前延迟的 FAILURE_PENALTY 倍记录.
+ * 连续失败(5xx 或连接失败)达到阈值后摘除一段时间,摘除时长随连续摘除次数线性增长.
+ */
+public final class InstanceStats {
+
+    /**
+     * 失败请求按当前 EWMA 延迟的倍数记录,至少为实际耗时
+     */
+    static final double FAILURE_PENALTY = 2.0;
+
+    private final double decayNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile double ewmaNanos;
+
+    private volatile long stampNanos;
+
+    private volatile long ejectedUntilNanos;
+
+    private int ejections;
+
+    InstanceStats(long decayNanos, long initialRttNanos, long now) {
+        this.decayNanos = decayNanos;
+        this.ewmaNanos = initialRttNanos;
+        this.stampNanos = now;
+    }
+
+    void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束,记录延迟;失败时记录惩罚延迟
+     *
+     * @return 连续失败次数
+     */
+    int requestFinished(long rttNanos, boolean failure, long now) {
+        inFlight.decrementAndGet();
+        if (failure) {
+            penalize(rttNanos, now);
+        } else if (rttNanos >= 0) {
+            observe(rttNanos, now);
+        }
+        if (failure) {
+            return consecutiveFailures.incrementAndGet();
+        }
+        consecutiveFailures.set(0);
+        return 0;
+    }
+
+    /**
+     * 请求被取消(客户端断开或对冲失败的一方),只减少进行中请求数,不计入延迟和失败
+     */
+    void requestCancelled() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void observe(long rttNanos, long now) {
+        double w = weight(now);
+        ewmaNanos = rttNanos > ewmaNanos ? rttNanos : ewmaNanos * w + rttNanos * (1 - w);
+        stampNanos = now;
+    }
+
+    private synchronized void penalize(long rttNanos, long now) {
+        observe(Math.max(rttNanos, (long) (decayed(now) * FAILURE_PENALTY)), now);
+    }
+
+    private double weight(long now) {
+        return Math.exp(-Math.max(0, now - stampNanos) / decayNanos);
+    }
+
+    private double decayed(long now) {
+        return ewmaNanos * weight(now);
+    }
+
+    /**
+     * @return 当前负载,越小越优先
+     */
+    double cost(long now) {
+        return decayed(now) * (Math.max(0, inFlight.get()) + 1);
+    }
+
+    /**
+     * 摘除实例
+     *
+     * @return 本次摘除时长
+     */
+    synchronized long eject(long baseNanos, long maxNanos, long now) {
+        ejections++;
+        long duration = Math.min(maxNanos, baseNanos * ejections);
+        ejectedUntilNanos = now + duration;
+        consecutiveFailures.set(0);
+        return duration;
+    }
+
+    boolean isEjected(long now) {
+        return ejectedUntilNanos - now > 0;
+    }
+
+    /**
+     * 摘除到期后再次成功,重置摘除次数
+     */
+    synchronized void recovered(long now) {
+        if (ejections > 0 && !isEjected(now)) {
+            ejections = 0;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getEwmaMillis() {
+        return ewmaNanos / 1e6;
+    }
+}
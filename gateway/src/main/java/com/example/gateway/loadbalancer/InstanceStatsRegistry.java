@@ -0,0 +1,81 @@
+package com.example.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 所有服务实例的负载统计
+ * PeakEwmaLoadBalancer 读取,PeakEwmaLoadBalancerLifecycle 在请求开始和结束时更新.
+ * 实例按 serviceId + host + port 区分,Nacos 刷新实例列表后统计仍然延续.
+ */
+@Slf4j
+public class InstanceStatsRegistry {
+
+    private final ConcurrentMap<Key, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    private final long decayNanos;
+
+    private final long initialRttNanos;
+
+    private final int failureThreshold;
+
+    private final long baseEjectionNanos;
+
+    private final long maxEjectionNanos;
+
+    private final MeterRegistry meterRegistry;
+
+    public InstanceStatsRegistry(Duration decayTime, Duration initialRtt, int failureThreshold,
+                                 Duration baseEjectionTime, Duration maxEjectionTime, MeterRegistry meterRegistry) {
+        this.decayNanos = decayTime.toNanos();
+        this.initialRttNanos = initialRtt.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.baseEjectionNanos = baseEjectionTime.toNanos();
+        this.maxEjectionNanos = maxEjectionTime.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        return stats.computeIfAbsent(new Key(instance.getServiceId(), instance.getHost(), instance.getPort()),
+                key -> new InstanceStats(decayNanos, initialRttNanos, System.nanoTime()));
+    }
+
+    void onStart(ServiceInstance instance) {
+        get(instance).requestStarted();
+    }
+
+    /**
+     * @param rttNanos 请求耗时,未知时传 -1
+     * @param failure  5xx 或连接失败
+     */
+    void onComplete(ServiceInstance instance, long rttNanos, boolean failure) {
+        InstanceStats instanceStats = get(instance);
+        long now = System.nanoTime();
+        int failures = instanceStats.requestFinished(rttNanos, failure, now);
+        if (!failure) {
+            instanceStats.recovered(now);
+        } else if (failureThreshold > 0 && failures >= failureThreshold && !instanceStats.isEjected(now)) {
+            long duration = instanceStats.eject(baseEjectionNanos, maxEjectionNanos, now);
+            Counter.builder("gateway.lb.ejections").tag("service", String.valueOf(instance.getServiceId()))
+                    .register(meterRegistry).increment();
+            log.warn("instance {}:{} of {} ejected for {}ms after {} consecutive failures", instance.getHost(),
+                    instance.getPort(), instance.getServiceId(), duration / 1_000_000, failures);
+        }
+    }
+
+    /**
+     * 负载均衡生命周期不会在取消时回调 onComplete,由 LoadBalancerCancelGlobalFilter 调用
+     */
+    public void onCancel(ServiceInstance instance) {
+        get(instance).requestCancelled();
+    }
+
+    private record Key(String serviceId, String host, int port) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于 peak-EWMA 的两次随机选择(power of two choices)负载均衡
+ * 每次随机取两个未被摘除的实例,选择负载(EWMA 延迟 × (进行中请求数 + 1))较小的一个:
+ * 变慢的实例很快分不到流量,又不会像"全局最小"那样让所有请求同时涌向同一个实例.
+ * 所有实例都被摘除时忽略摘除状态,避免服务整体不可用.
+ * 对冲请求和重试请求通过 EXCLUDED_INSTANCES_ATTR 属性避开已经选过的实例.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    /**
+     * 请求属性,值为 Collection&lt;ServiceInstance&gt;,选择时避开其中的实例(按 host:port 比较),
+     * 避开后没有可选实例时忽略该属性
+     */
+    public static final String EXCLUDED_INSTANCES_ATTR = PeakEwmaLoadBalancer.class.getName() + ".excludedInstances";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+
+    private final String serviceId;
+
+    private final InstanceStatsRegistry stats;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId,
+                                InstanceStatsRegistry stats) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        Collection<?> excluded = excluded(request);
+        return supplier.get(request).next().map(instances -> choose(instances, excluded));
+    }
+
+    /**
+     * 要避开的实例,例如对冲时主请求选中的实例、重试时已经失败的实例
+     */
+    private static Collection<?> excluded(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            Map<String, Object> attributes = context.getClientRequest().getAttributes();
+            if (attributes != null && attributes.get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> instances) {
+                return instances;
+            }
+        }
+        return null;
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, Collection<?> excluded) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        long now = System.nanoTime();
+        List<ServiceInstance> candidates = available(instances, now);
+        if (excluded != null && !excluded.isEmpty() && candidates.size() > 1) {
+            candidates = without(candidates, excluded);
+        }
+        int n = candidates.size();
+        if (n == 1) {
+            return new DefaultResponse(candidates.getFirst());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(n);
+        int j = random.nextInt(n - 1);
+        if (j >= i) {
+            j++;
+        }
+        ServiceInstance a = candidates.get(i);
+        ServiceInstance b = candidates.get(j);
+        return new DefaultResponse(stats.get(a).cost(now) <= stats.get(b).cost(now) ? a : b);
+    }
+
+    /**
+     * 过滤掉被摘除的实例,没有实例被摘除时直接返回原列表,不复制
+     */
+    private List<ServiceInstance> available(List<ServiceInstance> instances, long now) {
+        List<ServiceInstance> available = null;
+        for (int k = 0; k < instances.size(); k++) {
+            ServiceInstance instance = instances.get(k);
+            if (stats.get(instance).isEjected(now)) {
+                if (available == null) {
+                    available = new ArrayList<>(instances.subList(0, k));
+                }
+            } else if (available != null) {
+                available.add(instance);
+            }
+        }
+        if (available == null) {
+            return instances;
+        }
+        return available.isEmpty() ? instances : available;
+    }
+
+    private static List<ServiceInstance> without(List<ServiceInstance> instances, Collection<?> excluded) {
+        List<ServiceInstance> remaining = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!contains(excluded, instance)) {
+                remaining.add(instance);
+            }
+        }
+        return remaining.isEmpty() ? instances : remaining;
+    }
+
+    private static boolean contains(Collection<?> excluded, ServiceInstance instance) {
+        for (Object element : excluded) {
+            if (element instanceof ServiceInstance other && instance.getPort() == other.getPort()
+                    && instance.getHost().equals(other.getHost())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.gateway.loadbalancer;
+
+import com.example.gateway.discovery.InstanceSnapshotCache;
+import com.example.gateway.discovery.SnapshotServiceInstanceListSupplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * 单个负载均衡客户端的配置,通过 @LoadBalancerClient(configuration = ...) 引用
+ * 不能加 @Configuration,否则会被组件扫描注册到主容器中,对所有服务生效
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> peakEwmaLoadBalancer(Environment environment,
+                                                                     LoadBalancerClientFactory factory,
+                                                                     InstanceStatsRegistry stats) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(factory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, stats);
+    }
+
+    /**
+     * 优先从主容器的本地快照读取实例;快照关闭时与默认配置相同,查询 DiscoveryClient 并缓存
+     */
+    @Bean
+    public ServiceInstanceListSupplier serviceInstanceListSupplier(Environment environment,
+                                                                   ObjectProvider<InstanceSnapshotCache> snapshotCache,
+                                                                   ConfigurableApplicationContext context) {
+        InstanceSnapshotCache cache = snapshotCache.getIfAvailable();
+        if (cache == null) {
+            return ServiceInstanceListSupplier.builder().withDiscoveryClient().withCaching().build(context);
+        }
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new SnapshotServiceInstanceListSupplier(serviceId, cache);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.gateway.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * /actuator/gatewaylatency: 按路由的延迟分布,/actuator/gatewaylatency/{routeId} 查看单个路由
+ * 延迟为最近一个统计区间的值,区间在读取时交换,为两次抓取之间且不短于 gateway.metrics.window,单位微秒;字节数为启动以来的累计.
+ */
+@Endpoint(id = "gatewaylatency")
+public class GatewayLatencyEndpoint {
+
+    private final GatewayMetrics metrics;
+
+    public GatewayLatencyEndpoint(GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public Map<String, RouteReport> routes() {
+        Map<String, RouteReport> reports = new TreeMap<>();
+        metrics.routes().forEach((routeId, route) -> reports.put(routeId, report(route)));
+        return reports;
+    }
+
+    @ReadOperation
+    public RouteReport route(@Selector String routeId) {
+        RouteMetrics route = metrics.routes().get(routeId);
+        return route != null ? report(route) : null;
+    }
+
+    private RouteReport report(RouteMetrics route) {
+        List<Double> percentiles = metrics.percentiles();
+        Map<String, LatencyHistogram.Summary> filters = new LinkedHashMap<>();
+        for (int i = 0; i < route.filterNames().size(); i++) {
+            filters.put(route.filterNames().get(i), route.filter(i).summary(percentiles));
+        }
+        return new RouteReport(route.inFlight(), route.requestBytes(), route.responseBytes(),
+                route.total().summary(percentiles),
+                route.upstream().summary(percentiles),
+                route.gateway().summary(percentiles),
+                filters);
+    }
+
+    /**
+     * @param filters 按执行顺序
+     */
+    public record RouteReport(long inFlight, long requestBytes, long responseBytes,
+                              LatencyHistogram.Summary total, LatencyHistogram.Summary upstream,
+                              LatencyHistogram.Summary gateway, Map<String, LatencyHistogram.Summary> filters) {
+    }
+}
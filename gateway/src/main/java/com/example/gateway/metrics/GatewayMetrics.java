@@ -0,0 +1,123 @@
+package com.example.gateway.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 网关按路由和过滤器的延迟、字节数和在途请求数
+ * 直方图在路由加载时按过滤器个数预先分配,请求路径上只做记录;同时注册到 Micrometer:
+ * gateway.route.latency{route,stage=total|upstream|gateway}、gateway.filter.latency{route,filter}
+ * 及对应的 .percentile{phi} 百分位,gateway.route.requests.active,gateway.route.request.bytes / response.bytes.
+ */
+public class GatewayMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final long highestTrackableNanos;
+
+    private final int significantDigits;
+
+    private final Duration window;
+
+    private final List<Double> percentiles;
+
+    private final int filterSamplePercent;
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    /**
+     * @param filterSamplePercent 记录各过滤器耗时的请求百分比,路由级别的指标总是记录
+     */
+    public GatewayMetrics(MeterRegistry meterRegistry, Duration highestTrackable, int significantDigits,
+                          Duration window, List<Double> percentiles, int filterSamplePercent) {
+        this.meterRegistry = meterRegistry;
+        this.highestTrackableNanos = highestTrackable.toNanos();
+        this.significantDigits = significantDigits;
+        this.window = window;
+        this.percentiles = List.copyOf(percentiles);
+        this.filterSamplePercent = filterSamplePercent;
+    }
+
+    /**
+     * 路由加载时调用;过滤器没有变化时复用已有的指标,否则替换并注销旧的指标
+     */
+    public RouteMetrics route(String routeId, List<String> filterNames) {
+        return routes.compute(routeId, (id, existing) -> {
+            if (existing != null && existing.filterNames().equals(filterNames)) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.meters.forEach(meterRegistry::remove);
+            }
+            return register(new RouteMetrics(id, filterNames, this::histogram));
+        });
+    }
+
+    /**
+     * 请求路径上调用;没有经过 TimedRouteLocator 的路由只有路由级别的指标
+     */
+    public RouteMetrics route(String routeId) {
+        RouteMetrics metrics = routes.get(routeId);
+        return metrics != null ? metrics : route(routeId, List.of());
+    }
+
+    public Map<String, RouteMetrics> routes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    public List<Double> percentiles() {
+        return percentiles;
+    }
+
+    public boolean sampleFilters() {
+        return filterSamplePercent >= 100
+                || filterSamplePercent > 0 && ThreadLocalRandom.current().nextInt(100) < filterSamplePercent;
+    }
+
+    private LatencyHistogram histogram() {
+        return new LatencyHistogram(highestTrackableNanos, significantDigits, window);
+    }
+
+    private RouteMetrics register(RouteMetrics metrics) {
+        Tags route = Tags.of("route", metrics.routeId());
+        latency(metrics, "gateway.route.latency", route.and("stage", "total"), metrics.total);
+        latency(metrics, "gateway.route.latency", route.and("stage", "upstream"), metrics.upstream);
+        latency(metrics, "gateway.route.latency", route.and("stage", "gateway"), metrics.gateway);
+        for (int i = 0; i < metrics.filters.length; i++) {
+            latency(metrics, "gateway.filter.latency", route.and("filter", metrics.filterNames().get(i)),
+                    metrics.filters[i]);
+        }
+        metrics.meters.add(Gauge.builder("gateway.route.requests.active", metrics.inFlight, LongAdder::sum)
+                .tags(route).description("在途请求数").register(meterRegistry));
+        metrics.meters.add(FunctionCounter.builder("gateway.route.request.bytes", metrics.requestBytes, LongAdder::sum)
+                .tags(route).baseUnit("bytes").description("请求体字节数").register(meterRegistry));
+        metrics.meters.add(FunctionCounter.builder("gateway.route.response.bytes", metrics.responseBytes, LongAdder::sum)
+                .tags(route).baseUnit("bytes").description("响应体字节数").register(meterRegistry));
+        return metrics;
+    }
+
+    private void latency(RouteMetrics metrics, String name, Tags tags, LatencyHistogram histogram) {
+        metrics.meters.add(FunctionTimer.builder(name, histogram, LatencyHistogram::count,
+                        LatencyHistogram::totalNanos, TimeUnit.NANOSECONDS)
+                .tags(tags).register(meterRegistry));
+        for (double percentile : percentiles) {
+            metrics.meters.add(Gauge.builder(name + ".percentile", histogram,
+                            h -> h.percentileNanos(percentile) / 1e9)
+                    .tags(tags).tag("phi", BigDecimal.valueOf(percentile).toPlainString())
+                    .baseUnit("seconds").register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.gateway.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预分配桶的延迟直方图(HdrHistogram),单位纳秒
+ * 写入端 Recorder 无锁、不分配内存,也不检查时间;只在读取时交换区间直方图,距上次交换不足 window 时不交换.
+ * 百分位取最近一次交换前的区间,即上上次到上次抓取之间(至少一个 window),抓取间隔大于 window 时区间随之变长;
+ * 计数和总耗时为启动以来的累计.抓取周期应与 window 一致,读数才是每个 window 的统计.
+ */
+public final class LatencyHistogram {
+
+    private final long highestTrackableNanos;
+
+    private final long windowNanos;
+
+    private final Recorder recorder;
+
+    private Histogram recent;
+
+    private Histogram spare;
+
+    private long rotatedAt = System.nanoTime();
+
+    private long count;
+
+    private double totalNanos;
+
+    /**
+     * @param highestTrackableNanos 超过的值按该值记录
+     * @param significantDigits     有效数字位数,2 位即 1% 精度
+     * @param window                百分位的统计区间
+     */
+    public LatencyHistogram(long highestTrackableNanos, int significantDigits, Duration window) {
+        this.highestTrackableNanos = highestTrackableNanos;
+        this.windowNanos = window.toNanos();
+        this.recorder = new Recorder(highestTrackableNanos, significantDigits);
+        this.recent = recorder.getIntervalHistogram();
+    }
+
+    public void record(long nanos) {
+        recorder.recordValue(Math.min(Math.max(nanos, 0), highestTrackableNanos));
+    }
+
+    private void rotate() {
+        long now = System.nanoTime();
+        if (now - rotatedAt < windowNanos) {
+            return;
+        }
+        rotatedAt = now;
+        Histogram interval = spare == null ? recorder.getIntervalHistogram() : recorder.getIntervalHistogram(spare);
+        count += interval.getTotalCount();
+        totalNanos += interval.getMean() * interval.getTotalCount();
+        spare = recent;
+        recent = interval;
+    }
+
+    public synchronized long count() {
+        rotate();
+        return count;
+    }
+
+    public synchronized double totalNanos() {
+        rotate();
+        return totalNanos;
+    }
+
+    /**
+     * @param percentile 0 到 1
+     */
+    public synchronized double percentileNanos(double percentile) {
+        rotate();
+        return recent.getValueAtPercentile(percentile * 100);
+    }
+
+    /**
+     * 最近一个区间的统计,单位微秒
+     */
+    public synchronized Summary summary(List<Double> percentiles) {
+        rotate();
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double percentile : percentiles) {
+            values.put("p" + BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString(),
+                    recent.getValueAtPercentile(percentile * 100) / 1e3);
+        }
+        return new Summary(recent.getTotalCount(), recent.getMean() / 1e3, recent.getMaxValue() / 1e3, values);
+    }
+
+    public record Summary(long count, double mean, double max, Map<String, Double> percentiles) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.gateway.metrics;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个请求的计时,放在 exchange 属性中
+ * nested[i] 累计第 i 个路由过滤器内层(下一个过滤器或上游调用)的耗时,过滤器自身耗时 = 总耗时 - 内层耗时;
+ * 最后一个槽位累计上游耗时.重试和对冲的各次尝试共享同一个对象,对冲并发的尝试会重复累计,自身耗时最小记为 0.
+ */
+public final class RequestTimings {
+
+    public static final String ATTR = RequestTimings.class.getName();
+
+    private final RouteMetrics route;
+
+    private final boolean sampleFilters;
+
+    final long start = System.nanoTime();
+
+    private final AtomicLongArray nested;
+
+    private final int upstreamSlot;
+
+    RequestTimings(RouteMetrics route, boolean sampleFilters) {
+        this.route = route;
+        this.sampleFilters = sampleFilters;
+        this.upstreamSlot = route.filters.length;
+        this.nested = new AtomicLongArray(upstreamSlot + 1);
+    }
+
+    RouteMetrics route() {
+        return route;
+    }
+
+    boolean sampleFilters() {
+        return sampleFilters;
+    }
+
+    long nested(int index) {
+        return nested.get(index);
+    }
+
+    void addNested(int index, long nanos) {
+        nested.addAndGet(index, nanos);
+    }
+
+    long upstreamNanos() {
+        return nested.get(upstreamSlot);
+    }
+
+    /**
+     * 路由转发过滤器在每次上游调用结束时调用
+     */
+    public void upstream(long nanos) {
+        route.upstream.record(nanos);
+        nested.addAndGet(upstreamSlot, nanos);
+        if (sampleFilters && upstreamSlot > 0) {
+            nested.addAndGet(upstreamSlot - 1, nanos);
+        }
+    }
+
+    /**
+     * 请求结束时调用
+     */
+    public void end(long requestBytes, long responseBytes) {
+        route.end(this, requestBytes, responseBytes);
+    }
+
+    public static RequestTimings of(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTR);
+    }
+}
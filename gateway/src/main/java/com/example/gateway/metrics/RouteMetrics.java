@@ -0,0 +1,112 @@
+package com.example.gateway.metrics;
+
+import io.micrometer.core.instrument.Meter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由的指标
+ * total 为网关收到请求到响应完成的时间,upstream 为每次上游调用到收到响应头的时间,gateway 为两者之差;
+ * filters 按过滤器执行顺序,记录每个路由过滤器自身的耗时(不含内层过滤器和上游).
+ */
+public final class RouteMetrics {
+
+    private final String routeId;
+
+    private final List<String> filterNames;
+
+    final LatencyHistogram total;
+
+    final LatencyHistogram upstream;
+
+    final LatencyHistogram gateway;
+
+    final LatencyHistogram[] filters;
+
+    final LongAdder inFlight = new LongAdder();
+
+    final LongAdder requestBytes = new LongAdder();
+
+    final LongAdder responseBytes = new LongAdder();
+
+    final List<Meter> meters = new ArrayList<>();
+
+    RouteMetrics(String routeId, List<String> filterNames, LatencyHistogramFactory histograms) {
+        this.routeId = routeId;
+        this.filterNames = List.copyOf(filterNames);
+        this.total = histograms.create();
+        this.upstream = histograms.create();
+        this.gateway = histograms.create();
+        this.filters = new LatencyHistogram[filterNames.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = histograms.create();
+        }
+    }
+
+    public String routeId() {
+        return routeId;
+    }
+
+    public List<String> filterNames() {
+        return filterNames;
+    }
+
+    public LatencyHistogram total() {
+        return total;
+    }
+
+    public LatencyHistogram upstream() {
+        return upstream;
+    }
+
+    public LatencyHistogram gateway() {
+        return gateway;
+    }
+
+    public LatencyHistogram filter(int index) {
+        return filters[index];
+    }
+
+    public long inFlight() {
+        return inFlight.sum();
+    }
+
+    public long requestBytes() {
+        return requestBytes.sum();
+    }
+
+    public long responseBytes() {
+        return responseBytes.sum();
+    }
+
+    /**
+     * 请求开始时调用,返回的计时放入 exchange 属性供路由过滤器和路由转发使用
+     *
+     * @param sampleFilters 是否记录各过滤器的耗时
+     */
+    public RequestTimings begin(boolean sampleFilters) {
+        inFlight.increment();
+        return new RequestTimings(this, sampleFilters);
+    }
+
+    void end(RequestTimings timings, long requestBytes, long responseBytes) {
+        long elapsed = System.nanoTime() - timings.start;
+        total.record(elapsed);
+        gateway.record(elapsed - timings.upstreamNanos());
+        if (requestBytes > 0) {
+            this.requestBytes.add(requestBytes);
+        }
+        if (responseBytes > 0) {
+            this.responseBytes.add(responseBytes);
+        }
+        inFlight.decrement();
+    }
+
+    @FunctionalInterface
+    interface LatencyHistogramFactory {
+
+        LatencyHistogram create();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 给路由过滤器加上计时的 RouteLocator 包装
+ * 路由加载(和刷新)时执行一次: 按执行顺序排好过滤器,预先分配每个过滤器的直方图,
+ * 用 TimedGatewayFilter 包装后保持原来的顺序值,请求路径上不再查找过滤器名称.
+ */
+public class TimedRouteLocator implements RouteLocator {
+
+    private static final String[] SUFFIXES = {"GatewayFilterFactory", "GatewayFilter", "Filter"};
+
+    private final RouteLocator delegate;
+
+    private final Supplier<GatewayMetrics> metrics;
+
+    public TimedRouteLocator(RouteLocator delegate, Supplier<GatewayMetrics> metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return delegate.getRoutes().map(this::instrument);
+    }
+
+    private Route instrument(Route route) {
+        // 与 FilteringWebHandler 相同的稳定排序,下标即执行顺序
+        List<GatewayFilter> filters = new ArrayList<>(route.getFilters());
+        AnnotationAwareOrderComparator.sort(filters);
+        List<String> names = names(filters);
+        RouteMetrics routeMetrics = metrics.get().route(route.getId(), names);
+        List<GatewayFilter> timed = new ArrayList<>(filters.size());
+        for (int i = 0; i < filters.size(); i++) {
+            GatewayFilter filter = filters.get(i);
+            int order = filter instanceof Ordered ordered ? ordered.getOrder() : Ordered.LOWEST_PRECEDENCE;
+            timed.add(new OrderedGatewayFilter(new TimedGatewayFilter(filter, routeMetrics, i), order));
+        }
+        return Route.async()
+                .id(route.getId())
+                .uri(route.getUri())
+                .order(route.getOrder())
+                .asyncPredicate(route.getPredicate())
+                .metadata(route.getMetadata())
+                .replaceFilters(timed)
+                .build();
+    }
+
+    /**
+     * 同一路由中重复的过滤器名称加上序号
+     */
+    private static List<String> names(List<GatewayFilter> filters) {
+        Map<String, Integer> seen = new HashMap<>();
+        List<String> names = new ArrayList<>(filters.size());
+        for (GatewayFilter filter : filters) {
+            String name = filterName(filter);
+            int n = seen.merge(name, 1, Integer::sum);
+            names.add(n == 1 ? name : name + "#" + n);
+        }
+        return names;
+    }
+
+    /**
+     * 过滤器工厂返回的匿名类和 lambda 取外部类名,去掉 GatewayFilterFactory 等后缀,例如 StripPrefix、RateLimit
+     */
+    static String filterName(GatewayFilter filter) {
+        Class<?> type = (filter instanceof OrderedGatewayFilter ordered ? ordered.getDelegate() : filter).getClass();
+        String name;
+        int end = type.getName().indexOf('$');
+        if ((type.isHidden() || type.isAnonymousClass() || type.isSynthetic()) && end > 0) {
+            name = type.getName().substring(type.getName().lastIndexOf('.', end) + 1, end);
+        } else {
+            name = type.getSimpleName();
+        }
+        for (String suffix : SUFFIXES) {
+            if (name.endsWith(suffix) && name.length() > suffix.length()) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return name;
+    }
+}
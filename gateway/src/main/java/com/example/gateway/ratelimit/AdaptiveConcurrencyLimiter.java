@@ -0,0 +1,119 @@
+package com.example.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限制(梯度算法 + 失败时乘性减少)
+ * 长期 RTT 是慢速 EWMA,近似无排队时的延迟;每个样本计算梯度 = tolerance × 长期RTT / 样本RTT,限制在 [0.5, 1]:
+ * 延迟没有升高时梯度为 1,限制按 sqrt(limit) 增长;排队导致延迟升高时梯度小于 1,限制按比例收缩.
+ * 上游返回 503/504 或连接失败时直接乘以 backoffRatio.
+ * 超过限制的请求立即拒绝,不排队,过载时由客户端或上层重试.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 长期 RTT 的 EWMA 窗口(样本数)
+     */
+    private static final int LONG_WINDOW = 600;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final double smoothing;
+
+    private final double backoffRatio;
+
+    private volatile int limit;
+
+    private double estimate;
+
+    private double longRttNanos;
+
+    /**
+     * @param tolerance    延迟升高到长期 RTT 的多少倍之前不收缩
+     * @param smoothing    每个样本对限制的调整比例
+     * @param backoffRatio 上游失败时限制乘以的比例
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      double smoothing, double backoffRatio) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("invalid limits: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.estimate = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) estimate;
+    }
+
+    /**
+     * @return 超过并发限制时返回 false,成功时必须在请求结束后调用 release
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos 请求耗时,取消等未知时传 -1
+     * @param dropped  上游过载(503/504)或连接失败
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        if (dropped) {
+            onDropped();
+        } else if (rttNanos > 0) {
+            onSample(rttNanos, current);
+        }
+    }
+
+    private synchronized void onDropped() {
+        update(estimate * backoffRatio);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtRelease) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+            // 负载下降后长期 RTT 追不上,加快衰减,否则梯度长期为 1 无法收缩
+            if (longRttNanos > rttNanos * 2) {
+                longRttNanos *= 0.95;
+            }
+        }
+        // 并发远低于限制时延迟不能说明限制是否合适,保持不变
+        if (inFlightAtRelease * 2 < estimate) {
+            return;
+        }
+        double gradient = Math.clamp(tolerance * longRttNanos / rttNanos, 0.5, 1.0);
+        double target = estimate * gradient + Math.sqrt(estimate);
+        update(estimate * (1 - smoothing) + target * smoothing);
+    }
+
+    private void update(double next) {
+        estimate = Math.clamp(next, minLimit, maxLimit);
+        limit = (int) estimate;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
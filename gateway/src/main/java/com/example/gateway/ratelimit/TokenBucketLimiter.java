@@ -0,0 +1,135 @@
+package com.example.gateway.ratelimit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按键区分的无锁令牌桶
+ * 每个桶只保存一个 long: 理论到达时间(GCRA,与令牌桶等价),获取令牌是一次 CAS,没有锁也没有定时补充线程.
+ * 桶里令牌满时等价于 tat <= now,此时桶可以被丢弃,因此键达到上限时清理已满的桶;
+ * 清理是一次全表扫描,每个 burst 时间内最多做一次(桶闲置一个 burst 时间后必然已满,更频繁的扫描清不出更多的桶).
+ * 清理后仍达到上限时新的键不再放进表里,共用一个溢出桶限流,表的大小不超过 maxKeys(并发插入时最多多出线程数个).
+ */
+public final class TokenBucketLimiter {
+
+    private static final VarHandle TAT;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    static {
+        try {
+            TAT = MethodHandles.lookup().findVarHandle(Bucket.class, "tat", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ConcurrentMap<Object, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * 生成一个令牌的时间
+     */
+    private final long intervalNanos;
+
+    /**
+     * 桶容量对应的时间,tat 最多领先当前时间这么多
+     */
+    private final long burstNanos;
+
+    private final int maxKeys;
+
+    private final AtomicBoolean cleaning = new AtomicBoolean();
+
+    /**
+     * 上次清理的时间,NEVER 表示还没有清理过
+     */
+    private volatile long lastSweep = NEVER;
+
+    /**
+     * 键达到上限后新键共用的桶
+     */
+    private final Bucket overflow;
+
+    /**
+     * @param replenishRate 每秒生成的令牌数
+     * @param burstCapacity 桶容量,即允许的突发请求数
+     * @param maxKeys       键数量上限,达到后清理已满的桶,清理后仍达到上限时新键共用一个桶
+     */
+    public TokenBucketLimiter(double replenishRate, int burstCapacity, int maxKeys) {
+        if (replenishRate <= 0 || burstCapacity <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("replenishRate, burstCapacity and maxKeys must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / replenishRate));
+        this.burstNanos = intervalNanos * burstCapacity;
+        this.maxKeys = maxKeys;
+        // tat 取远早于任何时间戳的值,溢出桶一开始是满的
+        this.overflow = new Bucket(Long.MIN_VALUE / 2);
+    }
+
+    /**
+     * 获取一个令牌
+     *
+     * @return 获取成功返回 0,否则返回距下一个令牌生成的纳秒数
+     */
+    public long tryAcquire(Object key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(key, now);
+        }
+        while (true) {
+            long tat = (long) TAT.getVolatile(bucket);
+            long next = Math.max(tat, now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (TAT.compareAndSet(bucket, tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private Bucket newBucket(Object key, long now) {
+        if (buckets.size() >= maxKeys) {
+            sweep(now);
+            if (buckets.size() >= maxKeys) {
+                Bucket bucket = buckets.get(key);
+                return bucket != null ? bucket : overflow;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+
+    /**
+     * 清理已满的桶,距上次清理不到一个 burst 时间时直接返回
+     */
+    private void sweep(long now) {
+        long last = lastSweep;
+        if ((last != NEVER && now - last < burstNanos) || !cleaning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastSweep = now;
+            buckets.values().removeIf(bucket -> (long) TAT.getVolatile(bucket) - now <= 0);
+        } finally {
+            cleaning.set(false);
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+
+        @SuppressWarnings("unused")
+        private volatile long tat;
+
+        private Bucket(long now) {
+            this.tat = now;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.gateway.retry;
+
+import com.example.gateway.hedge.HedgeBudget;
+import com.example.gateway.ratelimit.TokenBucketLimiter;
+
+/**
+ * 全局重试预算
+ * 每个请求按 percent% 存入令牌(与对冲预算相同),重试取出 1 个,长期来看重试数不超过请求数的 percent%,
+ * 故障时重试不会把上游的负载放大到 1 + percent% 以上;
+ * 另有每秒 minPerSecond 次的保底令牌桶,流量很小时比例预算攒不出令牌,也能重试偶发的失败.
+ */
+public final class RetryBudget {
+
+    private final HedgeBudget ratio;
+
+    private final TokenBucketLimiter reserve;
+
+    /**
+     * @param percent      重试占请求数的上限百分比
+     * @param minPerSecond 不受比例限制的每秒重试次数,0 表示没有保底
+     * @param maxBalance   比例预算最多积攒的重试次数
+     */
+    public RetryBudget(double percent, double minPerSecond, int maxBalance) {
+        this.ratio = new HedgeBudget(percent, maxBalance);
+        this.reserve = minPerSecond > 0
+                ? new TokenBucketLimiter(minPerSecond, Math.max(1, (int) minPerSecond), 1)
+                : null;
+    }
+
+    public void onRequest() {
+        ratio.onRequest();
+    }
+
+    /**
+     * @return 预算不足时返回 false
+     */
+    public boolean tryWithdraw() {
+        return ratio.tryWithdraw() || reserve != null && reserve.tryAcquire(this, System.nanoTime()) == 0;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.gateway.retry;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.gateway.loadbalancer.PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * 一次带重试的调用
+ * 每次尝试在独立的 exchange 上走完后续过滤器(负载均衡、路由),响应头先写在各自的 AttemptResponse 中;
+ * 上游返回可重试的状态码时丢弃这次响应(读完并释放响应体)再重试,否则把状态码、响应头和属性复制到真实响应后流式写出.
+ * 异常只在还没有写出任何响应时重试;本地过滤器直接 setComplete 的拒绝(例如并发限制的 503)不经过 writeWith,不会重试.
+ * 每次重试都避开之前尝试过的实例,重试前按策略退避.
+ */
+public final class RetryCall {
+
+    /**
+     * 上游返回可重试状态码时,写响应返回的错误,不会传给客户端
+     */
+    private static final RuntimeException RETRY = new IllegalStateException("retryable upstream status") {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
+    /**
+     * 重试事件回调,用于统计指标
+     */
+    public interface Listener {
+
+        /**
+         * @param retry 第几次重试,从 1 开始
+         */
+        void onRetry(int retry);
+
+        void onBudgetExhausted();
+    }
+
+    private final ServerWebExchange exchange;
+
+    private final GatewayFilterChain chain;
+
+    private final RetryPolicy policy;
+
+    private final RetryBudget budget;
+
+    private final Listener listener;
+
+    /**
+     * 已经尝试过的实例,尝试是串行的,不需要同步
+     */
+    private final List<Object> tried = new ArrayList<>();
+
+    private int retries;
+
+    private RetryCall(ServerWebExchange exchange, GatewayFilterChain chain, RetryPolicy policy, RetryBudget budget,
+                      Listener listener) {
+        this.exchange = exchange;
+        this.chain = chain;
+        this.policy = policy;
+        this.budget = budget;
+        this.listener = listener;
+    }
+
+    public static Mono<Void> execute(ServerWebExchange exchange, GatewayFilterChain chain, RetryPolicy policy,
+                                     RetryBudget budget, Listener listener) {
+        return Mono.defer(() -> new RetryCall(exchange, chain, policy, budget, listener).attempt());
+    }
+
+    private Mono<Void> attempt() {
+        Attempt attempt = new Attempt();
+        return chain.filter(attempt.exchange)
+                .then(Mono.defer(() -> completeWithoutBody(attempt)))
+                .onErrorResume(error -> onError(attempt, error));
+    }
+
+    /**
+     * 后续过滤器没有写响应体(例如只调用了 setComplete)时,直接使用这次的结果
+     */
+    private Mono<Void> completeWithoutBody(Attempt attempt) {
+        if (attempt.claimed) {
+            return Mono.empty();
+        }
+        claim(attempt);
+        return exchange.getResponse().setComplete();
+    }
+
+    private Mono<Void> onError(Attempt attempt, Throwable error) {
+        if (error != RETRY && (attempt.claimed || !policy.isRetryable(error) || !tryRetry())) {
+            return Mono.error(error);
+        }
+        Map<String, Object> attributes = attempt.exchange.getAttributes();
+        if (attributes.get(GATEWAY_LOADBALANCER_RESPONSE_ATTR) instanceof Response<?> chosen && chosen.hasServer()) {
+            addTried(chosen.getServer());
+        }
+        // 内层过滤器(例如对冲)选过的实例
+        if (attributes.get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> excluded) {
+            excluded.forEach(this::addTried);
+        }
+        retries++;
+        listener.onRetry(retries);
+        return Mono.delay(Duration.ofNanos(policy.backoffNanos(retries))).then(Mono.defer(this::attempt));
+    }
+
+    private void addTried(Object instance) {
+        if (!tried.contains(instance)) {
+            tried.add(instance);
+        }
+    }
+
+    /**
+     * 次数和预算都允许时取出一次重试
+     */
+    private boolean tryRetry() {
+        if (!policy.canRetry(retries)) {
+            return false;
+        }
+        if (!budget.tryWithdraw()) {
+            listener.onBudgetExhausted();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 写响应前决定这次尝试是否作为最终结果
+     */
+    private boolean shouldRetry(Attempt attempt) {
+        return policy.isRetryable(attempt.response.getStatusCode()) && tryRetry();
+    }
+
+    private void claim(Attempt attempt) {
+        attempt.claimed = true;
+        ServerHttpResponse real = exchange.getResponse();
+        AttemptResponse response = attempt.response;
+        HttpStatusCode status = response.getStatusCode();
+        if (status != null) {
+            real.setStatusCode(status);
+        }
+        real.getHeaders().putAll(response.getHeaders());
+        response.getCookies().values().forEach(cookies -> cookies.forEach(real::addCookie));
+        exchange.getAttributes().putAll(attempt.exchange.getAttributes());
+    }
+
+    private final class Attempt {
+
+        private final AttemptResponse response;
+
+        private final ServerWebExchange exchange;
+
+        private boolean claimed;
+
+        private Attempt() {
+            ServerWebExchange original = RetryCall.this.exchange;
+            this.response = new AttemptResponse(this, original.getResponse());
+            this.exchange = new AttemptExchange(original.mutate().response(response).build());
+            if (!tried.isEmpty()) {
+                exchange.getAttributes().put(EXCLUDED_INSTANCES_ATTR, List.copyOf(tried));
+            }
+        }
+    }
+
+    /**
+     * 每次尝试独立的响应,决定不再重试后把写出转给真实响应
+     */
+    private final class AttemptResponse extends AbstractServerHttpResponse {
+
+        private final Attempt attempt;
+
+        private final ServerHttpResponse real;
+
+        private AttemptResponse(Attempt attempt, ServerHttpResponse real) {
+            super(real.bufferFactory());
+            this.attempt = attempt;
+            this.real = real;
+        }
+
+        @Override
+        protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+            if (shouldRetry(attempt)) {
+                return discard(Flux.from(body));
+            }
+            claim(attempt);
+            return real.writeWith(body);
+        }
+
+        @Override
+        protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (shouldRetry(attempt)) {
+                return discard(Flux.from(body).concatMap(Flux::from));
+            }
+            claim(attempt);
+            return real.writeAndFlushWith(body);
+        }
+
+        /**
+         * 读完并释放要丢弃的响应体(通常很小),上游连接可以回到连接池
+         */
+        private Mono<Void> discard(Flux<? extends DataBuffer> body) {
+            return body.doOnNext(DataBufferUtils::release).then(Mono.error(RETRY));
+        }
+
+        @Override
+        public <T> T getNativeResponse() {
+            return real.getNativeResponse();
+        }
+
+        @Override
+        protected void applyStatusCode() {
+        }
+
+        @Override
+        protected void applyHeaders() {
+        }
+
+        @Override
+        protected void applyCookies() {
+        }
+    }
+
+    /**
+     * 每次尝试使用独立的属性,路由过滤器写入的状态(已路由标记、实际请求地址等)不会影响下一次尝试
+     */
+    private static final class AttemptExchange extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private AttemptExchange(ServerWebExchange delegate) {
+            super(delegate);
+            this.attributes = new ConcurrentHashMap<>();
+            // 原 exchange 的属性可能含 null 值(普通 Map),ConcurrentHashMap 不接受,复制时跳过
+            delegate.getAttributes().forEach((key, value) -> {
+                if (value != null) {
+                    attributes.put(key, value);
+                }
+            });
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+}
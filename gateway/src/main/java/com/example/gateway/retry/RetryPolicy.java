@@ -0,0 +1,78 @@
+package com.example.gateway.retry;
+
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单个路由的重试策略: 可重试的失败类型、次数和退避
+ * 退避为带完全抖动的指数退避,第 n 次重试等待 [0, min(maxBackoff, firstBackoff × 2^(n-1))) 内的随机时间,
+ * 同时失败的大量请求不会在同一时刻一起重试.
+ */
+public final class RetryPolicy {
+
+    private final int maxRetries;
+
+    private final Set<Integer> statuses;
+
+    private final List<Class<? extends Throwable>> exceptions;
+
+    private final long firstBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    /**
+     * @param maxRetries   最多重试次数,不含第一次请求
+     * @param statuses     可重试的上游状态码
+     * @param exceptions   可重试的异常类型,按 cause 链匹配
+     * @param firstBackoff 第一次重试的退避上限
+     * @param maxBackoff   退避上限
+     */
+    public RetryPolicy(int maxRetries, Set<Integer> statuses, List<Class<? extends Throwable>> exceptions,
+                       Duration firstBackoff, Duration maxBackoff) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+        this.statuses = Set.copyOf(statuses);
+        this.exceptions = List.copyOf(exceptions);
+        this.firstBackoffNanos = firstBackoff.toNanos();
+        this.maxBackoffNanos = Math.max(firstBackoffNanos, maxBackoff.toNanos());
+    }
+
+    /**
+     * @param retries 已经重试的次数
+     */
+    public boolean canRetry(int retries) {
+        return retries < maxRetries;
+    }
+
+    public boolean isRetryable(HttpStatusCode status) {
+        return status != null && statuses.contains(status.value());
+    }
+
+    public boolean isRetryable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            for (Class<? extends Throwable> type : exceptions) {
+                if (type.isInstance(t)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param retry 第几次重试,从 1 开始
+     */
+    public long backoffNanos(int retry) {
+        long ceiling = firstBackoffNanos << Math.min(retry - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoffNanos) {
+            ceiling = maxBackoffNanos;
+        }
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.gateway.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 使用 RouteIndex 查找路由的 RoutePredicateHandlerMapping
+ * CachingRouteLocator 每次刷新路由(启动、Nacos 配置变化、actuator 刷新)后发布 RefreshRoutesResultEvent,
+ * 这里重新读取路由和路由定义,在上一版索引的基础上增量更新;第一次刷新完成之前使用父类的线性查找.
+ * Path 模式从路由定义(配置文件和 Nacos 中的 routes)中读取,Java DSL 定义的路由没有定义,总是作为候选.
+ */
+@Slf4j
+public class IndexedRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+        implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private static final String PATH_PREDICATE = "Path";
+
+    private final RouteLocator routeLocator;
+
+    private final RouteDefinitionLocator routeDefinitionLocator;
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private long applied;
+
+    private volatile RouteIndex index;
+
+    public IndexedRoutePredicateHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator,
+                                               RouteDefinitionLocator routeDefinitionLocator,
+                                               GlobalCorsProperties globalCorsProperties, Environment environment) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+        this.routeDefinitionLocator = routeDefinitionLocator;
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        RouteIndex current = index;
+        if (current == null) {
+            return super.lookupRoute(exchange);
+        }
+        return current.lookup(exchange).map(route -> {
+            validateRoute(route, exchange);
+            return route;
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (!event.isSuccess()) {
+            return;
+        }
+        long refresh = refreshes.incrementAndGet();
+        Mono.zip(routeLocator.getRoutes().collectList(),
+                        routeDefinitionLocator.getRouteDefinitions().collectList().map(
+                                IndexedRoutePredicateHandlerMapping::pathPatterns))
+                .subscribe(result -> apply(refresh, result.getT1(), result.getT2()),
+                        e -> log.warn("route index refresh failed, keeping previous index", e));
+    }
+
+    /**
+     * 刷新可能并发完成,只应用比当前更新的一次
+     */
+    private synchronized void apply(long refresh, List<Route> routes, Map<String, List<String>> pathPatterns) {
+        if (refresh < applied) {
+            return;
+        }
+        long start = System.nanoTime();
+        RouteIndex current = index;
+        index = current == null ? RouteIndex.build(routes, pathPatterns) : current.refresh(routes, pathPatterns);
+        applied = refresh;
+        log.info("route index refreshed, routes={}, pathRoutes={}, took {}us", routes.size(), pathPatterns.size(),
+                (System.nanoTime() - start) / 1_000);
+    }
+
+    /**
+     * 路由 id -> 第一个 Path 谓词的模式;定义中的谓词之间是"与"的关系,任意一个 Path 谓词都是必要条件.
+     * 只识别 Path=/a/**,/b/** 的简写形式和 patterns/pattern 参数,含其他参数的 Path 谓词不建索引
+     */
+    static Map<String, List<String>> pathPatterns(List<RouteDefinition> definitions) {
+        Map<String, List<String>> patterns = new HashMap<>();
+        for (RouteDefinition definition : definitions) {
+            for (PredicateDefinition predicate : definition.getPredicates()) {
+                if (!PATH_PREDICATE.equalsIgnoreCase(predicate.getName())) {
+                    continue;
+                }
+                List<String> values = patterns(predicate.getArgs());
+                if (values != null) {
+                    patterns.putIfAbsent(definition.getId(), values);
+                    break;
+                }
+            }
+        }
+        return patterns;
+    }
+
+    private static List<String> patterns(Map<String, String> args) {
+        List<String> values = new ArrayList<>();
+        for (Map.Entry<String, String> arg : args.entrySet()) {
+            String key = arg.getKey();
+            if (key.startsWith("_genkey_") || key.startsWith("patterns") || key.equals("pattern")) {
+                for (String value : arg.getValue().split(",")) {
+                    if (!value.isBlank()) {
+                        values.add(value.trim());
+                    }
+                }
+            } else if (!key.equals("matchTrailingSlash")) {
+                return null;
+            }
+        }
+        return values.isEmpty() ? null : values;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.gateway.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按路径段组织的 Path 模式前缀树,节点发布后不再修改
+ * 字面量段按名称查找子节点,含 *、?、{var} 的段走通配子节点,** 和 {*var} 记在节点上表示匹配剩余所有段.
+ * 查找只沿请求路径走一遍,得到的是可能匹配的路由 id 的超集,最终仍由路由自己的谓词判断.
+ * 修改时复制被改动路径上的节点,其余子树与旧版本共享,读取中的请求不受影响.
+ */
+final class PathTrie {
+
+    static final String WILDCARD = "*";
+
+    static final String REST = "**";
+
+    static final PathTrie EMPTY = new PathTrie(new Node());
+
+    private final Node root;
+
+    private PathTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 把 Path 模式转换为前缀树中的段,无法安全建索引的模式返回 null:
+     * 不以 / 开头、含占位符或表达式、含空段、大括号不成对、** 不在末尾
+     */
+    static List<String> compile(String pattern) {
+        if (pattern == null || !pattern.startsWith("/") || pattern.contains("${") || pattern.contains("#{")) {
+            return null;
+        }
+        String[] parts = pattern.substring(1).split("/", -1);
+        int length = parts.length;
+        // 与 matchTrailingSlash 一致,末尾的 / 不区分
+        if (parts[length - 1].isEmpty()) {
+            length--;
+        }
+        List<String> segments = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            String part = parts[i];
+            if (part.equals(REST) || part.startsWith("{*")) {
+                if (i != length - 1) {
+                    return null;
+                }
+                segments.add(REST);
+            } else if (part.isEmpty() || !balanced(part)) {
+                return null;
+            } else if (part.indexOf('*') >= 0 || part.indexOf('?') >= 0 || part.indexOf('{') >= 0) {
+                segments.add(WILDCARD);
+            } else {
+                segments.add(part);
+            }
+        }
+        return segments;
+    }
+
+    private static boolean balanced(String part) {
+        int depth = 0;
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * 收集可能匹配 path 的路由 id,path 以 / 开头且不含编码字符
+     */
+    void collect(String path, Collection<String> out) {
+        collect(root, path, 1, out);
+    }
+
+    private static void collect(Node node, String path, int start, Collection<String> out) {
+        while (true) {
+            if (node.rest != null) {
+                out.addAll(node.rest);
+            }
+            int length = path.length();
+            if (start >= length) {
+                if (node.terminal != null) {
+                    out.addAll(node.terminal);
+                }
+                // 请求以 / 结尾时,单段通配也可能匹配最后的空段
+                if (start == length && path.charAt(length - 1) == '/' && node.wildcard != null) {
+                    Node wildcard = node.wildcard;
+                    if (wildcard.rest != null) {
+                        out.addAll(wildcard.rest);
+                    }
+                    if (wildcard.terminal != null) {
+                        out.addAll(wildcard.terminal);
+                    }
+                }
+                return;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            Node literal = node.literals == null ? null : node.literals.get(path.substring(start, end));
+            if (node.wildcard != null) {
+                if (literal == null) {
+                    node = node.wildcard;
+                    start = end + 1;
+                    continue;
+                }
+                collect(node.wildcard, path, end + 1, out);
+            }
+            if (literal == null) {
+                return;
+            }
+            node = literal;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * 批量修改,返回新版本;当前版本保持不变
+     */
+    PathTrie edit(Map<String, List<List<String>>> removed, Map<String, List<List<String>>> added) {
+        Editor editor = new Editor(root);
+        removed.forEach((id, patterns) -> patterns.forEach(segments -> editor.remove(id, segments)));
+        added.forEach((id, patterns) -> patterns.forEach(segments -> editor.insert(id, segments)));
+        return new PathTrie(editor.root);
+    }
+
+    /**
+     * 从空树重新构建,所有节点都是新建的,不需要复制
+     */
+    static PathTrie build(Map<String, List<List<String>>> routes) {
+        return EMPTY.edit(Map.of(), routes);
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> literals;
+
+        private Node wildcard;
+
+        private Set<String> terminal;
+
+        private Set<String> rest;
+
+        Node copy() {
+            Node copy = new Node();
+            copy.literals = literals == null ? null : new HashMap<>(literals);
+            copy.wildcard = wildcard;
+            copy.terminal = terminal == null ? null : new HashSet<>(terminal);
+            copy.rest = rest == null ? null : new HashSet<>(rest);
+            return copy;
+        }
+
+        boolean isEmpty() {
+            return (literals == null || literals.isEmpty()) && wildcard == null
+                    && (terminal == null || terminal.isEmpty()) && (rest == null || rest.isEmpty());
+        }
+    }
+
+    /**
+     * 一次修改中每个旧节点最多复制一次,新建和复制出的节点可以直接修改
+     */
+    private static final class Editor {
+
+        private final Set<Node> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final Node root;
+
+        Editor(Node root) {
+            this.root = own(root);
+        }
+
+        private Node own(Node node) {
+            if (owned.contains(node)) {
+                return node;
+            }
+            Node copy = node == null ? new Node() : node.copy();
+            owned.add(copy);
+            return copy;
+        }
+
+        void insert(String id, List<String> segments) {
+            Node node = root;
+            for (String segment : segments) {
+                if (segment.equals(REST)) {
+                    if (node.rest == null) {
+                        node.rest = new HashSet<>();
+                    }
+                    node.rest.add(id);
+                    return;
+                }
+                if (segment.equals(WILDCARD)) {
+                    node.wildcard = own(node.wildcard);
+                    node = node.wildcard;
+                } else {
+                    if (node.literals == null) {
+                        node.literals = new HashMap<>();
+                    }
+                    Node child = own(node.literals.get(segment));
+                    node.literals.put(segment, child);
+                    node = child;
+                }
+            }
+            if (node.terminal == null) {
+                node.terminal = new HashSet<>();
+            }
+            node.terminal.add(id);
+        }
+
+        void remove(String id, List<String> segments) {
+            List<Node> path = new ArrayList<>(segments.size() + 1);
+            Node node = root;
+            path.add(node);
+            for (String segment : segments) {
+                if (segment.equals(REST)) {
+                    if (node.rest != null) {
+                        node.rest.remove(id);
+                    }
+                    prune(path, segments);
+                    return;
+                }
+                Node child = segment.equals(WILDCARD) ? node.wildcard
+                        : node.literals == null ? null : node.literals.get(segment);
+                if (child == null) {
+                    return;
+                }
+                child = own(child);
+                if (segment.equals(WILDCARD)) {
+                    node.wildcard = child;
+                } else {
+                    node.literals.put(segment, child);
+                }
+                node = child;
+                path.add(node);
+            }
+            if (node.terminal != null) {
+                node.terminal.remove(id);
+            }
+            prune(path, segments);
+        }
+
+        /**
+         * 自下而上删除已经没有路由的节点
+         */
+        private static void prune(List<Node> path, List<String> segments) {
+            for (int i = path.size() - 1; i > 0; i--) {
+                if (!path.get(i).isEmpty()) {
+                    return;
+                }
+                Node parent = path.get(i - 1);
+                String segment = segments.get(i - 1);
+                if (segment.equals(WILDCARD)) {
+                    parent.wildcard = null;
+                } else {
+                    parent.literals.remove(segment);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.gateway.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * 路由匹配索引,替代 RoutePredicateHandlerMapping 逐个路由执行谓词的线性查找
+ * 有 Path 模式的路由放进 PathTrie,请求路径沿前缀树走一遍得到候选路由,
+ * 没有 Path 模式(或模式无法建索引)的路由总是候选;候选按原来的路由顺序执行完整的谓词,第一个匹配的路由胜出,
+ * 所以匹配结果与线性查找相同,只是跳过了路径不可能匹配的路由.
+ * 实例不可变,路由刷新时用 refresh 得到新版本: 只有 Path 模式变化的路由在前缀树中删除和重新插入.
+ */
+@Slf4j
+public final class RouteIndex {
+
+    /**
+     * 一次刷新中变化的路由超过这个比例时从空树重新构建,不再逐个复制节点
+     */
+    private static final int REBUILD_RATIO = 4;
+
+    private static final RouteIndex EMPTY = new RouteIndex(List.of(), Map.of(), Map.of(), new int[0], PathTrie.EMPTY);
+
+    private final List<Route> routes;
+
+    /**
+     * 路由 id -> 在 routes 中的下标,只包含建了索引的路由
+     */
+    private final Map<String, Integer> positions;
+
+    /**
+     * 路由 id -> 原始的 Path 模式和转换后的段,刷新时据此判断模式是否变化
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * 总是候选的路由下标,升序
+     */
+    private final int[] unindexed;
+
+    private final PathTrie trie;
+
+    private RouteIndex(List<Route> routes, Map<String, Integer> positions, Map<String, Entry> entries,
+                       int[] unindexed, PathTrie trie) {
+        this.routes = routes;
+        this.positions = positions;
+        this.entries = entries;
+        this.unindexed = unindexed;
+        this.trie = trie;
+    }
+
+    /**
+     * @param routes       按匹配顺序排列的路由,即 CachingRouteLocator.getRoutes() 的结果
+     * @param pathPatterns 路由 id -> 该路由必须满足的 Path 模式(任意一个匹配即可),没有的路由总是候选
+     */
+    public static RouteIndex build(List<Route> routes, Map<String, List<String>> pathPatterns) {
+        return EMPTY.refresh(routes, pathPatterns);
+    }
+
+    /**
+     * 基于当前版本构建新的索引,当前版本保持可用
+     */
+    public RouteIndex refresh(List<Route> routes, Map<String, List<String>> pathPatterns) {
+        List<Route> ordered = List.copyOf(routes);
+        Set<String> duplicated = duplicatedIds(ordered);
+        Map<String, Integer> nextPositions = new HashMap<>();
+        Map<String, Entry> nextEntries = new HashMap<>();
+        int[] nextUnindexed = new int[ordered.size()];
+        int unindexedCount = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            String id = ordered.get(i).getId();
+            // 同一个 id 的多个路由无法区分各自的模式,全部不建索引
+            Entry entry = duplicated.contains(id) ? null : entry(id, pathPatterns.get(id));
+            if (entry == null) {
+                nextUnindexed[unindexedCount++] = i;
+            } else {
+                nextPositions.put(id, i);
+                nextEntries.put(id, entry);
+            }
+        }
+
+        Map<String, List<List<String>>> removed = new HashMap<>();
+        Map<String, List<List<String>>> added = new HashMap<>();
+        entries.forEach((id, entry) -> {
+            if (!entry.equals(nextEntries.get(id))) {
+                removed.put(id, entry.segments());
+            }
+        });
+        nextEntries.forEach((id, entry) -> {
+            if (!entry.equals(entries.get(id))) {
+                added.put(id, entry.segments());
+            }
+        });
+
+        PathTrie nextTrie;
+        int changed = removed.size() + added.size();
+        if (changed == 0) {
+            nextTrie = trie;
+        } else if (changed * REBUILD_RATIO > nextEntries.size() + entries.size()) {
+            Map<String, List<List<String>>> all = new HashMap<>();
+            nextEntries.forEach((id, entry) -> all.put(id, entry.segments()));
+            nextTrie = PathTrie.build(all);
+        } else {
+            nextTrie = trie.edit(removed, added);
+        }
+        log.debug("route index refreshed, routes={}, indexed={}, removed={}, added={}", ordered.size(),
+                nextEntries.size(), removed.size(), added.size());
+        return new RouteIndex(ordered, nextPositions, nextEntries, Arrays.copyOf(nextUnindexed, unindexedCount),
+                nextTrie);
+    }
+
+    private Entry entry(String id, List<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return null;
+        }
+        Entry previous = entries.get(id);
+        if (previous != null && previous.patterns().equals(patterns)) {
+            return previous;
+        }
+        List<List<String>> segments = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            List<String> compiled = PathTrie.compile(pattern);
+            if (compiled == null) {
+                return null;
+            }
+            segments.add(compiled);
+        }
+        return new Entry(List.copyOf(patterns), segments);
+    }
+
+    private static Set<String> duplicatedIds(List<Route> routes) {
+        Set<String> seen = new HashSet<>();
+        Set<String> duplicated = new HashSet<>();
+        for (Route route : routes) {
+            if (!seen.add(route.getId())) {
+                duplicated.add(route.getId());
+            }
+        }
+        return duplicated;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * 可能匹配 path 的路由,按路由顺序排列
+     * 含 %、; 或连续 / 的路径与 PathPattern 的解析规则不一定一致,返回全部路由
+     */
+    public List<Route> candidates(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/' || path.indexOf('%') >= 0 || path.indexOf(';') >= 0
+                || path.contains("//")) {
+            return routes;
+        }
+        List<String> ids = new ArrayList<>();
+        trie.collect(path, ids);
+        if (ids.isEmpty() && unindexed.length == 0) {
+            return List.of();
+        }
+        int[] matched = new int[ids.size() + unindexed.length];
+        int count = 0;
+        for (String id : ids) {
+            Integer position = positions.get(id);
+            if (position != null) {
+                matched[count++] = position;
+            }
+        }
+        System.arraycopy(unindexed, 0, matched, count, unindexed.length);
+        count += unindexed.length;
+        Arrays.sort(matched, 0, count);
+        List<Route> candidates = new ArrayList<>(count);
+        int last = -1;
+        for (int i = 0; i < count; i++) {
+            // 同一路由的多个模式可能都命中
+            if (matched[i] != last) {
+                candidates.add(routes.get(matched[i]));
+                last = matched[i];
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 与 RoutePredicateHandlerMapping.lookupRoute 相同: 按顺序执行候选路由的谓词,谓词出错的路由视为不匹配
+     */
+    public Mono<Route> lookup(ServerWebExchange exchange) {
+        List<Route> candidates = candidates(exchange.getRequest().getPath().pathWithinApplication().value());
+        return Flux.fromIterable(candidates)
+                .concatMap(route -> Mono.just(route).filterWhen(r -> {
+                            exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
+                            return r.getPredicate().apply(exchange);
+                        })
+                        .doOnError(e -> log.error("Error applying predicate for route: {}", route.getId(), e))
+                        .onErrorResume(e -> Mono.empty()))
+                .next();
+    }
+
+    private record Entry(List<String> patterns, List<List<String>> segments) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry other && patterns.equals(other.patterns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patterns);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.gateway.transform;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流式改写 JSON
+ * 使用 Jackson 的非阻塞解析器逐个 DataBuffer 解析,每个 token 立即写入生成器,
+ * 每处理完一个输入缓冲区就把生成的内容作为一个输出缓冲区发出并释放输入缓冲区,
+ * 内存占用与单个缓冲区和单个字符串值的大小有关,与整个报文大小无关,几百 MB 的报文也不会整体进入内存.
+ * 支持按字段名脱敏(任意层级,替换为掩码或整体删除)和向根对象追加字段;根对象中与追加字段同名的原字段被删除.
+ * 报文格式错误时以 JsonProcessingException 结束.
+ */
+public final class StreamingJsonTransformer {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+
+    private final Set<String> redact;
+
+    private final String mask;
+
+    private final Map<String, String> add;
+
+    /**
+     * @param redact 需要脱敏的字段名
+     * @param mask   脱敏字段的替换值,为 null 时删除整个字段
+     * @param add    追加到根对象的字段
+     */
+    public StreamingJsonTransformer(Set<String> redact, String mask, Map<String, String> add) {
+        this.redact = Set.copyOf(redact);
+        this.mask = mask;
+        this.add = new LinkedHashMap<>(add);
+    }
+
+    /**
+     * 输入缓冲区在处理后(包括出错和取消时)释放,输出缓冲区由下游负责释放
+     */
+    public Flux<DataBuffer> transform(Publisher<? extends DataBuffer> input, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            Session session = new Session(bufferFactory);
+            return feed(input, session)
+                    .concatWith(Mono.fromCallable(session::finish))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> session.close());
+        });
+    }
+
+    /**
+     * 同 transform,用于 writeAndFlushWith 写出的分组报文(例如 NDJSON)
+     * 每个输入分组改写后作为一个输出分组,保留原来的刷新边界;所有分组共用一次解析,跨分组的值也能正确改写.
+     * 外层在最后一个分组发出后就结束,所以正常结束时由最后一个分组关闭解析状态,外层出错或取消时立即关闭.
+     */
+    public Flux<Flux<DataBuffer>> transformGroups(Publisher<? extends Publisher<? extends DataBuffer>> input,
+                                                  DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            Session session = new Session(bufferFactory);
+            Flux<DataBuffer> last = Mono.fromCallable(session::finish).flux()
+                    .doFinally(signal -> session.close());
+            return Flux.from(input)
+                    .map(group -> feed(group, session))
+                    .concatWith(Mono.just(last))
+                    .map(group -> group.doOnDiscard(DataBuffer.class, DataBufferUtils::release))
+                    .doFinally(signal -> {
+                        if (signal != SignalType.ON_COMPLETE) {
+                            session.close();
+                        }
+                    });
+        });
+    }
+
+    private static Flux<DataBuffer> feed(Publisher<? extends DataBuffer> input, Session session) {
+        return Flux.from(input)
+                .<DataBuffer>handle((buffer, sink) -> {
+                    try {
+                        DataBuffer out = session.feed(buffer);
+                        if (out != null) {
+                            sink.next(out);
+                        }
+                    } catch (IOException e) {
+                        sink.error(e);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                });
+    }
+
+    /**
+     * 一次改写的解析和生成状态
+     * 数据信号之间是串行的,但取消可能在另一个线程上与 feed 同时发生,
+     * 因此 feed / finish / close 互斥,关闭后 feed 不再写输出,输出缓冲区只释放一次.
+     */
+    private final class Session {
+
+        private final JsonParser parser;
+
+        private final ByteBufferFeeder feeder;
+
+        private final BufferOutput output;
+
+        private final JsonGenerator generator;
+
+        /**
+         * 当前嵌套深度
+         */
+        private int depth;
+
+        /**
+         * 正在跳过的结构的嵌套深度,0 表示没有跳过
+         */
+        private int skipping;
+
+        /**
+         * 下一个值需要脱敏或删除
+         */
+        private boolean redactNext;
+
+        /**
+         * 下一个值用掩码代替,否则直接删除
+         */
+        private boolean maskNext;
+
+        private boolean closed;
+
+        private Session(DataBufferFactory bufferFactory) {
+            try {
+                this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+                this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+                this.output = new BufferOutput(bufferFactory);
+                this.generator = JSON_FACTORY.createGenerator(output);
+                // 多个根值(例如 NDJSON)按行分隔
+                this.generator.setRootValueSeparator(new SerializedString("\n"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private synchronized DataBuffer feed(DataBuffer buffer) throws IOException {
+            if (closed) {
+                return null;
+            }
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    feeder.feedInput(iterator.next());
+                    drain();
+                }
+            }
+            generator.flush();
+            return output.take();
+        }
+
+        private synchronized DataBuffer finish() throws IOException {
+            if (closed) {
+                return null;
+            }
+            feeder.endOfInput();
+            drain();
+            generator.flush();
+            return output.take();
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                rewrite(token);
+            }
+        }
+
+        private void rewrite(JsonToken token) throws IOException {
+            if (skipping > 0) {
+                if (token.isStructStart()) {
+                    skipping++;
+                } else if (token.isStructEnd()) {
+                    skipping--;
+                }
+                return;
+            }
+            if (redactNext) {
+                redactNext = false;
+                if (maskNext) {
+                    generator.writeString(mask);
+                }
+                if (token.isStructStart()) {
+                    skipping = 1;
+                }
+                return;
+            }
+            switch (token) {
+                case FIELD_NAME -> {
+                    String name = parser.currentName();
+                    boolean replaced = depth == 1 && add.containsKey(name);
+                    if (replaced || redact.contains(name)) {
+                        redactNext = true;
+                        maskNext = !replaced && mask != null;
+                        if (maskNext) {
+                            generator.writeFieldName(name);
+                        }
+                        return;
+                    }
+                    generator.writeFieldName(name);
+                }
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    generator.copyCurrentEvent(parser);
+                }
+                case END_OBJECT -> {
+                    if (depth == 1) {
+                        for (Map.Entry<String, String> field : add.entrySet()) {
+                            generator.writeStringField(field.getKey(), field.getValue());
+                        }
+                    }
+                    depth--;
+                    generator.writeEndObject();
+                }
+                case END_ARRAY -> {
+                    depth--;
+                    generator.writeEndArray();
+                }
+                default -> generator.copyCurrentEventExact(parser);
+            }
+        }
+
+        /**
+         * 归还解析器和生成器的内部缓冲区,释放没有发出的输出
+         */
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                parser.close();
+                generator.close();
+            } catch (IOException ignored) {
+                // 输出目标是内存缓冲区,关闭不会失败
+            }
+            output.release();
+        }
+    }
+
+    /**
+     * 生成器的输出目标,每次 take 取走当前缓冲区,下次写入时再分配新的
+     */
+    private static final class BufferOutput extends OutputStream {
+
+        private static final int INITIAL_CAPACITY = 8192;
+
+        private final DataBufferFactory bufferFactory;
+
+        private DataBuffer current;
+
+        private BufferOutput(DataBufferFactory bufferFactory) {
+            this.bufferFactory = bufferFactory;
+        }
+
+        private DataBuffer current() {
+            if (current == null) {
+                current = bufferFactory.allocateBuffer(INITIAL_CAPACITY);
+            }
+            return current;
+        }
+
+        @Override
+        public void write(int b) {
+            current().write((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            current().write(bytes, offset, length);
+        }
+
+        /**
+         * @return 没有内容时返回 null
+         */
+        private DataBuffer take() {
+            DataBuffer taken = current;
+            current = null;
+            if (taken != null && taken.readableByteCount() == 0) {
+                DataBufferUtils.release(taken);
+                return null;
+            }
+            return taken;
+        }
+
+        private void release() {
+            if (current != null) {
+                DataBufferUtils.release(current);
+                current = null;
+            }
+        }
+    }
+}
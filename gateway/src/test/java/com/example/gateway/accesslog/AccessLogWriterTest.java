@@ -0,0 +1,92 @@
+package com.example.gateway.accesslog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AccessLogRingBuffer / AccessLogWriter 单元测试
+ */
+public class AccessLogWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private static boolean offer(AccessLogRingBuffer buffer, String path) {
+        return buffer.offer(0L, "GET", path, "future-service", new InetSocketAddress("127.0.0.1", 5555),
+                200, 1_500_000L, -1L, 42L);
+    }
+
+    /**
+     * 缓冲区写满且没有消费者时丢弃并计数
+     */
+    @Test
+    public void testOffer_WhenFull_ThenDropsAndCounts() {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(buffer, "/a"));
+        }
+        assertFalse(offer(buffer, "/a"));
+        assertEquals(1, buffer.droppedCount());
+        assertEquals(4, buffer.size());
+    }
+
+    /**
+     * 写出 JSON 行,关闭时写完剩余日志,字符串按 JSON 转义
+     */
+    @Test
+    public void testWriter_WritesJsonLinesAndFlushesOnClose() throws Exception {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(1024);
+        Path file = dir.resolve("access.log");
+        AccessLogWriter writer = new AccessLogWriter(buffer, file, 1 << 20, 2, 0, Duration.ofMillis(5),
+                new SimpleMeterRegistry());
+        writer.start();
+        offer(buffer, "/future/一\"x");
+        offer(buffer, "/future/b");
+        writer.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"ts\":\"1970-01-01T"), lines.get(0));
+        assertTrue(lines.get(0).contains("\"path\":\"/future/一\\\"x\""), lines.get(0));
+        assertTrue(lines.get(1).endsWith("\"route\":\"future-service\",\"remote\":\"127.0.0.1:5555\","
+                + "\"status\":200,\"latency_us\":1500,\"req_bytes\":-1,\"resp_bytes\":42}"), lines.get(1));
+        assertEquals(2, writer.getWrittenCount());
+    }
+
+    /**
+     * 文件超过大小上限时滚动,只保留 maxHistory 个历史文件
+     */
+    @Test
+    public void testWriter_WhenFileExceedsMaxSize_ThenRolls() throws Exception {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(1024);
+        Path file = dir.resolve("access.log");
+        AccessLogWriter writer = new AccessLogWriter(buffer, file, 1, 2, 0, Duration.ofMillis(1),
+                new SimpleMeterRegistry());
+        writer.start();
+        for (int i = 0; i < 4; i++) {
+            offer(buffer, "/r" + i);
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (writer.getWrittenCount() <= i && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+        writer.close();
+
+        assertTrue(Files.exists(file.resolveSibling("access.log.1")));
+        assertTrue(Files.exists(file.resolveSibling("access.log.2")));
+        assertFalse(Files.exists(file.resolveSibling("access.log.3")));
+        assertTrue(Files.readString(file.resolveSibling("access.log.1")).contains("/r3"));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.gateway.benchmark;
+
+import com.example.gateway.loadbalancer.InstanceStatsRegistry;
+import com.example.gateway.loadbalancer.PeakEwmaLoadBalancer;
+import com.example.gateway.loadbalancer.PeakEwmaLoadBalancerLifecycle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 轮询与 peak-EWMA 两种负载均衡的对比压测
+ * 不是单元测试,需要手动运行 main 方法:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.gateway.benchmark.LoadBalancerBenchmark \
+ *     -Dexec.args="20000 64"
+ * </pre>
+ * 参数1: 请求总数; 参数2: 并发数.
+ * 在本机启动 4 个桩后端,正常延迟 5ms,其中一个模拟 GC 停顿/邻居干扰,延迟 100ms 且 10% 返回 503.
+ * 生命周期回调与网关过滤器链中的调用方式一致,延迟从选择实例开始计算.
+ */
+public class LoadBalancerBenchmark {
+
+    private static final String SERVICE_ID = "future-service";
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        List<DisposableServer> servers = new ArrayList<>();
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            boolean degraded = i == 0;
+            DisposableServer server = HttpServer.create().host("127.0.0.1").port(0)
+                    .handle((req, res) -> {
+                        boolean fail = degraded && Math.random() < 0.1;
+                        return Mono.delay(Duration.ofMillis(degraded ? 100 : 5))
+                                .then(res.status(fail ? 503 : 200).sendString(Mono.just("ok")).then());
+                    })
+                    .bindNow();
+            servers.add(server);
+            instances.add(new DefaultServiceInstance("stub-" + i + (degraded ? "(slow)" : ""), SERVICE_ID,
+                    "127.0.0.1", server.port(), false));
+        }
+        ConnectionProvider pool = ConnectionProvider.builder("lb-benchmark").maxConnections(concurrency * 2).build();
+        HttpClient client = HttpClient.create(pool);
+        try {
+            ServiceInstance[] array = instances.toArray(ServiceInstance[]::new);
+            System.out.printf("%-12s %10s %10s %10s %10s   %s%n", "balancer", "req/s", "p50(ms)", "p99(ms)", "5xx",
+                    "traffic share");
+            // 预热
+            run("warmup", new RoundRobinLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE_ID, array),
+                    SERVICE_ID), null, client, requests / 4, concurrency, false);
+            run("round-robin", new RoundRobinLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE_ID, array),
+                    SERVICE_ID), null, client, requests, concurrency, true);
+            InstanceStatsRegistry stats = new InstanceStatsRegistry(Duration.ofSeconds(10), Duration.ofMillis(30), 5,
+                    Duration.ofSeconds(30), Duration.ofMinutes(5), new SimpleMeterRegistry());
+            run("peak-ewma", new PeakEwmaLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE_ID, array),
+                    SERVICE_ID, stats), new PeakEwmaLoadBalancerLifecycle(stats), client, requests, concurrency, true);
+        } finally {
+            servers.forEach(DisposableServer::disposeNow);
+            pool.disposeLater().block();
+        }
+    }
+
+    private static void run(String name, ReactorServiceInstanceLoadBalancer balancer,
+                            PeakEwmaLoadBalancerLifecycle lifecycle, HttpClient client, int requests,
+                            int concurrency, boolean print) {
+        long[] latencies = new long[requests];
+        LongAdder errors = new LongAdder();
+        ConcurrentHashMap<String, LongAdder> share = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> call(balancer, lifecycle, client, latencies, i, errors, share), concurrency)
+                .blockLast();
+        long elapsed = System.nanoTime() - start;
+        if (!print) {
+            return;
+        }
+        Arrays.sort(latencies);
+        StringBuilder traffic = new StringBuilder();
+        share.entrySet().stream().sorted(java.util.Map.Entry.comparingByKey())
+                .forEach(e -> traffic.append(e.getKey()).append('=')
+                        .append(String.format("%.1f%%", e.getValue().sum() * 100.0 / requests)).append(' '));
+        System.out.printf("%-12s %10.0f %10.2f %10.2f %10d   %s%n", name, requests / (elapsed / 1e9),
+                latencies[requests / 2] / 1e6, latencies[(int) (requests * 0.99)] / 1e6, errors.sum(), traffic);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Mono<Void> call(ReactorServiceInstanceLoadBalancer balancer,
+                                   PeakEwmaLoadBalancerLifecycle lifecycle, HttpClient client, long[] latencies,
+                                   int index, LongAdder errors, ConcurrentHashMap<String, LongAdder> share) {
+        RequestData requestData = new RequestData(HttpMethod.GET, URI.create("http://" + SERVICE_ID + "/"),
+                new HttpHeaders(), null, new HashMap<>());
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext(requestData));
+        long start = System.nanoTime();
+        return Mono.from(balancer.choose(request)).flatMap(response -> {
+            Response<ServiceInstance> lbResponse = (Response<ServiceInstance>) response;
+            ServiceInstance instance = lbResponse.getServer();
+            share.computeIfAbsent(instance.getInstanceId(), k -> new LongAdder()).increment();
+            if (lifecycle != null) {
+                lifecycle.onStartRequest(request, lbResponse);
+            }
+            return client.get().uri("http://127.0.0.1:" + instance.getPort() + "/")
+                    .responseSingle((res, body) -> body.then(Mono.just(res.status().code())))
+                    .doOnNext(status -> {
+                        latencies[index] = System.nanoTime() - start;
+                        if (status >= 500) {
+                            errors.increment();
+                        }
+                        if (lifecycle != null) {
+                            ResponseData responseData = new ResponseData(HttpStatusCode.valueOf(status),
+                                    new HttpHeaders(), null, requestData);
+                            lifecycle.onComplete(new CompletionContext(CompletionContext.Status.SUCCESS, request,
+                                    lbResponse, responseData));
+                        }
+                    });
+        }).then();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ResponseCache / BodyCapture / CacheDirectives 单元测试
+ */
+public class ResponseCacheTest {
+
+    private static final long FRESH = Duration.ofSeconds(30).toNanos();
+
+    private static final long STALE = Duration.ofSeconds(10).toNanos();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private static ByteBuf body(ResponseCache cache, int size) {
+        BodyCapture capture = cache.capture(-1);
+        byte[] bytes = new byte[size];
+        capture.append(DefaultDataBufferFactory.sharedInstance.wrap(bytes));
+        return capture.finish();
+    }
+
+    private static String read(ResponseCache.Hit hit) {
+        try {
+            return hit.body().toString(StandardCharsets.UTF_8);
+        } finally {
+            hit.body().release();
+        }
+    }
+
+    /**
+     * 新鲜期内命中,过期后在 stale 窗口内返回旧内容,超过窗口后移除并释放
+     */
+    @Test
+    public void testLookup_FreshThenStaleThenExpired() {
+        ResponseCache cache = new ResponseCache(10, 1 << 20, 1 << 16, 1024, registry);
+        BodyCapture capture = cache.capture(-1);
+        capture.append(DefaultDataBufferFactory.sharedInstance.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+        ByteBuf body = capture.finish();
+        long now = System.nanoTime();
+        cache.put("k", HttpStatus.OK, new HttpHeaders(), body, FRESH, STALE, now);
+
+        ResponseCache.Hit fresh = cache.lookup("k", now + 1);
+        assertTrue(fresh.fresh());
+        assertEquals("hello", read(fresh));
+
+        ResponseCache.Hit stale = cache.lookup("k", now + FRESH + 1);
+        assertFalse(stale.fresh());
+        assertEquals("hello", read(stale));
+
+        assertNull(cache.lookup("k", now + FRESH + STALE));
+        assertEquals(0, body.refCnt());
+        assertEquals(0, cache.size());
+        assertEquals(2.0 / 3, cache.hitRatio(), 1e-9);
+        assertEquals(1.0, registry.get("gateway.cache.evictions").tag("cause", "expired").functionCounter().count());
+    }
+
+    /**
+     * 内存超限时淘汰最久未访问的条目并释放响应体
+     */
+    @Test
+    public void testPut_WhenOverMemory_ThenEvictsLeastRecentlyUsed() {
+        ResponseCache cache = new ResponseCache(10, 3000, 2000, 100_000, registry);
+        long now = System.nanoTime();
+        ByteBuf a = body(cache, 1000);
+        ByteBuf b = body(cache, 1000);
+        cache.put("a", HttpStatus.OK, new HttpHeaders(), a, FRESH, STALE, now);
+        cache.put("b", HttpStatus.OK, new HttpHeaders(), b, FRESH, STALE, now);
+        cache.lookup("a", now).body().release();
+
+        cache.put("c", HttpStatus.OK, new HttpHeaders(), body(cache, 1500), FRESH, STALE, now);
+
+        assertEquals(0, b.refCnt());
+        assertEquals(1, a.refCnt());
+        assertNull(cache.lookup("b", now));
+        assertEquals(2, cache.size());
+        assertEquals(2500, cache.memory());
+        cache.close();
+        assertEquals(0, a.refCnt());
+        assertEquals(0, cache.memory());
+    }
+
+    /**
+     * 小响应在堆内,大响应移到直接内存,超过单条上限放弃
+     */
+    @Test
+    public void testCapture_MovesLargeBodiesOffHeapAndRejectsOversized() {
+        ResponseCache cache = new ResponseCache(10, 1 << 20, 4096, 1024, registry);
+
+        ByteBuf small = body(cache, 100);
+        assertFalse(small.isDirect());
+        small.release();
+
+        BodyCapture capture = cache.capture(-1);
+        capture.append(DefaultDataBufferFactory.sharedInstance.wrap(new byte[800]));
+        capture.append(DefaultDataBufferFactory.sharedInstance.wrap(new byte[800]));
+        ByteBuf large = capture.finish();
+        assertTrue(large.isDirect());
+        assertEquals(1600, large.readableBytes());
+        large.release();
+
+        BodyCapture oversized = cache.capture(-1);
+        oversized.append(DefaultDataBufferFactory.sharedInstance.wrap(new byte[3000]));
+        oversized.append(DefaultDataBufferFactory.sharedInstance.wrap(new byte[3000]));
+        assertNull(oversized.finish());
+    }
+
+    @Test
+    public void testDirectives_Parse() {
+        CacheDirectives directives = CacheDirectives.parse(List.of("public, max-age=60, s-maxage=\"120\"",
+                "stale-while-revalidate=5"));
+        assertEquals(120, directives.maxAgeSeconds());
+        assertEquals(5, directives.staleWhileRevalidateSeconds());
+        assertFalse(directives.noStore());
+
+        CacheDirectives noStore = CacheDirectives.parse(List.of("No-Store, max-age=abc"));
+        assertTrue(noStore.noStore());
+        assertEquals(-1, noStore.maxAgeSeconds());
+        assertSame(CacheDirectives.NONE, CacheDirectives.parse(null));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.gateway.discovery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InstanceSnapshotCache 单元测试
+ * 使用进程内的 FakeInstanceSource 模拟 Nacos 的查询、推送和不可达,不连接 Nacos
+ */
+public class InstanceSnapshotCacheTest {
+
+    private static final String SERVICE = "future-service";
+
+    @TempDir
+    Path dir;
+
+    private final List<InstanceSnapshotCache> caches = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        caches.forEach(InstanceSnapshotCache::close);
+    }
+
+    private InstanceSnapshotCache cache(FakeInstanceSource source) {
+        InstanceSnapshotCache cache = new InstanceSnapshotCache(source, dir.resolve("snapshot.json"), Duration.ZERO,
+                Duration.ofMillis(20), new SimpleMeterRegistry());
+        caches.add(cache);
+        return cache;
+    }
+
+    private static ServiceInstance instance(int i) {
+        return new DefaultServiceInstance("future-" + i, SERVICE, "10.0.0." + i, 7778, false,
+                Map.of("zone", "a"));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in 5s");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 推送整体替换快照;两次推送之间的读取返回同一个列表和同一个 Flux,不分配对象
+     */
+    @Test
+    public void testPush_ReplacesSnapshotAndReadsReuseIt() throws Exception {
+        FakeInstanceSource source = new FakeInstanceSource();
+        InstanceSnapshotCache cache = cache(source);
+        SnapshotServiceInstanceListSupplier supplier = new SnapshotServiceInstanceListSupplier(SERVICE, cache);
+        cache.start(List.of(SERVICE));
+        await(() -> source.subscribed(SERVICE));
+
+        source.push(SERVICE, List.of(instance(1), instance(2)));
+
+        assertSame(cache.getInstances(SERVICE), cache.getInstances(SERVICE));
+        assertSame(supplier.get(), supplier.get());
+        assertEquals(List.of("10.0.0.1", "10.0.0.2"), hosts(supplier.get().blockFirst()));
+
+        source.push(SERVICE, List.of(instance(3)));
+        assertEquals(List.of("10.0.0.3"), hosts(supplier.get().blockFirst()));
+        assertFalse(cache.snapshot(SERVICE).isRestored());
+    }
+
+    /**
+     * 没有快照的服务在第一次读取时查询一次并订阅,之后读取快照
+     */
+    @Test
+    public void testInstanceFlux_WhenNoSnapshot_ThenLoadsOnceAndSubscribes() throws Exception {
+        FakeInstanceSource source = new FakeInstanceSource();
+        source.instances.put(SERVICE, List.of(instance(1)));
+        InstanceSnapshotCache cache = cache(source);
+
+        assertEquals(List.of("10.0.0.1"), hosts(cache.instanceFlux(SERVICE).blockFirst()));
+        await(() -> source.subscribed(SERVICE));
+        assertEquals(List.of("10.0.0.1"), hosts(cache.instanceFlux(SERVICE).blockFirst()));
+        assertEquals(1, source.queries.get());
+    }
+
+    /**
+     * 重启时 Nacos 不可达: 从文件恢复的快照立即可用,订阅重试成功后被 Nacos 的列表替换
+     */
+    @Test
+    public void testRestart_WhenNacosUnavailable_ThenServesPersistedSnapshot() throws Exception {
+        FakeInstanceSource first = new FakeInstanceSource();
+        InstanceSnapshotCache cache = cache(first);
+        cache.start(List.of(SERVICE));
+        await(() -> first.subscribed(SERVICE));
+        first.push(SERVICE, List.of(instance(1), instance(2)));
+        await(() -> Files.exists(dir.resolve("snapshot.json")));
+        cache.close();
+
+        FakeInstanceSource restarted = new FakeInstanceSource();
+        restarted.available = false;
+        InstanceSnapshotCache restored = cache(restarted);
+        restored.start(List.of(SERVICE));
+
+        InstanceSnapshotCache.Snapshot snapshot = restored.snapshot(SERVICE);
+        assertTrue(snapshot.isRestored());
+        assertEquals(List.of("10.0.0.1", "10.0.0.2"), hosts(snapshot.getInstances()));
+        assertEquals(Map.of("zone", "a"), snapshot.getInstances().getFirst().getMetadata());
+        assertEquals(List.of("10.0.0.1", "10.0.0.2"), hosts(restored.instanceFlux(SERVICE).blockFirst()));
+
+        restarted.available = true;
+        await(() -> restarted.subscribed(SERVICE));
+        restarted.push(SERVICE, List.of(instance(2)));
+        assertFalse(restored.snapshot(SERVICE).isRestored());
+        assertEquals(List.of("10.0.0.2"), hosts(restored.getInstances(SERVICE)));
+    }
+
+    private static List<String> hosts(List<ServiceInstance> instances) {
+        return instances.stream().map(ServiceInstance::getHost).toList();
+    }
+
+    /**
+     * 进程内的实例来源: available 为 false 时查询和订阅都失败,push 模拟 Nacos 推送
+     */
+    private static final class FakeInstanceSource implements InstanceSource {
+
+        private final Map<String, List<ServiceInstance>> instances = new ConcurrentHashMap<>();
+
+        private final Map<String, Consumer<List<ServiceInstance>>> listeners = new ConcurrentHashMap<>();
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private volatile boolean available = true;
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            check();
+            queries.incrementAndGet();
+            return instances.getOrDefault(serviceId, List.of());
+        }
+
+        @Override
+        public void subscribe(String serviceId, Consumer<List<ServiceInstance>> listener) {
+            check();
+            listeners.put(serviceId, listener);
+        }
+
+        private void check() {
+            if (!available) {
+                throw new IllegalStateException("nacos unavailable");
+            }
+        }
+
+        boolean subscribed(String serviceId) {
+            return listeners.containsKey(serviceId);
+        }
+
+        void push(String serviceId, List<ServiceInstance> list) {
+            instances.put(serviceId, list);
+            listeners.get(serviceId).accept(list);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.gateway.filter;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InterceptRule 单元测试
+ */
+public class InterceptRuleTest {
+
+    private static HttpHeaders headers(String contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        if (contentType != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        return headers;
+    }
+
+    /**
+     * 默认规则与原来一致: GET/POST 且 Content-Type 为 JSON,忽略大小写和参数
+     */
+    @Test
+    public void testAllows_DefaultRule() {
+        InterceptRule rule = new InterceptRule(List.of("GET", "POST"), List.of("application/json"), List.of(),
+                "hello");
+
+        assertTrue(rule.allows(HttpMethod.GET, headers("application/json")));
+        assertTrue(rule.allows(HttpMethod.POST, headers(" Application/JSON ; charset=UTF-8")));
+        assertFalse(rule.allows(HttpMethod.PUT, headers("application/json")));
+        assertFalse(rule.allows(HttpMethod.GET, headers("text/plain")));
+        assertFalse(rule.allows(HttpMethod.GET, headers("application/jsonx")));
+        assertFalse(rule.allows(HttpMethod.GET, headers(null)));
+    }
+
+    /**
+     * 通配符媒体类型、空方法列表和必需请求头
+     */
+    @Test
+    public void testAllows_ConfiguredRule() {
+        InterceptRule rule = new InterceptRule(List.of(), List.of("text/*"), List.of("X-Client-Id"), "no");
+
+        HttpHeaders headers = headers("text/html");
+        assertFalse(rule.allows(HttpMethod.DELETE, headers));
+        headers.set("x-client-id", "1");
+        assertTrue(rule.allows(HttpMethod.DELETE, headers));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        assertFalse(rule.allows(HttpMethod.DELETE, headers));
+    }
+
+    /**
+     * 响应体只编码一次,每次写出的视图互不影响,释放后仍可再次使用
+     */
+    @Test
+    public void testBody_SharedAcrossRequests() {
+        InterceptRule rule = new InterceptRule(List.of(), List.of(), List.of(), "错误");
+        assertEquals(6, rule.contentLength());
+
+        for (DataBufferFactory factory : List.of(new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT),
+                DefaultDataBufferFactory.sharedInstance)) {
+            for (int i = 0; i < 2; i++) {
+                DataBuffer body = rule.body(factory);
+                assertEquals("错误", body.toString(StandardCharsets.UTF_8));
+                body.readPosition(body.writePosition());
+                DataBufferUtils.release(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JsonTransformGatewayFilterFactory 单元测试
+ */
+public class JsonTransformGatewayFilterFactoryTest {
+
+    private static DataBuffer buffer(ServerHttpResponse response, String text) {
+        return response.bufferFactory().wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * NDJSON 响应通过 writeAndFlushWith 写出时同样脱敏,跨分组的行也能正确改写
+     */
+    @Test
+    public void testFilter_WhenNdjsonWrittenWithFlush_ThenRedactsAcrossGroups() {
+        JsonTransformGatewayFilterFactory.Config config = new JsonTransformGatewayFilterFactory.Config();
+        config.setRedact(List.of("password"));
+        GatewayFilter filter = new JsonTransformGatewayFilterFactory().apply(config);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/stream"));
+
+        filter.filter(exchange, mutated -> {
+            ServerHttpResponse response = mutated.getResponse();
+            response.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+            return response.writeAndFlushWith(Flux.just(
+                    Flux.just(buffer(response, "{\"id\":1,\"password\":\"a\"}\n{\"id\":2,")),
+                    Flux.just(buffer(response, "\"password\":\"b\"}\n"))));
+        }).block();
+
+        MockServerHttpResponse response = exchange.getResponse();
+        assertEquals("{\"id\":1,\"password\":\"***\"}\n{\"id\":2,\"password\":\"***\"}",
+                response.getBodyAsString().block());
+    }
+}
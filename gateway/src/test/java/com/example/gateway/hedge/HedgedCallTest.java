@@ -0,0 +1,215 @@
+package com.example.gateway.hedge;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.gateway.loadbalancer.PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * HedgedCall 单元测试
+ * 用延迟可控的桩实例代替负载均衡和路由过滤器: 第一次选择落到 slow,排除了 slow 的对冲请求落到 fast.
+ */
+public class HedgedCallTest {
+
+    private final ServiceInstance slow = new DefaultServiceInstance("slow", "future-service", "10.0.0.1", 7778, false);
+
+    private final ServiceInstance fast = new DefaultServiceInstance("fast", "future-service", "10.0.0.2", 7778, false);
+
+    private final AtomicBoolean slowCancelled = new AtomicBoolean();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final RecordingListener listener = new RecordingListener();
+
+    /**
+     * @param slowLatency 主请求选中实例的延迟
+     */
+    private GatewayFilterChain stubs(Duration slowLatency, Duration fastLatency) {
+        return exchange -> {
+            calls.incrementAndGet();
+            boolean hedge = exchange.getAttributes().get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> excluded
+                    && excluded.contains(slow);
+            ServiceInstance instance = hedge ? fast : slow;
+            exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+            Mono<Long> latency = Mono.delay(hedge ? fastLatency : slowLatency);
+            if (!hedge) {
+                latency = latency.doOnCancel(() -> slowCancelled.set(true));
+            }
+            return latency.then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.OK);
+                response.getHeaders().set("X-Instance", instance.getInstanceId());
+                byte[] body = instance.getInstanceId().getBytes(StandardCharsets.UTF_8);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+            }));
+        };
+    }
+
+    /**
+     * 对冲请求被后续过滤器在本地拒绝: 与 ConcurrencyLimit 一样设置 503 后 setComplete,不写响应体
+     */
+    private GatewayFilterChain hedgeRejected(Duration slowLatency) {
+        GatewayFilterChain stubs = stubs(slowLatency, Duration.ZERO);
+        return exchange -> {
+            if (exchange.getAttributes().get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> excluded
+                    && excluded.contains(slow)) {
+                calls.incrementAndGet();
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            return stubs.filter(exchange);
+        };
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/future/one"));
+    }
+
+    private static HedgeBudget budget(double percent) {
+        HedgeBudget budget = new HedgeBudget(percent, 10);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        return budget;
+    }
+
+    /**
+     * 主请求超过对冲延迟未响应时,对冲到另一个实例,先响应的对冲请求胜出并取消主请求
+     */
+    @Test
+    public void testExecute_WhenPrimarySlow_ThenHedgeWins() {
+        MockServerWebExchange exchange = exchange();
+        long start = System.nanoTime();
+
+        HedgedCall.execute(exchange, stubs(Duration.ofSeconds(2), Duration.ofMillis(10)),
+                TimeUnit.MILLISECONDS.toNanos(20), budget(10), listener).block(Duration.ofSeconds(5));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("fast", exchange.getResponse().getHeaders().getFirst("X-Instance"));
+        assertEquals("fast", exchange.getResponse().getBodyAsString().block());
+        assertTrue(slowCancelled.get());
+        assertEquals(2, calls.get());
+        assertEquals(1, listener.hedges.get());
+        assertEquals(1, listener.hedgeWins.get());
+        // 记录的是从主请求发出算起的延迟,包含对冲延迟
+        assertTrue(listener.latency.get() >= TimeUnit.MILLISECONDS.toNanos(30), "latency " + listener.latency.get());
+        assertSame(fast, ((DefaultResponse) exchange.getAttributes().get(GATEWAY_LOADBALANCER_RESPONSE_ATTR))
+                .getServer());
+    }
+
+    /**
+     * 主请求在对冲延迟内响应时不发出对冲
+     */
+    @Test
+    public void testExecute_WhenPrimaryFast_ThenNoHedge() throws InterruptedException {
+        MockServerWebExchange exchange = exchange();
+
+        HedgedCall.execute(exchange, stubs(Duration.ofMillis(5), Duration.ofMillis(5)),
+                TimeUnit.MILLISECONDS.toNanos(200), budget(10), listener).block(Duration.ofSeconds(5));
+        Thread.sleep(300);
+
+        assertEquals("slow", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, calls.get());
+        assertEquals(0, listener.hedges.get());
+        assertEquals(1, listener.responses.get());
+    }
+
+    /**
+     * 预算不足时不对冲,等待主请求
+     */
+    @Test
+    public void testExecute_WhenBudgetExhausted_ThenWaitsForPrimary() {
+        MockServerWebExchange exchange = exchange();
+
+        HedgedCall.execute(exchange, stubs(Duration.ofMillis(100), Duration.ofMillis(5)),
+                TimeUnit.MILLISECONDS.toNanos(10), budget(0), listener).block(Duration.ofSeconds(5));
+
+        assertEquals("slow", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, calls.get());
+        assertEquals(1, listener.exhausted.get());
+    }
+
+    /**
+     * 主请求在对冲发出前失败时直接返回错误
+     */
+    @Test
+    public void testExecute_WhenPrimaryFailsBeforeHedge_ThenFails() {
+        GatewayFilterChain failing = exchange -> Mono.error(new IllegalStateException("connection refused"));
+
+        Mono<Void> call = HedgedCall.execute(exchange(), failing, TimeUnit.SECONDS.toNanos(1), budget(10),
+                listener);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> call.block(Duration.ofSeconds(5)));
+        assertEquals("connection refused", e.getMessage());
+        assertEquals(0, listener.hedges.get());
+    }
+
+    /**
+     * 对冲请求在本地被拒绝(503,没有响应体)时不能胜出,主请求不被取消,客户端收到主请求的响应
+     */
+    @Test
+    public void testExecute_WhenHedgeRejectedLocally_ThenPrimaryWins() {
+        MockServerWebExchange exchange = exchange();
+
+        HedgedCall.execute(exchange, hedgeRejected(Duration.ofMillis(200)), TimeUnit.MILLISECONDS.toNanos(20),
+                budget(10), listener).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("slow", exchange.getResponse().getBodyAsString().block());
+        assertFalse(slowCancelled.get());
+        assertEquals(2, calls.get());
+        assertEquals(1, listener.hedges.get());
+        assertEquals(0, listener.hedgeWins.get());
+    }
+
+    private static final class RecordingListener implements HedgedCall.Listener {
+
+        private final AtomicInteger responses = new AtomicInteger();
+
+        private final AtomicInteger hedges = new AtomicInteger();
+
+        private final AtomicInteger hedgeWins = new AtomicInteger();
+
+        private final AtomicInteger exhausted = new AtomicInteger();
+
+        private final AtomicLong latency = new AtomicLong();
+
+        @Override
+        public void onResponse(long latencyNanos, boolean hedge) {
+            latency.set(latencyNanos);
+            responses.incrementAndGet();
+            if (hedge) {
+                hedgeWins.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onHedge() {
+            hedges.incrementAndGet();
+        }
+
+        @Override
+        public void onBudgetExhausted() {
+            exhausted.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.gateway.httpclient;
+
+import com.example.gateway.config.HttpClientProfileProperties.Profile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HttpClientProfiles 单元测试
+ * 预热用本地 Reactor Netty 服务端统计实际建立的连接数
+ */
+public class HttpClientProfilesTest {
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private DisposableServer server;
+
+    private HttpClientProfiles profiles;
+
+    @BeforeEach
+    public void setUp() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .doOnConnection(connection -> connections.incrementAndGet())
+                .handle((request, response) -> response.send())
+                .bindNow();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (profiles != null) {
+            profiles.close();
+        }
+        server.disposeNow();
+    }
+
+    private static Profile profile(int warmupConnections, List<URI> warmupUris) {
+        Profile profile = new Profile();
+        profile.setMaxConnections(16);
+        profile.setWarmupConnections(warmupConnections);
+        profile.setWarmupUris(warmupUris);
+        return profile;
+    }
+
+    /**
+     * 路由映射到各自 profile 的客户端,没有映射的路由返回 null 使用默认客户端
+     */
+    @Test
+    public void testForRoute_ResolvesProfileClients() {
+        profiles = new HttpClientProfiles(Map.of("internal", profile(0, List.of()), "external", profile(0, List.of())),
+                Map.of("future-service", "internal", "github_route", "external"));
+
+        assertNotNull(profiles.forRoute("future-service"));
+        assertNotNull(profiles.forRoute("github_route"));
+        assertNotSame(profiles.forRoute("future-service"), profiles.forRoute("github_route"));
+        assertNull(profiles.forRoute("other"));
+    }
+
+    @Test
+    public void testConstructor_WhenProfileUnknown_ThenThrows() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HttpClientProfiles(Map.of(), Map.of("future-service", "missing")));
+    }
+
+    /**
+     * 预热建立配置数量的连接,lb:// 地址通过解析器展开
+     */
+    @Test
+    public void testWarmUp_OpensConfiguredConnections() {
+        URI direct = URI.create("http://127.0.0.1:" + server.port() + "/");
+        profiles = new HttpClientProfiles(Map.of("internal", profile(4, List.of(URI.create("lb://future-service")))),
+                Map.of("future-service", "internal"));
+
+        profiles.warmUp(uri -> {
+            assertEquals("future-service", uri.getHost());
+            return Flux.just(direct);
+        }).block(Duration.ofSeconds(10));
+
+        assertEquals(4, connections.get());
+
+        // 连接留在池中,后续请求复用,不再建立新连接
+        profiles.forRoute("future-service").get().uri(direct).response().block(Duration.ofSeconds(5));
+        assertEquals(4, connections.get());
+    }
+
+    /**
+     * 预热失败不影响启动
+     */
+    @Test
+    public void testWarmUp_WhenUnreachable_ThenCompletes() {
+        Profile profile = profile(2, List.of(URI.create("http://127.0.0.1:1/")));
+        profile.setConnectTimeout(Duration.ofMillis(200));
+        profiles = new HttpClientProfiles(Map.of("internal", profile), Map.of());
+
+        assertDoesNotThrow(() -> profiles.warmUp(Flux::just).block(Duration.ofSeconds(10)));
+    }
+}
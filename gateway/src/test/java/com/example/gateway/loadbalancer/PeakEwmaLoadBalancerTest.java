@@ -0,0 +1,151 @@
+package com.example.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PeakEwmaLoadBalancer / PeakEwmaLoadBalancerLifecycle 单元测试
+ */
+public class PeakEwmaLoadBalancerTest {
+
+    private final ServiceInstance fast1 = instance(1);
+    private final ServiceInstance fast2 = instance(2);
+    private final ServiceInstance slow = instance(3);
+
+    private final InstanceStatsRegistry stats = new InstanceStatsRegistry(Duration.ofSeconds(10),
+            Duration.ofMillis(30), 3, Duration.ofSeconds(30), Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    private final PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(
+            ServiceInstanceListSuppliers.toProvider("future-service", fast1, fast2, slow), "future-service", stats);
+
+    private final PeakEwmaLoadBalancerLifecycle lifecycle = new PeakEwmaLoadBalancerLifecycle(stats);
+
+    private static ServiceInstance instance(int i) {
+        return new DefaultServiceInstance("future-" + i, "future-service", "10.0.0." + i, 7778, false);
+    }
+
+    private ServiceInstance choose() {
+        Response<ServiceInstance> response = balancer.choose(new DefaultRequest<>()).block();
+        assertNotNull(response);
+        return response.getServer();
+    }
+
+    private void observe(ServiceInstance instance, Duration rtt) {
+        InstanceStats instanceStats = stats.get(instance);
+        instanceStats.requestStarted();
+        instanceStats.requestFinished(rtt.toNanos(), false, System.nanoTime());
+    }
+
+    /**
+     * 走一遍过滤器链中的生命周期回调
+     */
+    private void call(ServiceInstance instance, int status) {
+        RequestData requestData = new RequestData(HttpMethod.GET, URI.create("http://future-service/"),
+                new HttpHeaders(), null, new HashMap<>());
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext(requestData));
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+        lifecycle.onStartRequest(request, lbResponse);
+        ResponseData responseData = new ResponseData(HttpStatusCode.valueOf(status), new HttpHeaders(), null,
+                requestData);
+        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse,
+                responseData));
+    }
+
+    /**
+     * 延迟明显更高的实例几乎分不到流量
+     */
+    @Test
+    public void testChoose_WhenOneInstanceSlow_ThenAvoidsIt() {
+        observe(fast1, Duration.ofMillis(5));
+        observe(fast2, Duration.ofMillis(5));
+        observe(slow, Duration.ofMillis(200));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            counts.merge(choose().getInstanceId(), 1, Integer::sum);
+        }
+
+        assertNull(counts.get("future-3"), counts.toString());
+        assertTrue(counts.get("future-1") > 300 && counts.get("future-2") > 300, counts.toString());
+    }
+
+    /**
+     * 快速失败(耗时接近 0 的 503)的实例延迟被惩罚而不是降低,分不到更多流量
+     */
+    @Test
+    public void testChoose_WhenInstanceFailsFast_ThenDoesNotGainShare() {
+        for (ServiceInstance instance : List.of(fast1, fast2, slow)) {
+            observe(instance, Duration.ofMillis(20));
+        }
+        call(fast1, 503);
+        call(fast1, 503);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            counts.merge(choose().getInstanceId(), 1, Integer::sum);
+        }
+
+        assertTrue(stats.get(fast1).getEwmaMillis() > 20, String.valueOf(stats.get(fast1).getEwmaMillis()));
+        assertTrue(counts.getOrDefault("future-1", 0) < 100, counts.toString());
+    }
+
+    /**
+     * 生命周期回调维护进行中请求数,请求结束后归零
+     */
+    @Test
+    public void testLifecycle_TracksInFlight() {
+        RequestData requestData = new RequestData(HttpMethod.GET, URI.create("http://future-service/"),
+                new HttpHeaders(), null, new HashMap<>());
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext(requestData));
+        Response<ServiceInstance> lbResponse = new DefaultResponse(fast1);
+
+        lifecycle.onStartRequest(request, lbResponse);
+        assertEquals(1, stats.get(fast1).getInFlight());
+
+        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED, new RuntimeException(),
+                request, lbResponse));
+        assertEquals(0, stats.get(fast1).getInFlight());
+    }
+
+    /**
+     * 连续 5xx 达到阈值后摘除,所有实例都被摘除时不再过滤
+     */
+    @Test
+    public void testEjection_AfterConsecutive5xx_ThenSkippedUntilAllEjected() {
+        for (int i = 0; i < 3; i++) {
+            call(slow, 503);
+        }
+        for (int i = 0; i < 200; i++) {
+            assertNotSame(slow, choose());
+        }
+
+        for (ServiceInstance instance : List.of(fast1, fast2)) {
+            for (int i = 0; i < 3; i++) {
+                call(instance, 500);
+            }
+        }
+        assertNotNull(choose());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.gateway.metrics;
+
+import com.example.gateway.filter.GatewayMetricsGlobalFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * GatewayMetrics / TimedRouteLocator / GatewayMetricsGlobalFilter 单元测试
+ * 用简单的过滤器链代替 FilteringWebHandler,末端的桩模拟路由转发过滤器记录上游耗时.
+ */
+public class GatewayMetricsTest {
+
+    private static final double MS = 1_000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final GatewayMetrics metrics = new GatewayMetrics(registry, Duration.ofSeconds(60), 2, Duration.ZERO,
+            List.of(0.5, 0.99), 100);
+
+    /**
+     * 按顺序执行过滤器,最后执行 terminal;与 DefaultGatewayFilterChain 一样在订阅时才调用下一个过滤器
+     */
+    private static GatewayFilterChain chain(List<GatewayFilter> filters, int index, GatewayFilterChain terminal) {
+        return exchange -> Mono.defer(() -> index < filters.size()
+                ? filters.get(index).filter(exchange, chain(filters, index + 1, terminal))
+                : terminal.filter(exchange));
+    }
+
+    /**
+     * 模拟上游: 等待 delay 后写出响应体
+     */
+    private static GatewayFilterChain upstream(Duration delay, String body) {
+        return exchange -> {
+            long start = System.nanoTime();
+            return Mono.delay(delay)
+                    .then(exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                            .wrap(body.getBytes(StandardCharsets.UTF_8)))))
+                    .doOnTerminate(() -> RequestTimings.of(exchange).upstream(System.nanoTime() - start));
+        };
+    }
+
+    /**
+     * 每次读取都会交换区间(window 为 0),每个直方图只读一次,单位微秒
+     */
+    private static double p50(LatencyHistogram histogram) {
+        return histogram.summary(List.of(0.5)).percentiles().get("p50");
+    }
+
+    private Route route(GatewayFilter... filters) {
+        Route route = Route.async()
+                .id("future-service")
+                .uri("http://localhost:7778")
+                .asyncPredicate(exchange -> Mono.just(true))
+                .filters(List.of(filters))
+                .build();
+        return new TimedRouteLocator(() -> Flux.just(route), () -> metrics).getRoutes().blockFirst();
+    }
+
+    private void execute(Route route, GatewayFilterChain terminal) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/one"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        GatewayFilterChain filters = chain(List.copyOf(route.getFilters()), 0, terminal);
+        new GatewayMetricsGlobalFilter(metrics).filter(exchange, filters).block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 过滤器自身耗时不含内层过滤器和上游,网关耗时 = 总耗时 - 上游耗时
+     */
+    @Test
+    public void testTimedRoute_SplitsFilterUpstreamAndGatewayTime() {
+        // 第一个过滤器先等待 20ms 再继续,第二个直接继续
+        GatewayFilter slow = new OrderedGatewayFilter((exchange, chain) -> Mono.delay(Duration.ofMillis(20))
+                .then(chain.filter(exchange)), 1);
+        GatewayFilter fast = new OrderedGatewayFilter((exchange, chain) -> chain.filter(exchange), 2);
+        Route route = route(fast, slow);
+
+        execute(route, upstream(Duration.ofMillis(30), "hello"));
+
+        RouteMetrics routeMetrics = metrics.routes().get("future-service");
+        assertEquals(List.of("GatewayMetricsTest", "GatewayMetricsTest#2"), routeMetrics.filterNames());
+        assertEquals(1, routeMetrics.total().count());
+        assertTrue(p50(routeMetrics.upstream()) >= 29 * MS);
+        double gateway = p50(routeMetrics.gateway());
+        assertTrue(gateway >= 19 * MS && gateway < 30 * MS, "gateway " + gateway);
+        double slowOwn = p50(routeMetrics.filter(0));
+        assertTrue(slowOwn >= 19 * MS && slowOwn < 30 * MS, "slow filter " + slowOwn);
+        assertTrue(p50(routeMetrics.filter(1)) < 5 * MS);
+        assertEquals(5, routeMetrics.responseBytes());
+        assertEquals(0, routeMetrics.inFlight());
+    }
+
+    /**
+     * 过滤器计时只在采样的请求上记录,路由级别的指标总是记录
+     */
+    @Test
+    public void testTimedRoute_WhenNotSampled_ThenOnlyRouteMetrics() {
+        GatewayMetrics unsampled = new GatewayMetrics(registry, Duration.ofSeconds(60), 2, Duration.ZERO,
+                List.of(0.5), 0);
+        Route route = new TimedRouteLocator(() -> Flux.just(Route.async()
+                .id("r")
+                .uri("http://localhost:7778")
+                .asyncPredicate(exchange -> Mono.just(true))
+                .filters(List.of(new OrderedGatewayFilter((exchange, chain) -> chain.filter(exchange), 1)))
+                .build()), () -> unsampled).getRoutes().blockFirst();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/one"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+
+        new GatewayMetricsGlobalFilter(unsampled).filter(exchange,
+                chain(List.copyOf(route.getFilters()), 0, upstream(Duration.ZERO, ""))).block(Duration.ofSeconds(5));
+
+        RouteMetrics routeMetrics = unsampled.routes().get("r");
+        assertEquals(1, routeMetrics.total().count());
+        assertEquals(1, routeMetrics.upstream().count());
+        assertEquals(0, routeMetrics.filter(0).count());
+    }
+
+    /**
+     * 路由刷新时过滤器没有变化则复用指标,变化则替换并注销旧的指标
+     */
+    @Test
+    public void testRoute_WhenFiltersChange_ThenReplacesMeters() {
+        RouteMetrics first = metrics.route("future-service", List.of("StripPrefix", "RateLimit"));
+        assertSame(first, metrics.route("future-service", List.of("StripPrefix", "RateLimit")));
+        assertNotNull(registry.find("gateway.filter.latency").tag("filter", "RateLimit").functionTimer());
+
+        RouteMetrics second = metrics.route("future-service", List.of("StripPrefix"));
+        assertNotSame(first, second);
+        assertNull(registry.find("gateway.filter.latency").tag("filter", "RateLimit").functionTimer());
+        assertNotNull(registry.find("gateway.route.latency").tag("stage", "upstream").functionTimer());
+    }
+
+    @Test
+    public void testFilterName_StripsFactorySuffix() {
+        GatewayFilter lambda = (exchange, chain) -> chain.filter(exchange);
+        assertEquals("GatewayMetricsTest", TimedRouteLocator.filterName(new OrderedGatewayFilter(lambda, 1)));
+        assertEquals("Named", TimedRouteLocator.filterName(new NamedGatewayFilter()));
+    }
+
+    /**
+     * 百分位精度 1%,超过最大值的按最大值记录
+     */
+    @Test
+    public void testLatencyHistogram_Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(Duration.ofSeconds(1).toNanos(), 2, Duration.ZERO);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(Duration.ofSeconds(5).toNanos());
+
+        LatencyHistogram.Summary summary = histogram.summary(List.of(0.5, 0.999));
+        assertEquals(1001, summary.count());
+        assertEquals(List.of("p50", "p99.9"), List.copyOf(summary.percentiles().keySet()));
+        assertEquals(500, summary.percentiles().get("p50"), 5);
+        assertEquals(1_000_000, summary.max(), 10_000);
+        // 读取时交换区间,之后的区间只包含新的记录,累计计数不变
+        assertEquals(0, histogram.summary(List.of(0.5)).count());
+        assertEquals(1001, histogram.count());
+    }
+
+    private static final class NamedGatewayFilter implements GatewayFilter {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return chain.filter(exchange);
+        }
+    }
+}
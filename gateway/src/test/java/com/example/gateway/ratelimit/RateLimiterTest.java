@@ -0,0 +1,117 @@
+package com.example.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenBucketLimiter / AdaptiveConcurrencyLimiter 单元测试
+ */
+public class RateLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 突发用完后拒绝并给出等待时间,按速率恢复,不同键互不影响
+     */
+    @Test
+    public void testTokenBucket_BurstThenRefill() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 3, 100);
+        long now = 1_000_000_000L;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a", now));
+        }
+        long wait = limiter.tryAcquire("a", now);
+        assertEquals(100 * MS, wait);
+        assertEquals(0, limiter.tryAcquire("b", now));
+
+        assertEquals(0, limiter.tryAcquire("a", now + wait));
+        assertTrue(limiter.tryAcquire("a", now + wait) > 0);
+    }
+
+    /**
+     * 键超过上限时清理已满的桶
+     */
+    @Test
+    public void testTokenBucket_WhenOverMaxKeys_ThenRemovesFullBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1000, 10, 4);
+        long now = 1_000_000_000L;
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire(i, now);
+        }
+        assertEquals(4, limiter.size());
+
+        limiter.tryAcquire("late", now + 1000 * MS);
+        assertEquals(1, limiter.size());
+    }
+
+    /**
+     * 键达到上限且没有已满的桶时,新键不放进表里,共用一个溢出桶;已有的键不受影响
+     */
+    @Test
+    public void testTokenBucket_WhenFullAndNoIdleBuckets_ThenNewKeysShareOverflowBucket() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 2, 2);
+        long now = 1_000_000_000L;
+        assertEquals(0, limiter.tryAcquire("a", now));
+        assertEquals(0, limiter.tryAcquire("b", now));
+
+        assertEquals(0, limiter.tryAcquire("c", now));
+        assertEquals(0, limiter.tryAcquire("d", now));
+        assertTrue(limiter.tryAcquire("e", now) > 0);
+        assertEquals(2, limiter.size());
+        assertEquals(0, limiter.tryAcquire("a", now));
+    }
+
+    /**
+     * 超过并发限制立即拒绝,释放后恢复
+     */
+    @Test
+    public void testConcurrency_RejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5, 0.2, 0.9);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(-1, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * 延迟稳定时限制增长,延迟大幅升高时收缩,上游失败时乘性减少
+     */
+    @Test
+    public void testConcurrency_AdaptsToLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 100, 1.5, 0.2, 0.5);
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 10 * MS);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10, "limit " + grown);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 100 * MS);
+        }
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk < grown, "limit " + shrunk + " vs " + grown);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(10 * MS, true);
+        assertEquals(Math.max(2, shrunk / 2), limiter.getLimit(), 1);
+    }
+
+    /**
+     * 占满并发后逐个以给定延迟完成
+     */
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, long rtt) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rtt, false);
+        }
+    }
+}
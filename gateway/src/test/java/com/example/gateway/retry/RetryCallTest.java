@@ -0,0 +1,264 @@
+package com.example.gateway.retry;
+
+import com.example.gateway.hedge.HedgeBudget;
+import com.example.gateway.hedge.HedgedCall;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.gateway.loadbalancer.PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * RetryCall / RetryPolicy / RetryBudget 单元测试
+ * 用桩实例代替负载均衡和路由过滤器: 每次选择第一个没有被排除的实例,实例的行为由测试指定.
+ */
+public class RetryCallTest {
+
+    private final ServiceInstance a = new DefaultServiceInstance("a", "future-service", "10.0.0.1", 7778, false);
+
+    private final ServiceInstance b = new DefaultServiceInstance("b", "future-service", "10.0.0.2", 7778, false);
+
+    private final ServiceInstance c = new DefaultServiceInstance("c", "future-service", "10.0.0.3", 7778, false);
+
+    private final List<String> chosen = new ArrayList<>();
+
+    private final RecordingListener listener = new RecordingListener();
+
+    private final RetryPolicy policy = new RetryPolicy(2, Set.of(502, 503), List.of(IOException.class),
+            Duration.ofMillis(1), Duration.ofMillis(5));
+
+    /**
+     * @param behaviors 实例 id 到行为的映射: 状态码、异常或延迟后出错的 Mono
+     */
+    private GatewayFilterChain stubs(Map<String, Object> behaviors) {
+        return exchange -> {
+            Object excluded = exchange.getAttributes().get(EXCLUDED_INSTANCES_ATTR);
+            ServiceInstance instance = List.of(a, b, c).stream()
+                    .filter(candidate -> !(excluded instanceof Collection<?> list && list.contains(candidate)))
+                    .findFirst().orElseThrow();
+            chosen.add(instance.getInstanceId());
+            exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+            Object behavior = behaviors.getOrDefault(instance.getInstanceId(), HttpStatus.OK);
+            if (behavior instanceof Throwable error) {
+                return Mono.error(error);
+            }
+            if (behavior instanceof Mono<?> delayed) {
+                return delayed.then();
+            }
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode((HttpStatus) behavior);
+            response.getHeaders().set("X-Instance", instance.getInstanceId());
+            byte[] body = instance.getInstanceId().getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        };
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/future/one"));
+    }
+
+    private static RetryBudget budget(double percent) {
+        RetryBudget budget = new RetryBudget(percent, 0, 10);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        return budget;
+    }
+
+    /**
+     * 上游返回 503 时丢弃该响应,换一个实例重试
+     */
+    @Test
+    public void testExecute_WhenUpstreamUnavailable_ThenRetriesOnAnotherInstance() {
+        MockServerWebExchange exchange = exchange();
+
+        RetryCall.execute(exchange, stubs(Map.of("a", HttpStatus.SERVICE_UNAVAILABLE)), policy, budget(10), listener)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("a", "b"), chosen);
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("b", exchange.getResponse().getHeaders().getFirst("X-Instance"));
+        assertEquals("b", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, listener.retries.get());
+    }
+
+    /**
+     * 连接失败时重试,每次都避开之前失败的实例
+     */
+    @Test
+    public void testExecute_WhenConnectionsRefused_ThenExcludesEveryTriedInstance() {
+        MockServerWebExchange exchange = exchange();
+        Map<String, Object> behaviors = Map.of("a", new ConnectException("refused"),
+                "b", new ConnectException("refused"));
+
+        RetryCall.execute(exchange, stubs(behaviors), policy, budget(10), listener).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("a", "b", "c"), chosen);
+        assertEquals("c", exchange.getResponse().getBodyAsString().block());
+        assertEquals(2, listener.retries.get());
+    }
+
+    /**
+     * 重试包在对冲外层(与路由配置的顺序相同): 主请求和对冲请求的实例都拒绝连接时,
+     * 重试避开两方选过的实例
+     */
+    @Test
+    public void testExecute_WhenRetryWrapsHedgeAndBothRefuse_ThenExcludesBothInstances() {
+        MockServerWebExchange exchange = exchange();
+        Map<String, Object> behaviors = Map.of(
+                "a", Mono.delay(Duration.ofMillis(100)).then(Mono.error(new ConnectException("refused"))),
+                "b", new ConnectException("refused"));
+        HedgeBudget hedgeBudget = new HedgeBudget(100, 10);
+        for (int i = 0; i < 10; i++) {
+            hedgeBudget.onRequest();
+        }
+        HedgedCall.Listener hedgeListener = new HedgedCall.Listener() {
+            @Override
+            public void onResponse(long latencyNanos, boolean hedge) {
+            }
+
+            @Override
+            public void onHedge() {
+            }
+
+            @Override
+            public void onBudgetExhausted() {
+            }
+        };
+        GatewayFilterChain stubs = stubs(behaviors);
+        GatewayFilterChain hedged = attempt -> HedgedCall.execute(attempt, stubs, TimeUnit.MILLISECONDS.toNanos(10),
+                hedgeBudget, hedgeListener);
+
+        RetryCall.execute(exchange, hedged, policy, budget(10), listener).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("a", "b", "c"), chosen);
+        assertEquals("c", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, listener.retries.get());
+    }
+
+    /**
+     * 次数用完后把最后一次的 503 返回给客户端
+     */
+    @Test
+    public void testExecute_WhenRetriesExhausted_ThenReturnsLastResponse() {
+        MockServerWebExchange exchange = exchange();
+        Map<String, Object> behaviors = Map.of("a", HttpStatus.SERVICE_UNAVAILABLE,
+                "b", HttpStatus.BAD_GATEWAY, "c", HttpStatus.SERVICE_UNAVAILABLE);
+
+        RetryCall.execute(exchange, stubs(behaviors), policy, budget(10), listener).block(Duration.ofSeconds(5));
+
+        assertEquals(3, chosen.size());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals("c", exchange.getResponse().getBodyAsString().block());
+    }
+
+    /**
+     * 预算不足时不重试,直接返回上游的响应
+     */
+    @Test
+    public void testExecute_WhenBudgetExhausted_ThenReturnsFirstResponse() {
+        MockServerWebExchange exchange = exchange();
+
+        RetryCall.execute(exchange, stubs(Map.of("a", HttpStatus.SERVICE_UNAVAILABLE)), policy, budget(0), listener)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("a"), chosen);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals(0, listener.retries.get());
+        assertEquals(1, listener.exhausted.get());
+    }
+
+    /**
+     * 不可重试的异常直接返回,本地过滤器 setComplete 的拒绝也不重试
+     */
+    @Test
+    public void testExecute_WhenNotRetryable_ThenNoRetry() {
+        GatewayFilterChain failing = exchange -> Mono.error(new IllegalStateException("bad request"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                RetryCall.execute(exchange(), failing, policy, budget(10), listener).block(Duration.ofSeconds(5)));
+        assertEquals("bad request", e.getMessage());
+
+        MockServerWebExchange exchange = exchange();
+        AtomicInteger calls = new AtomicInteger();
+        GatewayFilterChain rejecting = attempt -> {
+            calls.incrementAndGet();
+            attempt.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return attempt.getResponse().setComplete();
+        };
+        RetryCall.execute(exchange, rejecting, policy, budget(10), listener).block(Duration.ofSeconds(5));
+
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals(0, listener.retries.get());
+    }
+
+    /**
+     * 退避在 [0, min(max, first × 2^(n-1))) 内,异常按 cause 链匹配
+     */
+    @Test
+    public void testPolicy_BackoffBoundedAndCauseChainMatched() {
+        RetryPolicy backoff = new RetryPolicy(10, Set.of(), List.of(), Duration.ofMillis(10), Duration.ofMillis(50));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(backoff.backoffNanos(1) < Duration.ofMillis(10).toNanos());
+            assertTrue(backoff.backoffNanos(3) < Duration.ofMillis(40).toNanos());
+            assertTrue(backoff.backoffNanos(64) < Duration.ofMillis(50).toNanos());
+        }
+        assertTrue(policy.isRetryable(new RuntimeException(new IOException("reset"))));
+        assertFalse(policy.isRetryable(new IllegalStateException()));
+        assertFalse(policy.isRetryable(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    /**
+     * 比例预算耗尽后只剩保底令牌
+     */
+    @Test
+    public void testBudget_RatioThenReserve() {
+        RetryBudget budget = new RetryBudget(10, 1, 10);
+        for (int i = 0; i < 20; i++) {
+            budget.onRequest();
+        }
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        // 保底令牌桶容量为 1
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    private static final class RecordingListener implements RetryCall.Listener {
+
+        private final AtomicInteger retries = new AtomicInteger();
+
+        private final AtomicInteger exhausted = new AtomicInteger();
+
+        @Override
+        public void onRetry(int retry) {
+            retries.incrementAndGet();
+        }
+
+        @Override
+        public void onBudgetExhausted() {
+            exhausted.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.gateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RouteIndex / PathTrie 单元测试
+ * 路由使用真实的 PathRoutePredicateFactory 谓词,逐个路径与线性查找的结果对比
+ */
+public class RouteIndexTest {
+
+    private static final PathRoutePredicateFactory PATH = new PathRoutePredicateFactory();
+
+    private static final List<String> PATHS = List.of("/", "/api/users/1", "/api/users/1/", "/api/users",
+            "/api/orders/7", "/static/site.css", "/static/a/site.css", "/assets", "/assets/img/logo.png",
+            "/unknown", "/api%2Fusers/1", "//api/users/1", "/Api/users/1");
+
+    private static AsyncPredicate<ServerWebExchange> path(List<String> patterns) {
+        PathRoutePredicateFactory.Config config = new PathRoutePredicateFactory.Config();
+        config.setPatterns(patterns);
+        return PATH.applyAsync(config);
+    }
+
+    private static Route route(String id, AsyncPredicate<ServerWebExchange> predicate) {
+        return Route.async().id(id).uri("http://localhost:7778").asyncPredicate(predicate).build();
+    }
+
+    private static Route route(String id, Map<String, List<String>> patterns) {
+        return route(id, path(patterns.get(id)));
+    }
+
+    /**
+     * 不建索引的路由: 按请求头匹配
+     */
+    private static Route canary() {
+        return route("canary", exchange -> Mono.just(exchange.getRequest().getHeaders().containsKey("X-Canary")));
+    }
+
+    private static Map<String, List<String>> patterns() {
+        return Map.of(
+                "api-users", List.of("/api/users/{id}"),
+                "api", List.of("/api/**"),
+                "static", List.of("/static/*.css", "/assets/**"),
+                "root", List.of("/"));
+    }
+
+    private static List<Route> routes(Map<String, List<String>> patterns) {
+        return List.of(route("api-users", patterns), route("api", patterns), canary(),
+                route("static", patterns), route("root", patterns));
+    }
+
+    private static ServerWebExchange exchange(String path, boolean canary) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (canary) {
+            request.header("X-Canary", "1");
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    /**
+     * RoutePredicateHandlerMapping 的线性查找
+     */
+    private static String linear(List<Route> routes, ServerWebExchange exchange) {
+        return Flux.fromIterable(routes)
+                .concatMap(route -> Mono.just(route).filterWhen(r -> r.getPredicate().apply(exchange)))
+                .next()
+                .map(Route::getId)
+                .defaultIfEmpty("none")
+                .block();
+    }
+
+    private static String indexed(RouteIndex index, ServerWebExchange exchange) {
+        return index.lookup(exchange).map(Route::getId).defaultIfEmpty("none").block();
+    }
+
+    private static void assertSameAsLinear(RouteIndex index) {
+        for (String path : PATHS) {
+            for (boolean canary : new boolean[]{false, true}) {
+                assertEquals(linear(index.getRoutes(), exchange(path, canary)),
+                        indexed(index, exchange(path, canary)), path + " canary=" + canary);
+            }
+        }
+    }
+
+    /**
+     * 各种路径(含通配、尾部斜杠、编码字符、大小写)与线性查找匹配到同一个路由,包括不建索引的路由排在中间时
+     */
+    @Test
+    public void testLookup_MatchesSameRouteAsLinearScan() {
+        RouteIndex index = RouteIndex.build(routes(patterns()), patterns());
+
+        assertSameAsLinear(index);
+        assertEquals("api-users", indexed(index, exchange("/api/users/1", true)));
+        assertEquals("canary", indexed(index, exchange("/static/site.css", true)));
+        assertEquals("static", indexed(index, exchange("/assets/img/logo.png", false)));
+    }
+
+    /**
+     * 候选只包含路径可能匹配的路由和不建索引的路由,按路由顺序排列
+     */
+    @Test
+    public void testCandidates_SkipsRoutesWhosePathCannotMatch() {
+        RouteIndex index = RouteIndex.build(routes(patterns()), patterns());
+
+        assertEquals(List.of("canary", "static"), ids(index.candidates("/static/site.css")));
+        assertEquals(List.of("api-users", "api", "canary"), ids(index.candidates("/api/users/1")));
+        assertEquals(List.of("canary"), ids(index.candidates("/unknown")));
+        // 编码字符交给完整的线性查找
+        assertEquals(5, index.candidates("/api%2Fusers/1").size());
+    }
+
+    /**
+     * 刷新时只更新模式变化的路由,顺序变化和模式变化后的结果仍与线性查找一致
+     */
+    @Test
+    public void testRefresh_WhenRoutesReorderedOrPatternsChanged_ThenFollowsNewRoutes() {
+        Map<String, List<String>> patterns = patterns();
+        RouteIndex index = RouteIndex.build(routes(patterns), patterns);
+
+        List<Route> reordered = new ArrayList<>(routes(patterns));
+        reordered.add(0, reordered.remove(1));
+        RouteIndex refreshed = index.refresh(reordered, patterns);
+        assertEquals("api", indexed(refreshed, exchange("/api/users/1", false)));
+        assertSameAsLinear(refreshed);
+
+        Map<String, List<String>> changed = Map.of(
+                "api-users", List.of("/v2/users/{id}"),
+                "api", List.of("/api/**"),
+                "static", List.of("/static/*.css", "/assets/**"),
+                "root", List.of("/"));
+        RouteIndex updated = refreshed.refresh(routes(changed), changed);
+        assertEquals("api-users", indexed(updated, exchange("/v2/users/1", false)));
+        assertEquals("api", indexed(updated, exchange("/api/users/1", false)));
+        assertSameAsLinear(updated);
+        // 旧版本不受影响
+        assertEquals("api", indexed(refreshed, exchange("/api/users/1", false)));
+        assertEquals("none", indexed(refreshed, exchange("/v2/users/1", false)));
+    }
+
+    /**
+     * 从路由定义中读取 Path 模式,含未知参数的 Path 谓词不建索引
+     */
+    @Test
+    public void testPathPatterns_ReadsShortcutAndNamedArgs() {
+        RouteDefinition shortcut = new RouteDefinition();
+        shortcut.setId("shortcut");
+        shortcut.setPredicates(List.of(new PredicateDefinition("Method=GET"),
+                new PredicateDefinition("Path=/a/**,/b/{id}")));
+        RouteDefinition named = new RouteDefinition();
+        named.setId("named");
+        PredicateDefinition namedPath = new PredicateDefinition();
+        namedPath.setName("Path");
+        namedPath.addArg("patterns", "/c/**");
+        namedPath.addArg("matchTrailingSlash", "false");
+        named.setPredicates(List.of(namedPath));
+        RouteDefinition unknown = new RouteDefinition();
+        unknown.setId("unknown");
+        PredicateDefinition unknownPath = new PredicateDefinition();
+        unknownPath.setName("Path");
+        unknownPath.addArg("regexp", "/d/.*");
+        unknown.setPredicates(List.of(unknownPath));
+
+        Map<String, List<String>> patterns = IndexedRoutePredicateHandlerMapping.pathPatterns(
+                List.of(shortcut, named, unknown));
+
+        assertEquals(Map.of("shortcut", List.of("/a/**", "/b/{id}"), "named", List.of("/c/**")), patterns);
+    }
+
+    private static List<String> ids(List<Route> routes) {
+        return routes.stream().map(Route::getId).toList();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.gateway.transform;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamingJsonTransformer 单元测试
+ */
+public class StreamingJsonTransformerTest {
+
+    private final NettyDataBufferFactory factory = new NettyDataBufferFactory(new UnpooledByteBufAllocator(false));
+
+    private final List<NettyDataBuffer> inputs = new ArrayList<>();
+
+    /**
+     * 按 chunkSize 字节切分输入,记录输入缓冲区以便检查是否释放
+     */
+    private Flux<DataBuffer> chunks(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            NettyDataBuffer buffer = factory.allocateBuffer(chunkSize);
+            buffer.write(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            inputs.add(buffer);
+            buffers.add(buffer);
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    private String transform(StreamingJsonTransformer transformer, Flux<DataBuffer> input) {
+        return DataBufferUtils.join(transformer.transform(input, factory))
+                .map(buffer -> {
+                    try {
+                        return buffer.toString(StandardCharsets.UTF_8);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .block();
+    }
+
+    private void assertInputsReleased() {
+        for (NettyDataBuffer input : inputs) {
+            assertEquals(0, input.getNativeBuffer().refCnt());
+        }
+    }
+
+    /**
+     * 任意层级的字段都被替换为掩码,切分为单字节时结果不变
+     */
+    @Test
+    public void testTransform_WhenSplitIntoSingleBytes_ThenRedactsNestedFields() {
+        StreamingJsonTransformer transformer = new StreamingJsonTransformer(Set.of("password"), "***", Map.of());
+        String json = "{\"user\":{\"name\":\"张三\",\"password\":\"p@ss\"},"
+                + "\"list\":[{\"password\":{\"a\":[1,2]}},3.5,true,null]}";
+
+        String result = transform(transformer, chunks(json, 1));
+
+        assertEquals("{\"user\":{\"name\":\"张三\",\"password\":\"***\"},"
+                + "\"list\":[{\"password\":\"***\"},3.5,true,null]}", result);
+        assertInputsReleased();
+    }
+
+    /**
+     * 掩码为 null 时删除字段
+     */
+    @Test
+    public void testTransform_WhenMaskIsNull_ThenRemovesFields() {
+        StreamingJsonTransformer transformer = new StreamingJsonTransformer(Set.of("secret"), null, Map.of());
+
+        String result = transform(transformer, chunks("{\"a\":1,\"secret\":[{\"x\":{}}],\"b\":{\"secret\":2}}", 7));
+
+        assertEquals("{\"a\":1,\"b\":{}}", result);
+        assertInputsReleased();
+    }
+
+    /**
+     * 追加字段写在根对象末尾,替换根对象中的同名字段,不影响嵌套对象
+     */
+    @Test
+    public void testTransform_WhenAddingFields_ThenReplacesRootFieldsOnly() {
+        Map<String, String> add = new LinkedHashMap<>();
+        add.put("source", "gateway");
+        StreamingJsonTransformer transformer = new StreamingJsonTransformer(Set.of(), "***", add);
+
+        String result = transform(transformer,
+                chunks("{\"source\":{\"x\":1},\"inner\":{\"source\":\"client\"}}", 5));
+
+        assertEquals("{\"inner\":{\"source\":\"client\"},\"source\":\"gateway\"}", result);
+        assertInputsReleased();
+    }
+
+    /**
+     * 报文格式错误时以异常结束,已读入的缓冲区全部释放
+     */
+    @Test
+    public void testTransform_WhenMalformed_ThenErrorsAndReleasesInput() {
+        StreamingJsonTransformer transformer = new StreamingJsonTransformer(Set.of("password"), "***", Map.of());
+
+        Flux<DataBuffer> output = transformer.transform(chunks("{\"a\":1,]", 3), factory)
+                .doOnNext(DataBufferUtils::release);
+
+        RuntimeException error = assertThrows(RuntimeException.class, output::blockLast);
+        assertInstanceOf(JsonProcessingException.class, Exceptions.unwrap(error));
+        assertInputsReleased();
+    }
+
+    /**
+     * 每个输入缓冲区最多产生一个输出缓冲区,大报文不会在最后一次性输出
+     */
+    @Test
+    public void testTransform_WhenLargeArray_ThenEmitsIncrementally() {
+        StreamingJsonTransformer transformer = new StreamingJsonTransformer(Set.of("password"), "***", Map.of());
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10_000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"password\":\"x\"}");
+        }
+        json.append(']');
+        Flux<DataBuffer> input = chunks(json.toString(), 4096);
+        int chunkCount = inputs.size();
+
+        List<Integer> sizes = transformer.transform(input, factory)
+                .map(buffer -> {
+                    int size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return size;
+                })
+                .collectList()
+                .block();
+
+        assertNotNull(sizes);
+        assertTrue(sizes.size() > chunkCount / 2 && sizes.size() <= chunkCount + 1);
+        assertTrue(sizes.stream().allMatch(size -> size < 3 * 4096));
+        assertInputsReleased();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.tracing.config;
+
+import brave.Tags;
+import brave.Tracing;
+import brave.TracingCustomizer;
+import brave.handler.MutableSpan;
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import com.example.tracing.reporter.JdkHttpSender;
+import com.example.tracing.sampler.TailSamplingSpanHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.Encoding;
+import zipkin2.reporter.brave.MutableSpanBytesEncoder;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 采样和上报的自动配置,排在 Spring Boot 的 Brave 自动配置之前,替换它的概率采样器
+ * Spring Boot 自带的 Zipkin 上报需要在使用方关闭(spring.autoconfigure.exclude ZipkinAutoConfiguration),
+ * 否则头部采样的 span 会被上报两次.
+ * 上报器不注册为 bean,由 TailSamplingSpanHandler 持有并在关闭时一起关闭.
+ */
+@AutoConfiguration(beforeName = "org.springframework.boot.actuate.autoconfigure.tracing.BraveAutoConfiguration")
+@ConditionalOnClass(Tracing.class)
+@EnableConfigurationProperties(TracingProperties.class)
+public class TracingAutoConfiguration {
+
+    /**
+     * 头部采样: 每秒最多 tracesPerSecond 个新 trace,已有采样决定的请求沿用上游的决定
+     */
+    @Bean
+    public Sampler rateLimitingSampler(TracingProperties properties) {
+        return RateLimitingSampler.create(properties.getTracesPerSecond());
+    }
+
+    /**
+     * 头部没有采样的请求也在本地记录 span,交给尾部采样决定
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tracing.tail.enabled", havingValue = "true", matchIfMissing = true)
+    public TracingCustomizer alwaysSampleLocalCustomizer() {
+        return Tracing.Builder::alwaysSampleLocal;
+    }
+
+    @Bean
+    public TailSamplingSpanHandler tailSamplingSpanHandler(TracingProperties properties,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        TracingProperties.Reporter reporter = properties.getReporter();
+        int messageMaxBytes = (int) reporter.getMessageMaxBytes().toBytes();
+        JdkHttpSender sender = new JdkHttpSender(URI.create(reporter.getEndpoint()), messageMaxBytes,
+                reporter.getTimeout());
+        AsyncReporter<MutableSpan> spanReporter = AsyncReporter.builder(sender)
+                .queuedMaxSpans(reporter.getQueuedMaxSpans())
+                .queuedMaxBytes((int) Math.min(Integer.MAX_VALUE, reporter.getQueuedMaxBytes().toBytes()))
+                .messageMaxBytes(messageMaxBytes)
+                .messageTimeout(reporter.getMessageTimeout().toNanos(), TimeUnit.NANOSECONDS)
+                .build(MutableSpanBytesEncoder.create(Encoding.JSON, Tags.ERROR));
+        TracingProperties.Tail tail = properties.getTail();
+        return new TailSamplingSpanHandler(spanReporter, tail.isKeepErrors(), tail.getSlowThreshold().toNanos(),
+                tail.getMaxBufferedTraces(), tail.getMaxSpansPerTrace(), tail.getDecisionTimeout().toNanos(),
+                properties.getRoutes(), properties.getRouteTags(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.tracing.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 采样和上报配置
+ * 对应配置前缀 tracing,替代 management.tracing.sampling.probability
+ */
+@Data
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    /**
+     * 头部采样: 每秒最多开始采样的新 trace 数,采样决定随请求头传给下游服务
+     */
+    private int tracesPerSecond = 10;
+
+    /**
+     * 尾部采样: 头部没有采样的请求也在本地记录,结束时按结果决定是否上报
+     */
+    private Tail tail = new Tail();
+
+    /**
+     * 路由到每秒额外上报的 trace 数,在尾部决定,需要开启尾部采样
+     */
+    private Map<String, Integer> routes = new LinkedHashMap<>();
+
+    /**
+     * 从这些 span 标签中取路由,依次匹配 routes 的键
+     */
+    private List<String> routeTags = List.of("spring.cloud.gateway.route.id", "uri");
+
+    private Reporter reporter = new Reporter();
+
+    @Data
+    public static class Tail {
+
+        private boolean enabled = true;
+
+        /**
+         * 本地根 span 超过该耗时的 trace 总是上报
+         */
+        private Duration slowThreshold = Duration.ofMillis(500);
+
+        /**
+         * 出错(异常或 5xx)的 trace 总是上报
+         */
+        private boolean keepErrors = true;
+
+        /**
+         * 同时等待决定的 trace 数上限,超过后新 trace 不再缓存
+         */
+        private int maxBufferedTraces = 10_000;
+
+        /**
+         * 单个 trace 最多缓存的 span 数
+         */
+        private int maxSpansPerTrace = 256;
+
+        /**
+         * 本地根 span 迟迟不结束时,缓存的 span 在这之后丢弃
+         */
+        private Duration decisionTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Reporter {
+
+        /**
+         * Zipkin 上报地址
+         */
+        private String endpoint = "http://localhost:9411/api/v2/spans";
+
+        /**
+         * 上报队列的 span 数上限,队列满时丢弃新的 span
+         */
+        private int queuedMaxSpans = 10_000;
+
+        /**
+         * 上报队列的字节数上限
+         */
+        private DataSize queuedMaxBytes = DataSize.ofMegabytes(16);
+
+        /**
+         * 单次上报的最大字节数
+         */
+        private DataSize messageMaxBytes = DataSize.ofKilobytes(512);
+
+        /**
+         * 队列中的 span 最多等待多久上报,即批量上报的间隔
+         */
+        private Duration messageTimeout = Duration.ofSeconds(1);
+
+        /**
+         * 连接和请求超时
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+}
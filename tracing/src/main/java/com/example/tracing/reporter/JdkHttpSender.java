@@ -0,0 +1,81 @@
+package com.example.tracing.reporter;
+
+import zipkin2.reporter.BytesMessageEncoder;
+import zipkin2.reporter.BytesMessageSender;
+import zipkin2.reporter.Encoding;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 用 JDK HttpClient 把一批 span 以 JSON 数组 POST 到 Zipkin
+ * 由 AsyncReporter 的上报线程调用,同步发送;请求线程只把 span 放进 AsyncReporter 的有界队列.
+ */
+public final class JdkHttpSender implements BytesMessageSender {
+
+    private final HttpClient client;
+
+    private final URI endpoint;
+
+    private final int messageMaxBytes;
+
+    private final Duration timeout;
+
+    private volatile boolean closed;
+
+    public JdkHttpSender(URI endpoint, int messageMaxBytes, Duration timeout) {
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.endpoint = endpoint;
+        this.messageMaxBytes = messageMaxBytes;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Encoding encoding() {
+        return Encoding.JSON;
+    }
+
+    @Override
+    public int messageMaxBytes() {
+        return messageMaxBytes;
+    }
+
+    @Override
+    public int messageSizeInBytes(List<byte[]> encodedSpans) {
+        return Encoding.JSON.listSizeInBytes(encodedSpans);
+    }
+
+    @Override
+    public void send(List<byte[]> encodedSpans) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("sender closed");
+        }
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(BytesMessageEncoder.JSON.encode(encodedSpans)))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("zipkin responded " + response.statusCode() + " for " + endpoint);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        client.close();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.tracing.sampler;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import zipkin2.reporter.Reporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 头部采样 + 尾部采样的 span 处理器,也是唯一的上报出口
+ * 头部采样的 span 结束后直接上报;头部没有采样、只在本地记录的 span 按 trace 缓存,
+ * 等本地根 span 结束时决定: 出错、超过慢阈值或所在路由的速率允许时上报整个 trace,否则丢弃.
+ * 缓存有 trace 数和单个 trace 的 span 数上限,本地根迟迟不结束的 trace 超时后丢弃,内存占用有界.
+ */
+public final class TailSamplingSpanHandler extends SpanHandler implements Closeable {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Reporter<MutableSpan> reporter;
+
+    private final boolean keepErrors;
+
+    private final long slowThresholdMicros;
+
+    private final int maxBufferedTraces;
+
+    private final int maxSpansPerTrace;
+
+    private final long decisionTimeoutNanos;
+
+    private final Map<String, Sampler> routeSamplers = new HashMap<>();
+
+    private final List<String> routeTags;
+
+    private final ConcurrentHashMap<TraceKey, PendingTrace> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+
+    private final Counter keptError;
+
+    private final Counter keptSlow;
+
+    private final Counter keptRoute;
+
+    private final Counter dropped;
+
+    private final Counter overflow;
+
+    /**
+     * @param routeRates 路由到每秒额外上报的 trace 数
+     * @param routeTags  从这些 span 标签中取路由
+     */
+    public TailSamplingSpanHandler(Reporter<MutableSpan> reporter, boolean keepErrors, long slowThresholdNanos,
+                                   int maxBufferedTraces, int maxSpansPerTrace, long decisionTimeoutNanos,
+                                   Map<String, Integer> routeRates, List<String> routeTags,
+                                   MeterRegistry meterRegistry) {
+        this.reporter = reporter;
+        this.keepErrors = keepErrors;
+        this.slowThresholdMicros = TimeUnit.NANOSECONDS.toMicros(slowThresholdNanos);
+        this.maxBufferedTraces = maxBufferedTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.decisionTimeoutNanos = decisionTimeoutNanos;
+        routeRates.forEach((route, rate) -> routeSamplers.put(route, RateLimitingSampler.create(rate)));
+        this.routeTags = List.copyOf(routeTags);
+        this.keptError = decisions(meterRegistry, "error");
+        this.keptSlow = decisions(meterRegistry, "slow");
+        this.keptRoute = decisions(meterRegistry, "route");
+        this.dropped = decisions(meterRegistry, "dropped");
+        this.overflow = Counter.builder("tracing.tail.overflow")
+                .description("缓存已满未能参与尾部采样的 span 数").register(meterRegistry);
+    }
+
+    private static Counter decisions(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tracing.tail.decisions").tag("result", result)
+                .description("尾部采样的决定").register(meterRegistry);
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause == Cause.ABANDONED) {
+            return true;
+        }
+        if (Boolean.TRUE.equals(context.sampled())) {
+            reporter.report(span);
+            return true;
+        }
+        if (!context.sampledLocal()) {
+            return true;
+        }
+        long now = System.nanoTime();
+        sweep(now);
+        TraceKey key = new TraceKey(context.traceIdHigh(), context.traceId());
+        if (context.isLocalRoot()) {
+            decide(key, span);
+        } else {
+            buffer(key, span, now);
+        }
+        return true;
+    }
+
+    private void buffer(TraceKey key, MutableSpan span, long now) {
+        PendingTrace trace = pending.computeIfAbsent(key,
+                k -> pending.size() < maxBufferedTraces ? new PendingTrace(now) : null);
+        if (trace == null) {
+            overflow.increment();
+            return;
+        }
+        synchronized (trace) {
+            if (trace.spans.size() < maxSpansPerTrace) {
+                trace.spans.add(span);
+            } else {
+                overflow.increment();
+            }
+        }
+    }
+
+    /**
+     * 本地根结束时取出缓存的 span 做决定;之后才结束的 span(例如没有等待的异步任务)等不到本地根,超时后丢弃
+     */
+    private void decide(TraceKey key, MutableSpan root) {
+        PendingTrace trace = pending.remove(key);
+        List<MutableSpan> spans;
+        if (trace == null) {
+            spans = List.of();
+        } else {
+            synchronized (trace) {
+                spans = new ArrayList<>(trace.spans);
+            }
+        }
+        if (keep(root, spans)) {
+            spans.forEach(reporter::report);
+            reporter.report(root);
+        }
+    }
+
+    private boolean keep(MutableSpan root, List<MutableSpan> spans) {
+        if (keepErrors && (isError(root) || spans.stream().anyMatch(TailSamplingSpanHandler::isError))) {
+            keptError.increment();
+            return true;
+        }
+        long durationMicros = root.finishTimestamp() - root.startTimestamp();
+        if (root.startTimestamp() != 0 && durationMicros >= slowThresholdMicros) {
+            keptSlow.increment();
+            return true;
+        }
+        if (!routeSamplers.isEmpty()) {
+            Sampler sampler = routeSamplers.get(route(root, spans));
+            if (sampler != null && sampler.isSampled(0L)) {
+                keptRoute.increment();
+                return true;
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * 异常、error 标签或 5xx 状态
+     */
+    static boolean isError(MutableSpan span) {
+        if (span.error() != null || span.tag("error") != null || "SERVER_ERROR".equals(span.tag("outcome"))) {
+            return true;
+        }
+        String status = span.tag("http.status_code");
+        if (status == null) {
+            status = span.tag("status");
+        }
+        return status != null && status.length() == 3 && status.charAt(0) == '5';
+    }
+
+    private String route(MutableSpan root, List<MutableSpan> spans) {
+        for (String tag : routeTags) {
+            String value = root.tag(tag);
+            if (value != null && routeSamplers.containsKey(value)) {
+                return value;
+            }
+            for (MutableSpan span : spans) {
+                value = span.tag(tag);
+                if (value != null && routeSamplers.containsKey(value)) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 每秒最多一个线程清理一次,丢弃超时仍未等到本地根的 trace
+     */
+    private void sweep(long now) {
+        long next = nextSweep.get();
+        if (now - next < 0 || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        for (Iterator<PendingTrace> it = pending.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().createdAt > decisionTimeoutNanos) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 容器关闭时上报队列中剩余的 span
+     */
+    @Override
+    public void close() throws IOException {
+        if (reporter instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    int pendingTraces() {
+        return pending.size();
+    }
+
+    private record TraceKey(long traceIdHigh, long traceId) {
+    }
+
+    private static final class PendingTrace {
+
+        private final long createdAt;
+
+        private final List<MutableSpan> spans = new ArrayList<>(4);
+
+        private PendingTrace(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.tracing.sampler;
+
+import brave.Span;
+import brave.Tags;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.sampler.Sampler;
+import com.example.tracing.reporter.JdkHttpSender;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.Encoding;
+import zipkin2.reporter.brave.MutableSpanBytesEncoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TailSamplingSpanHandler 单元测试
+ * 用进程内的 HTTP 服务代替 Zipkin,记录每次上报的请求体;上报器关闭定时发送,由测试调用 flush 控制批次.
+ */
+public class TailSamplingSpanHandlerTest {
+
+    private static final Pattern SPAN_NAME = Pattern.compile("\"name\":\"([^\"]+)\"");
+
+    private final List<String> batches = new CopyOnWriteArrayList<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private HttpServer zipkin;
+
+    private AsyncReporter<MutableSpan> reporter;
+
+    private TailSamplingSpanHandler handler;
+
+    private Tracing tracing;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        zipkin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        zipkin.createContext("/api/v2/spans", exchange -> {
+            batches.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+        });
+        zipkin.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + zipkin.getAddress().getPort() + "/api/v2/spans");
+        reporter = AsyncReporter.builder(new JdkHttpSender(endpoint, 512 * 1024, Duration.ofSeconds(5)))
+                .messageTimeout(0, TimeUnit.MILLISECONDS)
+                .build(MutableSpanBytesEncoder.create(Encoding.JSON, Tags.ERROR));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (tracing != null) {
+            tracing.close();
+        }
+        handler.close();
+        zipkin.stop(0);
+    }
+
+    private Tracer tracer(Sampler sampler, Map<String, Integer> routeRates) {
+        handler = new TailSamplingSpanHandler(reporter, true, Duration.ofMillis(500).toNanos(), 100, 10,
+                Duration.ofSeconds(10).toNanos(), routeRates, List.of("uri"), registry);
+        tracing = Tracing.newBuilder()
+                .localServiceName("test")
+                .sampler(sampler)
+                .alwaysSampleLocal()
+                .addSpanHandler(handler)
+                .build();
+        return tracing.tracer();
+    }
+
+    /**
+     * 每次 flush 上报的 span 名称
+     */
+    private List<String> flushedSpanNames() {
+        reporter.flush();
+        return batches.stream().flatMap(batch -> {
+            Matcher matcher = SPAN_NAME.matcher(batch);
+            return matcher.results().map(result -> result.group(1));
+        }).toList();
+    }
+
+    /**
+     * 头部没有采样、正常且很快的请求不上报,缓存被清空
+     */
+    @Test
+    public void testEnd_WhenUnsampledAndHealthy_ThenDropped() {
+        Tracer tracer = tracer(Sampler.NEVER_SAMPLE, Map.of());
+
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("child").start().finish();
+        root.finish();
+
+        assertEquals(List.of(), flushedSpanNames());
+        assertEquals(0, handler.pendingTraces());
+        assertEquals(1.0, registry.get("tracing.tail.decisions").tag("result", "dropped").counter().count());
+    }
+
+    /**
+     * 子 span 出错时整个 trace 上报,并在同一批次中发出
+     */
+    @Test
+    public void testEnd_WhenChildFails_ThenWholeTraceReportedInOneBatch() {
+        Tracer tracer = tracer(Sampler.NEVER_SAMPLE, Map.of());
+
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("ok").start().finish();
+        tracer.newChild(root.context()).name("failed").start().error(new IllegalStateException("boom")).finish();
+        root.finish();
+
+        assertEquals(List.of("ok", "failed", "root"), flushedSpanNames());
+        assertEquals(1, batches.size());
+    }
+
+    /**
+     * 本地根超过慢阈值时上报
+     */
+    @Test
+    public void testEnd_WhenSlow_ThenReported() {
+        Tracer tracer = tracer(Sampler.NEVER_SAMPLE, Map.of());
+        long start = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+        tracer.newTrace().name("fast").start(start).finish(start + 1_000);
+        tracer.newTrace().name("slow").start(start).finish(start + 600_000);
+
+        assertEquals(List.of("slow"), flushedSpanNames());
+    }
+
+    /**
+     * 按路由的速率额外上报,同一秒内超过速率的丢弃
+     */
+    @Test
+    public void testEnd_WhenRouteRateConfigured_ThenKeepsUpToRate() {
+        Tracer tracer = tracer(Sampler.NEVER_SAMPLE, Map.of("/test/one", 1));
+
+        for (int i = 0; i < 3; i++) {
+            tracer.newTrace().name("one").tag("uri", "/test/one").start().finish();
+            tracer.newTrace().name("other").tag("uri", "/test/other").start().finish();
+        }
+
+        assertEquals(List.of("one"), flushedSpanNames());
+        assertEquals(1.0, registry.get("tracing.tail.decisions").tag("result", "route").counter().count());
+    }
+
+    /**
+     * 头部采样的 span 直接上报,不进入缓存
+     */
+    @Test
+    public void testEnd_WhenHeadSampled_ThenReportedImmediately() {
+        Tracer tracer = tracer(Sampler.ALWAYS_SAMPLE, Map.of());
+
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("child").start().finish();
+        assertEquals(0, handler.pendingTraces());
+        root.finish();
+
+        assertEquals(List.of("child", "root"), flushedSpanNames());
+    }
+
+    /**
+     * 5xx 状态标签视为错误
+     */
+    @Test
+    public void testIsError_RecognizesStatusTags() {
+        MutableSpan span = new MutableSpan();
+        span.tag("status", "503");
+        assertTrue(TailSamplingSpanHandler.isError(span));
+
+        MutableSpan ok = new MutableSpan();
+        ok.tag("http.status_code", "404");
+        assertFalse(TailSamplingSpanHandler.isError(ok));
+    }
+}